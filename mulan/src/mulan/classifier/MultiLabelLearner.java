@@ -17,6 +17,7 @@ package mulan.classifier;
 
 import mulan.data.MultiLabelInstances;
 import weka.core.Instance;
+import weka.core.Instances;
 
 /**
  * Common root interface for all multi-label learner types.
@@ -74,6 +75,21 @@ public interface MultiLabelLearner {
     public MultiLabelOutput makePrediction(Instance instance)
             throws Exception, InvalidDataException, ModelInitializationException;
 
+    /**
+     * Returns the predictions of the learner for a batch of input instances. The
+     * result holds, row by row, the same outputs that
+     * {@link MultiLabelLearner#makePrediction(Instance)} returns for each instance
+     * of the batch in turn.
+     *
+     * @param instances the input given to the learner in the form of {@link Instances}
+     * @return the predictions of the learner in form of {@link MultiLabelOutputMatrix}.
+     * @throws Exception if an error occurs while making the predictions.
+     * @throws InvalidDataException if specified instances data is invalid and can not be processed by the learner
+     * @throws ModelInitializationException if method is called before {@link MultiLabelLearner#build(MultiLabelInstances)}
+     */
+    public MultiLabelOutputMatrix makePredictions(Instances instances)
+            throws Exception, InvalidDataException, ModelInitializationException;
+
     /**
      * Sets whether debugging information should be output by the model
      * 
@@ -17,7 +17,11 @@ package mulan.classifier;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.concurrent.ExecutorService;
 import mulan.core.ArgumentNullException;
+import mulan.core.ModelBuilder;
+import mulan.core.ModelExecutor;
+import mulan.core.ModelSampler;
 import mulan.data.MultiLabelInstances;
 import weka.core.*;
 
@@ -60,6 +64,14 @@ public abstract class MultiLabelLearnerBase
     protected int[] featureIndices;
     /** Whether debugging is on/off */
     private boolean isDebug = false;
+    /**
+     * Executor on which independent models are built, or null
+     */
+    private transient ExecutorService executor;
+    /**
+     * Maximum number of independent models built at the same time
+     */
+    private int maxConcurrentModels = 1;
 
     public boolean isUpdatable() {
         /** as default learners are assumed not to be updatable */
@@ -125,6 +137,37 @@ public abstract class MultiLabelLearnerBase
      */
     protected abstract MultiLabelOutput makePredictionInternal(Instance instance) throws Exception, InvalidDataException;
 
+    public final MultiLabelOutputMatrix makePredictions(Instances instances)
+            throws Exception, InvalidDataException, ModelInitializationException {
+        if (instances == null) {
+            throw new ArgumentNullException("instances");
+        }
+        if (!isModelInitialized()) {
+            throw new ModelInitializationException("The model has not been trained.");
+        }
+
+        return makePredictionsInternal(instances);
+    }
+
+    /**
+     * Learner specific implementation for predicting on a batch of instances. This method is
+     * called from {@link #makePredictions(weka.core.Instances)}. The default implementation
+     * calls {@link #makePredictionInternal(weka.core.Instance)} for each instance in turn;
+     * learners that can transform or classify the whole batch at once override it.
+     *
+     * @param instances the data instances to predict on
+     * @throws Exception if an error occurs while making the predictions.
+     * @throws InvalidDataException if specified instances data is invalid and can not be processed by the learner
+     * @return the outputs of the learner for the given instances
+     */
+    protected MultiLabelOutputMatrix makePredictionsInternal(Instances instances) throws Exception, InvalidDataException {
+        MultiLabelOutputMatrix predictions = new MultiLabelOutputMatrix(instances.numInstances(), numLabels);
+        for (int i = 0; i < instances.numInstances(); i++) {
+            predictions.set(i, makePredictionInternal(instances.instance(i)));
+        }
+        return predictions;
+    }
+
     /**
      * Set debugging mode.
      *
@@ -156,6 +199,81 @@ public abstract class MultiLabelLearnerBase
         System.err.println("" + new Date() + ": " + msg);
     }
 
+    /**
+     * Sets the executor on which the independent models of the learner are built, such
+     * as the models of the labels of a transformation based learner or the members of an
+     * ensemble. The executor is not shut down by the learner and runs at most the maximum
+     * number of concurrent models at the same time. When no executor is set and that
+     * maximum is greater than one, a pool with that many threads is used. The executor is
+     * not copied by {@link #makeCopy()}. Ensemble learners also gather the predictions of
+     * their members for an instance on it. Learners without independent models ignore
+     * it.
+     *
+     * @param anExecutor the executor building the models, or null
+     */
+    public void setExecutor(ExecutorService anExecutor) {
+        executor = anExecutor;
+    }
+
+    /**
+     * Returns the executor on which the independent models of the learner are built.
+     *
+     * @return the executor, or null
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the maximum number of independent models that are built at the same time. It
+     * bounds the memory taken by the training sets of the models. The default value is 1,
+     * that is the models are built one after the other.
+     *
+     * @param someModels the maximum number of concurrent models
+     */
+    public void setMaxConcurrentModels(int someModels) {
+        if (someModels < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent models must be positive.");
+        }
+        maxConcurrentModels = someModels;
+    }
+
+    /**
+     * Returns the maximum number of independent models that are built at the same time.
+     *
+     * @return the maximum number of concurrent models
+     */
+    public int getMaxConcurrentModels() {
+        return maxConcurrentModels;
+    }
+
+    /**
+     * Builds a number of independent models with the executor and the maximum number of
+     * concurrent models of the learner.
+     *
+     * @param numModels the number of models
+     * @param builder the builder of a model
+     * @throws Exception if a model can not be built
+     * @see ModelExecutor#buildModels(int, ModelBuilder, ExecutorService, int)
+     */
+    protected void buildModels(int numModels, ModelBuilder builder) throws Exception {
+        ModelExecutor.buildModels(numModels, builder, executor, maxConcurrentModels);
+    }
+
+    /**
+     * Builds a number of independent models with the executor and the maximum number of
+     * concurrent models of the learner, drawing the sample of each model first in the
+     * calling thread.
+     *
+     * @param numModels the number of models
+     * @param sampler the sampler of a model
+     * @throws Exception if a model can not be sampled or built
+     * @see ModelExecutor#sampleAndBuildModels(int, ModelSampler, ExecutorService, int)
+     */
+    protected void sampleAndBuildModels(int numModels, ModelSampler sampler) throws Exception {
+        ModelExecutor.sampleAndBuildModels(numModels, sampler, executor, maxConcurrentModels);
+    }
+
     public MultiLabelLearner makeCopy() throws Exception {
         return (MultiLabelLearner) new SerializedObject(this).getObject();
     }
@@ -135,6 +135,23 @@ public class MultiLabelOutput {
         this.pValues = Arrays.copyOf(pValues, pValues.length);
     }
 
+    /**
+     * Creates a new instance of {@link MultiLabelOutput} from components that are
+     * already computed, such as a row of a {@link MultiLabelOutputMatrix}. The arrays
+     * are used as they are and any of them may be null.
+     *
+     * @param bipartition bipartition of labels
+     * @param ranking ranking of labels
+     * @param confidences confidence values of labels
+     * @param pValues predicted values for continuous targets
+     */
+    MultiLabelOutput(boolean[] bipartition, int[] ranking, double[] confidences, double[] pValues) {
+        this.bipartition = bipartition;
+        this.ranking = ranking;
+        this.confidences = confidences;
+        this.pValues = pValues;
+    }
+
     /**
      * Gets bipartition of labels. 
      * @return the bipartition
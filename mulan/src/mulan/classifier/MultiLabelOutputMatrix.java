@@ -0,0 +1,358 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier;
+
+import mulan.core.ArgumentNullException;
+
+/**
+ * Class representing the outputs of a {@link MultiLabelLearner} for a batch of
+ * instances. Each kind of output (bipartitions, rankings, confidences, predicted
+ * values) is kept in a single array with one row of labels per instance, and is
+ * allocated when the first row that contains it is set. All rows of a matrix hold
+ * the same kinds of output. The rows can be set from a {@link MultiLabelOutput},
+ * or written label by label, so that a learner does not allocate objects for each
+ * instance of the batch.
+ */
+public class MultiLabelOutputMatrix {
+
+    /** the number of instances (rows) of the matrix */
+    private final int numInstances;
+    /** the number of labels (columns) of the matrix */
+    private final int numLabels;
+    /** whether the kinds of output of the matrix are known */
+    private boolean initialized;
+    /** the bipartitions of the instances, row by row */
+    private boolean[] bipartitions;
+    /** the rankings of the instances, row by row */
+    private int[] rankings;
+    /** the confidences of the instances, row by row */
+    private double[] confidences;
+    /** the predicted values of the instances, row by row */
+    private double[] pValues;
+    /** the labels of a row sorted by confidence, reused by each ranking */
+    private int[] order;
+    /** the buffer of the sort of the labels of a row */
+    private int[] sortBuffer;
+
+    /**
+     * Creates an empty matrix
+     *
+     * @param numInstances the number of instances
+     * @param numLabels the number of labels
+     */
+    public MultiLabelOutputMatrix(int numInstances, int numLabels) {
+        if (numInstances < 0 || numLabels < 0) {
+            throw new IllegalArgumentException("The dimensions of the matrix can not be negative.");
+        }
+        this.numInstances = numInstances;
+        this.numLabels = numLabels;
+    }
+
+    public int getNumInstances() {
+        return numInstances;
+    }
+
+    public int getNumLabels() {
+        return numLabels;
+    }
+
+    /**
+     * Stores the output of a learner for an instance of the batch
+     *
+     * @param row the position of the instance in the batch
+     * @param output the output of the learner for the instance
+     */
+    public void set(int row, MultiLabelOutput output) {
+        if (output == null) {
+            throw new ArgumentNullException("output");
+        }
+        if (row < 0 || row >= numInstances) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of range.");
+        }
+        if (!initialized) {
+            if (output.hasBipartition()) {
+                bipartitions = new boolean[numInstances * numLabels];
+            }
+            if (output.hasRanking()) {
+                rankings = new int[numInstances * numLabels];
+            }
+            if (output.hasConfidences()) {
+                confidences = new double[numInstances * numLabels];
+            }
+            if (output.hasPvalues()) {
+                pValues = new double[numInstances * numLabels];
+            }
+            initialized = true;
+        } else if (output.hasBipartition() != hasBipartitions()
+                || output.hasRanking() != hasRankings()
+                || output.hasConfidences() != hasConfidences()
+                || output.hasPvalues() != hasPvalues()) {
+            throw new IllegalArgumentException("The outputs of a batch must all have "
+                    + "the same kinds of predictions.");
+        }
+        int offset = row * numLabels;
+        if (bipartitions != null) {
+            checkLength(output.getBipartition().length);
+            System.arraycopy(output.getBipartition(), 0, bipartitions, offset, numLabels);
+        }
+        if (rankings != null) {
+            checkLength(output.getRanking().length);
+            System.arraycopy(output.getRanking(), 0, rankings, offset, numLabels);
+        }
+        if (confidences != null) {
+            checkLength(output.getConfidences().length);
+            System.arraycopy(output.getConfidences(), 0, confidences, offset, numLabels);
+        }
+        if (pValues != null) {
+            checkLength(output.getPvalues().length);
+            System.arraycopy(output.getPvalues(), 0, pValues, offset, numLabels);
+        }
+    }
+
+    /**
+     * Sets whether a label is relevant to an instance of the batch. The
+     * bipartitions of the matrix are allocated by the first call.
+     *
+     * @param row the position of the instance in the batch
+     * @param label the index of the label
+     * @param value whether the label is relevant
+     */
+    public void setBipartition(int row, int label, boolean value) {
+        if (bipartitions == null) {
+            bipartitions = new boolean[numInstances * numLabels];
+            initialized = true;
+        }
+        bipartitions[index(row, label)] = value;
+    }
+
+    /**
+     * Sets the rank of a label for an instance of the batch. The rankings of the
+     * matrix are allocated by the first call.
+     *
+     * @param row the position of the instance in the batch
+     * @param label the index of the label
+     * @param rank the rank of the label, starting from 1
+     */
+    public void setRank(int row, int label, int rank) {
+        if (rankings == null) {
+            rankings = new int[numInstances * numLabels];
+            initialized = true;
+        }
+        rankings[index(row, label)] = rank;
+    }
+
+    /**
+     * Sets the confidence of a label for an instance of the batch. The
+     * confidences of the matrix are allocated by the first call.
+     *
+     * @param row the position of the instance in the batch
+     * @param label the index of the label
+     * @param value the confidence of the label
+     */
+    public void setConfidence(int row, int label, double value) {
+        if (confidences == null) {
+            confidences = new double[numInstances * numLabels];
+            initialized = true;
+        }
+        confidences[index(row, label)] = value;
+    }
+
+    /**
+     * Sets the predicted value of a target for an instance of the batch. The
+     * predicted values of the matrix are allocated by the first call.
+     *
+     * @param row the position of the instance in the batch
+     * @param label the index of the target
+     * @param value the predicted value
+     */
+    public void setPvalue(int row, int label, double value) {
+        if (pValues == null) {
+            pValues = new double[numInstances * numLabels];
+            initialized = true;
+        }
+        pValues[index(row, label)] = value;
+    }
+
+    /**
+     * Sets the ranking of an instance of the batch from the confidences of its
+     * row, which must have been set. The ranking is the same as the one of
+     * {@link MultiLabelOutput#ranksFromValues(double[])}: the labels are ranked by
+     * decreasing confidence, a tie is won by the label with the larger index and
+     * a missing confidence is ranked as the largest finite value.
+     *
+     * @param row the position of the instance in the batch
+     */
+    public void setRankingFromConfidences(int row) {
+        if (confidences == null) {
+            throw new IllegalStateException("The confidences of the matrix are not set.");
+        }
+        if (order == null) {
+            order = new int[numLabels];
+            sortBuffer = new int[numLabels];
+        }
+        int offset = index(row, 0);
+        for (int i = 0; i < numLabels; i++) {
+            order[i] = i;
+        }
+        // bottom-up merge sort by increasing confidence, stable for the ties
+        int[] from = order, to = sortBuffer;
+        for (int width = 1; width < numLabels; width *= 2) {
+            for (int low = 0; low < numLabels; low += 2 * width) {
+                int middle = Math.min(low + width, numLabels);
+                int high = Math.min(low + 2 * width, numLabels);
+                int i = low, j = middle;
+                for (int k = low; k < high; k++) {
+                    if (i < middle && (j >= high
+                            || sortValue(offset + from[i]) <= sortValue(offset + from[j]))) {
+                        to[k] = from[i++];
+                    } else {
+                        to[k] = from[j++];
+                    }
+                }
+            }
+            int[] temp = from;
+            from = to;
+            to = temp;
+        }
+        for (int i = 0; i < numLabels; i++) {
+            setRank(row, from[i], numLabels - i);
+        }
+    }
+
+    private double sortValue(int position) {
+        double value = confidences[position];
+        return Double.isNaN(value) ? Double.MAX_VALUE : value;
+    }
+
+    private int index(int row, int label) {
+        if (row < 0 || row >= numInstances) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of range.");
+        }
+        if (label < 0 || label >= numLabels) {
+            throw new IndexOutOfBoundsException("Label " + label + " is out of range.");
+        }
+        return row * numLabels + label;
+    }
+
+    private void checkLength(int length) {
+        if (length != numLabels) {
+            throw new IllegalArgumentException("The dimensions of the output ("
+                    + length + ") and the matrix (" + numLabels + ") do not match.");
+        }
+    }
+
+    public boolean hasBipartitions() {
+        return (bipartitions != null);
+    }
+
+    public boolean hasRankings() {
+        return (rankings != null);
+    }
+
+    public boolean hasConfidences() {
+        return (confidences != null);
+    }
+
+    public boolean hasPvalues() {
+        return (pValues != null);
+    }
+
+    public boolean getBipartition(int row, int label) {
+        return bipartitions[row * numLabels + label];
+    }
+
+    public int getRank(int row, int label) {
+        return rankings[row * numLabels + label];
+    }
+
+    public double getConfidence(int row, int label) {
+        return confidences[row * numLabels + label];
+    }
+
+    public double getPvalue(int row, int label) {
+        return pValues[row * numLabels + label];
+    }
+
+    /**
+     * Copies the bipartition of an instance into an array of the caller
+     *
+     * @param row the position of the instance in the batch
+     * @param bipartition an array with one element per label
+     */
+    public void copyBipartition(int row, boolean[] bipartition) {
+        System.arraycopy(bipartitions, row * numLabels, bipartition, 0, numLabels);
+    }
+
+    /**
+     * Copies the ranking of an instance into an array of the caller
+     *
+     * @param row the position of the instance in the batch
+     * @param ranking an array with one element per label
+     */
+    public void copyRanking(int row, int[] ranking) {
+        System.arraycopy(rankings, row * numLabels, ranking, 0, numLabels);
+    }
+
+    /**
+     * Copies the confidences of an instance into an array of the caller
+     *
+     * @param row the position of the instance in the batch
+     * @param someConfidences an array with one element per label
+     */
+    public void copyConfidences(int row, double[] someConfidences) {
+        System.arraycopy(confidences, row * numLabels, someConfidences, 0, numLabels);
+    }
+
+    /**
+     * Copies the predicted values of an instance into an array of the caller
+     *
+     * @param row the position of the instance in the batch
+     * @param somePvalues an array with one element per label
+     */
+    public void copyPvalues(int row, double[] somePvalues) {
+        System.arraycopy(pValues, row * numLabels, somePvalues, 0, numLabels);
+    }
+
+    /**
+     * Returns the output of the learner for an instance of the batch
+     *
+     * @param row the position of the instance in the batch
+     * @return a new {@link MultiLabelOutput} with the row of each kind of output
+     */
+    public MultiLabelOutput getOutput(int row) {
+        boolean[] bipartition = null;
+        int[] ranking = null;
+        double[] someConfidences = null;
+        double[] somePvalues = null;
+        if (bipartitions != null) {
+            bipartition = new boolean[numLabels];
+            copyBipartition(row, bipartition);
+        }
+        if (rankings != null) {
+            ranking = new int[numLabels];
+            copyRanking(row, ranking);
+        }
+        if (confidences != null) {
+            someConfidences = new double[numLabels];
+            copyConfidences(row, someConfidences);
+        }
+        if (pValues != null) {
+            somePvalues = new double[numLabels];
+            copyPvalues(row, somePvalues);
+        }
+        return new MultiLabelOutput(bipartition, ranking, someConfidences, somePvalues);
+    }
+}
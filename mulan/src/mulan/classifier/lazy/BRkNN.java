@@ -16,11 +16,14 @@
 package mulan.classifier.lazy;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Random;
+import mulan.classifier.ModelInitializationException;
 import mulan.classifier.MultiLabelOutput;
 import mulan.core.Util;
+import mulan.data.LabelSet;
 import mulan.data.MultiLabelInstances;
-import weka.classifiers.lazy.IBk;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.TechnicalInformation;
@@ -71,6 +74,33 @@ public class BRkNN extends MultiLabelKNN {
      * Whether to select k by cross validation.
      */
     private boolean cvkSelection = false;
+    /**
+     * The value of cvMaxK when the neighbors were cached
+     */
+    private int cachedMaxK;
+    /**
+     * The label sets of the cached neighbors, each as the indices of its
+     * relevant labels
+     */
+    private int[][] cachedLabelSets;
+    /**
+     * For each training instance, the label set (an index in cachedLabelSets)
+     * of each of its neighbors, nearest first
+     */
+    private int[][] cachedNeighbors;
+    /**
+     * For each training instance, the weight of each of its neighbors
+     */
+    private double[][] cachedWeights;
+    /**
+     * For each training instance and value of k, the number of its neighbors
+     * within the k nearest ones
+     */
+    private int[][] cachedNumNeighbors;
+    /**
+     * The labels of each training instance
+     */
+    private boolean[][] cachedTrueLabels;
 
     /**
      * The two types of extensions
@@ -154,106 +184,217 @@ public class BRkNN extends MultiLabelKNN {
 
     /**
      * Select the best value for k by hold-one-out cross-validation. Hamming
-     * Loss is minimized
+     * Loss is minimized. The neighbors of the training instances are searched
+     * once, for cvMaxK neighbors, and cached, so that k can be selected again
+     * with {@link #reselectKViaCV(int)} without searching them again.
      *
      * @throws Exception Potential exception thrown. To be handled in an upper level.
      */
     private void crossValidate() throws Exception {
         try {
-            // the performance for each different k
-            double[] hammingLoss = new double[cvMaxK];
+            cacheNeighbors();
+        } catch (Exception ex) {
+            throw new Error("Couldn't optimize by cross-validation: " + ex.getMessage());
+        }
+        numOfNeighbors = selectK(cvMaxK);
+    }
+
+    /**
+     * Selects the best value for k again by hold-one-out cross-validation
+     * among the values 1 to maxK, using the neighbors of the training
+     * instances that were cached when the model was built with k selection
+     * via cross-validation. No distances are computed.
+     *
+     * @param maxK the maximum number of neighbors, at most the maximum that
+     * was set when the model was built
+     */
+    public void reselectKViaCV(int maxK) {
+        if (cachedNeighbors == null) {
+            throw new ModelInitializationException("The model has not been built "
+                    + "with k selection via cross-validation.");
+        }
+        if (maxK < 1 || maxK > cachedMaxK) {
+            throw new IllegalArgumentException("The maximum number of neighbors must be "
+                    + "between 1 and " + cachedMaxK + ".");
+        }
+        numOfNeighbors = selectK(maxK);
+    }
 
-            for (int i = 0; i < cvMaxK; i++) {
-                hammingLoss[i] = 0;
+    /**
+     * Searches the cvMaxK nearest neighbors of each training instance, leaving
+     * out the instance itself, and caches their label sets and weights, along
+     * with the number of neighbors that each k keeps, including those tied
+     * with the k-th one.
+     */
+    private void cacheNeighbors() throws Exception {
+        Instances dataSet = train;
+        HashMap<LabelSet, Integer> labelSetIds = new HashMap<LabelSet, Integer>();
+        ArrayList<int[]> labelSets = new ArrayList<int[]>();
+        cachedMaxK = cvMaxK;
+        cachedNeighbors = new int[dataSet.numInstances()][];
+        cachedWeights = new double[dataSet.numInstances()][];
+        cachedNumNeighbors = new int[dataSet.numInstances()][cvMaxK];
+        cachedTrueLabels = new boolean[dataSet.numInstances()][numLabels];
+        double[] labelValues = new double[numLabels];
+        for (int i = 0; i < dataSet.numInstances(); i++) {
+            if (getDebug() && (i % 50 == 0)) {
+                debug("Cross validating " + i + "/" + dataSet.numInstances() + "\r");
+            }
+            Instance instance = dataSet.instance(i);
+            Instances neighbours = lnn.kNearestNeighbours(instance, cvMaxK);
+            double[] distances = lnn.getDistances();
+
+            // gathering the true labels for the instance
+            for (int counter = 0; counter < numLabels; counter++) {
+                int classIdx = labelIndices[counter];
+                String classValue = instance.attribute(classIdx).value(
+                        (int) instance.value(classIdx));
+                cachedTrueLabels[i][counter] = classValue.equals("1");
             }
 
-            Instances dataSet = train;
-            Instance instance; // the hold out instance
-            Instances neighbours; // the neighboring instances
-            double[] origDistances, convertedDistances;
-            for (int i = 0; i < dataSet.numInstances(); i++) {
-                if (getDebug() && (i % 50 == 0)) {
-                    debug("Cross validating " + i + "/" + dataSet.numInstances() + "\r");
-                }
-                instance = dataSet.instance(i);
-                neighbours = lnn.kNearestNeighbours(instance, cvMaxK);
-                origDistances = lnn.getDistances();
-
-                // gathering the true labels for the instance
-                boolean[] trueLabels = new boolean[numLabels];
-                for (int counter = 0; counter < numLabels; counter++) {
-                    int classIdx = labelIndices[counter];
-                    String classValue = instance.attribute(classIdx).value(
-                            (int) instance.value(classIdx));
-                    trueLabels[counter] = classValue.equals("1");
+            int numNeighbours = neighbours.numInstances();
+            cachedNeighbors[i] = new int[numNeighbours];
+            cachedWeights[i] = new double[numNeighbours];
+            for (int r = 0; r < numNeighbours; r++) {
+                Instance current = neighbours.instance(r);
+                for (int j = 0; j < numLabels; j++) {
+                    labelValues[j] = isRelevant(current, j) ? 1 : 0;
                 }
-                // calculate the performance metric for each different k
-                for (int j = cvMaxK; j > 0; j--) {
-                    convertedDistances = new double[origDistances.length];
-                    System.arraycopy(origDistances, 0, convertedDistances, 0,
-                            origDistances.length);
-                    double[] confidences = this.getConfidences(neighbours,
-                            convertedDistances);
-                    boolean[] bipartition = null;
-
-                    switch (extension) {
-                        case NONE: // BRknn
-                            MultiLabelOutput results;
-                            results = new MultiLabelOutput(confidences, 0.5);
-                            bipartition = results.getBipartition();
-                            break;
-                        case EXTA: // BRknn-a
-                            bipartition = labelsFromConfidences2(confidences);
-                            break;
-                        case EXTB: // BRknn-b
-                            bipartition = labelsFromConfidences3(confidences);
-                            break;
-                    }
-
-                    double symmetricDifference = 0; // |Y xor Z|
-                    for (int labelIndex = 0; labelIndex < numLabels; labelIndex++) {
-                        boolean actual = trueLabels[labelIndex];
-                        boolean predicted = bipartition[labelIndex];
-
-                        if (predicted != actual) {
-                            symmetricDifference++;
+                LabelSet labelSet = new LabelSet(labelValues);
+                Integer id = labelSetIds.get(labelSet);
+                if (id == null) {
+                    id = labelSets.size();
+                    labelSetIds.put(labelSet, id);
+                    int[] relevant = new int[labelSet.size()];
+                    int count = 0;
+                    for (int j = 0; j < numLabels; j++) {
+                        if (labelValues[j] == 1) {
+                            relevant[count++] = j;
                         }
                     }
-                    hammingLoss[j - 1] += (symmetricDifference / numLabels);
+                    labelSets.add(relevant);
+                }
+                cachedNeighbors[i][r] = id;
+                cachedWeights[i][r] = current.weight();
+                distances[r] = Math.sqrt(distances[r] * distances[r]
+                        / (train.numAttributes() - numLabels));
+            }
 
-                    neighbours = new IBk().pruneToK(neighbours,
-                            convertedDistances, j - 1);
+            // k keeps the first k neighbors and those tied with the k-th, as IBk.pruneToK
+            for (int k = 1; k < cvMaxK; k++) {
+                int n = k;
+                while (n < numNeighbours && distances[n] == distances[n - 1]) {
+                    n++;
                 }
+                cachedNumNeighbors[i][k - 1] = Math.min(n, numNeighbours);
+            }
+            if (cvMaxK > 0) {
+                cachedNumNeighbors[i][cvMaxK - 1] = numNeighbours;
+            }
+        }
+        cachedLabelSets = labelSets.toArray(new int[labelSets.size()][]);
+    }
+
+    /**
+     * Computes the hold-one-out Hamming Loss of each k from the cached
+     * neighbors and returns the best k (the lowest if more than one best).
+     * The confidences of all the values of k for an instance come from running
+     * sums of the labels of its neighbors, nearest first.
+     */
+    private int selectK(int maxK) {
+        if (maxK < 1) {
+            return 1;
+        }
+        // the performance for each different k
+        double[] hammingLoss = new double[maxK];
+
+        int numInstances = train.numInstances();
+        double[][] labelSums = new double[1][];
+        double[] totals = new double[1];
+        double[] neighborLabelSums = new double[1];
+        double[] confidences = new double[numLabels];
+        boolean[] bipartition = new boolean[numLabels];
+        for (int i = 0; i < numInstances; i++) {
+            int[] neighbors = cachedNeighbors[i];
+            int numNeighbours = cachedNumNeighbors[i][maxK - 1];
+            if (labelSums.length < numNeighbours + 1) {
+                labelSums = new double[numNeighbours + 1][numLabels];
+                totals = new double[numNeighbours + 1];
+                neighborLabelSums = new double[numNeighbours + 1];
             }
 
-            // Display the results of the cross-validation
-            if (getDebug()) {
-                for (int i = cvMaxK; i > 0; i--) {
-                    debug("Hold-one-out performance of " + (i) + " neighbors ");
-                    debug("(Hamming Loss) = " + hammingLoss[i - 1] / dataSet.numInstances());
+            // running sums of getConfidences over the nearest neighbors
+            Arrays.fill(labelSums[0], 1.0 / Math.max(1, numInstances));
+            totals[0] = (double) numLabels / Math.max(1, numInstances);
+            neighborLabelSums[0] = 0;
+            for (int r = 0; r < numNeighbours; r++) {
+                double weight = cachedWeights[i][r];
+                System.arraycopy(labelSums[r], 0, labelSums[r + 1], 0, numLabels);
+                neighborLabelSums[r + 1] = neighborLabelSums[r];
+                for (int j : cachedLabelSets[neighbors[r]]) {
+                    labelSums[r + 1][j] += weight;
+                    neighborLabelSums[r + 1] += weight;
                 }
+                totals[r + 1] = totals[r] + weight;
             }
 
-            // Check through the performance stats and select the best
-            // k value (or the lowest k if more than one best)
-            double[] searchStats = hammingLoss;
+            // calculate the performance metric for each different k
+            for (int k = maxK; k > 0; k--) {
+                int n = cachedNumNeighbors[i][k - 1];
+                System.arraycopy(labelSums[n], 0, confidences, 0, numLabels);
+                avgPredictedLabels = (int) Math.round(neighborLabelSums[n] / totals[n]);
+                if (totals[n] > 0) {
+                    Utils.normalize(confidences, totals[n]);
+                }
 
-            double bestPerformance = Double.NaN;
-            int bestK = 1;
-            for (int i = 0; i < cvMaxK; i++) {
-                if (Double.isNaN(bestPerformance) || (bestPerformance > searchStats[i])) {
-                    bestPerformance = searchStats[i];
-                    bestK = i + 1;
+                switch (extension) {
+                    case NONE: // BRknn
+                        for (int j = 0; j < numLabels; j++) {
+                            bipartition[j] = confidences[j] >= 0.5;
+                        }
+                        break;
+                    case EXTA: // BRknn-a
+                        bipartition = labelsFromConfidences2(confidences);
+                        break;
+                    case EXTB: // BRknn-b
+                        bipartition = labelsFromConfidences3(confidences);
+                        break;
                 }
+
+                double symmetricDifference = 0; // |Y xor Z|
+                for (int labelIndex = 0; labelIndex < numLabels; labelIndex++) {
+                    if (bipartition[labelIndex] != cachedTrueLabels[i][labelIndex]) {
+                        symmetricDifference++;
+                    }
+                }
+                hammingLoss[k - 1] += (symmetricDifference / numLabels);
             }
-            numOfNeighbors = bestK;
-            if (getDebug()) {
-                System.err.println("Selected k = " + bestK);
+        }
+
+        // Display the results of the cross-validation
+        if (getDebug()) {
+            for (int i = maxK; i > 0; i--) {
+                debug("Hold-one-out performance of " + (i) + " neighbors ");
+                debug("(Hamming Loss) = " + hammingLoss[i - 1] / numInstances);
             }
+        }
 
-        } catch (Exception ex) {
-            throw new Error("Couldn't optimize by cross-validation: " + ex.getMessage());
+        // Check through the performance stats and select the best
+        // k value (or the lowest k if more than one best)
+        double[] searchStats = hammingLoss;
+
+        double bestPerformance = Double.NaN;
+        int bestK = 1;
+        for (int i = 0; i < maxK; i++) {
+            if (Double.isNaN(bestPerformance) || (bestPerformance > searchStats[i])) {
+                bestPerformance = searchStats[i];
+                bestK = i + 1;
+            }
+        }
+        if (getDebug()) {
+            System.err.println("Selected k = " + bestK);
         }
+        return bestK;
     }
 
     /**
@@ -125,34 +125,19 @@ public class DMLkNN extends MultiLabelKNN {
         }
     }
 
-    private void ComputeCountingMemberShip() {
+    private void ComputeCountingMemberShip() throws Exception {
+        //Calculating the membership counting vector of each training instance
+        countNeighborLabels(new NeighborLabelAccumulatorFactory<NeighborLabelAccumulator>() {
 
-        Instances knn = null;
-
-        for (int inst = 0; inst < train.numInstances(); inst++) {
-
-            //find the k nearest neighbours
-            try {
-                knn = new Instances(lnn.kNearestNeighbours(train.instance(inst), numOfNeighbors));
-            } catch (Exception ex) {
-                Logger.getLogger(DMLkNN.class.getName()).log(Level.SEVERE, null, ex);
-            }
+            public NeighborLabelAccumulator create() {
+                return new NeighborLabelAccumulator() {
 
-            //Calculating the membership counting vector of the ith instance
-
-            for (int i = 0; i < numLabels; i++) {
-                int temp_Ci = 0;
-                for (int k = 0; k < numOfNeighbors; k++) {
-                    double value = Double.parseDouble(train.attribute(labelIndices[i]).value(
-                            (int) knn.instance(k).value(labelIndices[i])));
-                    if (Utils.eq(value, 1.0)) {
-                        temp_Ci++;
+                    public void add(int instance, int[] labelCounts) {
+                        System.arraycopy(labelCounts, 0, Ci[instance], 0, numLabels);
                     }
-                }
-                Ci[inst][i] = temp_Ci;
+                };
             }
-        }
-
+        });
     }
 
     /**
@@ -16,6 +16,7 @@
 package mulan.classifier.lazy;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import mulan.classifier.MultiLabelOutput;
 import mulan.data.DataUtils;
 import mulan.data.MultiLabelInstances;
@@ -131,29 +132,33 @@ public class IBLR_ML extends MultiLabelKNN {
             trainingDataForLabel[i].setClassIndex(trainingDataForLabel[i].numAttributes() - 1);
         }
 
+        if (this.getDebug())
+            debug("Searching the neighbours of the training instances");
+        final int[][] labelCounts = new int[train.numInstances()][];
+        countNeighborLabels(new NeighborLabelAccumulatorFactory<NeighborLabelAccumulator>() {
+
+            public NeighborLabelAccumulator create() {
+                return new NeighborLabelAccumulator() {
+
+                    public void add(int instance, int[] counts) {
+                        labelCounts[instance] = Arrays.copyOf(counts, numLabels);
+                    }
+                };
+            }
+        });
+
         if (this.getDebug())
             debug("Creating meta-instances");
         for (int i = 0; i < train.numInstances(); i++) {
             if (this.getDebug() & (i+1) % 100 == 0)
                 debug("Creating meta-instances " + (i+1) + "/" + train.numInstances());
 
-            Instances knn = new Instances(lnn.kNearestNeighbours(train.instance(i), numOfNeighbors));
             /*
              * Get the label confidence vector as the additional features.
              */
             double[] confidences = new double[numLabels];
             for (int j = 0; j < numLabels; j++) {
-                // compute sum of counts for each label in KNN
-                double count_for_label_j = 0;
-                for (int k = 0; k < numOfNeighbors; k++) {
-                    double value = Double.parseDouble(train.attribute(
-                            labelIndices[j]).value(
-                            (int) knn.instance(k).value(labelIndices[j])));
-                    if (Utils.eq(value, 1.0)) {
-                        count_for_label_j++;
-                    }
-                }
-                confidences[j] = count_for_label_j / numOfNeighbors;
+                confidences[j] = (double) labelCounts[i][j] / numOfNeighbors;
             }
 
             double[] attvalue = new double[numLabels + 1];
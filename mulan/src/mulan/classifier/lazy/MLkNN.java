@@ -15,6 +15,7 @@
  */
 package mulan.classifier.lazy;
 
+import java.util.List;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -183,27 +184,18 @@ public class MLkNN extends MultiLabelKNN {
         int[][] temp_Ci = new int[numLabels][numOfNeighbors + 1];
         int[][] temp_NCi = new int[numLabels][numOfNeighbors + 1];
 
-        for (int i = 0; i < train.numInstances(); i++) {
+        // each range of training instances counts in its own tables
+        List<CondCounts> counts = countNeighborLabels(new NeighborLabelAccumulatorFactory<CondCounts>() {
 
-            Instances knn = new Instances(lnn.kNearestNeighbours(train.instance(i), numOfNeighbors));
-
-            // now compute values of temp_Ci and temp_NCi for every class label
+            public CondCounts create() {
+                return new CondCounts();
+            }
+        });
+        for (CondCounts count : counts) {
             for (int j = 0; j < numLabels; j++) {
-
-                int aces = 0; // num of aces in Knn for j
-                for (int k = 0; k < numOfNeighbors; k++) {
-                    double value = Double.parseDouble(train.attribute(labelIndices[j]).value(
-                            (int) knn.instance(k).value(labelIndices[j])));
-                    if (Utils.eq(value, 1.0)) {
-                        aces++;
-                    }
-                }
-                // raise the counter of temp_Ci[j][aces] and temp_NCi[j][aces] by 1
-                if (Utils.eq(Double.parseDouble(train.attribute(labelIndices[j]).value(
-                        (int) train.instance(i).value(labelIndices[j]))), 1.0)) {
-                    temp_Ci[j][aces]++;
-                } else {
-                    temp_NCi[j][aces]++;
+                for (int aces = 0; aces < numOfNeighbors + 1; aces++) {
+                    temp_Ci[j][aces] += count.temp_Ci[j][aces];
+                    temp_NCi[j][aces] += count.temp_NCi[j][aces];
                 }
             }
         }
@@ -223,6 +215,27 @@ public class MLkNN extends MultiLabelKNN {
         }
     }
 
+    /**
+     * The number of training instances with and without each label, per
+     * number of neighbors with the label
+     */
+    private class CondCounts implements NeighborLabelAccumulator {
+
+        final int[][] temp_Ci = new int[numLabels][numOfNeighbors + 1];
+        final int[][] temp_NCi = new int[numLabels][numOfNeighbors + 1];
+
+        public void add(int instance, int[] labelCounts) {
+            for (int j = 0; j < numLabels; j++) {
+                // raise the counter of temp_Ci[j][aces] or temp_NCi[j][aces] by 1
+                if (isRelevant(train.instance(instance), j)) {
+                    temp_Ci[j][labelCounts[j]]++;
+                } else {
+                    temp_NCi[j][labelCounts[j]]++;
+                }
+            }
+        }
+    }
+
     protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception {
         double[] confidences = new double[numLabels];
         boolean[] predictions = new boolean[numLabels];
@@ -15,12 +15,20 @@
  */
 package mulan.classifier.lazy;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import mulan.classifier.MultiLabelLearnerBase;
+import mulan.core.ModelBuilder;
 import mulan.data.MultiLabelInstances;
 import weka.core.DistanceFunction;
 import weka.core.EuclideanDistance;
+import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.NormalizableDistance;
+import weka.core.Utils;
 import weka.core.neighboursearch.LinearNNSearch;
+import weka.core.neighboursearch.NearestNeighbourSearch;
 
 /**
  * Superclass of all KNN based multi-label algorithms
@@ -53,10 +61,14 @@ public abstract class MultiLabelKNN extends MultiLabelLearnerBase {
      */
     protected int numOfNeighbors;
     /**
-     * Class implementing the brute force search algorithm for nearest neighbor
-     * search. Default value is true.
+     * The nearest neighbor search over the training instances. Default value is
+     * the brute force {@link LinearNNSearch}. The search is expected to leave
+     * out a target that is itself one of the training instances, as
+     * {@link LinearNNSearch}, {@link weka.core.neighboursearch.BallTree} and
+     * {@link RandomProjectionLSH} do, since the training instances are searched
+     * for their leave-one-out neighbors.
      */
-    protected LinearNNSearch lnn = null;
+    protected NearestNeighbourSearch lnn = new LinearNNSearch();
     /**
      * Implementing Euclidean distance (or similarity) function.
      */
@@ -69,10 +81,38 @@ public abstract class MultiLabelKNN extends MultiLabelLearnerBase {
     public void setDfunc(DistanceFunction dfunc) {
         this.dfunc = dfunc;
     }
+
+    /**
+     * Sets the nearest neighbor search, such as the exact
+     * {@link weka.core.neighboursearch.BallTree} or the approximate
+     * {@link RandomProjectionLSH} for large datasets. The search is used both
+     * for the neighbors of the training instances and for prediction. Weka's
+     * KDTree is not suitable, as its pruning does not follow the attributes
+     * selected by the distance function, which leaves out the labels. When more
+     * than one concurrent model is set with {@link #setMaxConcurrentModels(int)},
+     * the neighbors of the training instances are searched concurrently on the
+     * search.
+     *
+     * @param search the nearest neighbor search
+     */
+    public void setNearestNeighbourSearch(NearestNeighbourSearch search) {
+        this.lnn = search;
+    }
+
+    /**
+     * @return the nearest neighbor search
+     */
+    public NearestNeighbourSearch getNearestNeighbourSearch() {
+        return lnn;
+    }
     /**
      * The training instances
      */
     protected Instances train;
+    /**
+     * The index of the value "1" of each label attribute, or -1
+     */
+    private int[] positiveValues;
 
     /**
      * The default constructor
@@ -107,10 +147,110 @@ public abstract class MultiLabelKNN extends MultiLabelLearnerBase {
         dfunc.setAttributeIndices(labelIndicesString);
         dfunc.setInvertSelection(true);
 
-        lnn = new LinearNNSearch();
         lnn.setDistanceFunction(dfunc);
-        lnn.setInstances(train);
         lnn.setMeasurePerformance(false);
+        lnn.setInstances(train);
+
+        positiveValues = new int[numLabels];
+        for (int j = 0; j < numLabels; j++) {
+            positiveValues[j] = -1;
+            for (int v = 0; v < train.attribute(labelIndices[j]).numValues(); v++) {
+                if (Utils.eq(Double.parseDouble(train.attribute(labelIndices[j]).value(v)), 1.0)) {
+                    positiveValues[j] = v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether a label is relevant to an instance, that is whether the
+     * value of its attribute is "1"
+     *
+     * @param instance an instance with the attributes of the training set
+     * @param label the index of the label among the labels
+     * @return whether the label is relevant
+     */
+    protected boolean isRelevant(Instance instance, int label) {
+        return (int) instance.value(labelIndices[label]) == positiveValues[label];
+    }
+
+    /**
+     * Accumulates the labels of the leave-one-out neighbors of a range of
+     * training instances. Each range has its own accumulator, so an accumulator
+     * is only used by one thread.
+     */
+    protected interface NeighborLabelAccumulator {
+
+        /**
+         * @param instance the index of the training instance
+         * @param labelCounts the number of its neighbors that have each label
+         */
+        void add(int instance, int[] labelCounts);
+    }
+
+    /**
+     * Creates the accumulators of {@link #countNeighborLabels}
+     */
+    protected interface NeighborLabelAccumulatorFactory<A extends NeighborLabelAccumulator> {
+
+        A create();
+    }
+
+    /**
+     * Counts the labels among the {@link #numOfNeighbors} nearest neighbors of
+     * each training instance, leaving out the instance itself. The training
+     * instances are split in {@link #getMaxConcurrentModels()} consecutive
+     * ranges, each with its own accumulator, that are searched with the
+     * executor of the learner. Each accumulator receives the instances of its
+     * range in increasing order. The ranges share the search built over the
+     * training instances, so when they are searched concurrently its
+     * kNearestNeighbours must be safe to call from several threads, as it is
+     * for {@link LinearNNSearch}, {@link weka.core.neighboursearch.BallTree}
+     * and {@link RandomProjectionLSH} once their instances are set.
+     *
+     * @param factory creates the accumulator of each range
+     * @return the accumulators of the ranges, in the order of the ranges
+     * @throws Exception if the search fails
+     */
+    protected <A extends NeighborLabelAccumulator> List<A> countNeighborLabels(
+            NeighborLabelAccumulatorFactory<A> factory) throws Exception {
+        final int numInstances = train.numInstances();
+        final int numRanges = Math.max(1, Math.min(getMaxConcurrentModels(), numInstances));
+        final List<A> accumulators = new ArrayList<A>(numRanges);
+        for (int r = 0; r < numRanges; r++) {
+            accumulators.add(factory.create());
+        }
+        if (dfunc instanceof NormalizableDistance) {
+            // the ranges of the attributes are computed on the first distance
+            ((NormalizableDistance) dfunc).getRanges();
+        }
+        buildModels(numRanges, new ModelBuilder() {
+
+            public void buildModel(int range) throws Exception {
+                int from = (int) ((long) numInstances * range / numRanges);
+                int to = (int) ((long) numInstances * (range + 1) / numRanges);
+                countNeighborLabels(from, to, accumulators.get(range));
+            }
+        });
+        return accumulators;
+    }
+
+    private void countNeighborLabels(int from, int to, NeighborLabelAccumulator accumulator)
+            throws Exception {
+        int[] labelCounts = new int[numLabels];
+        for (int i = from; i < to; i++) {
+            Instances knn = lnn.kNearestNeighbours(train.instance(i), numOfNeighbors);
+            for (int j = 0; j < numLabels; j++) {
+                int count = 0;
+                for (int k = 0; k < numOfNeighbors; k++) {
+                    if (isRelevant(knn.instance(k), j)) {
+                        count++;
+                    }
+                }
+                labelCounts[j] = count;
+            }
+            accumulator.add(i, labelCounts);
+        }
     }
 
     @Override
@@ -0,0 +1,358 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier.lazy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Range;
+import weka.core.RevisionUtils;
+import weka.core.Utils;
+import weka.core.neighboursearch.NearestNeighbourSearch;
+
+/**
+ * Approximate nearest neighbour search based on random projection locality
+ * sensitive hashing. Each hash table splits the instances by the sides of a few
+ * random hyperplanes through the mean of the attributes used by the distance
+ * function (normalized to [0,1]), so that nearby instances tend to share a
+ * bucket. A query collects the instances of its bucket in every table and ranks
+ * them with the distance function.
+ * <br>
+ * The number of tables is the recall/latency knob of the search: more tables
+ * find more of the true neighbours at the cost of more distance computations.
+ * More bits per table make the buckets smaller. When the buckets of a query
+ * hold too few instances, the query falls back to a linear scan.
+ * <br>
+ * Like {@link weka.core.neighboursearch.LinearNNSearch}, a target that is itself
+ * one of the instances of the search is left out of its neighbours.
+ */
+@SuppressWarnings("serial")
+public class RandomProjectionLSH extends NearestNeighbourSearch {
+
+    /** number of hash tables **/
+    private int numTables = 10;
+    /** number of hyperplanes (bits of the hash code) per table **/
+    private int numBits = 8;
+    /** seed of the random hyperplanes **/
+    private long seed = 1;
+    /** indices of the hashed attributes **/
+    private int[] attributes;
+    /** minimum of each hashed attribute **/
+    private double[] offsets;
+    /** inverse range of each hashed attribute **/
+    private double[] scales;
+    /** mean of each normalized hashed attribute **/
+    private double[] means;
+    /** normal vectors of the hyperplanes, numBits per table **/
+    private double[][] hyperplanes;
+    /** the instances of each table, sorted by their hash code **/
+    private int[][] bucketInstances;
+    /** the sorted hash codes of each table **/
+    private int[][] bucketCodes;
+    /** distances of the neighbours found by the last query **/
+    private double[] distances;
+
+    public RandomProjectionLSH() {
+        super();
+    }
+
+    public RandomProjectionLSH(int numTables, int numBits) {
+        super();
+        setNumTables(numTables);
+        setNumBits(numBits);
+    }
+
+    @Override
+    public String globalInfo() {
+        return "Approximate nearest neighbour search with random projection "
+                + "locality sensitive hashing.";
+    }
+
+    public int getNumTables() {
+        return numTables;
+    }
+
+    /**
+     * Sets the number of hash tables. More tables give a higher recall and slower
+     * queries.
+     *
+     * @param numTables the number of hash tables
+     */
+    public void setNumTables(int numTables) {
+        if (numTables < 1) {
+            throw new IllegalArgumentException("The number of tables must be positive.");
+        }
+        this.numTables = numTables;
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    /**
+     * Sets the number of random hyperplanes of each table. More bits give smaller
+     * buckets, that is faster queries and a lower recall.
+     *
+     * @param numBits the number of bits of the hash code, between 1 and 30
+     */
+    public void setNumBits(int numBits) {
+        if (numBits < 1 || numBits > 30) {
+            throw new IllegalArgumentException("The number of bits must be between 1 and 30.");
+        }
+        this.numBits = numBits;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void setInstances(Instances insts) throws Exception {
+        super.setInstances(insts);
+        m_DistanceFunction.setInstances(insts);
+        buildTables();
+    }
+
+    /**
+     * Updates the search with an instance that has been added to its instances.
+     * The hash tables are rebuilt.
+     *
+     * @param ins the new instance
+     * @throws Exception if no instances were set
+     */
+    @Override
+    public void update(Instance ins) throws Exception {
+        if (m_Instances == null) {
+            throw new Exception("No instances supplied yet. Cannot update without "
+                    + "supplying a set of instances first.");
+        }
+        m_DistanceFunction.update(ins);
+        buildTables();
+    }
+
+    @Override
+    public void addInstanceInfo(Instance ins) {
+        if (m_Instances != null) {
+            try {
+                update(ins);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public Instance nearestNeighbour(Instance target) throws Exception {
+        return kNearestNeighbours(target, 1).instance(0);
+    }
+
+    @Override
+    public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
+        int[] candidates = candidates(target);
+        if (candidates.length <= kNN) {
+            candidates = new int[m_Instances.numInstances()];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = i;
+            }
+        }
+
+        int numCandidates = 0;
+        double[] candidateDistances = new double[candidates.length];
+        for (int c : candidates) {
+            Instance instance = m_Instances.instance(c);
+            if (instance == target) {
+                continue;
+            }
+            candidates[numCandidates] = c;
+            candidateDistances[numCandidates++] = m_DistanceFunction.distance(target, instance,
+                    Double.POSITIVE_INFINITY, m_Stats);
+        }
+        candidateDistances = Arrays.copyOf(candidateDistances, numCandidates);
+
+        // candidates are in increasing order, so ties are broken by position
+        int[] sorted = Utils.stableSort(candidateDistances);
+        int numNeighbours = Math.min(kNN, numCandidates);
+        Instances neighbours = new Instances(m_Instances, numNeighbours);
+        distances = new double[numNeighbours];
+        for (int i = 0; i < numNeighbours; i++) {
+            neighbours.add(m_Instances.instance(candidates[sorted[i]]));
+            distances[i] = candidateDistances[sorted[i]];
+        }
+        m_DistanceFunction.postProcessDistances(distances);
+        return neighbours;
+    }
+
+    @Override
+    public double[] getDistances() throws Exception {
+        if (distances == null) {
+            throw new Exception("No distances available. Please call either "
+                    + "kNearestNeighbours or nearestNeighbours first.");
+        }
+        return distances;
+    }
+
+    /**
+     * Returns the distinct instances that share a bucket with the target in any
+     * table, in increasing order.
+     */
+    private int[] candidates(Instance target) {
+        double[] point = normalize(target);
+        int[] candidates = new int[16];
+        int numCandidates = 0;
+        for (int t = 0; t < numTables; t++) {
+            int code = hash(point, t);
+            int[] codes = bucketCodes[t];
+            int from = lowerBound(codes, code);
+            for (int i = from; i < codes.length && codes[i] == code; i++) {
+                if (numCandidates == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, 2 * numCandidates);
+                }
+                candidates[numCandidates++] = bucketInstances[t][i];
+            }
+        }
+        Arrays.sort(candidates, 0, numCandidates);
+        int numDistinct = 0;
+        for (int i = 0; i < numCandidates; i++) {
+            if (numDistinct == 0 || candidates[numDistinct - 1] != candidates[i]) {
+                candidates[numDistinct++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, numDistinct);
+    }
+
+    private void buildTables() {
+        int numInstances = m_Instances.numInstances();
+        Range range = new Range(m_DistanceFunction.getAttributeIndices());
+        range.setInvert(m_DistanceFunction.getInvertSelection());
+        range.setUpper(m_Instances.numAttributes() - 1);
+        int[] selected = new int[m_Instances.numAttributes()];
+        int numSelected = 0;
+        for (int a = 0; a < m_Instances.numAttributes(); a++) {
+            if (a != m_Instances.classIndex() && range.isInRange(a)
+                    && (m_Instances.attribute(a).isNumeric() || m_Instances.attribute(a).isNominal())) {
+                selected[numSelected++] = a;
+            }
+        }
+        attributes = Arrays.copyOf(selected, numSelected);
+
+        offsets = new double[numSelected];
+        scales = new double[numSelected];
+        means = new double[numSelected];
+        for (int j = 0; j < numSelected; j++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < numInstances; i++) {
+                double value = m_Instances.instance(i).value(attributes[j]);
+                if (!Utils.isMissingValue(value)) {
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+            offsets[j] = (min <= max) ? min : 0;
+            scales[j] = (min < max) ? 1 / (max - min) : 0;
+        }
+        double[] sums = new double[numSelected];
+        for (int i = 0; i < numInstances; i++) {
+            double[] point = normalize(m_Instances.instance(i));
+            for (int j = 0; j < numSelected; j++) {
+                sums[j] += point[j];
+            }
+        }
+        for (int j = 0; j < numSelected; j++) {
+            means[j] = sums[j] / numInstances;
+        }
+
+        Random random = new Random(seed);
+        hyperplanes = new double[numTables * numBits][numSelected];
+        for (double[] hyperplane : hyperplanes) {
+            for (int j = 0; j < numSelected; j++) {
+                hyperplane[j] = random.nextGaussian();
+            }
+        }
+
+        bucketInstances = new int[numTables][numInstances];
+        bucketCodes = new int[numTables][numInstances];
+        double[][] points = new double[numInstances][];
+        for (int i = 0; i < numInstances; i++) {
+            points[i] = normalize(m_Instances.instance(i));
+        }
+        long[] entries = new long[numInstances];
+        for (int t = 0; t < numTables; t++) {
+            for (int i = 0; i < numInstances; i++) {
+                entries[i] = ((long) hash(points[i], t) << 32) | i;
+            }
+            Arrays.sort(entries);
+            for (int i = 0; i < numInstances; i++) {
+                bucketCodes[t][i] = (int) (entries[i] >>> 32);
+                bucketInstances[t][i] = (int) entries[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the hashed attributes of an instance, normalized to [0,1] and
+     * centered on their mean. Missing values are set to the mean.
+     */
+    private double[] normalize(Instance instance) {
+        double[] point = new double[attributes.length];
+        for (int j = 0; j < attributes.length; j++) {
+            double value = instance.value(attributes[j]);
+            if (!Utils.isMissingValue(value)) {
+                point[j] = (value - offsets[j]) * scales[j] - means[j];
+            }
+        }
+        return point;
+    }
+
+    private int hash(double[] point, int table) {
+        int code = 0;
+        for (int b = 0; b < numBits; b++) {
+            double[] hyperplane = hyperplanes[table * numBits + b];
+            double dot = 0;
+            for (int j = 0; j < point.length; j++) {
+                dot += hyperplane[j] * point[j];
+            }
+            if (dot >= 0) {
+                code |= 1 << b;
+            }
+        }
+        return code;
+    }
+
+    private static int lowerBound(int[] codes, int code) {
+        int low = 0;
+        int high = codes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (codes[middle] < code) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public String getRevision() {
+        return RevisionUtils.extract("$Revision: 1.0 $");
+    }
+}
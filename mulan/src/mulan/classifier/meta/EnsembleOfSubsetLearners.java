@@ -19,6 +19,9 @@ import java.util.*;
 import mulan.classifier.MultiLabelLearner;
 import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.transformation.BinaryRelevance;
+import mulan.core.ModelBuilder;
+import mulan.core.ModelExecutor;
+import mulan.core.ModelSampler;
 import mulan.data.ConditionalDependenceIdentifier;
 import mulan.data.LabelPairsDependenceIdentifier;
 import mulan.data.LabelsPair;
@@ -167,17 +170,37 @@ public class EnsembleOfSubsetLearners extends MultiLabelMetaLearner {
     @Override
     protected void buildInternal(MultiLabelInstances trainingData) throws Exception {
         int totalSubsets = 0;
-        List<LabelSubsetsWeight> pairsList = createLabelSetPartitions(trainingData);
+        final List<LabelSubsetsWeight> pairsList = createLabelSetPartitions(trainingData);
         ensembleModels = new SubsetLearner[numModels];
         for (int m = 0; m < numModels; m++) {
-            LabelSubsetsWeight pair = pairsList.get(m);
-            int[][] comb = pair.getSubsets();
-            ensembleModels[m] = new SubsetLearner(comb, singleLabelLearner);
-            ensembleModels[m].setUseCache(useSubsetcache);
-            totalSubsets = totalSubsets + comb.length;
-            debug("Building model" + m + ":" + partitionToString(comb) + " weight="
-                    + pair.getValue());
-            ensembleModels[m].build(trainingData);
+            totalSubsets = totalSubsets + pairsList.get(m).getSubsets().length;
+        }
+        final MultiLabelInstances mlTrainData = trainingData;
+        ModelSampler sampler = new ModelSampler() {
+
+            public ModelBuilder sample(final int m) throws Exception {
+                LabelSubsetsWeight pair = pairsList.get(m);
+                int[][] comb = pair.getSubsets();
+                ensembleModels[m] = new SubsetLearner(comb, singleLabelLearner);
+                ensembleModels[m].setUseCache(useSubsetcache);
+                debug("Building model" + m + ":" + partitionToString(comb) + " weight="
+                        + pair.getValue());
+                // a subset learner sets the class index of its training set
+                final MultiLabelInstances train = (getExecutor() != null || getMaxConcurrentModels() > 1)
+                        ? mlTrainData.clone() : mlTrainData;
+                return new ModelBuilder() {
+
+                    public void buildModel(int model) throws Exception {
+                        ensembleModels[m].build(train);
+                    }
+                };
+            }
+        };
+        if (useSubsetcache) {
+            // the cache of the subset learners is shared and not thread safe
+            ModelExecutor.sampleAndBuildModels(numModels, sampler, null, 1);
+        } else {
+            sampleAndBuildModels(numModels, sampler);
         }
         debug("Total Subsets  =" + totalSubsets + '\n');
     }
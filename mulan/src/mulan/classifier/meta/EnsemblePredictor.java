@@ -0,0 +1,186 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier.meta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import mulan.classifier.MultiLabelOutput;
+import mulan.core.ArgumentNullException;
+
+/**
+ * Collects the votes of the members of an ensemble for an instance, either one
+ * member after the other or with the members predicting concurrently on an executor.
+ * The votes are always added in increasing order of member, so that the sums of the
+ * votes are the same in both cases. Optionally, the voting stops as soon as the votes
+ * of the remaining members can no longer change the bipartition.
+ */
+public final class EnsemblePredictor {
+
+    private EnsemblePredictor() {
+    }
+
+    /**
+     * Predicts an instance with a member of an ensemble.
+     */
+    public interface MemberPredictor {
+
+        /**
+         * Returns the prediction of a member. It may be called from several threads at
+         * the same time, each time for a different member.
+         *
+         * @param member the index of the member
+         * @return the prediction of the member
+         * @throws Exception if the prediction fails
+         */
+        MultiLabelOutput predict(int member) throws Exception;
+    }
+
+    /**
+     * The votes of the members of an ensemble for an instance.
+     */
+    public interface Votes {
+
+        /**
+         * Adds the prediction of a member. It is called in the calling thread, in
+         * increasing order of member.
+         *
+         * @param member the index of the member
+         * @param prediction the prediction of the member
+         */
+        void add(int member, MultiLabelOutput prediction);
+
+        /**
+         * Returns whether the votes of the members that have not voted yet can no
+         * longer change the bipartition.
+         *
+         * @param numVoted the number of members that have voted
+         * @return whether the bipartition is decided
+         */
+        boolean isDecided(int numVoted);
+    }
+
+    /**
+     * Collects the votes of the members of an ensemble. When an executor is given, the
+     * members predict concurrently on it, otherwise in the calling thread. Before waiting
+     * for the prediction of a member, the calling thread makes it itself if no worker of
+     * the executor has started it yet, so the voting never waits for a free worker and
+     * the executor may be the one whose workers call this method. When the voting stops
+     * early, the members that have not started predicting are skipped, and those already
+     * predicting are waited for, so that no member is still predicting when the method
+     * returns.
+     *
+     * @param numMembers the number of members
+     * @param predictor the predictor of a member
+     * @param votes the votes of the members
+     * @param executor the executor on which the members predict, or null
+     * @param stopWhenDecided whether to stop as soon as the bipartition is decided
+     * @return the number of members that have voted
+     * @throws Exception if the prediction of a member fails
+     */
+    public static int collectVotes(int numMembers, final MemberPredictor predictor, Votes votes,
+            ExecutorService executor, boolean stopWhenDecided) throws Exception {
+        if (predictor == null) {
+            throw new ArgumentNullException("predictor");
+        }
+        if (votes == null) {
+            throw new ArgumentNullException("votes");
+        }
+        if (executor == null) {
+            for (int member = 0; member < numMembers; member++) {
+                votes.add(member, predictor.predict(member));
+                if (stopWhenDecided && votes.isDecided(member + 1)) {
+                    return member + 1;
+                }
+            }
+            return numMembers;
+        }
+
+        List<FutureTask<MultiLabelOutput>> predictions = new ArrayList<FutureTask<MultiLabelOutput>>(numMembers);
+        try {
+            for (int i = 0; i < numMembers; i++) {
+                final int member = i;
+                FutureTask<MultiLabelOutput> prediction = new FutureTask<MultiLabelOutput>(
+                        new Callable<MultiLabelOutput>() {
+
+                            public MultiLabelOutput call() throws Exception {
+                                return predictor.predict(member);
+                            }
+                        });
+                predictions.add(prediction);
+                executor.execute(prediction);
+            }
+            for (int member = 0; member < numMembers; member++) {
+                FutureTask<MultiLabelOutput> prediction = predictions.get(member);
+                // does nothing if a worker has already started the prediction
+                prediction.run();
+                votes.add(member, getPrediction(prediction));
+                if (stopWhenDecided && votes.isDecided(member + 1)) {
+                    return member + 1;
+                }
+            }
+            return numMembers;
+        } finally {
+            // the members may be reused as soon as this method returns, so the
+            // predictions that have not started are cancelled and the others waited for
+            for (Future<MultiLabelOutput> prediction : predictions) {
+                if (prediction.cancel(false)) {
+                    continue;
+                }
+                try {
+                    prediction.get();
+                } catch (ExecutionException ex) {
+                    // a failure of a skipped prediction is ignored
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static MultiLabelOutput getPrediction(Future<MultiLabelOutput> prediction) throws Exception {
+        try {
+            return prediction.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns an upper bound of a sum of values, after values of at most 1 have been
+     * added to it in floating point arithmetic.
+     *
+     * @param sum the sum so far
+     * @param numValues the number of values still to be added
+     * @return the upper bound of the sum
+     */
+    public static double upperBound(double sum, int numValues) {
+        double bound = sum + numValues;
+        // each addition rounds the sum up by at most one ulp of the bound
+        return Math.nextUp(bound + (numValues + 1) * Math.ulp(bound));
+    }
+}
@@ -21,6 +21,8 @@ import java.util.Random;
 import mulan.classifier.MultiLabelLearner;
 import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.transformation.BinaryRelevance;
+import mulan.core.ModelBuilder;
+import mulan.core.ModelSampler;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
@@ -88,6 +90,7 @@ public class RAkEL extends MultiLabelMetaLearner {
     MultiLabelLearner[] subsetClassifiers;
     private Remove[] remove;
     HashSet<String> combinations;
+    boolean stopVotingWhenDecided = false;
 
     /**
      * Returns an instance of a TechnicalInformation object, containing detailed
@@ -201,6 +204,30 @@ public class RAkEL extends MultiLabelMetaLearner {
         return numOfModels;
     }
 
+    /**
+     * Sets whether the prediction of an instance stops as soon as the remaining
+     * models can no longer change the bipartition. The bipartition is the same as
+     * the one of a full prediction, but the output has no confidences. As the
+     * models that do not vote do not break ties at random, like
+     * {@link mulan.classifier.transformation.LabelPowerset} does, the predictions
+     * of the following instances may break those ties differently.
+     * 
+     * @param doStop whether to stop when the bipartition is decided
+     */
+    public void setStopVotingWhenDecided(boolean doStop) {
+        stopVotingWhenDecided = doStop;
+    }
+
+    /**
+     * Returns whether the prediction of an instance stops as soon as the
+     * remaining models can no longer change the bipartition
+     * 
+     * @return whether the prediction stops when the bipartition is decided
+     */
+    public boolean getStopVotingWhenDecided() {
+        return stopVotingWhenDecided;
+    }
+
     /**
      * The binomial function
      * 
@@ -242,12 +269,18 @@ public class RAkEL extends MultiLabelMetaLearner {
         subsetClassifiers = new MultiLabelLearner[numOfModels];
         remove = new Remove[numOfModels];
 
-        for (int i = 0; i < numOfModels; i++) {
-            updateClassifier(trainingData, i);
-        }
+        // the label subsets are drawn in order, the models are built independently
+        final MultiLabelInstances mlTrainData = trainingData;
+        sampleAndBuildModels(numOfModels, new ModelSampler() {
+
+            public ModelBuilder sample(int model) throws Exception {
+                return sampleClassifier(mlTrainData, model);
+            }
+        });
     }
 
-    private void updateClassifier(MultiLabelInstances mlTrainData, int model) throws Exception {
+    private ModelBuilder sampleClassifier(final MultiLabelInstances mlTrainData, final int model)
+            throws Exception {
         //todo: check if the following is unnecessary (was used for cvparam)
         if (combinations == null) {
             combinations = new HashSet<String>();
@@ -285,29 +318,73 @@ public class RAkEL extends MultiLabelMetaLearner {
         remove[model].setAttributeIndicesArray(absoluteIndicesToRemove[model]);
         remove[model].setInputFormat(trainData);
         remove[model].setInvertSelection(false);
-        Instances trainSubset = Filter.useFilter(trainData, remove[model]);
+        final Instances trainSubset = Filter.useFilter(trainData, remove[model]);
 
-        // build a MultiLabelLearner for the selected label subset;
-        subsetClassifiers[model] = getBaseLearner().makeCopy();
-        subsetClassifiers[model].build(mlTrainData.reintegrateModifiedDataSet(trainSubset));
+        return new ModelBuilder() {
+
+            public void buildModel(int model) throws Exception {
+                // build a MultiLabelLearner for the selected label subset;
+                subsetClassifiers[model] = getBaseLearner().makeCopy();
+                subsetClassifiers[model].build(mlTrainData.reintegrateModifiedDataSet(trainSubset));
+            }
+        };
     }
 
-    protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception {
-        double[] sumConf = new double[numLabels];
+    protected MultiLabelOutput makePredictionInternal(final Instance instance) throws Exception {
+        final double[] sumConf = new double[numLabels];
         sumVotes = new double[numLabels];
         lengthVotes = new double[numLabels];
 
-        // gather votes
+        // number of models voting for each label
+        final double[] totalVotes = new double[numLabels];
         for (int i = 0; i < numOfModels; i++) {
-            remove[i].input(instance);
-            remove[i].batchFinished();
-            Instance newInstance = remove[i].output();
-            MultiLabelOutput subsetMLO = subsetClassifiers[i].makePrediction(newInstance);
             for (int j = 0; j < sizeOfSubset; j++) {
-                sumConf[classIndicesPerSubset[i][j]] += subsetMLO.getConfidences()[j];
-                sumVotes[classIndicesPerSubset[i][j]] += subsetMLO.getBipartition()[j] ? 1 : 0;
-                lengthVotes[classIndicesPerSubset[i][j]]++;
+                totalVotes[classIndicesPerSubset[i][j]]++;
+            }
+        }
+
+        // gather votes, the models predict on the executor, if any
+        EnsemblePredictor.collectVotes(numOfModels, new EnsemblePredictor.MemberPredictor() {
+
+            public MultiLabelOutput predict(int i) throws Exception {
+                remove[i].input(instance);
+                remove[i].batchFinished();
+                Instance newInstance = remove[i].output();
+                return subsetClassifiers[i].makePrediction(newInstance);
+            }
+        }, new EnsemblePredictor.Votes() {
+
+            public void add(int i, MultiLabelOutput subsetMLO) {
+                for (int j = 0; j < sizeOfSubset; j++) {
+                    sumConf[classIndicesPerSubset[i][j]] += subsetMLO.getConfidences()[j];
+                    sumVotes[classIndicesPerSubset[i][j]] += subsetMLO.getBipartition()[j] ? 1 : 0;
+                    lengthVotes[classIndicesPerSubset[i][j]]++;
+                }
+            }
+
+            public boolean isDecided(int numVoted) {
+                for (int i = 0; i < numLabels; i++) {
+                    if (totalVotes[i] == 0) {
+                        continue;
+                    }
+                    double remaining = totalVotes[i] - lengthVotes[i];
+                    if (sumVotes[i] / totalVotes[i] < threshold
+                            && (sumVotes[i] + remaining) / totalVotes[i] >= threshold) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }, getExecutor(), stopVotingWhenDecided);
+
+        if (stopVotingWhenDecided) {
+            // the confidences of a partial vote are meaningless
+            boolean[] bipartition = new boolean[numLabels];
+            for (int i = 0; i < numLabels; i++) {
+                double confidence = (totalVotes[i] != 0) ? sumVotes[i] / totalVotes[i] : 0;
+                bipartition[i] = confidence >= threshold;
             }
+            return new MultiLabelOutput(bipartition);
         }
 
         double[] confidence1 = new double[numLabels];
@@ -21,6 +21,8 @@ import java.util.Random;
 import mulan.classifier.MultiLabelLearner;
 import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.transformation.BinaryRelevance;
+import mulan.core.ModelBuilder;
+import mulan.core.ModelSampler;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
@@ -188,9 +190,14 @@ public class RAkELd extends MultiLabelMetaLearner {
             listOfLabels.add(c); //add all labels _(relative)_ indices to an arraylist
         }        //R_d]
 
-        for (int i = 0; i < numOfModels; i++) {
-            updateClassifier(trainingData, i);
-        }
+        // the label subsets are drawn in order, the models are built independently
+        final MultiLabelInstances mlTrainData = trainingData;
+        sampleAndBuildModels(numOfModels, new ModelSampler() {
+
+            public ModelBuilder sample(int model) throws Exception {
+                return sampleClassifier(mlTrainData, model);
+            }
+        });
     }
 
     /**
@@ -201,6 +208,11 @@ public class RAkELd extends MultiLabelMetaLearner {
      * @throws Exception Potential exception thrown. To be handled in an upper level.
      */
     public void updateClassifier(MultiLabelInstances mlTrainData, int model) throws Exception {
+        sampleClassifier(mlTrainData, model).buildModel(model);
+    }
+
+    private ModelBuilder sampleClassifier(final MultiLabelInstances mlTrainData, final int model)
+            throws Exception {
         Instances trainData = mlTrainData.getDataSet();
 
         //[R_d]
@@ -241,10 +253,16 @@ public class RAkELd extends MultiLabelMetaLearner {
         //</new Way>
 
         remove[model].setInputFormat(trainData);
-        Instances trainSubset = Filter.useFilter(trainData, remove[model]);
-        // build a MultiLabelLearner for the selected label subset;
-        subsetClassifiers[model] = getBaseLearner().makeCopy();
-        subsetClassifiers[model].build(mlTrainData.reintegrateModifiedDataSet(trainSubset));
+        final Instances trainSubset = Filter.useFilter(trainData, remove[model]);
+
+        return new ModelBuilder() {
+
+            public void buildModel(int model) throws Exception {
+                // build a MultiLabelLearner for the selected label subset;
+                subsetClassifiers[model] = getBaseLearner().makeCopy();
+                subsetClassifiers[model].build(mlTrainData.reintegrateModifiedDataSet(trainSubset));
+            }
+        };
     }
 
     @Override
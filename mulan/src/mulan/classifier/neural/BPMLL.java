@@ -21,11 +21,14 @@
 package mulan.classifier.neural;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import mulan.classifier.InvalidDataException;
 import mulan.classifier.MultiLabelLearnerBase;
 import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.neural.model.ActivationTANH;
 import mulan.classifier.neural.model.BasicNeuralNet;
+import mulan.classifier.neural.model.MatrixNeuralNet;
 import mulan.classifier.neural.model.NeuralNet;
 import mulan.core.WekaException;
 import mulan.data.DataUtils;
@@ -83,6 +86,9 @@ public class BPMLL extends MultiLabelLearnerBase {
     private NormalizationFilter normalizer;
     private NeuralNet model;
     private ThresholdFunction thresholdF;
+    // mini-batch learning parameters
+    private int batchSize = 1;
+    private int numThreads = 1;
 
     /**
      * Creates a new instance of {@link BPMLL} learner.
@@ -228,6 +234,58 @@ public class BPMLL extends MultiLabelLearnerBase {
         return normalizeAttributes;
     }
 
+    /**
+     * Sets the number of training examples per weights update. With the default value of 1,
+     * the weights are updated after each example by {@link BPMLLAlgorithm}. With larger values,
+     * the network is learned by {@link BPMLLBatchAlgorithm} on weight matrices, which updates the
+     * weights once per batch of examples by their average weight change.
+     *
+     * @param batchSize the number of examples per weights update
+     * @throws IllegalArgumentException if passed value is invalid
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be greater than zero. " +
+                    "Entered value is : " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets the number of training examples per weights update.
+     * Default value is 1.
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of threads which process a batch of training examples in parallel,
+     * when the batch size is larger than 1. The learned model does not depend on the
+     * number of threads.<br>
+     * Default value is 1.
+     *
+     * @param numThreads the number of threads
+     * @throws IllegalArgumentException if passed value is invalid
+     */
+    public void setNumThreads(int numThreads) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be greater than zero. " +
+                    "Entered value is : " + numThreads);
+        }
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Gets the number of threads which process a batch of training examples.
+     * Default value is 1.
+     * @return the number of threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+
     protected void buildInternal(final MultiLabelInstances instances) throws Exception {
 
         // delete filter if available from previous build, a new one will be created if necessary
@@ -235,8 +293,21 @@ public class BPMLL extends MultiLabelLearnerBase {
 
         MultiLabelInstances trainInstances = instances.clone();
         List<DataPair> trainData = prepareData(trainInstances);
-        int inputsDim = trainData.get(0).getInput().length;
+        int inputsDim = trainData.get(0).getInputDim();
         model = buildNeuralNetwork(inputsDim);
+        if (batchSize > 1) {
+            learnInBatches(trainData);
+        } else {
+            learnPerPattern(trainData);
+        }
+
+        thresholdF = buildThresholdFunction(trainData);
+    }
+
+    /**
+     * Learns the model with {@link BPMLLAlgorithm}, updating the weights after each example.
+     */
+    private void learnPerPattern(List<DataPair> trainData) {
         BPMLLAlgorithm learnAlg = new BPMLLAlgorithm(model, weightsDecayCost);
 
         int numInstances = trainData.size();
@@ -247,7 +318,13 @@ public class BPMLL extends MultiLabelLearnerBase {
             Collections.shuffle(trainData, new Random(1));
             for (int index = 0; index < numInstances; index++) {
                 DataPair trainPair = trainData.get(index);
-                double result = learnAlg.learn(trainPair.getInput(), trainPair.getOutput(), learningRate);
+                double result;
+                if (trainPair.isSparse()) {
+                    result = learnAlg.learn(trainPair.getInputIndices(), trainPair.getInputValues(),
+                            trainPair.getOutput(), learningRate);
+                } else {
+                    result = learnAlg.learn(trainPair.getInput(), trainPair.getOutput(), learningRate);
+                }
                 if (!Double.isNaN(result)) {
                     error += result;
                     processedInstances++;
@@ -268,8 +345,70 @@ public class BPMLL extends MultiLabelLearnerBase {
                 break;
             }
         }
+        learnAlg.applyDeferredWeightsDecay();
+    }
 
-        thresholdF = buildThresholdFunction(trainData);
+    /**
+     * Learns the model with {@link BPMLLBatchAlgorithm} on a copy of the network stored as
+     * weight matrices, and converts the learned network back.
+     */
+    private void learnInBatches(List<DataPair> trainData) throws Exception {
+        MatrixNeuralNet matrixModel = new MatrixNeuralNet(model);
+        BPMLLBatchAlgorithm learnAlg = new BPMLLBatchAlgorithm(matrixModel, weightsDecayCost);
+        ExecutorService pool = null;
+        if (numThreads > 1) {
+            pool = Executors.newFixedThreadPool(numThreads);
+            learnAlg.setExecutor(pool);
+        }
+
+        // the patterns with all or none of the labels are ignored by the algorithm
+        int processedPerEpoch = 0;
+        for (DataPair trainPair : trainData) {
+            double[] labels = trainPair.getOutput();
+            for (double label : labels) {
+                if (label != labels[0]) {
+                    processedPerEpoch++;
+                    break;
+                }
+            }
+        }
+
+        try {
+            int numInstances = trainData.size();
+            int processedInstances = 0;
+            double prevError = Double.MAX_VALUE;
+            double error = 0;
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                Collections.shuffle(trainData, new Random(1));
+                for (int from = 0; from < numInstances; from += batchSize) {
+                    List<DataPair> batch = trainData.subList(from, Math.min(numInstances, from + batchSize));
+                    double result = learnAlg.learn(batch, learningRate);
+                    if (!Double.isNaN(result)) {
+                        error += result;
+                    }
+                }
+                processedInstances += processedPerEpoch;
+
+                if (getDebug()) {
+                    if (epoch % 10 == 0) {
+                        debug("Training epoch : " + epoch + "  Model error : " + error / processedInstances);
+                    }
+                }
+
+                double errorDiff = prevError - error;
+                if (errorDiff <= ERROR_SMALL_CHANGE * prevError) {
+                    if (getDebug()) {
+                        debug("Global training error does not decrease enough. Training terminated.");
+                    }
+                    break;
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        model = matrixModel.toBasicNeuralNet();
     }
 
     public String globalInfo() {
@@ -300,7 +439,11 @@ public class BPMLL extends MultiLabelLearnerBase {
         for (int example = 0; example < numExamples; example++) {
             DataPair dataPair = trainData.get(example);
             idealLabels[example] = dataPair.getOutput();
-            modelConfidences[example] = model.feedForward(dataPair.getInput());
+            if (dataPair.isSparse()) {
+                modelConfidences[example] = model.feedForward(dataPair.getInputIndices(), dataPair.getInputValues());
+            } else {
+                modelConfidences[example] = model.feedForward(dataPair.getInput());
+            }
         }
 
         return new ThresholdFunction(idealLabels, modelConfidences);
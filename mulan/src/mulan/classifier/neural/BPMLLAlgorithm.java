@@ -43,6 +43,15 @@ public class BPMLLAlgorithm {
 
     private final NeuralNet neuralNet;
     private final double weightsDecayCost;
+    // The weights decay of the input weights of the first layer is deferred for inputs
+    // which are zero in the sparse input patterns, see learn(int[], double[], double[], double).
+    // The number of learning steps with sparse input patterns since the deferred decay was applied.
+    private int sparseSteps;
+    // The value of sparseSteps when the decay of the weights of each input was last applied.
+    private int[] inputDecaySteps;
+    // The sum of squares of the input weights of the first layer (bias weights excluded),
+    // with the deferred decay applied.
+    private double inputWeightsSquareSum;
 
     /**
      * Creates a {@link BPMLLAlgorithm} instance.
@@ -87,7 +96,10 @@ public class BPMLLAlgorithm {
      * The function outputs the error for passed input pattern.<br>
      * The input is ignored by the algorithm (can not process) if the input example has
      * assigned either all or non of the labels.
-     * In this case, the function returns {@link Double#NaN}.
+     * In this case, the function returns {@link Double#NaN}.<br>
+     * While the weights decay of some input weights is deferred by learning steps with sparse
+     * input patterns, the step is made as one with the non-zero values of the pattern, so that
+     * the decay of the input weights remains deferred for the zero values.
      *
      * @param inputPattern the input pattern for the network
      * @param expectedLabels the ideal, expected values the network should output as a
@@ -107,6 +119,24 @@ public class BPMLLAlgorithm {
             throw new IllegalArgumentException("Specified expected labels vector is null " +
                     "or does not match the output dimension of underlying neural network model.");
         }
+        if (inputDecaySteps != null) {
+            int numNonZero = 0;
+            for (double value : inputPattern) {
+                if (value != 0) {
+                    numNonZero++;
+                }
+            }
+            int[] inputIndices = new int[numNonZero];
+            double[] inputValues = new double[numNonZero];
+            numNonZero = 0;
+            for (int i = 0; i < inputPattern.length; i++) {
+                if (inputPattern[i] != 0) {
+                    inputIndices[numNonZero] = i;
+                    inputValues[numNonZero++] = inputPattern[i];
+                }
+            }
+            return learn(inputIndices, inputValues, expectedLabels, learningRate);
+        }
 
         // 1. PROPAGATE SIGNAL
         double[] networkOutputs = neuralNet.feedForward(inputPattern);
@@ -123,11 +153,141 @@ public class BPMLLAlgorithm {
 
             // 2a. COMPUTE ERROR TERMS
             List<Neuron> layer = neuralNet.getLayerUnits(layerIndex);
-            if (layerIndex == layersCount - 1) {
-                computeOutputLayerErrorTerms(layer, outputErrors);
-            } else {
-                List<Neuron> nextLayer = neuralNet.getLayerUnits(layerIndex + 1);
-                computeHiddenLayerErrorTerms(layer, nextLayer);
+            computeErrorTerms(layerIndex, outputErrors);
+
+            // 2b. GET OUTPUTS OF NEXT LAYER (from back-propagation perspective)
+            List<Neuron> previousLayer = neuralNet.getLayerUnits(layerIndex - 1);
+            double[] previousLayerOut = new double[previousLayer.size()];
+            int previousLayerSize = previousLayer.size();
+            for (int n = 0; n < previousLayerSize; n++) {
+                previousLayerOut[n] = previousLayer.get(n).getOutput();
+            }
+
+            // compute sum of weights squares for weights decay regularization
+            for (Neuron neuron : layer) {
+                double[] weights = neuron.getWeights();
+                for (double weight : weights) {
+                    weightsSquareSum += weight * weight;
+                }
+            }
+
+            // 2c. UPDATE WEIGHTS OF THE LAYER
+            updateWeights(layer, previousLayerOut, learningRate);
+        }
+
+        double globalError = 0;
+        for (double error : outputErrors) {
+            globalError += Math.abs(error);
+        }
+        globalError += weightsDecayCost * 0.5 * weightsSquareSum;
+
+        return globalError;
+    }
+
+    /**
+     * Performs one learning step with given sparse input pattern and expected output values,
+     * like {@link #learn(double[], double[], double)}. Only the non-zero values of the input
+     * pattern are passed, together with their positions, so the cost of the step for the first
+     * layer scales with the number of non-zero values and not with the input dimension.<br>
+     * The weights decay of the input weights of the first layer is deferred for the inputs
+     * which are zero in the pattern, until the inputs are non-zero in a later pattern or
+     * {@link #applyDeferredWeightsDecay()} is called. The weights of the network are then the same
+     * as if the decay was applied at each step. The other learning and error functions of the
+     * algorithm apply the deferred decay before they use the network.
+     *
+     * @param inputIndices the distinct positions of the non-zero values of the input pattern
+     * @param inputValues the non-zero values of the input pattern
+     * @param expectedLabels the ideal, expected values the network should output as a
+     * 		  response for the given input. If the i-th label class belongs to the input pattern
+     * 		  instance, then i-th value is +1, otherwise the value is -1.
+     * @param learningRate the learning rate used to update the neural network weights
+     * @return the error of the network response for the passed input
+     * 			or {@link Double#NaN} if the passed input can not be processed.
+     */
+    public double learn(int[] inputIndices, double[] inputValues, double[] expectedLabels, double learningRate) {
+
+        int inputDim = neuralNet.getNetInputSize();
+        if (inputIndices == null || inputValues == null || inputIndices.length != inputValues.length) {
+            throw new IllegalArgumentException("Specified input pattern vector is null " +
+                    "or its indices do not match its values.");
+        }
+        for (int index : inputIndices) {
+            if (index < 0 || index >= inputDim) {
+                throw new IllegalArgumentException("Specified input pattern vector " +
+                        "does not match the input dimension of underlying neural network model.");
+            }
+        }
+        if (expectedLabels == null || expectedLabels.length != neuralNet.getNetOutputSize()) {
+            throw new IllegalArgumentException("Specified expected labels vector is null " +
+                    "or does not match the output dimension of underlying neural network model.");
+        }
+
+        List<Neuron> firstLayer = neuralNet.getLayerUnits(1);
+        if (inputDecaySteps == null) {
+            inputDecaySteps = new int[inputDim];
+            sparseSteps = 0;
+            inputWeightsSquareSum = 0;
+            for (Neuron neuron : firstLayer) {
+                double[] weights = neuron.getWeights();
+                for (int i = 0; i < inputDim; i++) {
+                    inputWeightsSquareSum += weights[i] * weights[i];
+                }
+            }
+        }
+
+        // apply the decay deferred for the inputs of the pattern
+        double decayRatio = 1 - weightsDecayCost;
+        for (int index : inputIndices) {
+            int steps = sparseSteps - inputDecaySteps[index];
+            if (steps > 0) {
+                double decay = Math.pow(decayRatio, steps);
+                for (Neuron neuron : firstLayer) {
+                    neuron.getWeights()[index] *= decay;
+                }
+                inputDecaySteps[index] = sparseSteps;
+            }
+        }
+
+        // 1. PROPAGATE SIGNAL
+        double[] networkOutputs = neuralNet.feedForward(inputIndices, inputValues);
+        double[] outputErrors = computeErrorsForNeurons(networkOutputs, expectedLabels);
+        if (outputErrors == null) {
+            return Double.NaN;
+        }
+
+        double weightsSquareSum = inputWeightsSquareSum;
+
+        // 2. UPDATE WIGHTS - error back-propagation
+        int layersCount = neuralNet.getLayersCount();
+        for (int layerIndex = layersCount - 1; layerIndex > 0; layerIndex--) {
+
+            // 2a. COMPUTE ERROR TERMS
+            List<Neuron> layer = neuralNet.getLayerUnits(layerIndex);
+            computeErrorTerms(layerIndex, outputErrors);
+
+            if (layerIndex == 1) {
+                // 2b. UPDATE INPUT WEIGHTS OF THE PATTERN AND BIAS WEIGHTS, the decay of the other
+                // input weights is deferred
+                double updatedSquareSum = 0;
+                for (Neuron neuron : layer) {
+                    double[] weights = neuron.getWeights();
+                    double error = neuron.getError();
+                    for (int i = 0; i < inputIndices.length; i++) {
+                        int index = inputIndices[i];
+                        updatedSquareSum -= decayRatio * decayRatio * weights[index] * weights[index];
+                        weights[index] += learningRate * error * inputValues[i] - weightsDecayCost * weights[index];
+                        updatedSquareSum += weights[index] * weights[index];
+                    }
+                    weightsSquareSum += weights[inputDim] * weights[inputDim];
+                    weights[inputDim] += learningRate * error * neuron.getBiasInput()
+                            - weightsDecayCost * weights[inputDim];
+                }
+                inputWeightsSquareSum = decayRatio * decayRatio * inputWeightsSquareSum + updatedSquareSum;
+                for (int index : inputIndices) {
+                    inputDecaySteps[index] = sparseSteps + 1;
+                }
+                sparseSteps++;
+                continue;
             }
 
             // 2b. GET OUTPUTS OF NEXT LAYER (from back-propagation perspective)
@@ -159,6 +319,31 @@ public class BPMLLAlgorithm {
         return globalError;
     }
 
+    /**
+     * Applies the weights decay deferred by the learning steps with sparse input patterns
+     * to the weights of the network. This must be called before the network is used
+     * outside of the algorithm, after learning with sparse input patterns.
+     *
+     * @see #learn(int[], double[], double[], double)
+     */
+    public void applyDeferredWeightsDecay() {
+        if (inputDecaySteps == null) {
+            return;
+        }
+        List<Neuron> firstLayer = neuralNet.getLayerUnits(1);
+        double decayRatio = 1 - weightsDecayCost;
+        for (int index = 0; index < inputDecaySteps.length; index++) {
+            int steps = sparseSteps - inputDecaySteps[index];
+            if (steps > 0) {
+                double decay = Math.pow(decayRatio, steps);
+                for (Neuron neuron : firstLayer) {
+                    neuron.getWeights()[index] *= decay;
+                }
+            }
+        }
+        inputDecaySteps = null;
+    }
+
     /**
      * Returns the error of the neural network for given input. This is value of error function
      * computed from network output value for given input and expected,
@@ -176,6 +361,7 @@ public class BPMLLAlgorithm {
      */
     public double getNetworkError(double[] inputPattern, double[] expectedLabels) {
 
+        applyDeferredWeightsDecay();
         double[] networkOutputs = neuralNet.feedForward(inputPattern);
         double[] outputErrors = computeErrorsForNeurons(networkOutputs, expectedLabels);
         if (outputErrors == null) {
@@ -225,6 +411,16 @@ public class BPMLLAlgorithm {
         }
     }
 
+    private void computeErrorTerms(int layerIndex, double[] outputErrors) {
+        List<Neuron> layer = neuralNet.getLayerUnits(layerIndex);
+        if (layerIndex == neuralNet.getLayersCount() - 1) {
+            computeOutputLayerErrorTerms(layer, outputErrors);
+        } else {
+            List<Neuron> nextLayer = neuralNet.getLayerUnits(layerIndex + 1);
+            computeHiddenLayerErrorTerms(layer, nextLayer);
+        }
+    }
+
     private void computeOutputLayerErrorTerms(List<Neuron> outLayer, double[] outputErrors) {
 
         int neuronsInLayer = outLayer.size();
@@ -0,0 +1,365 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+/*
+ *    BPMLLBatchAlgorithm.java
+ *    Copyright (C) 2009-2012 Aristotle University of Thessaloniki, Greece
+ */
+package mulan.classifier.neural;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import mulan.classifier.neural.model.ActivationFunction;
+import mulan.classifier.neural.model.MatrixNeuralNet;
+
+/**
+ * The implementation of Back-Propagation Multi-Label Learning (BPMLL) algorithm with mini-batch
+ * weight updates, for neural networks stored as weight matrices ({@link MatrixNeuralNet}).
+ * The weights are updated once per batch of input patterns, by the average of the
+ * weight changes of the patterns of the batch, computed from the weights before the update.
+ * The weights decay regularization is applied once per batch.
+ * <br>
+ * The batch is split into slices of a fixed size, which are processed in parallel when an
+ * {@link ExecutorService} is set. Each slice sums the weight changes of its patterns
+ * separately and the sums are then added in the order of the slices, so the result does
+ * not depend on the number of threads.
+ * <br>
+ * The first layer processes sparse input patterns ({@link DataPair#isSparse()}) by their
+ * non-zero values only.
+ *
+ * @see BPMLLAlgorithm
+ */
+public class BPMLLBatchAlgorithm {
+
+    /** the number of input patterns processed together by one task **/
+    private static final int SLICE_SIZE = 32;
+    private final MatrixNeuralNet neuralNet;
+    private final double weightsDecayCost;
+    private ExecutorService executor;
+    private final List<Slice> slices = new ArrayList<Slice>();
+
+    /**
+     * Creates a {@link BPMLLBatchAlgorithm} instance.
+     *
+     * @param neuralNet the neural network model to learn
+     * @param weightsDecayCost the weights decay cost term used for regularization.
+     * 					The value must be greater than 0 and no more than 1.
+     */
+    public BPMLLBatchAlgorithm(MatrixNeuralNet neuralNet, double weightsDecayCost) {
+
+        if (neuralNet == null) {
+            throw new IllegalArgumentException("The passed neural network model is null.");
+        }
+        if (weightsDecayCost <= 0 || weightsDecayCost > 1) {
+            throw new IllegalArgumentException("The weights decay regularization cost term must be greater " +
+                    "than 0 and no more than 1. The passed value is : " + weightsDecayCost);
+        }
+        this.neuralNet = neuralNet;
+        this.weightsDecayCost = weightsDecayCost;
+    }
+
+    /**
+     * Returns the neural network which is learned/updated by the algorithm.
+     *
+     * @return the neural network
+     */
+    public MatrixNeuralNet getNetwork() {
+        return neuralNet;
+    }
+
+    /**
+     * Returns the value of weights decay cost term used for regularization.
+     *
+     * @return the weights decay cost term
+     */
+    public double getWeightsDecayCost() {
+        return weightsDecayCost;
+    }
+
+    /**
+     * Sets the executor which processes the slices of a batch in parallel.
+     * If <code>null</code> (the default), the slices are processed in the calling thread.
+     * The executor is not shut down by the algorithm.
+     *
+     * @param executor the executor
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Performs one learning step with a batch of input patterns and their expected output values.
+     * The function outputs the sum of the errors of the processed input patterns, like the
+     * sum of {@link BPMLLAlgorithm#learn(double[], double[], double)} over the batch.<br>
+     * Input patterns which have assigned either all or none of the labels are ignored by the
+     * algorithm. If all patterns of the batch are ignored, the function returns {@link Double#NaN}
+     * and the network is not updated.
+     *
+     * @param batch the input patterns with their expected labels. If the i-th label class belongs
+     * 		  to the input pattern instance, then i-th value of the output is +1, otherwise the value is -1.
+     * @param learningRate the learning rate used to update the neural network weights
+     * @return the sum of the errors of the network responses for the processed input patterns
+     * 			or {@link Double#NaN} if no input pattern can be processed.
+     * @throws Exception if the processing of a slice fails
+     */
+    public double learn(List<DataPair> batch, double learningRate) throws Exception {
+
+        for (DataPair pair : batch) {
+            if (pair.getInputDim() != neuralNet.getNetInputSize()) {
+                throw new IllegalArgumentException("Specified input pattern vector " +
+                        "does not match the input dimension of underlying neural network model.");
+            }
+            if (pair.getOutput().length != neuralNet.getNetOutputSize()) {
+                throw new IllegalArgumentException("Specified expected labels vector " +
+                        "does not match the output dimension of underlying neural network model.");
+            }
+        }
+
+        // 1. ACCUMULATE WEIGHT CHANGES OF THE SLICES
+        int numSlices = (batch.size() + SLICE_SIZE - 1) / SLICE_SIZE;
+        while (slices.size() < numSlices) {
+            slices.add(new Slice());
+        }
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numSlices);
+        for (int s = 0; s < numSlices; s++) {
+            final Slice slice = slices.get(s);
+            final List<DataPair> pairs = batch.subList(s * SLICE_SIZE, Math.min(batch.size(), (s + 1) * SLICE_SIZE));
+            tasks.add(new Callable<Void>() {
+
+                public Void call() {
+                    slice.process(pairs);
+                    return null;
+                }
+            });
+        }
+        if (executor == null || numSlices == 1) {
+            for (Callable<Void> task : tasks) {
+                task.call();
+            }
+        } else {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        }
+
+        int processed = 0;
+        double outputErrorsSum = 0;
+        for (int s = 0; s < numSlices; s++) {
+            processed += slices.get(s).processed;
+            outputErrorsSum += slices.get(s).outputErrorsSum;
+        }
+        if (processed == 0) {
+            return Double.NaN;
+        }
+
+        // 2. UPDATE WEIGHTS with the average weight change
+        double weightsSquareSum = 0;
+        double rate = learningRate / processed;
+        for (int layerIndex = 1; layerIndex < neuralNet.getLayersCount(); layerIndex++) {
+            double[] weights = neuralNet.getLayerWeights(layerIndex);
+            double[] deltas = slices.get(0).deltas[layerIndex];
+            for (int s = 1; s < numSlices; s++) {
+                double[] sliceDeltas = slices.get(s).deltas[layerIndex];
+                for (int w = 0; w < deltas.length; w++) {
+                    deltas[w] += sliceDeltas[w];
+                }
+            }
+            for (int w = 0; w < weights.length; w++) {
+                weightsSquareSum += weights[w] * weights[w];
+                weights[w] += rate * deltas[w] - weightsDecayCost * weights[w];
+            }
+        }
+
+        return outputErrorsSum + processed * weightsDecayCost * 0.5 * weightsSquareSum;
+    }
+
+    /**
+     * The buffers of a slice of a batch: the inputs and outputs of the units for the current
+     * input pattern, their error terms, and the sum of the weight changes of the slice.
+     */
+    private class Slice {
+
+        final double[][] neuronInputs;
+        final double[][] neuronOutputs;
+        final double[][] errorTerms;
+        final double[][] deltas;
+        final double[] outputErrors;
+        final int[] isLabel;
+        final int[] isNotLabel;
+        int processed;
+        double outputErrorsSum;
+
+        Slice() {
+            int layersCount = neuralNet.getLayersCount();
+            neuronInputs = new double[layersCount][];
+            neuronOutputs = new double[layersCount][];
+            errorTerms = new double[layersCount][];
+            deltas = new double[layersCount][];
+            for (int layerIndex = 1; layerIndex < layersCount; layerIndex++) {
+                int layerSize = neuralNet.getLayerSize(layerIndex);
+                neuronInputs[layerIndex] = new double[layerSize];
+                neuronOutputs[layerIndex] = new double[layerSize];
+                errorTerms[layerIndex] = new double[layerSize];
+                deltas[layerIndex] = new double[neuralNet.getLayerWeights(layerIndex).length];
+            }
+            int labelsCount = neuralNet.getNetOutputSize();
+            outputErrors = new double[labelsCount];
+            isLabel = new int[labelsCount];
+            isNotLabel = new int[labelsCount];
+        }
+
+        void process(List<DataPair> pairs) {
+            processed = 0;
+            outputErrorsSum = 0;
+            for (int layerIndex = 1; layerIndex < deltas.length; layerIndex++) {
+                Arrays.fill(deltas[layerIndex], 0);
+            }
+            for (DataPair pair : pairs) {
+                boolean sparse = pair.isSparse();
+
+                // 1. PROPAGATE SIGNAL
+                int layersCount = neuralNet.getLayersCount();
+                if (sparse) {
+                    neuralNet.processFirstLayer(pair.getInputIndices(), pair.getInputValues(),
+                            neuronInputs[1], neuronOutputs[1]);
+                } else {
+                    neuronOutputs[0] = pair.getInput();
+                    neuralNet.processLayer(1, neuronOutputs[0], neuronInputs[1], neuronOutputs[1]);
+                }
+                for (int layerIndex = 2; layerIndex < layersCount; layerIndex++) {
+                    neuralNet.processLayer(layerIndex, neuronOutputs[layerIndex - 1],
+                            neuronInputs[layerIndex], neuronOutputs[layerIndex]);
+                }
+                if (!computeErrorsForNeurons(neuronOutputs[layersCount - 1], pair.getOutput())) {
+                    continue;
+                }
+                processed++;
+                for (double error : outputErrors) {
+                    outputErrorsSum += Math.abs(error);
+                }
+
+                // 2. BACK-PROPAGATE ERROR and accumulate weight changes
+                ActivationFunction function = neuralNet.getActivationFunction();
+                double biasInput = neuralNet.getBiasInput();
+                for (int layerIndex = layersCount - 1; layerIndex > 0; layerIndex--) {
+                    double[] layerErrorTerms = errorTerms[layerIndex];
+                    double[] layerInputs = neuronInputs[layerIndex];
+                    int layerSize = layerErrorTerms.length;
+                    if (layerIndex == layersCount - 1) {
+                        for (int n = 0; n < layerSize; n++) {
+                            layerErrorTerms[n] = outputErrors[n] * function.derivative(layerInputs[n]);
+                        }
+                    } else {
+                        // error terms of the next layer, weighted by its weights before the update
+                        double[] nextErrorTerms = errorTerms[layerIndex + 1];
+                        double[] nextWeights = neuralNet.getLayerWeights(layerIndex + 1);
+                        int columns = layerSize + 1;
+                        Arrays.fill(layerErrorTerms, 0);
+                        for (int k = 0, offset = 0; k < nextErrorTerms.length; k++, offset += columns) {
+                            double nextErrorTerm = nextErrorTerms[k];
+                            for (int n = 0; n < layerSize; n++) {
+                                layerErrorTerms[n] += nextErrorTerm * nextWeights[offset + n];
+                            }
+                        }
+                        for (int n = 0; n < layerSize; n++) {
+                            layerErrorTerms[n] *= function.derivative(layerInputs[n]);
+                        }
+                    }
+
+                    double[] layerDeltas = deltas[layerIndex];
+                    if (layerIndex == 1 && sparse) {
+                        // only the weights of the non-zero inputs change
+                        int[] inputIndices = pair.getInputIndices();
+                        double[] inputValues = pair.getInputValues();
+                        int inputsCount = neuralNet.getNetInputSize();
+                        for (int n = 0, offset = 0; n < layerSize; n++, offset += inputsCount + 1) {
+                            double errorTerm = layerErrorTerms[n];
+                            for (int i = 0; i < inputIndices.length; i++) {
+                                layerDeltas[offset + inputIndices[i]] += errorTerm * inputValues[i];
+                            }
+                            layerDeltas[offset + inputsCount] += errorTerm * biasInput;
+                        }
+                        continue;
+                    }
+                    double[] previousLayerOut = neuronOutputs[layerIndex - 1];
+                    int inputsCount = previousLayerOut.length;
+                    for (int n = 0, offset = 0; n < layerSize; n++, offset += inputsCount + 1) {
+                        double errorTerm = layerErrorTerms[n];
+                        for (int i = 0; i < inputsCount; i++) {
+                            layerDeltas[offset + i] += errorTerm * previousLayerOut[i];
+                        }
+                        layerDeltas[offset + inputsCount] += errorTerm * biasInput;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Computes the errors of the output neurons into <code>outputErrors</code>, like
+         * {@link BPMLLAlgorithm}. The sum over the pairs of labels of an output is factored
+         * into the sum of exp(C) over the labels outside the label set (for the outputs of
+         * the label set) or exp(-C) over the labels of the label set (for the other outputs).
+         *
+         * @return false if the errors can not be computed (all or none of the labels are assigned)
+         */
+        private boolean computeErrorsForNeurons(double[] networkOutputs, double[] expectedLabels) {
+            int labelsCount = expectedLabels.length;
+            int isLabelCount = 0;
+            int isNotLabelCount = 0;
+            for (int index = 0; index < labelsCount; index++) {
+                if (expectedLabels[index] == 1) {
+                    isLabel[isLabelCount++] = index;
+                } else {
+                    isNotLabel[isNotLabelCount++] = index;
+                }
+            }
+            if (isLabelCount == 0 || isNotLabelCount == 0) {
+                return false;
+            }
+
+            double isLabelSum = 0;
+            for (int l = 0; l < isLabelCount; l++) {
+                isLabelSum += Math.exp(-networkOutputs[isLabel[l]]);
+            }
+            double isNotLabelSum = 0;
+            for (int l = 0; l < isNotLabelCount; l++) {
+                isNotLabelSum += Math.exp(networkOutputs[isNotLabel[l]]);
+            }
+            double norm = 1.0 / (isLabelCount * isNotLabelCount);
+            for (int l = 0; l < isLabelCount; l++) {
+                int index = isLabel[l];
+                outputErrors[index] = norm * Math.exp(-networkOutputs[index]) * isNotLabelSum;
+            }
+            for (int l = 0; l < isNotLabelCount; l++) {
+                int index = isNotLabel[l];
+                outputErrors[index] = -norm * Math.exp(networkOutputs[index]) * isLabelSum;
+            }
+            return true;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import mulan.data.MultiLabelInstances;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
 
 /**
  * Class for representation of a data-pair instance. The data pair contains 
@@ -39,6 +40,9 @@ import weka.core.Instances;
 public class DataPair {
 
     private final double[] input;
+    private final int inputDim;
+    private final int[] inputIndices;
+    private final double[] inputValues;
     private final double[] output;
     private boolean[] outputBoolean;
 
@@ -55,15 +59,94 @@ public class DataPair {
             throw new ArgumentNullException("trueOutput");
         }
         this.input = Arrays.copyOf(inputPattern, inputPattern.length);
+        this.inputDim = inputPattern.length;
+        this.inputIndices = null;
+        this.inputValues = null;
+        this.output = Arrays.copyOf(trueOutput, trueOutput.length);
+    }
+
+    /**
+     * Creates a {@link DataPair} instance with a sparse input pattern. Only the non-zero
+     * values of the input pattern are stored, together with their positions in the pattern.
+     * @param inputDim the dimension of the input pattern
+     * @param inputIndices the distinct positions of the non-zero values of the input pattern
+     * @param inputValues the non-zero values of the input pattern
+     * @param trueOutput the true/expected output pattern for the input
+     */
+    public DataPair(int inputDim, final int[] inputIndices, final double[] inputValues, final double[] trueOutput) {
+        if (inputIndices == null) {
+            throw new ArgumentNullException("inputIndices");
+        }
+        if (inputValues == null) {
+            throw new ArgumentNullException("inputValues");
+        }
+        if (trueOutput == null) {
+            throw new ArgumentNullException("trueOutput");
+        }
+        if (inputIndices.length != inputValues.length) {
+            throw new IllegalArgumentException("The number of indices of the input pattern " +
+                    "does not match the number of its values.");
+        }
+        for (int index : inputIndices) {
+            if (index < 0 || index >= inputDim) {
+                throw new IllegalArgumentException("The index " + index + " of the input pattern " +
+                        "is out of the input dimension " + inputDim + ".");
+            }
+        }
+        this.input = null;
+        this.inputDim = inputDim;
+        this.inputIndices = Arrays.copyOf(inputIndices, inputIndices.length);
+        this.inputValues = Arrays.copyOf(inputValues, inputValues.length);
         this.output = Arrays.copyOf(trueOutput, trueOutput.length);
     }
 
     /**
      * Gets the input pattern.
+     * If the input pattern is sparse, a new dense array is created on each call.
      * @return the input pattern
+     * @see #isSparse()
      */
     public double[] getInput() {
-        return input;
+        if (input != null) {
+            return input;
+        }
+        double[] denseInput = new double[inputDim];
+        for (int i = 0; i < inputIndices.length; i++) {
+            denseInput[inputIndices[i]] = inputValues[i];
+        }
+        return denseInput;
+    }
+
+    /**
+     * Gets whether the input pattern is stored as sparse, by its non-zero values.
+     * @return <code>true</code> if the input pattern is sparse; otherwise <code>false</code>
+     */
+    public boolean isSparse() {
+        return input == null;
+    }
+
+    /**
+     * Gets the dimension of the input pattern.
+     * @return the input dimension
+     */
+    public int getInputDim() {
+        return inputDim;
+    }
+
+    /**
+     * Gets the positions of the non-zero values of a sparse input pattern.
+     * @return the positions of the values or <code>null</code> if the input pattern is not sparse
+     */
+    public int[] getInputIndices() {
+        return inputIndices;
+    }
+
+    /**
+     * Gets the non-zero values of a sparse input pattern.
+     * @return the values or <code>null</code> if the input pattern is not sparse
+     */
+    public double[] getInputValues() {
+        return inputValues;
     }
 
     /**
@@ -100,7 +183,9 @@ public class DataPair {
      * Creates a {@link DataPair} representation for each {@link Instance} contained in
      * {@link MultiLabelInstances} data set. The {@link DataPair} is a light weight representation
      * of instance values (by double values), which is useful when iteration over the data and its
-     * values.
+     * values.<br>
+     * A {@link SparseInstance} is converted to a {@link DataPair} with a sparse input pattern,
+     * unless most of its feature values are non-zero.
      *
      * @param mlDataSet the {@link MultiLabelInstances} which content has to be
      * 			converted to list of {@link DataPair}
@@ -118,26 +203,23 @@ public class DataPair {
         int numFeatures = featureIndices.length;
         int numLabels = mlDataSet.getNumLabels();
 
+        // position of each feature attribute in the input pattern, -1 for other attributes
+        int[] featurePositions = new int[data.numAttributes()];
+        Arrays.fill(featurePositions, -1);
+        // sparse input patterns can be used only if the values left out of sparse instances are zero
+        boolean sparseInput = true;
+        for (int i = 0; i < numFeatures; i++) {
+            featurePositions[featureIndices[i]] = i;
+            Attribute featureAttr = data.attribute(featureIndices[i]);
+            if (isBinary(featureAttr) && !isZero(featureAttr.value(0))) {
+                sparseInput = false;
+            }
+        }
+
         int numInstances = data.numInstances();
         List<DataPair> dataPairs = new ArrayList<DataPair>(numInstances);
         for (int index = 0; index < numInstances; index++) {
             Instance instance = data.instance(index);
-            double[] input = new double[numFeatures];
-            for (int i = 0; i < numFeatures; i++) {
-                int featureIndex = featureIndices[i];
-                Attribute featureAttr = instance.attribute(featureIndex);
-                // if attribute is binary, parse the string value ... it is expected to be '0' or '1'
-                if (featureAttr.isNominal() && featureAttr.numValues() == 2) {
-                    input[i] = Double.parseDouble(instance.stringValue(featureIndex));
-                } // else :
-                // a) the attribute is nominal with multiple values, use indexes as nominal values
-                //    do not have to be numbers in general ... this is fall-back ... should be rare case
-                // b) is numeric attribute
-                else {
-                    input[i] = instance.value(featureIndex);
-                }
-            }
-
             if (mlDataSet.hasMissingLabels(instance))
                 continue;
 
@@ -149,9 +231,59 @@ public class DataPair {
                 }
             }
 
-            dataPairs.add(new DataPair(input, output));
+            if (sparseInput && instance instanceof SparseInstance && 2 * instance.numValues() <= numFeatures) {
+                int numValues = instance.numValues();
+                int[] inputIndices = new int[numValues];
+                double[] inputValues = new double[numValues];
+                int numNonZero = 0;
+                for (int p = 0; p < numValues; p++) {
+                    int position = featurePositions[instance.index(p)];
+                    if (position < 0) {
+                        continue;
+                    }
+                    double value = featureValue(instance, instance.index(p));
+                    if (value != 0) {
+                        inputIndices[numNonZero] = position;
+                        inputValues[numNonZero++] = value;
+                    }
+                }
+                dataPairs.add(new DataPair(numFeatures, Arrays.copyOf(inputIndices, numNonZero),
+                        Arrays.copyOf(inputValues, numNonZero), output));
+            } else {
+                double[] input = new double[numFeatures];
+                for (int i = 0; i < numFeatures; i++) {
+                    input[i] = featureValue(instance, featureIndices[i]);
+                }
+                dataPairs.add(new DataPair(input, output));
+            }
         }
 
         return dataPairs;
     }
+
+    private static double featureValue(Instance instance, int featureIndex) {
+        Attribute featureAttr = instance.attribute(featureIndex);
+        // if attribute is binary, parse the string value ... it is expected to be '0' or '1'
+        if (isBinary(featureAttr)) {
+            return Double.parseDouble(instance.stringValue(featureIndex));
+        } // else :
+        // a) the attribute is nominal with multiple values, use indexes as nominal values
+        //    do not have to be numbers in general ... this is fall-back ... should be rare case
+        // b) is numeric attribute
+        else {
+            return instance.value(featureIndex);
+        }
+    }
+
+    private static boolean isBinary(Attribute attribute) {
+        return attribute.isNominal() && attribute.numValues() == 2;
+    }
+
+    private static boolean isZero(String value) {
+        try {
+            return Double.parseDouble(value) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 }
\ No newline at end of file
@@ -229,7 +229,7 @@ public class MMPLearner extends MultiLabelLearnerBase {
         trainingSet = trainingSet.clone();
         List<DataPair> trainData = prepareData(trainingSet);
 
-        int numFeatures = trainData.get(0).getInput().length;
+        int numFeatures = trainData.get(0).getInputDim();
         if (!isInitialized) {
             perceptrons = initializeModel(numFeatures, numLabels);
             isInitialized = true;
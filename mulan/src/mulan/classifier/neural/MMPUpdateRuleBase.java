@@ -63,14 +63,22 @@ public abstract class MMPUpdateRuleBase implements ModelUpdateRule {
 
     public final double process(DataPair example, Map<String, Object> params) {
         int numLabels = example.getOutput().length;
-        int numFeatures = example.getInput().length;
-        double[] dataInput = example.getInput();
+        int numFeatures = example.getInputDim();
+        // a sparse example is processed by its non-zero values only
+        boolean sparse = example.isSparse();
+        double[] dataInput = sparse ? null : example.getInput();
+        int[] inputIndices = example.getInputIndices();
+        double[] inputValues = example.getInputValues();
         double[] confidences = new double[numLabels];
 
         // update model prediction on raking for given example
         for (int index = 0; index < numLabels; index++) {
             Neuron perceptron = perceptrons.get(index);
-            confidences[index] = perceptron.processInput(dataInput);
+            if (sparse) {
+                confidences[index] = perceptron.processInput(inputIndices, inputValues);
+            } else {
+                confidences[index] = perceptron.processInput(dataInput);
+            }
         }
         MultiLabelOutput mlOut = new MultiLabelOutput(confidences);
 
@@ -83,8 +91,14 @@ public abstract class MMPUpdateRuleBase implements ModelUpdateRule {
             for (int lIndex = 0; lIndex < numLabels; lIndex++) {
                 Neuron perceptron = perceptrons.get(lIndex);
                 double[] weights = perceptron.getWeights();
-                for (int iIndex = 0; iIndex < numFeatures; iIndex++) {
-                    weights[iIndex] += updateParams[lIndex] * dataInput[iIndex];
+                if (sparse) {
+                    for (int i = 0; i < inputIndices.length; i++) {
+                        weights[inputIndices[i]] += updateParams[lIndex] * inputValues[i];
+                    }
+                } else {
+                    for (int iIndex = 0; iIndex < numFeatures; iIndex++) {
+                        weights[iIndex] += updateParams[lIndex] * dataInput[iIndex];
+                    }
                 }
                 // update bias weight
                 //weights[numFeatures] += updateParams[lIndex] * perceptron.getBiasInput();
@@ -141,6 +141,32 @@ public class BasicNeuralNet implements NeuralNet, Serializable {
         return currentNetOutput;
     }
 
+    public double[] feedForward(final int[] inputIndices, final double[] inputValues) {
+
+        if (inputIndices == null || inputValues == null) {
+            throw new IllegalArgumentException("Specified input pattern vector is null.");
+        }
+
+        double[] layerOutput = null;
+        double[] layerInput = null;
+        for (int layerIndex = 1; layerIndex < layers.size(); layerIndex++) {
+            List<Neuron> layer = layers.get(layerIndex);
+            int layerSize = layer.size();
+            layerOutput = new double[layerSize];
+            for (int n = 0; n < layerSize; n++) {
+                if (layerIndex == 1) {
+                    layerOutput[n] = layer.get(n).processInput(inputIndices, inputValues);
+                } else {
+                    layerOutput[n] = layer.get(n).processInput(layerInput);
+                }
+            }
+            layerInput = layerOutput;
+        }
+
+        currentNetOutput = Arrays.copyOf(layerOutput, layerOutput.length);
+        return currentNetOutput;
+    }
+
     public double[] getOutput() {
         if (currentNetOutput == null) {
             return new double[netOutputDim];
@@ -0,0 +1,277 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+/*
+ *    MatrixNeuralNet.java
+ *    Copyright (C) 2009-2012 Aristotle University of Thessaloniki, Greece
+ */
+package mulan.classifier.neural.model;
+
+import java.io.Serializable;
+import java.util.List;
+import mulan.core.ArgumentNullException;
+
+/**
+ * Implementation of a feed-forward neural network, which stores the weights of each
+ * layer in a single row-major matrix instead of separate {@link Neuron} units.
+ * Row <code>n</code> of the matrix of a layer holds the weights of the n-th unit of the layer,
+ * with the weight of the bias at the end of the row, like {@link Neuron#getWeights()}.
+ * <br>
+ * The network is created from and converted back to a {@link BasicNeuralNet}, so that it can be
+ * used as a faster model for learning algorithms which process many input patterns.
+ * As in {@link NeuralNet}, the input layer is assumed to forward the input pattern unchanged.
+ * All other layers use the same activation function.
+ */
+public class MatrixNeuralNet implements Serializable {
+
+    private static final long serialVersionUID = 3185230427813262905L;
+    private final int[] netTopology;
+    private final double biasInput;
+    private final ActivationFunction function;
+    // weights[l] is the matrix of layer l + 1, of netTopology[l + 1] rows and netTopology[l] + 1 columns
+    private final double[][] weights;
+
+    /**
+     * Creates a new {@link MatrixNeuralNet} instance with the topology and the weights
+     * of a neural network.
+     *
+     * @param neuralNet the neural network to copy
+     * @throws IllegalArgumentException if the units of the network do not share the same
+     * 		bias input and type of activation function
+     */
+    public MatrixNeuralNet(NeuralNet neuralNet) {
+        if (neuralNet == null) {
+            throw new ArgumentNullException("neuralNet");
+        }
+
+        int layersCount = neuralNet.getLayersCount();
+        netTopology = new int[layersCount];
+        for (int layerIndex = 0; layerIndex < layersCount; layerIndex++) {
+            netTopology[layerIndex] = neuralNet.getLayerUnits(layerIndex).size();
+        }
+        Neuron firstUnit = neuralNet.getLayerUnits(1).get(0);
+        biasInput = firstUnit.getBiasInput();
+        function = firstUnit.getActivationFunction();
+
+        weights = new double[layersCount - 1][];
+        for (int layerIndex = 1; layerIndex < layersCount; layerIndex++) {
+            List<Neuron> layer = neuralNet.getLayerUnits(layerIndex);
+            int columns = netTopology[layerIndex - 1] + 1;
+            double[] matrix = new double[netTopology[layerIndex] * columns];
+            for (int n = 0; n < layer.size(); n++) {
+                Neuron neuron = layer.get(n);
+                if (neuron.getBiasInput() != biasInput
+                        || neuron.getActivationFunction().getClass() != function.getClass()) {
+                    throw new IllegalArgumentException("The units of the neural network must share " +
+                            "the same bias input and type of activation function.");
+                }
+                System.arraycopy(neuron.getWeights(), 0, matrix, n * columns, columns);
+            }
+            weights[layerIndex - 1] = matrix;
+        }
+    }
+
+    /**
+     * Creates a {@link BasicNeuralNet} with the topology and the weights of this network.
+     *
+     * @return the new neural network
+     */
+    public BasicNeuralNet toBasicNeuralNet() {
+        BasicNeuralNet neuralNet = new BasicNeuralNet(netTopology, biasInput, function.getClass(), null);
+        for (int layerIndex = 1; layerIndex < netTopology.length; layerIndex++) {
+            List<Neuron> layer = neuralNet.getLayerUnits(layerIndex);
+            int columns = netTopology[layerIndex - 1] + 1;
+            for (int n = 0; n < layer.size(); n++) {
+                System.arraycopy(weights[layerIndex - 1], n * columns, layer.get(n).getWeights(), 0, columns);
+            }
+        }
+        return neuralNet;
+    }
+
+    /**
+     * Gets the size/dimension of the input layer of the neural network.
+     *
+     * @return the network input size
+     */
+    public int getNetInputSize() {
+        return netTopology[0];
+    }
+
+    /**
+     * Gets the size/dimension of the output layer of the neural network.
+     *
+     * @return the network output size
+     */
+    public int getNetOutputSize() {
+        return netTopology[netTopology.length - 1];
+    }
+
+    /**
+     * Returns a total number of layers of the neural network, the input layer included.
+     *
+     * @return the number of layers in the neural network
+     */
+    public int getLayersCount() {
+        return netTopology.length;
+    }
+
+    /**
+     * Returns the number of units of a particular layer of the neural network.
+     *
+     * @param layerIndex the index of the layer, 0 for the input layer
+     * @return the number of units of the layer
+     */
+    public int getLayerSize(int layerIndex) {
+        return netTopology[layerIndex];
+    }
+
+    /**
+     * Returns the weights matrix of a layer of the network. The matrix has one row per unit
+     * of the layer and one column per unit of the previous layer, followed by a column for the bias.
+     * The returned array is the one used by the network, so changes to it change the network.
+     *
+     * @param layerIndex the index of the layer, from 1 to N-1, where N is total number of layers
+     * @return the weights matrix of the layer in row-major order
+     */
+    public double[] getLayerWeights(int layerIndex) {
+        return weights[layerIndex - 1];
+    }
+
+    /**
+     * Returns the activation function of the units of the network (the input layer excluded).
+     *
+     * @return the activation function
+     */
+    public ActivationFunction getActivationFunction() {
+        return function;
+    }
+
+    /**
+     * Returns the bias input value of the units of the network.
+     *
+     * @return the bias input
+     */
+    public double getBiasInput() {
+        return biasInput;
+    }
+
+    /**
+     * Propagates the input pattern through the network.
+     *
+     * @param inputPattern the input pattern for the network to process
+     * @return the output of the network
+     * @throws IllegalArgumentException if input pattern is null or does not match network input dimension
+     */
+    public double[] feedForward(final double[] inputPattern) {
+        if (inputPattern == null || inputPattern.length != netTopology[0]) {
+            throw new IllegalArgumentException("Specified input pattern vector is null " +
+                    "or does not match network input dimension.");
+        }
+
+        double[] layerInput = inputPattern;
+        for (int layerIndex = 1; layerIndex < netTopology.length; layerIndex++) {
+            double[] layerOutput = new double[netTopology[layerIndex]];
+            processLayer(layerIndex, layerInput, layerOutput, layerOutput);
+            layerInput = layerOutput;
+        }
+        return layerInput;
+    }
+
+    /**
+     * Propagates a sparse input pattern through the network. Only the non-zero values
+     * of the input pattern are passed, together with their positions.
+     *
+     * @param inputIndices the positions of the non-zero values of the input pattern
+     * @param inputValues the non-zero values of the input pattern
+     * @return the output of the network
+     * @throws IllegalArgumentException if input pattern is null or does not match network input dimension
+     */
+    public double[] feedForward(final int[] inputIndices, final double[] inputValues) {
+        if (inputIndices == null || inputValues == null || inputIndices.length != inputValues.length) {
+            throw new IllegalArgumentException("Specified input pattern vector is null " +
+                    "or its indices do not match its values.");
+        }
+        for (int index : inputIndices) {
+            if (index < 0 || index >= netTopology[0]) {
+                throw new IllegalArgumentException("Specified input pattern vector " +
+                        "does not match network input dimension.");
+            }
+        }
+
+        double[] layerInput = new double[netTopology[1]];
+        processFirstLayer(inputIndices, inputValues, layerInput, layerInput);
+        for (int layerIndex = 2; layerIndex < netTopology.length; layerIndex++) {
+            double[] layerOutput = new double[netTopology[layerIndex]];
+            processLayer(layerIndex, layerInput, layerOutput, layerOutput);
+            layerInput = layerOutput;
+        }
+        return layerInput;
+    }
+
+    /**
+     * Computes the input and the output of each unit of a layer for the outputs of the
+     * previous layer.
+     *
+     * @param layerIndex the index of the layer, from 1 to N-1, where N is total number of layers
+     * @param layerInput the outputs of the previous layer
+     * @param neuronInputs array receiving the input of each unit (weighted sum of its inputs)
+     * @param neuronOutputs array receiving the output of each unit. It may be the same array
+     * 		as <code>neuronInputs</code>, if the inputs are not needed.
+     */
+    public void processLayer(int layerIndex, double[] layerInput, double[] neuronInputs, double[] neuronOutputs) {
+        double[] matrix = weights[layerIndex - 1];
+        int inputDim = netTopology[layerIndex - 1];
+        int columns = inputDim + 1;
+        int layerSize = netTopology[layerIndex];
+        for (int n = 0, offset = 0; n < layerSize; n++, offset += columns) {
+            double neuronInput = 0;
+            for (int i = 0; i < inputDim; i++) {
+                neuronInput += matrix[offset + i] * layerInput[i];
+            }
+            // add bias
+            neuronInput += matrix[offset + inputDim] * biasInput;
+            neuronInputs[n] = neuronInput;
+            neuronOutputs[n] = function.activate(neuronInput);
+        }
+    }
+
+    /**
+     * Computes the input and the output of each unit of the first layer after the input layer
+     * for a sparse input pattern, like {@link #processLayer(int, double[], double[], double[])}.
+     *
+     * @param inputIndices the positions of the non-zero values of the input pattern
+     * @param inputValues the non-zero values of the input pattern
+     * @param neuronInputs array receiving the input of each unit (weighted sum of its inputs)
+     * @param neuronOutputs array receiving the output of each unit. It may be the same array
+     * 		as <code>neuronInputs</code>, if the inputs are not needed.
+     */
+    public void processFirstLayer(int[] inputIndices, double[] inputValues, double[] neuronInputs, double[] neuronOutputs) {
+        double[] matrix = weights[0];
+        int inputDim = netTopology[0];
+        int columns = inputDim + 1;
+        int layerSize = netTopology[1];
+        for (int n = 0, offset = 0; n < layerSize; n++, offset += columns) {
+            double neuronInput = 0;
+            for (int i = 0; i < inputIndices.length; i++) {
+                neuronInput += matrix[offset + inputIndices[i]] * inputValues[i];
+            }
+            // add bias
+            neuronInput += matrix[offset + inputDim] * biasInput;
+            neuronInputs[n] = neuronInput;
+            neuronOutputs[n] = function.activate(neuronInput);
+        }
+    }
+}
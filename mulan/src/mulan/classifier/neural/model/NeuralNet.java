@@ -84,6 +84,19 @@ public interface NeuralNet {
      */
     double[] feedForward(final double[] inputPattern);
 
+    /**
+     * Propagates a sparse input pattern through the network. Only the non-zero values
+     * of the input pattern are passed, together with their positions, and only these
+     * are processed by the units of the first layer after the input layer.
+     * The units of the input layer do not process the pattern.
+     *
+     * @param inputIndices the positions of the non-zero values of the input pattern
+     * @param inputValues the non-zero values of the input pattern
+     * @return the output of the network
+     * @throws IllegalArgumentException if the input pattern is null or does not match network input dimension
+     */
+    double[] feedForward(final int[] inputIndices, final double[] inputValues);
+
     /**
      * Returns the actual output of the neural network,
      * which is a result of last processed input pattern.
@@ -186,6 +186,41 @@ public class Neuron implements Serializable {
         return neuronOutput;
     }
 
+    /**
+     * Process a sparse input pattern vector and returns the response of the {@link Neuron}.
+     * Only the non-zero values of the input pattern are passed, together with their positions.
+     *
+     * @param inputIndices the positions of the non-zero values in the input pattern vector
+     * @param inputValues the non-zero values of the input pattern vector
+     * @return the output of the {@link Neuron}
+     */
+    public double processInput(final int[] inputIndices, final double[] inputValues) {
+
+        if (inputIndices == null || inputValues == null) {
+            throw new IllegalArgumentException("The input pattern for processing is null.");
+        }
+
+        if (inputIndices.length != inputValues.length) {
+            throw new IllegalArgumentException("The number of indices of the input pattern " +
+                    "does not match the number of its values.");
+        }
+
+        neuronInput = 0;
+        for (int i = 0; i < inputIndices.length; i++) {
+            int index = inputIndices[i];
+            if (index < 0 || index >= inputDim) {
+                throw new IllegalArgumentException("The index of input pattern vector " +
+                        "does not match dimenstion of the neuron.");
+            }
+            neuronInput += inputWeights[index] * inputValues[i];
+        }
+        // add bias
+        neuronInput += inputWeights[inputDim] * biasInput;
+        neuronOutput = function.activate(neuronInput);
+
+        return neuronOutput;
+    }
+
     /**
      * Returns the output of the {@link Neuron}.
      * The output value is cached from processing of last input.
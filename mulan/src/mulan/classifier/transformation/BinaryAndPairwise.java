@@ -57,11 +57,15 @@ public abstract class BinaryAndPairwise extends TransformationBasedMultiLabelLea
         debug("Building binary (one-vs-rest) models");
         oneVsRestModels = new BinaryRelevance(baseClassifier);
         oneVsRestModels.setDebug(getDebug());
+        oneVsRestModels.setExecutor(getExecutor());
+        oneVsRestModels.setMaxConcurrentModels(getMaxConcurrentModels());
         oneVsRestModels.build(trainingSet);
 
         debug("Building pairwise (one-vs-one) models");
         oneVsOneModels = new Pairwise(baseClassifier);
         oneVsOneModels.setDebug(getDebug());
+        oneVsOneModels.setExecutor(getExecutor());
+        oneVsOneModels.setMaxConcurrentModels(getMaxConcurrentModels());
         oneVsOneModels.build(trainingSet);
     }
 }
\ No newline at end of file
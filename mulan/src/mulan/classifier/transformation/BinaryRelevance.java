@@ -16,6 +16,8 @@
 package mulan.classifier.transformation;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
+import mulan.core.ModelBuilder;
 import mulan.data.MultiLabelInstances;
 import mulan.transformations.BinaryRelevanceTransformation;
 import weka.classifiers.AbstractClassifier;
@@ -24,7 +26,9 @@ import weka.core.Instance;
 import weka.core.Instances;
 
 /**
- * <p>Algorithm that builds one binary model per label.</p>
+ * <p>Algorithm that builds one binary model per label. The models of the labels
+ * are independent and can be built concurrently, see
+ * {@link #setMaxConcurrentModels(int)}.</p>
  *
  * @author Robert Friberg
  * @author Grigorios Tsoumakas
@@ -64,21 +68,26 @@ public class BinaryRelevance extends TransformationBasedMultiLabelLearner {
         debug("preparing shell");
         brt = new BinaryRelevanceTransformation(train);
 
-        for (int i = 0; i < numLabels; i++) {
-            ensemble[i] = AbstractClassifier.makeCopy(baseClassifier);
-            Instances shell = brt.transformInstances(i);
-            debug("Bulding model " + (i + 1) + "/" + numLabels);
-            ensemble[i].buildClassifier(shell);
-        }
+        // each model is built on its own copy of the shell
+        buildModels(numLabels, new ModelBuilder() {
+
+            public void buildModel(int label) throws Exception {
+                Classifier model = AbstractClassifier.makeCopy(baseClassifier);
+                Instances shell = brt.transformInstances(label);
+                debug("Bulding model " + (label + 1) + "/" + numLabels);
+                model.buildClassifier(shell);
+                ensemble[label] = model;
+            }
+        });
     }
 
     protected MultiLabelOutput makePredictionInternal(Instance instance) {
         boolean[] bipartition = new boolean[numLabels];
         double[] confidences = new double[numLabels];
 
-
+        // the labels are removed once and the instance is shared by all binary models
+        Instance transformedInstance = brt.transformInstance(instance);
         for (int counter = 0; counter < numLabels; counter++) {
-            Instance transformedInstance = brt.transformInstance(instance, counter);
             double distribution[];
             try {
                 distribution = ensemble[counter].distributionForInstance(transformedInstance);
@@ -99,6 +108,29 @@ public class BinaryRelevance extends TransformationBasedMultiLabelLearner {
         return mlo;
     }
 
+    @Override
+    protected MultiLabelOutputMatrix makePredictionsInternal(Instances instances) throws Exception {
+        int numInstances = instances.numInstances();
+        MultiLabelOutputMatrix predictions = new MultiLabelOutputMatrix(numInstances, numLabels);
+
+        // the labels are removed once and the batch is shared by all binary models
+        Instances transformedInstances = brt.transformInstances(instances);
+        for (int counter = 0; counter < numLabels; counter++) {
+            brt.setLabelValues(transformedInstances, instances, counter);
+            double[][] distributions = distributionsForInstances(ensemble[counter], transformedInstances);
+            for (int i = 0; i < numInstances; i++) {
+                int maxIndex = (distributions[i][0] > distributions[i][1]) ? 0 : 1;
+                predictions.setBipartition(i, counter, (maxIndex == 1) ? true : false);
+                predictions.setConfidence(i, counter, distributions[i][1]);
+            }
+        }
+
+        for (int i = 0; i < numInstances; i++) {
+            predictions.setRankingFromConfidences(i);
+        }
+        return predictions;
+    }
+
     /**
      * Returns the model which corresponds to the label with labelName
      *
@@ -15,7 +15,9 @@
  */
 package mulan.classifier.transformation;
 
+import java.util.concurrent.atomic.AtomicLong;
 import mulan.classifier.MultiLabelOutput;
+import mulan.data.MultiLabelInstances;
 import weka.classifiers.Classifier;
 import weka.core.*;
 
@@ -40,6 +42,19 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
      * whether to use standard voting or the fast qweighted algorithm
      */
     private boolean useStandardVoting;
+    /**
+     * number of one-vs-one models that were built from some data
+     */
+    private int numTrainedModels;
+    /**
+     * number of predictions made since the learner was built
+     */
+    private final AtomicLong numPredictions = new AtomicLong();
+    /**
+     * number of one-vs-one models evaluated by the predictions made since the
+     * learner was built
+     */
+    private final AtomicLong numPairwiseEvaluations = new AtomicLong();
 
     /**
      * Constructor that initializes the learner with a base algorithm
@@ -60,10 +75,15 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
      */
     public void setSoft(boolean value) {
         soft = value;
+        if (getOneVsOneModels() != null) {
+            getOneVsOneModels().setSoft(value);
+        }
     }
 
     /**
-     * Set Prediction to standard voting mode.
+     * Set Prediction to standard voting mode. Otherwise the QWeighted voting is
+     * used, which gives the same bipartition with fewer evaluations of the
+     * one-vs-one models (see {@link #getNumPairwiseEvaluations()}).
      *
      * @param standardVoting <code>true</code> if standard voting should be used
      */
@@ -80,6 +100,50 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
         return useStandardVoting;
     }
 
+    /**
+     * Returns the number of predictions made since the learner was built or
+     * the counts were reset.
+     *
+     * @return the number of predictions
+     */
+    public long getNumPredictions() {
+        return numPredictions.get();
+    }
+
+    /**
+     * Returns the number of one-vs-one models evaluated by the predictions made
+     * since the learner was built or the counts were reset. Standard voting
+     * evaluates all the models that were built from some data, while QWeighted
+     * voting stops when the remaining models can not change the bipartition.
+     *
+     * @return the number of evaluations of one-vs-one models
+     */
+    public long getNumPairwiseEvaluations() {
+        return numPairwiseEvaluations.get();
+    }
+
+    /**
+     * Resets the number of predictions and the number of evaluations of
+     * one-vs-one models to zero.
+     */
+    public void resetEvaluationCounts() {
+        numPredictions.set(0);
+        numPairwiseEvaluations.set(0);
+    }
+
+    @Override
+    protected void buildInternal(MultiLabelInstances trainingSet) throws Exception {
+        super.buildInternal(trainingSet);
+        getOneVsOneModels().setSoft(soft);
+        numTrainedModels = 0;
+        for (int i = 0; i < numLabels * (numLabels - 1) / 2; i++) {
+            if (!getOneVsOneModels().noData(i)) {
+                numTrainedModels++;
+            }
+        }
+        resetEvaluationCounts();
+    }
+
     /**
      * This method does a prediction for an instance with the values of label
      * missing Temporary included to switch between standard voting and
@@ -91,6 +155,7 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
      */
     @Override
     protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception {
+        numPredictions.incrementAndGet();
         if (useStandardVoting) {
             return makePredictionStandard(instance);
         } else {
@@ -112,6 +177,7 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
      */
     public MultiLabelOutput makePredictionStandard(Instance instance) throws Exception {
         double[] scores = getOneVsOneModels().calculateScores(instance);
+        numPairwiseEvaluations.addAndGet(numTrainedModels);
 
         double scoreVirtual = 0;
         MultiLabelOutput virtualMLO = getOneVsRestModels().makePrediction(instance);
@@ -200,6 +266,7 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
         // apply QWeighted iteratively to estimate all relevant labels until the
         // calibrated label is found
         boolean found = false;
+        int evaluations = 0;
         int pos = 0;
         int player1 = -1;
         int player2;
@@ -224,14 +291,17 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
                         i++;
                     }
 
-                    // play found Pairing and update stats
+                    // play found Pairing and update stats, a model without data gives no vote
                     int modelIndex = getRRClassifierIndex(player1, player2);
-                    double[] distribution = getOneVsOneModels().getModel(modelIndex).distributionForInstance(transformed);
-                    int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
-                    if (maxIndex == 1) {
-                        voteLabel[player1 > player2 ? player2 : player1]++;
-                    } else {
-                        voteLabel[player1 > player2 ? player1 : player2]++;
+                    if (!getOneVsOneModels().noData(modelIndex)) {
+                        evaluations++;
+                        double[] distribution = getOneVsOneModels().getModel(modelIndex).distributionForInstance(transformed);
+                        int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+                        if (maxIndex == 1) {
+                            voteLabel[player1 > player2 ? player2 : player1]++;
+                        } else {
+                            voteLabel[player1 > player2 ? player1 : player2]++;
+                        }
                     }
 
                     // update stats
@@ -263,6 +333,8 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
             pos++;
         }
 
+        numPairwiseEvaluations.addAndGet(evaluations);
+
         //Generate Multilabel Output
         for (int i = 0; i < numLabels; i++) {
             if (voteLabel[i] >= voteVirtual) {
@@ -325,6 +397,7 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
         // apply QWeighted iteratively to estimate all relevant labels until the
         // calibrated label is found
         boolean found = false;
+        int evaluations = 0;
         int pos = 0;
         int player1 = -1;
         int player2;
@@ -349,16 +422,19 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
                         i++;
                     }
 
-                    // play found Pairing and update stats
+                    // play found Pairing and update stats, a model without data gives no vote
                     int modelIndex = getRRClassifierIndex(player1, player2);
-                    double[] distribution = getOneVsOneModels().getModel(modelIndex).distributionForInstance(transformed);
-
-                    if (player1 > player2) {
-                        voteLabel[player1] += distribution[0];
-                        voteLabel[player2] += distribution[1];
-                    } else {
-                        voteLabel[player1] += distribution[1];
-                        voteLabel[player2] += distribution[0];
+                    if (!getOneVsOneModels().noData(modelIndex)) {
+                        evaluations++;
+                        double[] distribution = getOneVsOneModels().getModel(modelIndex).distributionForInstance(transformed);
+
+                        if (player1 > player2) {
+                            voteLabel[player1] += distribution[0];
+                            voteLabel[player2] += distribution[1];
+                        } else {
+                            voteLabel[player1] += distribution[1];
+                            voteLabel[player2] += distribution[0];
+                        }
                     }
 
                     // update stats
@@ -390,6 +466,8 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
             pos++;
         }
 
+        numPairwiseEvaluations.addAndGet(evaluations);
+
         //Generate Multilabel Output
         for (int i = 0; i < numLabels; i++) {
             if (voteLabel[i] >= voteVirtual) {
@@ -415,15 +493,7 @@ public class CalibratedLabelRanking extends BinaryAndPairwise {
         int l1 = label1 > label2 ? label2 : label1;
         int l2 = label1 > label2 ? label1 : label2;
 
-        if (l1 == 0) {
-            return (l2 - 1);
-        } else {
-            int temp = 0;
-            for (int i = l1; i > 0; i--) {
-                temp += (numLabels - i);
-            }
-            temp += l2 - (l1 + 1);
-            return temp;
-        }
+        // the models of the labels before l1 come first, numLabels - i - 1 for each label i
+        return l1 * numLabels - l1 * (l1 + 1) / 2 + l2 - (l1 + 1);
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 package mulan.classifier.transformation;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.data.DataUtils;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.AbstractClassifier;
@@ -149,4 +150,33 @@ public class ClassifierChain extends TransformationBasedMultiLabelLearner {
         MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidences);
         return mlo;
     }
+
+    @Override
+    protected MultiLabelOutputMatrix makePredictionsInternal(Instances instances) throws Exception {
+        int numInstances = instances.numInstances();
+        MultiLabelOutputMatrix predictions = new MultiLabelOutputMatrix(numInstances, numLabels);
+
+        Instance[] tempInstances = new Instance[numInstances];
+        for (int i = 0; i < numInstances; i++) {
+            Instance instance = instances.instance(i);
+            tempInstances[i] = DataUtils.createInstance(instance, instance.weight(), instance.toDoubleArray());
+        }
+        // each model of the chain predicts the whole batch before the next one
+        for (int counter = 0; counter < numLabels; counter++) {
+            Attribute classAttribute = ensemble[counter].getFilter().getOutputFormat().classAttribute();
+            int trueIndex = classAttribute.indexOfValue("1");
+            for (int i = 0; i < numInstances; i++) {
+                double distribution[] = ensemble[counter].distributionForInstance(tempInstances[i]);
+                int maxIndex = (distribution[0] > distribution[1]) ? 0 : 1;
+                predictions.setBipartition(i, chain[counter], (maxIndex == trueIndex) ? true : false);
+                predictions.setConfidence(i, chain[counter], distribution[trueIndex]);
+                tempInstances[i].setValue(labelIndices[chain[counter]], maxIndex);
+            }
+        }
+
+        for (int i = 0; i < numInstances; i++) {
+            predictions.setRankingFromConfidences(i);
+        }
+        return predictions;
+    }
 }
\ No newline at end of file
@@ -19,13 +19,16 @@ import java.util.Arrays;
 import java.util.Random;
 import mulan.classifier.InvalidDataException;
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
+import mulan.classifier.meta.EnsemblePredictor;
+import mulan.core.ModelBuilder;
+import mulan.core.ModelSampler;
+import mulan.data.InstancesSample;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.filters.Filter;
-import weka.filters.unsupervised.instance.RemovePercentage;
 
 /**
  * <p>Implementation of the Ensemble of Classifier Chains(ECC) algorithm.</p>
@@ -109,6 +112,34 @@ public class EnsembleOfClassifierChains extends TransformationBasedMultiLabelLea
      * useSamplingWithReplacement is false
      */
     protected double samplingPercentage = 67;
+    /**
+     * Whether to stop gathering the predictions of the models for an instance as
+     * soon as the remaining models can no longer change the bipartition
+     */
+    protected boolean stopVotingWhenDecided = false;
+
+    /**
+     * Returns whether the prediction of an instance stops as soon as the remaining
+     * models can no longer change the bipartition
+     *
+     * @return whether the prediction stops when the bipartition is decided
+     */
+    public boolean getStopVotingWhenDecided() {
+        return stopVotingWhenDecided;
+    }
+
+    /**
+     * Sets whether the prediction of an instance stops as soon as the remaining
+     * models can no longer change the bipartition. The bipartition is the same as
+     * the one of a full prediction, but the output has no confidences. The
+     * confidences of the models are assumed to be between 0 and 1. A batch of
+     * instances is then predicted one instance at a time.
+     *
+     * @param doStop whether to stop when the bipartition is decided
+     */
+    public void setStopVotingWhenDecided(boolean doStop) {
+        stopVotingWhenDecided = doStop;
+    }
 
     /**
      * Default constructor
@@ -138,71 +169,105 @@ public class EnsembleOfClassifierChains extends TransformationBasedMultiLabelLea
     @Override
     protected void buildInternal(MultiLabelInstances trainingSet) throws Exception {
 
-        Instances dataSet = new Instances(trainingSet.getDataSet());
+        // the samples only keep the rows of the shared training set
+        final InstancesSample dataSet = new InstancesSample(trainingSet);
 
-        for (int i = 0; i < numOfModels; i++) {
-            debug("ECC Building Model:" + (i + 1) + "/" + numOfModels);
-            Instances sampledDataSet;
-            dataSet.randomize(rand);
-            if (useSamplingWithReplacement) {
-                int bagSize = dataSet.numInstances() * BagSizePercent / 100;
-                // create the in-bag dataset
-                sampledDataSet = dataSet.resampleWithWeights(new Random(1));
-                if (bagSize < dataSet.numInstances()) {
-                    sampledDataSet = new Instances(sampledDataSet, 0, bagSize);
+        // the samples and the chains are drawn in order, the chains are built independently
+        sampleAndBuildModels(numOfModels, new ModelSampler() {
+
+            public ModelBuilder sample(final int i) throws Exception {
+                debug("ECC Building Model:" + (i + 1) + "/" + numOfModels);
+                InstancesSample sampledDataSet;
+                dataSet.randomize(rand);
+                if (useSamplingWithReplacement) {
+                    int bagSize = dataSet.numInstances() * BagSizePercent / 100;
+                    // create the in-bag dataset
+                    sampledDataSet = dataSet.resampleWithWeights(new Random(1));
+                    if (bagSize < dataSet.numInstances()) {
+                        sampledDataSet = new InstancesSample(sampledDataSet, 0, bagSize);
+                    }
+                } else {
+                    // keep the first instances, like an inverted RemovePercentage
+                    int numToKeep = (int) Math.round(dataSet.numInstances() * samplingPercentage / 100);
+                    sampledDataSet = new InstancesSample(dataSet, 0, numToKeep);
                 }
-            } else {
-                RemovePercentage rmvp = new RemovePercentage();
-                rmvp.setInvertSelection(true);
-                rmvp.setPercentage(samplingPercentage);
-                rmvp.setInputFormat(dataSet);
-                sampledDataSet = Filter.useFilter(dataSet, rmvp);
-            }
-            MultiLabelInstances train = new MultiLabelInstances(sampledDataSet, trainingSet.getLabelsMetaData());
+                final InstancesSample train = sampledDataSet;
 
-            int[] chain = new int[numLabels];
-            for (int j = 0; j < numLabels; j++) {
-                chain[j] = j;
-            }
-            for (int j = 0; j < chain.length; j++) {
-                int randomPosition = rand.nextInt(chain.length);
-                int temp = chain[j];
-                chain[j] = chain[randomPosition];
-                chain[randomPosition] = temp;
-            }
-            debug(Arrays.toString(chain));
+                int[] chain = new int[numLabels];
+                for (int j = 0; j < numLabels; j++) {
+                    chain[j] = j;
+                }
+                for (int j = 0; j < chain.length; j++) {
+                    int randomPosition = rand.nextInt(chain.length);
+                    int temp = chain[j];
+                    chain[j] = chain[randomPosition];
+                    chain[randomPosition] = temp;
+                }
+                debug(Arrays.toString(chain));
 
-            // MAYBE WE SHOULD CHECK NOT TO PRODUCE THE SAME VECTOR FOR THE
-            // INDICES
-            // BUT IN THE PAPER IT DID NOT MENTION SOMETHING LIKE THAT
-            // IT JUST SIMPLY SAY A RANDOM CHAIN ORDERING OF L
+                // MAYBE WE SHOULD CHECK NOT TO PRODUCE THE SAME VECTOR FOR THE
+                // INDICES
+                // BUT IN THE PAPER IT DID NOT MENTION SOMETHING LIKE THAT
+                // IT JUST SIMPLY SAY A RANDOM CHAIN ORDERING OF L
 
-            ensemble[i] = new ClassifierChain(baseClassifier, chain);
-            ensemble[i].build(train);
-        }
+                ensemble[i] = new ClassifierChain(baseClassifier, chain);
+                return new ModelBuilder() {
 
+                    public void buildModel(int model) throws Exception {
+                        // the data of the sample is freed once the chain is built
+                        ensemble[i].build(train.materialize());
+                    }
+                };
+            }
+        });
     }
 
     @Override
-    protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception,
+    protected MultiLabelOutput makePredictionInternal(final Instance instance) throws Exception,
             InvalidDataException {
 
-        int[] sumVotes = new int[numLabels];
-        double[] sumConf = new double[numLabels];
+        final int[] sumVotes = new int[numLabels];
+        final double[] sumConf = new double[numLabels];
 
         Arrays.fill(sumVotes, 0);
         Arrays.fill(sumConf, 0);
 
-        for (int i = 0; i < numOfModels; i++) {
-            MultiLabelOutput ensembleMLO = ensemble[i].makePrediction(instance);
-            boolean[] bip = ensembleMLO.getBipartition();
-            double[] conf = ensembleMLO.getConfidences();
+        // the chains predict on the executor, if any, and vote in order
+        EnsemblePredictor.collectVotes(numOfModels, new EnsemblePredictor.MemberPredictor() {
 
-            for (int j = 0; j < numLabels; j++) {
-                sumVotes[j] += bip[j] == true ? 1 : 0;
-                sumConf[j] += conf[j];
+            public MultiLabelOutput predict(int i) throws Exception {
+                return ensemble[i].makePrediction(instance);
             }
-        }
+        }, new EnsemblePredictor.Votes() {
+
+            public void add(int i, MultiLabelOutput ensembleMLO) {
+                boolean[] bip = ensembleMLO.getBipartition();
+                double[] conf = ensembleMLO.getConfidences();
+
+                for (int j = 0; j < numLabels; j++) {
+                    sumVotes[j] += bip[j] == true ? 1 : 0;
+                    sumConf[j] += conf[j];
+                }
+            }
+
+            public boolean isDecided(int numVoted) {
+                int remaining = numOfModels - numVoted;
+                for (int j = 0; j < numLabels; j++) {
+                    double lower, upper;
+                    if (useConfidences) {
+                        lower = sumConf[j] / numOfModels;
+                        upper = EnsemblePredictor.upperBound(sumConf[j], remaining) / numOfModels;
+                    } else {
+                        lower = sumVotes[j] / (double) numOfModels;
+                        upper = (sumVotes[j] + remaining) / (double) numOfModels;
+                    }
+                    if (lower < 0.5 && upper >= 0.5) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }, getExecutor(), stopVotingWhenDecided);
 
         double[] confidence = new double[numLabels];
         for (int j = 0; j < numLabels; j++) {
@@ -214,6 +279,50 @@ public class EnsembleOfClassifierChains extends TransformationBasedMultiLabelLea
         }
 
         MultiLabelOutput mlo = new MultiLabelOutput(confidence, 0.5);
+        if (stopVotingWhenDecided) {
+            // the confidences of a partial vote are meaningless
+            mlo = new MultiLabelOutput(mlo.getBipartition());
+        }
         return mlo;
     }
+
+    @Override
+    protected MultiLabelOutputMatrix makePredictionsInternal(Instances instances) throws Exception,
+            InvalidDataException {
+        if (stopVotingWhenDecided || getExecutor() != null) {
+            // the votes of each instance are gathered by its own prediction
+            return super.makePredictionsInternal(instances);
+        }
+
+        int numInstances = instances.numInstances();
+        int[][] sumVotes = new int[numInstances][numLabels];
+        double[][] sumConf = new double[numInstances][numLabels];
+
+        // each chain predicts the whole batch at once
+        for (int i = 0; i < numOfModels; i++) {
+            MultiLabelOutputMatrix ensembleMLO = ensemble[i].makePredictions(instances);
+            for (int k = 0; k < numInstances; k++) {
+                for (int j = 0; j < numLabels; j++) {
+                    sumVotes[k][j] += ensembleMLO.getBipartition(k, j) == true ? 1 : 0;
+                    sumConf[k][j] += ensembleMLO.getConfidence(k, j);
+                }
+            }
+        }
+
+        MultiLabelOutputMatrix predictions = new MultiLabelOutputMatrix(numInstances, numLabels);
+        for (int k = 0; k < numInstances; k++) {
+            for (int j = 0; j < numLabels; j++) {
+                double confidence;
+                if (useConfidences) {
+                    confidence = sumConf[k][j] / numOfModels;
+                } else {
+                    confidence = sumVotes[k][j] / (double) numOfModels;
+                }
+                predictions.setConfidence(k, j, confidence);
+                predictions.setBipartition(k, j, confidence >= 0.5);
+            }
+            predictions.setRankingFromConfidences(k);
+        }
+        return predictions;
+    }
 }
\ No newline at end of file
@@ -20,14 +20,17 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import mulan.classifier.InvalidDataException;
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
+import mulan.classifier.meta.EnsemblePredictor;
+import mulan.core.ModelBuilder;
+import mulan.core.ModelSampler;
+import mulan.data.InstancesSample;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.filters.Filter;
-import weka.filters.unsupervised.instance.RemovePercentage;
 
 /**
  * <p>Implementation of the Ensemble of Pruned Sets (EPS) algorithm.</p> <p>For
@@ -61,6 +64,11 @@ public class EnsembleOfPrunedSets extends TransformationBasedMultiLabelLearner {
      * Random number generator
      */
     protected Random rand;
+    /**
+     * Whether to stop gathering the predictions of the models for an instance as
+     * soon as the remaining models can no longer change the bipartition
+     */
+    protected boolean stopVotingWhenDecided = false;
 
     /**
      * Creates a new instance with default values
@@ -94,37 +102,89 @@ public class EnsembleOfPrunedSets extends TransformationBasedMultiLabelLearner {
         rand = new Random(1);
     }
 
+    /**
+     * Returns whether the prediction of an instance stops as soon as the remaining
+     * models can no longer change the bipartition
+     *
+     * @return whether the prediction stops when the bipartition is decided
+     */
+    public boolean getStopVotingWhenDecided() {
+        return stopVotingWhenDecided;
+    }
+
+    /**
+     * Sets whether the prediction of an instance stops as soon as the remaining
+     * models can no longer change the bipartition. The bipartition is the same as
+     * the one of a full prediction, but the output has no confidences. As the models
+     * that do not vote do not break the ties of their classes, the predictions of the
+     * following instances may break those ties differently. A batch of instances
+     * is then predicted one instance at a time.
+     *
+     * @param doStop whether to stop when the bipartition is decided
+     */
+    public void setStopVotingWhenDecided(boolean doStop) {
+        stopVotingWhenDecided = doStop;
+    }
+
     @Override
     protected void buildInternal(MultiLabelInstances trainingSet)
             throws Exception {
-        Instances dataSet = new Instances(trainingSet.getDataSet());
+        // the samples only keep the rows of the shared training set
+        final InstancesSample dataSet = new InstancesSample(trainingSet);
 
-        for (int i = 0; i < numOfModels; i++) {
-            dataSet.randomize(rand);
-            RemovePercentage rmvp = new RemovePercentage();
-            rmvp.setInputFormat(dataSet);
-            rmvp.setPercentage(percentage);
-            rmvp.setInvertSelection(true);
-            Instances trainDataSet = Filter.useFilter(dataSet, rmvp);
-            MultiLabelInstances train = new MultiLabelInstances(trainDataSet, trainingSet.getLabelsMetaData());
-            ensemble[i].build(train);
-        }
+        // the samples are drawn in order, the models are built independently
+        sampleAndBuildModels(numOfModels, new ModelSampler() {
+
+            public ModelBuilder sample(final int i) throws Exception {
+                dataSet.randomize(rand);
+                // keep the first instances, like an inverted RemovePercentage
+                int numToKeep = (int) Math.round(dataSet.numInstances() * percentage / 100);
+                final InstancesSample train = new InstancesSample(dataSet, 0, numToKeep);
+                return new ModelBuilder() {
+
+                    public void buildModel(int model) throws Exception {
+                        // the data of the sample is freed once the model is built
+                        ensemble[i].build(train.materialize());
+                    }
+                };
+            }
+        });
     }
 
     @Override
-    protected MultiLabelOutput makePredictionInternal(Instance instance)
+    protected MultiLabelOutput makePredictionInternal(final Instance instance)
             throws Exception, InvalidDataException {
 
-        int[] sumVotes = new int[numLabels];
+        final int[] sumVotes = new int[numLabels];
 
-        for (int i = 0; i < numOfModels; i++) {
-            MultiLabelOutput ensembleMLO = ensemble[i].makePrediction(instance);
-            boolean[] bip = ensembleMLO.getBipartition();
+        // the models predict on the executor, if any, and vote in order
+        EnsemblePredictor.collectVotes(numOfModels, new EnsemblePredictor.MemberPredictor() {
 
-            for (int j = 0; j < sumVotes.length; j++) {
-                sumVotes[j] += bip[j] == true ? 1 : 0;
+            public MultiLabelOutput predict(int i) throws Exception {
+                return ensemble[i].makePrediction(instance);
             }
-        }
+        }, new EnsemblePredictor.Votes() {
+
+            public void add(int i, MultiLabelOutput ensembleMLO) {
+                boolean[] bip = ensembleMLO.getBipartition();
+
+                for (int j = 0; j < sumVotes.length; j++) {
+                    sumVotes[j] += bip[j] == true ? 1 : 0;
+                }
+            }
+
+            public boolean isDecided(int numVoted) {
+                int remaining = numOfModels - numVoted;
+                for (int j = 0; j < sumVotes.length; j++) {
+                    if ((double) sumVotes[j] / (double) numOfModels < threshold
+                            && (double) (sumVotes[j] + remaining) / (double) numOfModels >= threshold) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }, getExecutor(), stopVotingWhenDecided);
+
         double[] confidence = new double[numLabels];
 
         for (int j = 0; j < sumVotes.length; j++) {
@@ -132,6 +192,42 @@ public class EnsembleOfPrunedSets extends TransformationBasedMultiLabelLearner {
         }
 
         MultiLabelOutput mlo = new MultiLabelOutput(confidence, threshold);
+        if (stopVotingWhenDecided) {
+            // the confidences of a partial vote are meaningless
+            mlo = new MultiLabelOutput(mlo.getBipartition());
+        }
         return mlo;
     }
+
+    @Override
+    protected MultiLabelOutputMatrix makePredictionsInternal(Instances instances)
+            throws Exception, InvalidDataException {
+        if (stopVotingWhenDecided || getExecutor() != null) {
+            // the votes of each instance are gathered by its own prediction
+            return super.makePredictionsInternal(instances);
+        }
+
+        int numInstances = instances.numInstances();
+        int[][] sumVotes = new int[numInstances][numLabels];
+
+        for (int i = 0; i < numOfModels; i++) {
+            MultiLabelOutputMatrix ensembleMLO = ensemble[i].makePredictions(instances);
+            for (int k = 0; k < numInstances; k++) {
+                for (int j = 0; j < numLabels; j++) {
+                    sumVotes[k][j] += ensembleMLO.getBipartition(k, j) == true ? 1 : 0;
+                }
+            }
+        }
+
+        MultiLabelOutputMatrix predictions = new MultiLabelOutputMatrix(numInstances, numLabels);
+        for (int k = 0; k < numInstances; k++) {
+            for (int j = 0; j < numLabels; j++) {
+                double confidence = (double) sumVotes[k][j] / (double) numOfModels;
+                predictions.setConfidence(k, j, confidence);
+                predictions.setBipartition(k, j, confidence >= threshold);
+            }
+            predictions.setRankingFromConfidences(k);
+        }
+        return predictions;
+    }
 }
\ No newline at end of file
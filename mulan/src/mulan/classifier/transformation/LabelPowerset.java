@@ -20,11 +20,13 @@ import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.core.Util;
 import mulan.data.LabelSet;
 import mulan.data.MultiLabelInstances;
 import mulan.transformations.LabelPowersetTransformation;
 import weka.classifiers.Classifier;
+import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
 
@@ -67,6 +69,11 @@ public class LabelPowerset extends TransformationBasedMultiLabelLearner {
      * Random number generator for randomly solving tied predictions
      */
     protected Random Rand;
+    /**
+     * The labelset of each class value of the transformed data, decoded on the
+     * first prediction
+     */
+    private transient double[][] classLabelSets;
 
     /**
      * Conststructor that initializes the learner with a base classifier
@@ -119,6 +126,7 @@ public class LabelPowerset extends TransformationBasedMultiLabelLearner {
     protected void buildInternal(MultiLabelInstances mlData) throws Exception {
         Instances transformedData;
         transformation = new LabelPowersetTransformation();
+        classLabelSets = null;
         debug("Transforming the training set.");
         transformedData = transformation.transformInstances(mlData);
 
@@ -146,73 +154,131 @@ public class LabelPowerset extends TransformationBasedMultiLabelLearner {
             }
             bipartition = labelSet.toBooleanArray();
             confidences = labelSet.toDoubleArray();
-        } else {
-            double[] distribution = null;
-            try {
-                //debug("old instance:" + instance.toString());
-                Instance transformedInstance;
-                transformedInstance = transformation.transformInstance(instance, labelIndices);
-                distribution = baseClassifier.distributionForInstance(transformedInstance);
-                //debug(Arrays.toString(distribution));
-            } catch (Exception ex) {
-                Logger.getLogger(LabelPowerset.class.getName()).log(Level.SEVERE, null, ex);
+            MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidences);
+            return mlo;
+        }
+
+        double[] distribution = null;
+        try {
+            //debug("old instance:" + instance.toString());
+            Instance transformedInstance;
+            transformedInstance = transformation.transformInstance(instance, labelIndices);
+            distribution = baseClassifier.distributionForInstance(transformedInstance);
+            //debug(Arrays.toString(distribution));
+        } catch (Exception ex) {
+            Logger.getLogger(LabelPowerset.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        bipartition = new boolean[numLabels];
+        confidences = new double[numLabels];
+        makePrediction(distribution, getClassLabelSets(), bipartition, confidences);
+        return new MultiLabelOutput(bipartition, confidences);
+    }
+
+    /**
+     * Returns the labelset of each class value of the transformed data, decoded once
+     * per model
+     *
+     * @return the labelset of each class value
+     * @throws Exception if a class value is not a labelset
+     */
+    private double[][] getClassLabelSets() throws Exception {
+        if (classLabelSets == null) {
+            Attribute classAttribute = transformation.getTransformedFormat().classAttribute();
+            double[][] labelSets = new double[classAttribute.numValues()][];
+            for (int i = 0; i < labelSets.length; i++) {
+                labelSets[i] = LabelSet.fromBitString(classAttribute.value(i)).toDoubleArray();
             }
-            int classIndex = Util.RandomIndexOfMax(distribution, Rand);
-            //debug("" + classIndex);
-            String strClass = (transformation.getTransformedFormat().classAttribute()).value(classIndex);
-            LabelSet labelSet = null;
-            try {
-                labelSet = LabelSet.fromBitString(strClass);
-            } catch (Exception ex) {
-                Logger.getLogger(LabelPowerset.class.getName()).log(Level.SEVERE, null, ex);
+            classLabelSets = labelSets;
+        }
+        return classLabelSets;
+    }
+
+    @Override
+    protected MultiLabelOutputMatrix makePredictionsInternal(Instances instances) throws Exception {
+        Attribute classAttribute = transformation.getTransformedFormat().classAttribute();
+        // check for unary class
+        if (classAttribute.numValues() == 1) {
+            return super.makePredictionsInternal(instances);
+        }
+
+        double[][] classLabelSets = getClassLabelSets();
+
+        int numInstances = instances.numInstances();
+        Instances transformedInstances = new Instances(transformation.getTransformedFormat(), numInstances);
+        for (int i = 0; i < numInstances; i++) {
+            transformedInstances.add(transformation.transformInstance(instances.instance(i), labelIndices));
+        }
+        double[][] distributions = distributionsForInstances(baseClassifier, transformedInstances);
+
+        // the rows are computed in the same arrays and written to the matrix
+        MultiLabelOutputMatrix predictions = new MultiLabelOutputMatrix(numInstances, numLabels);
+        boolean[] bipartition = new boolean[numLabels];
+        double[] confidences = new double[numLabels];
+        for (int i = 0; i < numInstances; i++) {
+            makePrediction(distributions[i], classLabelSets, bipartition, confidences);
+            for (int j = 0; j < numLabels; j++) {
+                predictions.setBipartition(i, j, bipartition[j]);
+                predictions.setConfidence(i, j, confidences[j]);
             }
+            predictions.setRankingFromConfidences(i);
+        }
+        return predictions;
+    }
 
-            bipartition = labelSet.toBooleanArray();
-            //debug(Arrays.toString(bipartition));
-
-            switch (confidenceCalculationMethod) {
-                case 0:
-                    confidences = Arrays.copyOf(labelSet.toDoubleArray(), labelSet.size());
-                    break;
-                case 1:
-                    confidences = new double[numLabels];
-                    double prob = distribution[classIndex];
-                    for (int i = 0; i < numLabels; i++) {
-                        confidences[i] = bipartition[i] ? prob : 1 - prob;
-                    }
-                    break;
-                case 2:
-                    confidences = new double[numLabels];
-                    for (int i = 0; i < distribution.length; i++) {
-                        strClass = (transformation.getTransformedFormat().classAttribute()).value(i);
-                        try {
-                            labelSet = LabelSet.fromBitString(strClass);
-                        } catch (Exception ex) {
-                            Logger.getLogger(LabelPowerset.class.getName()).log(Level.SEVERE, null, ex);
-                        }
-                        double[] predictionsTemp = labelSet.toDoubleArray();
-                        double confidence = distribution[i];
-                        for (int j = 0; j < numLabels; j++) {
-                            if (predictionsTemp[j] == 1) {
-                                confidences[j] += confidence;
-                            }
+    /**
+     * Computes the bipartition and the confidences for the class distribution of
+     * an instance
+     *
+     * @param distribution the class distribution of the base classifier
+     * @param classLabelSets the labelset of each class value
+     * @param bipartition the array to fill with the bipartition
+     * @param confidences the array to fill with the confidences
+     */
+    private void makePrediction(double[] distribution, double[][] classLabelSets,
+            boolean[] bipartition, double[] confidences) {
+        int classIndex = Util.RandomIndexOfMax(distribution, Rand);
+        double[] labelSet = classLabelSets[classIndex];
+        int size = 0;
+        for (int i = 0; i < labelSet.length; i++) {
+            bipartition[i] = (labelSet[i] == 1) ? true : false;
+            size += labelSet[i];
+        }
+
+        switch (confidenceCalculationMethod) {
+            case 0:
+                // the confidences are the first size values of the labelset
+                if (size != numLabels) {
+                    throw new IllegalArgumentException("The dimensions of the bipartition "
+                            + " and confidences arrays do not match.");
+                }
+                System.arraycopy(labelSet, 0, confidences, 0, numLabels);
+                break;
+            case 1:
+                double prob = distribution[classIndex];
+                for (int i = 0; i < numLabels; i++) {
+                    confidences[i] = bipartition[i] ? prob : 1 - prob;
+                }
+                break;
+            case 2:
+                Arrays.fill(confidences, 0);
+                for (int i = 0; i < distribution.length; i++) {
+                    double confidence = distribution[i];
+                    for (int j = 0; j < numLabels; j++) {
+                        if (classLabelSets[i][j] == 1) {
+                            confidences[j] += confidence;
                         }
                     }
-            }
+                }
+        }
 
-            if (makePredictionsBasedOnConfidences) {
-                for (int i = 0; i < confidences.length; i++) {
-                    if (confidences[i] > threshold) {
-                        bipartition[i] = true;
-                    } else {
-                        bipartition[i] = false;
-                    }
+        if (makePredictionsBasedOnConfidences) {
+            for (int i = 0; i < confidences.length; i++) {
+                if (confidences[i] > threshold) {
+                    bipartition[i] = true;
+                } else {
+                    bipartition[i] = false;
                 }
             }
-
         }
-
-        MultiLabelOutput mlo = new MultiLabelOutput(bipartition, confidences);
-        return mlo;
     }
 }
\ No newline at end of file
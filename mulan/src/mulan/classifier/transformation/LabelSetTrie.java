@@ -0,0 +1,114 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier.transformation;
+
+import java.util.ArrayList;
+import mulan.data.LabelSet;
+
+/**
+ * Trie of the frequent labelsets of a training set. It finds the frequent
+ * subsets of a labelset by following only the labels of the labelset, without
+ * enumerating all of its 2^n subsets, so that the cost of a search is bounded
+ * by the size of the trie.
+ */
+class LabelSetTrie {
+
+    /** the root of the trie, for the empty labelset */
+    private final Node root = new Node(-1);
+
+    /**
+     * A node of the trie. The labels of the path from the root to a node, in
+     * increasing order, are the members of the labelset of the node.
+     */
+    private static class Node {
+
+        /** the label of the node */
+        private final int label;
+        /** the labelset ending at the node, or null */
+        private LabelSet labelSet;
+        /** the children of the node, in increasing order of label */
+        private final ArrayList<Node> children = new ArrayList<Node>(0);
+
+        Node(int label) {
+            this.label = label;
+        }
+
+        Node child(int aLabel) {
+            int position = 0;
+            while (position < children.size() && children.get(position).label < aLabel) {
+                position++;
+            }
+            if (position < children.size() && children.get(position).label == aLabel) {
+                return children.get(position);
+            }
+            Node child = new Node(aLabel);
+            children.add(position, child);
+            return child;
+        }
+    }
+
+    /**
+     * Adds a labelset to the trie
+     *
+     * @param labelSet the labelset
+     */
+    void add(LabelSet labelSet) {
+        boolean[] members = labelSet.toBooleanArray();
+        Node node = root;
+        for (int i = 0; i < members.length; i++) {
+            if (members[i]) {
+                node = node.child(i);
+            }
+        }
+        node.labelSet = labelSet;
+    }
+
+    /**
+     * Returns the labelsets of the trie that are subsets of a labelset, apart
+     * from the empty one and the labelset itself, in the order of
+     * {@link LabelSet#getSubsets()}.
+     *
+     * @param labelSet the labelset
+     * @return the subsets of the labelset
+     */
+    ArrayList<LabelSet> subsets(LabelSet labelSet) {
+        ArrayList<LabelSet> subsets = new ArrayList<LabelSet>();
+        boolean[] members = labelSet.toBooleanArray();
+        // getSubsets() orders the subsets as numbers with the first member as
+        // the highest bit: a subset comes before the subsets that extend it,
+        // and those without a label come before those with it
+        for (int c = root.children.size() - 1; c >= 0; c--) {
+            collect(root.children.get(c), members, 1, labelSet.size(), subsets);
+        }
+        return subsets;
+    }
+
+    private static void collect(Node node, boolean[] members, int depth, int size, ArrayList<LabelSet> subsets) {
+        if (node.label >= members.length || !members[node.label]) {
+            return;
+        }
+        if (depth == size) {
+            // the labelset itself, which has no proper subsets below it
+            return;
+        }
+        if (node.labelSet != null) {
+            subsets.add(node.labelSet);
+        }
+        for (int c = node.children.size() - 1; c >= 0; c--) {
+            collect(node.children.get(c), members, depth + 1, size, subsets);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import mulan.data.LabelSet;
+import mulan.core.ModelBuilder;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.Classifier;
 import weka.core.Instance;
@@ -36,6 +37,10 @@ public abstract class LabelsetPruning extends LabelPowerset {
      * labelsets and a list with the corresponding instances
      */
     HashMap<LabelSet, ArrayList<Instance>> ListInstancePerLabel;
+    /**
+     * the labelsets that occur more than p times, only while building
+     */
+    transient LabelSetTrie frequentLabelSets;
     /**
      * parameter for the threshold of number of occurences of a labelset
      */
@@ -63,6 +68,16 @@ public abstract class LabelsetPruning extends LabelPowerset {
         threshold = 0.21;
     }
 
+    /**
+     * Returns the instances that replace the instances of an infrequent
+     * labelset. The frequent subsets of the labelset are given by
+     * {@link LabelSetTrie#subsets(LabelSet)} of {@link #frequentLabelSets}.
+     * The infrequent labelsets are processed concurrently, with the executor
+     * and the maximum number of concurrent models of the learner.
+     *
+     * @param ls an infrequent labelset
+     * @return the new instances
+     */
     abstract ArrayList<Instance> processRejected(LabelSet ls);
 
     @Override
@@ -89,11 +104,35 @@ public abstract class LabelsetPruning extends LabelPowerset {
             }
         }
 
+        frequentLabelSets = new LabelSetTrie();
+        final ArrayList<LabelSet> rejected = new ArrayList<LabelSet>();
+        for (LabelSet ls : ListInstancePerLabel.keySet()) {
+            if (ListInstancePerLabel.get(ls).size() > p) {
+                frequentLabelSets.add(ls);
+            } else {
+                rejected.add(ls);
+            }
+        }
+
+        // the rejected labelsets are processed independently of each other
+        final ArrayList<ArrayList<Instance>> processed = new ArrayList<ArrayList<Instance>>(rejected.size());
+        for (int i = 0; i < rejected.size(); i++) {
+            processed.add(null);
+        }
+        buildModels(rejected.size(), new ModelBuilder() {
+
+            public void buildModel(int model) throws Exception {
+                processed.set(model, processRejected(rejected.get(model)));
+            }
+        });
+        frequentLabelSets = null;
+
         // Iterates the structure and a) if occurences of a labelset are higher
         // than p parameter then add them to the training set, b) if occurences
         // are less, then depending on the strategy discard/reintroduce them
         Instances newData = new Instances(data, 0);
         Iterator<LabelSet> it = ListInstancePerLabel.keySet().iterator();
+        int numRejected = 0;
         while (it.hasNext()) {
             LabelSet ls = it.next();
             ArrayList<Instance> instances = ListInstancePerLabel.get(ls);
@@ -102,8 +141,7 @@ public abstract class LabelsetPruning extends LabelPowerset {
                     newData.add(instances.get(i));
                 }
             } else {
-                ArrayList<Instance> processed = processRejected(ls);
-                newData.addAll(processed);
+                newData.addAll(processed.get(numRejected++));
             }
         }
 
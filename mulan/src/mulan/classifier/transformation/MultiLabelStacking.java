@@ -25,6 +25,7 @@ import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import mulan.classifier.MultiLabelOutput;
+import mulan.core.ModelBuilder;
 import mulan.data.*;
 import mulan.data.Statistics;
 import mulan.transformations.BinaryRelevanceTransformation;
@@ -273,64 +274,68 @@ public class MultiLabelStacking extends TransformationBasedMultiLabelLearner {
         // classifiers for each label for every instance of the training set
         baseLevelPredictions = new double[train.numInstances()][numLabels];
 
-        for (int labelIndex = 0; labelIndex < numLabels; labelIndex++) {
-            debug("Label: " + labelIndex);
-            // transform the dataset according to the BR method
-            baseLevelData[labelIndex] = BinaryRelevanceTransformation.transformInstances(train, labelIndices,
-                    labelIndices[labelIndex]);
-            // attach indexes in order to keep track of the original positions
-            baseLevelData[labelIndex] = new Instances(attachIndexes(baseLevelData[labelIndex]));
-            // prepare the transformed dataset for stratified x-fold cv
-            Random random = new Random(1);
-            baseLevelData[labelIndex].randomize(random);
-            baseLevelData[labelIndex].stratify(numFolds);
-            debug("Creating meta-data");
-            HashSet<Integer> indices = new HashSet<Integer>();
-            for (int j = 0; j < numFolds; j++) {
-                debug("Label=" + labelIndex + ", Fold=" + j);
-                Instances subtrain = baseLevelData[labelIndex].trainCV(numFolds, j);
-                Instances subtest = baseLevelData[labelIndex].testCV(numFolds, j);
-                // create a filtered meta classifier, used to ignore
-                // the index attribute in the build process
-                // perform stratified x-fold cv and get predictions
-                // for each class for every instance
-                FilteredClassifier fil = new FilteredClassifier();
-                fil.setClassifier(baseLevelEnsemble[labelIndex]);
-                Remove remove = new Remove();
-                remove.setAttributeIndices("first");
-                remove.setInputFormat(subtrain);
-                fil.setFilter(remove);
-                fil.buildClassifier(subtrain);
-
-                // Classify test instance
-                for (int i = 0; i < subtest.numInstances(); i++) {
-                    double distribution[];
-                    distribution = fil.distributionForInstance(subtest.instance(i));
-                    // Ensure correct predictions both for class values {0,1} and {1,0}
-                    Attribute classAttribute = baseLevelData[labelIndex].classAttribute();
-                    int index = (int) subtest.instance(i).value(0);
-                    if (!indices.add(index)) {
-                        System.out.println("Already predicted instance;");
-                    }
-                    baseLevelPredictions[index][labelIndex] = distribution[classAttribute.indexOfValue("1")];
-                    if (normalize) {
-                        if (distribution[classAttribute.indexOfValue("1")] > maxProb[labelIndex]) {
-                            maxProb[labelIndex] = distribution[classAttribute.indexOfValue("1")];
+        // the labels are independent, each one has its own transformed dataset
+        buildModels(numLabels, new ModelBuilder() {
+
+            public void buildModel(int labelIndex) throws Exception {
+                debug("Label: " + labelIndex);
+                // transform the dataset according to the BR method
+                baseLevelData[labelIndex] = BinaryRelevanceTransformation.transformInstances(train, labelIndices,
+                        labelIndices[labelIndex]);
+                // attach indexes in order to keep track of the original positions
+                baseLevelData[labelIndex] = new Instances(attachIndexes(baseLevelData[labelIndex]));
+                // prepare the transformed dataset for stratified x-fold cv
+                Random random = new Random(1);
+                baseLevelData[labelIndex].randomize(random);
+                baseLevelData[labelIndex].stratify(numFolds);
+                debug("Creating meta-data");
+                HashSet<Integer> indices = new HashSet<Integer>();
+                for (int j = 0; j < numFolds; j++) {
+                    debug("Label=" + labelIndex + ", Fold=" + j);
+                    Instances subtrain = baseLevelData[labelIndex].trainCV(numFolds, j);
+                    Instances subtest = baseLevelData[labelIndex].testCV(numFolds, j);
+                    // create a filtered meta classifier, used to ignore
+                    // the index attribute in the build process
+                    // perform stratified x-fold cv and get predictions
+                    // for each class for every instance
+                    FilteredClassifier fil = new FilteredClassifier();
+                    fil.setClassifier(baseLevelEnsemble[labelIndex]);
+                    Remove remove = new Remove();
+                    remove.setAttributeIndices("first");
+                    remove.setInputFormat(subtrain);
+                    fil.setFilter(remove);
+                    fil.buildClassifier(subtrain);
+
+                    // Classify test instance
+                    for (int i = 0; i < subtest.numInstances(); i++) {
+                        double distribution[];
+                        distribution = fil.distributionForInstance(subtest.instance(i));
+                        // Ensure correct predictions both for class values {0,1} and {1,0}
+                        Attribute classAttribute = baseLevelData[labelIndex].classAttribute();
+                        int index = (int) subtest.instance(i).value(0);
+                        if (!indices.add(index)) {
+                            System.out.println("Already predicted instance;");
                         }
-                        if (distribution[classAttribute.indexOfValue("1")] < minProb[labelIndex]) {
-                            minProb[labelIndex] = distribution[classAttribute.indexOfValue("1")];
+                        baseLevelPredictions[index][labelIndex] = distribution[classAttribute.indexOfValue("1")];
+                        if (normalize) {
+                            if (distribution[classAttribute.indexOfValue("1")] > maxProb[labelIndex]) {
+                                maxProb[labelIndex] = distribution[classAttribute.indexOfValue("1")];
+                            }
+                            if (distribution[classAttribute.indexOfValue("1")] < minProb[labelIndex]) {
+                                minProb[labelIndex] = distribution[classAttribute.indexOfValue("1")];
+                            }
                         }
                     }
                 }
-            }
-            // now we can detach the indexes from the first level datasets
-            baseLevelData[labelIndex] = detachIndexes(baseLevelData[labelIndex]);
+                // now we can detach the indexes from the first level datasets
+                baseLevelData[labelIndex] = detachIndexes(baseLevelData[labelIndex]);
 
-            debug("Building base classifier on full data");
-            // build base classifier on the full training data
-            baseLevelEnsemble[labelIndex].buildClassifier(baseLevelData[labelIndex]);
-            baseLevelData[labelIndex].delete();
-        }
+                debug("Building base classifier on full data");
+                // build base classifier on the full training data
+                baseLevelEnsemble[labelIndex].buildClassifier(baseLevelData[labelIndex]);
+                baseLevelData[labelIndex].delete();
+            }
+        });
 
         if (normalize) {
             normalizePredictions();
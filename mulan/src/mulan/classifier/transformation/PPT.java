@@ -17,8 +17,6 @@ package mulan.classifier.transformation;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import mulan.data.DataUtils;
 import mulan.data.LabelSet;
 import weka.classifiers.Classifier;
@@ -114,25 +112,13 @@ public class PPT extends LabelsetPruning {
             case NO_INFORMATION_LOSS:
                 // split LabelSet into smaller ones
                 //debug System.out.println("original:" + ls.toString());
-                ArrayList<LabelSet> subsets = null;
-                try {
-                    subsets = ls.getSubsets();
-                } catch (Exception ex) {
-                    Logger.getLogger(PPT.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                // the frequent subsets of the labelset
+                ArrayList<LabelSet> subsets = frequentLabelSets.subsets(ls);
                 // sort subsets based on size
                 Collections.sort(subsets);
                 //debug for (LabelSet l: subsets) System.out.println(l.toString());
                 ArrayList<LabelSet> subsetsForInsertion = new ArrayList<LabelSet>();
                 for (LabelSet l : subsets) {
-                    // check if it exists in the training set
-                    if (!ListInstancePerLabel.containsKey(l)) {
-                        continue;
-                    }
-                    // check if it occurs more than p times
-                    if (ListInstancePerLabel.get(l).size() <= p) {
-                        continue;
-                    }
                     // check that it has no common elements with
                     // previously selected subsets
                     boolean foundCommon = false;
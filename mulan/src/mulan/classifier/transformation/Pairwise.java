@@ -16,6 +16,7 @@
 package mulan.classifier.transformation;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.core.ModelBuilder;
 import mulan.data.MultiLabelInstances;
 import mulan.transformations.PairwiseTransformation;
 import weka.classifiers.AbstractClassifier;
@@ -29,6 +30,9 @@ import weka.core.*;
  * Cheng, W.; Brinker, K. (2008) Label ranking by learning pairwise preferences,
  * Artificial Intelligence 172(16-17):1897-1916</em></p>
  *
+ * <p>The one-vs-one models are independent and are built concurrently when
+ * {@link #setMaxConcurrentModels(int)} or {@link #setExecutor} is used.</p>
+ *
  * @author Grigorios Tsoumakas
  * @version 2012.11.1
  */
@@ -102,23 +106,33 @@ public class Pairwise extends TransformationBasedMultiLabelLearner {
         debug("preparing shell");
         pt = new PairwiseTransformation(train);
 
+        final int[] firstLabels = new int[numModels];
+        final int[] secondLabels = new int[numModels];
         int counter = 0;
-        // Creation of one-vs-one models
         for (int label1 = 0; label1 < numLabels - 1; label1++) {
             for (int label2 = label1 + 1; label2 < numLabels; label2++) {
-                debug("Building one-vs-one model " + (counter + 1) + "/" + numModels);
+                firstLabels[counter] = label1;
+                secondLabels[counter] = label2;
+                counter++;
+            }
+        }
+
+        // Creation of one-vs-one models
+        buildModels(numModels, new ModelBuilder() {
+
+            public void buildModel(int model) throws Exception {
+                debug("Building one-vs-one model " + (model + 1) + "/" + numModels);
                 // initialize training set
-                Instances dataOneVsOne = pt.transformInstances(label1, label2);
+                Instances dataOneVsOne = pt.transformInstances(firstLabels[model], secondLabels[model]);
 
                 // build model label1 vs label2
                 if (dataOneVsOne.size() > 0) {
-                    oneVsOneModels[counter].buildClassifier(dataOneVsOne);
+                    oneVsOneModels[model].buildClassifier(dataOneVsOne);
                 } else {
-                    nodata[counter] = true;
+                    nodata[model] = true;
                 }
-                counter++;
             }
-        }
+        });
     }
 
     /**
@@ -151,8 +165,8 @@ public class Pairwise extends TransformationBasedMultiLabelLearner {
                         scores[label1] += distribution[1];
                         scores[label2] += distribution[0];
                     }
-                    counter++;
                 }
+                counter++;
             }
         }
         return scores;
@@ -16,8 +16,6 @@
 package mulan.classifier.transformation;
 
 import java.util.ArrayList;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import mulan.data.DataUtils;
 import mulan.data.LabelSet;
 import weka.classifiers.Classifier;
@@ -92,24 +90,12 @@ public class PrunedSets extends LabelsetPruning {
             case A:
                 // split LabelSet into smaller ones
                 //debug System.out.println("original:" + ls.toString());
-                subsets = null;
-                try {
-                    subsets = ls.getSubsets();
-                } catch (Exception ex) {
-                    Logger.getLogger(PrunedSets.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                // the frequent subsets of the labelset
+                subsets = frequentLabelSets.subsets(ls);
                 //System.out.println("subsets: " + subsets.toString());
                 ArrayList<LabelSet> sortedSubsets = new ArrayList<LabelSet>();
                 for (LabelSet l : subsets) {
                     //System.out.println(l.toString());
-                    // check if it exists in the training set
-                    if (!ListInstancePerLabel.containsKey(l)) {
-                        continue;
-                    }
-                    // check if it occurs more than p times 
-                    if (ListInstancePerLabel.get(l).size() <= p) {
-                        continue;
-                    }
                     //
                     boolean added = false;
                     for (int i = 0; i < sortedSubsets.size(); i++) {
@@ -160,22 +146,10 @@ public class PrunedSets extends LabelsetPruning {
             case B:
                 // split LabelSet into smaller ones
                 //debug System.out.println("original:" + ls.toString());
-                subsets = null;
-                try {
-                    subsets = ls.getSubsets();
-                } catch (Exception ex) {
-                    Logger.getLogger(PrunedSets.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                // the frequent subsets of the labelset
+                subsets = frequentLabelSets.subsets(ls);
                 ArrayList<LabelSet> subsetsForInsertion = new ArrayList<LabelSet>();
                 for (LabelSet l : subsets) {
-                    // check if it exists in the training set
-                    if (!ListInstancePerLabel.containsKey(l)) {
-                        continue;
-                    }
-                    // check if it occurs more than p times
-                    if (ListInstancePerLabel.get(l).size() <= p) {
-                        continue;
-                    }
                     // check if it has more than b elements
                     if (l.size() <= b) {
                         continue;
@@ -18,6 +18,8 @@ package mulan.classifier.transformation;
 import mulan.classifier.MultiLabelLearnerBase;
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
+import weka.core.BatchPredictor;
+import weka.core.Instances;
 import weka.core.TechnicalInformation;
 import weka.core.TechnicalInformation.Field;
 import weka.core.TechnicalInformation.Type;
@@ -67,6 +69,26 @@ public abstract class TransformationBasedMultiLabelLearner extends MultiLabelLea
         return baseClassifier;
     }
 
+    /**
+     * Returns the class distributions of a single-label classifier for a batch of
+     * instances, predicting the whole batch at once when the classifier supports it.
+     *
+     * @param classifier a trained single-label classifier
+     * @param instances the instances to predict on
+     * @return the class distribution of each instance
+     * @throws Exception if the classifier fails to make a prediction
+     */
+    protected static double[][] distributionsForInstances(Classifier classifier, Instances instances) throws Exception {
+        if (classifier instanceof BatchPredictor) {
+            return ((BatchPredictor) classifier).distributionsForInstances(instances);
+        }
+        double[][] distributions = new double[instances.numInstances()][];
+        for (int i = 0; i < instances.numInstances(); i++) {
+            distributions[i] = classifier.distributionForInstance(instances.instance(i));
+        }
+        return distributions;
+    }
+
     /**
      * Returns an instance of a TechnicalInformation object, containing detailed
      * information about the technical background of this class, e.g., paper
@@ -0,0 +1,33 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.core;
+
+/**
+ * Builds one of a number of independent models of a learner.
+ *
+ * @see ModelExecutor#buildModels(int, ModelBuilder, java.util.concurrent.ExecutorService, int)
+ */
+public interface ModelBuilder {
+
+    /**
+     * Builds a model. It may be called from several threads at the same time, each
+     * time for a different model.
+     *
+     * @param model the index of the model
+     * @throws Exception if the model can not be built
+     */
+    void buildModel(int model) throws Exception;
+}
@@ -0,0 +1,155 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Builds the independent models of a learner, such as the models of the labels of a
+ * binary relevance learner or the members of an ensemble, either one after the other or
+ * concurrently.
+ */
+public final class ModelExecutor {
+
+    private ModelExecutor() {
+    }
+
+    /**
+     * Builds a number of independent models, on an executor when one is given or the
+     * maximum number of concurrent models is greater than one, otherwise in the calling
+     * thread. When no executor is given, a pool with at most that many threads is used
+     * and shut down afterwards. At most the maximum number of concurrent models are
+     * submitted and not yet finished at any time, which bounds the memory taken by the
+     * training sets of the models. Each model is expected to be built from its own copy of
+     * the base classifier, so that it keeps the seed of the base classifier and the result
+     * does not depend on the order in which the models are built.
+     *
+     * @param numModels the number of models
+     * @param builder the builder of a model
+     * @param executor the executor building the models, or null
+     * @param maxConcurrentModels the maximum number of models built at the same time
+     * @throws Exception if a model can not be built
+     */
+    public static void buildModels(int numModels, final ModelBuilder builder, ExecutorService executor,
+            int maxConcurrentModels) throws Exception {
+        if (builder == null) {
+            throw new ArgumentNullException("builder");
+        }
+        sampleAndBuildModels(numModels, new ModelSampler() {
+
+            public ModelBuilder sample(int model) {
+                return builder;
+            }
+        }, executor, maxConcurrentModels);
+    }
+
+    /**
+     * Builds a number of independent models like
+     * {@link #buildModels(int, ModelBuilder, ExecutorService, int)}, drawing the sample of
+     * each model first in the calling thread, in increasing order of model. The sample of
+     * a model is only drawn when fewer than the maximum number of concurrent models are
+     * being built, so that at most that many samples are held at any time.
+     *
+     * @param numModels the number of models
+     * @param sampler the sampler of a model
+     * @param executor the executor building the models, or null
+     * @param maxConcurrentModels the maximum number of models built at the same time
+     * @throws Exception if a model can not be sampled or built
+     */
+    public static void sampleAndBuildModels(int numModels, ModelSampler sampler, ExecutorService executor,
+            int maxConcurrentModels) throws Exception {
+        if (sampler == null) {
+            throw new ArgumentNullException("sampler");
+        }
+        if (maxConcurrentModels < 1) {
+            throw new IllegalArgumentException("The maximum number of concurrent models must be positive.");
+        }
+        if (executor == null && maxConcurrentModels == 1) {
+            for (int model = 0; model < numModels; model++) {
+                sampler.sample(model).buildModel(model);
+            }
+            return;
+        }
+        if (numModels == 0) {
+            return;
+        }
+
+        ExecutorService pool = executor;
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Math.min(maxConcurrentModels, numModels));
+        }
+        final Semaphore slots = new Semaphore(maxConcurrentModels);
+        Deque<Future<Void>> models = new ArrayDeque<Future<Void>>();
+        try {
+            for (int i = 0; i < numModels; i++) {
+                final int model = i;
+                slots.acquire();
+                // check the models finished so far for failures
+                while (!models.isEmpty() && models.peekFirst().isDone()) {
+                    checkModel(models.pollFirst());
+                }
+                try {
+                    final ModelBuilder builder = sampler.sample(model);
+                    models.add(pool.submit(new Callable<Void>() {
+
+                        public Void call() throws Exception {
+                            try {
+                                builder.buildModel(model);
+                                return null;
+                            } finally {
+                                slots.release();
+                            }
+                        }
+                    }));
+                } catch (Exception ex) {
+                    slots.release();
+                    throw ex;
+                }
+            }
+            for (Future<Void> model : models) {
+                checkModel(model);
+            }
+        } finally {
+            for (Future<Void> model : models) {
+                model.cancel(true);
+            }
+            if (pool != executor) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void checkModel(Future<Void> model) throws Exception {
+        try {
+            model.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
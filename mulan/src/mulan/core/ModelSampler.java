@@ -0,0 +1,38 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.core;
+
+/**
+ * Draws the sample of one of a number of independent models of a learner, such as
+ * the training set or the label subset of a member of an ensemble, before the model
+ * is built.
+ *
+ * @see ModelExecutor#sampleAndBuildModels(int, ModelSampler, java.util.concurrent.ExecutorService, int)
+ */
+public interface ModelSampler {
+
+    /**
+     * Draws the sample of a model. It is called in the calling thread of
+     * {@link ModelExecutor#sampleAndBuildModels(int, ModelSampler, java.util.concurrent.ExecutorService, int)},
+     * once for each model in increasing order, so that the random draws of a learner
+     * do not depend on the order in which the models are built.
+     *
+     * @param model the index of the model
+     * @return the builder of the model on its sample, called with the same index
+     * @throws Exception if the sample can not be drawn
+     */
+    ModelBuilder sample(int model) throws Exception;
+}
@@ -0,0 +1,239 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+/*
+ *    InstancesSample.java
+ *    Copyright (C) 2009-2012 Aristotle University of Thessaloniki, Greece
+ */
+package mulan.data;
+
+import java.util.Arrays;
+import java.util.Random;
+import mulan.core.ArgumentNullException;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * A sample of the instances of a multi-label dataset, kept as the row of each
+ * sampled instance in the dataset and its weight. The dataset is shared by all
+ * its samples and is never modified, so that a sample takes a few bytes per
+ * instance instead of a copy of the data. A sample is turned into a dataset
+ * only when a learner needs it, with {@link #materialize()}.
+ * <br>
+ * The samples are drawn like the corresponding methods of {@link Instances}:
+ * the same random number generator gives the same instances, in the same order
+ * and with the same weights, as if the dataset had been copied.
+ * <br>
+ * A sample is not thread safe, but the samples drawn from it are independent.
+ */
+public class InstancesSample {
+
+    /** the shared dataset */
+    private final MultiLabelInstances dataSet;
+    /** the row of each instance of the sample in the dataset */
+    private final int[] rows;
+    /** the weight of each instance of the sample */
+    private final double[] weights;
+
+    /**
+     * Creates a sample with all the instances of a dataset, in their order and
+     * with their weights.
+     *
+     * @param dataSet the dataset
+     */
+    public InstancesSample(MultiLabelInstances dataSet) {
+        if (dataSet == null) {
+            throw new ArgumentNullException("dataSet");
+        }
+        this.dataSet = dataSet;
+        Instances data = dataSet.getDataSet();
+        rows = new int[data.numInstances()];
+        weights = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+            weights[i] = data.instance(i).weight();
+        }
+    }
+
+    /**
+     * Creates a sample with a range of the instances of another sample, like
+     * {@link Instances#Instances(Instances, int, int)}.
+     *
+     * @param source the sample to copy the instances from
+     * @param first the index of the first instance to copy
+     * @param toCopy the number of instances to copy
+     * @throws IllegalArgumentException if the range is out of bounds
+     */
+    public InstancesSample(InstancesSample source, int first, int toCopy) {
+        if (source == null) {
+            throw new ArgumentNullException("source");
+        }
+        if (first < 0 || toCopy < 0 || first + toCopy > source.numInstances()) {
+            throw new IllegalArgumentException("Parameters first and/or toCopy out of range");
+        }
+        dataSet = source.dataSet;
+        rows = Arrays.copyOfRange(source.rows, first, first + toCopy);
+        weights = Arrays.copyOfRange(source.weights, first, first + toCopy);
+    }
+
+    private InstancesSample(MultiLabelInstances dataSet, int[] rows, double[] weights) {
+        this.dataSet = dataSet;
+        this.rows = rows;
+        this.weights = weights;
+    }
+
+    /**
+     * Returns the shared dataset of the sample.
+     *
+     * @return the dataset
+     */
+    public MultiLabelInstances getDataSet() {
+        return dataSet;
+    }
+
+    /**
+     * Returns the number of instances of the sample.
+     *
+     * @return the number of instances
+     */
+    public int numInstances() {
+        return rows.length;
+    }
+
+    /**
+     * Returns the row of an instance of the sample in the shared dataset.
+     *
+     * @param index the index of the instance in the sample
+     * @return the row of the instance in the dataset
+     */
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Returns the weight of an instance of the sample.
+     *
+     * @param index the index of the instance in the sample
+     * @return the weight of the instance
+     */
+    public double getWeight(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Shuffles the instances of the sample, like {@link Instances#randomize(Random)}.
+     *
+     * @param random the random number generator
+     */
+    public void randomize(Random random) {
+        for (int j = rows.length - 1; j > 0; j--) {
+            swap(j, random.nextInt(j + 1));
+        }
+    }
+
+    private void swap(int i, int j) {
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+        double weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+
+    /**
+     * Draws a bootstrap sample of the instances of the sample with probabilities
+     * proportional to their weights, like
+     * {@link Instances#resampleWithWeights(Random)}. The instances of the new
+     * sample have a weight of 1.
+     *
+     * @param random the random number generator
+     * @return the bootstrap sample
+     * @throws IllegalArgumentException if a weight is negative
+     */
+    public InstancesSample resampleWithWeights(Random random) {
+        int numInstances = rows.length;
+        int[] sampledRows = new int[numInstances];
+        double[] sampledWeights = new double[numInstances];
+        if (numInstances == 0) {
+            return new InstancesSample(dataSet, sampledRows, sampledWeights);
+        }
+
+        // Walker's alias method, with the same tables as Instances
+        double[] probabilities = Arrays.copyOf(weights, numInstances);
+        Utils.normalize(probabilities);
+        double[] cutoffs = new double[numInstances];
+        int[] aliases = new int[numInstances];
+        int[] work = new int[numInstances];
+        int small = -1;
+        int large = numInstances;
+        for (int i = 0; i < numInstances; i++) {
+            if (probabilities[i] < 0) {
+                throw new IllegalArgumentException("Weights have to be positive.");
+            }
+            cutoffs[i] = numInstances * probabilities[i];
+            if (cutoffs[i] < 1.0) {
+                work[++small] = i;
+            } else {
+                work[--large] = i;
+            }
+        }
+        if (small > -1 && large < numInstances) {
+            for (int s = 0; s < numInstances - 1; s++) {
+                int i = work[s];
+                int j = work[large];
+                aliases[i] = j;
+                cutoffs[j] += cutoffs[i] - 1;
+                if (cutoffs[j] < 1.0) {
+                    large++;
+                }
+                if (large >= numInstances) {
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < numInstances; i++) {
+            cutoffs[i] += i;
+        }
+
+        for (int k = 0; k < numInstances; k++) {
+            double u = numInstances * random.nextDouble();
+            int i = (int) u;
+            sampledRows[k] = rows[(u < cutoffs[i]) ? i : aliases[i]];
+            sampledWeights[k] = 1;
+        }
+        return new InstancesSample(dataSet, sampledRows, sampledWeights);
+    }
+
+    /**
+     * Creates a dataset with the instances of the sample. The instances of the
+     * dataset share their values with those of the shared dataset, until a value
+     * is changed. The dataset is not kept by the sample, so that it can be freed
+     * as soon as the learner that needs it is built.
+     *
+     * @return a dataset with the instances of the sample
+     * @throws InvalidDataFormatException if the dataset can not be created
+     */
+    public MultiLabelInstances materialize() throws InvalidDataFormatException {
+        Instances data = dataSet.getDataSet();
+        Instances sample = new Instances(data, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            // the added instance is a copy sharing the values of the row
+            sample.add(data.instance(rows[i]));
+            sample.instance(i).setWeight(weights[i]);
+        }
+        return new MultiLabelInstances(sample, dataSet.getLabelsMetaData());
+    }
+}
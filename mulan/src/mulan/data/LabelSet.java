@@ -22,25 +22,56 @@ package mulan.data;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import weka.core.Utils;
+import java.util.Arrays;
 
 /**
  * Class that handles labelsets <p>
  *
  * @author Grigorios Tsoumakas
  * @author Robert Friberg
- * @version $Revision: 0.03 $
+ * @version $Revision: 0.04 $
  */
 public class LabelSet implements Serializable, Comparable<LabelSet> {
 
-    private static final long serialVersionUID = 7658871740607834759L;
+    private static final long serialVersionUID = -2371650842245962715L;
     /**
-     * The set is represented internally as an array of integers.
-     * Weka uses doubles but we choose integers for fast comparisons.
+     * The number of bits held by each word of the set
+     */
+    private static final int WORD_BITS = 64;
+    /**
+     * The largest number of members of a labelset whose subsets can be
+     * returned as a whole by {@link #getSubsets()}
+     */
+    public static final int MAX_SUBSET_MEMBERS = 30;
+    /**
+     * The number of labels (members or not) of the set
+     */
+    private final int numLabels;
+    /**
+     * The set is represented internally as an array of bits, packed in
+     * words of 64 bits, label i being bit i % 64 of word i / 64.
      * Observe that the set is immutable,
      * once assigned by the constructor, no changes are possible.
      */
+    private final long[] bits;
+    /**
+     * The set as an array of integers containing 0/1, as it was represented
+     * before the array of bits. It is still filled for the subclasses of
+     * LabelSet, but the methods of LabelSet only use the array of bits.
+     *
+     * @deprecated use {@link #toDoubleArray()} or {@link #toBooleanArray()}
+     */
+    @Deprecated
     protected int[] labelSet;
+    /**
+     * The number of set members. Observe that the set
+     * size is not the same as the size of the double array.
+     */
+    private final int size;
+    /**
+     * The hash code of the set, the same as the hash code of its bitstring
+     */
+    private final int hash;
 
     /**
      * Initializes an object based on an array of doubles containing 0/1
@@ -48,10 +79,44 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      * @param set array of doubles containing 0 and 1
      */
     public LabelSet(double[] set) {
-        labelSet = new int[set.length];
+        this(set.length, pack(set));
+    }
+
+    private LabelSet(int numLabels, long[] bits) {
+        this.numLabels = numLabels;
+        this.bits = bits;
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        size = count;
+        int h = 0;
+        for (int i = 0; i < numLabels; i++) {
+            h = 31 * h + (contains(i) ? '1' : '0');
+        }
+        hash = h;
+        labelSet = new int[numLabels];
+        for (int i = 0; i < numLabels; i++) {
+            labelSet[i] = contains(i) ? 1 : 0;
+        }
+    }
+
+    private static long[] pack(double[] set) {
+        long[] words = new long[words(set.length)];
         for (int i = 0; i < set.length; i++) {
-            labelSet[i] = (int) set[i];
+            if ((int) set[i] != 0) {
+                words[i / WORD_BITS] |= 1L << i;
+            }
         }
+        return words;
+    }
+
+    private static int words(int numLabels) {
+        return (numLabels + WORD_BITS - 1) / WORD_BITS;
+    }
+
+    private boolean contains(int label) {
+        return (bits[label / WORD_BITS] & (1L << label)) != 0;
     }
 
     /**
@@ -64,34 +129,27 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return hash;
     }
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (obj instanceof LabelSet) {
             LabelSet other = (LabelSet) obj;
-            return other.labelSet.length == this.labelSet.length && hammingDifference(other) == 0;
+            return other.hash == hash && other.numLabels == numLabels && Arrays.equals(other.bits, bits);
         } else {
             return false; //could perhaps allow comparison with double array
         }
     }
-    /**
-     * A cached count of the set size. Observe that the set
-     * size is not the same as the size of the double array.
-     */
-    private int size = -1;
 
     /**
-     * The number of set members. Calculated on first call and
-     * cached for subsequent calls.
+     * The number of set members.
      * @return The number of set members
      */
     public int size() {
-        if (size == -1) {
-            size = Utils.sum(labelSet);
-        }
-
         return size;
     }
 
@@ -100,9 +158,9 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      * @return a copy of the underlying array.
      */
     public double[] toDoubleArray() {
-        double[] arr = new double[labelSet.length];
-        for (int i = 0; i < labelSet.length; i++) {
-            arr[i] = labelSet[i];
+        double[] arr = new double[numLabels];
+        for (int i = 0; i < numLabels; i++) {
+            arr[i] = contains(i) ? 1 : 0;
         }
         return arr;
     }
@@ -112,9 +170,9 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      * @return a copy of the underlying array.
      */
     public boolean[] toBooleanArray() {
-        boolean[] arr = new boolean[labelSet.length];
-        for (int i = 0; i < labelSet.length; i++) {
-            arr[i] = (labelSet[i] == 1) ? true : false;
+        boolean[] arr = new boolean[numLabels];
+        for (int i = 0; i < numLabels; i++) {
+            arr[i] = contains(i);
         }
         return arr;
     }
@@ -127,10 +185,8 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      */
     public int hammingDifference(LabelSet other) {
         int diff = 0;
-        for (int i = 0; i < labelSet.length; i++) {
-            if (labelSet[i] != other.labelSet[i]) {
-                diff++;
-            }
+        for (int w = 0; w < bits.length; w++) {
+            diff += Long.bitCount(bits[w] ^ other.bits[w]);
         }
         return diff;
     }
@@ -140,11 +196,11 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      * @return the bitstring.
      */
     public String toBitString() {
-        StringBuilder sb = new StringBuilder(labelSet.length);
-        for (int i = 0; i < labelSet.length; i++) {
-            sb.append(Integer.toString(labelSet[i]));
+        char[] chars = new char[numLabels];
+        for (int i = 0; i < numLabels; i++) {
+            chars[i] = contains(i) ? '1' : '0';
         }
-        return sb.toString();
+        return new String(chars);
     }
 
     /**
@@ -155,56 +211,66 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      * @throws Exception if creation fails due to invalid bitstring
      */
     public static LabelSet fromBitString(String bits) throws Exception {
-        LabelSet result = new LabelSet(new double[bits.length()]);
+        long[] words = new long[words(bits.length())];
         for (int i = 0; i < bits.length(); i++) {
             switch (bits.charAt(i)) {
                 case '1':
-                    result.labelSet[i] = 1;
+                    words[i / WORD_BITS] |= 1L << i;
                     break;
                 case '0':
-                    result.labelSet[i] = 0;
                     break;
                 default:
                     throw new Exception("Bad bitstring: " + bits);
             }
         }
-        return result;
+        return new LabelSet(bits.length(), words);
     }
 
     /**
-     * Constructs all subsets of a labelset (apart from the empty one).
+     * Constructs all subsets of a labelset (apart from the empty one and the
+     * labelset itself).
      *
      * @return an ArrayList of LabelSet objects with the subsets.
-     * @throws Exception if creation of labelset's subsets fails
+     * @throws Exception if the labelset has more than {@link #MAX_SUBSET_MEMBERS}
+     * members
      */
     public ArrayList<LabelSet> getSubsets() throws Exception {
-        ArrayList<LabelSet> subsets = new ArrayList<LabelSet>();
-
-        //the number of members of a power set is 2^n
-        int powerElements = (int) Math.pow(2, size());
+        if (size > MAX_SUBSET_MEMBERS) {
+            throw new Exception("Too many subsets for a labelset of " + size + " members");
+        }
+        return getSubsets(Integer.MAX_VALUE);
+    }
 
-        for (int i = 1; i < powerElements - 1; i++) {
-            String temp = Integer.toBinaryString(i);
-            int foundDigits = temp.length();
-            for (int j = foundDigits; j < size(); j++) {
-                temp = "0" + temp;
-            }
-            LabelSet tempSet = LabelSet.fromBitString(temp);
-            double[] tempDouble = tempSet.toDoubleArray();
-
-            double[] subset = new double[labelSet.length];
-            int counter = 0;
-            for (int j = 0; j < labelSet.length; j++) {
-                if (labelSet[j] == 0) {
-                    subset[j] = 0;
-                } else {
-                    subset[j] = tempDouble[counter];
-                    counter++;
-                }
+    /**
+     * Constructs the subsets of a labelset (apart from the empty one and the
+     * labelset itself), up to a maximum number of subsets. The subsets are
+     * returned in the order of {@link #getSubsets()}, so the first subsets
+     * are those without the first members of the labelset.
+     *
+     * @param maxSubsets the maximum number of subsets to construct
+     * @return an ArrayList of LabelSet objects with the subsets.
+     */
+    public ArrayList<LabelSet> getSubsets(int maxSubsets) {
+        int[] members = new int[size];
+        int counter = 0;
+        for (int w = 0; w < bits.length; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                members[counter++] = w * WORD_BITS + Long.numberOfTrailingZeros(word);
             }
+        }
 
-            LabelSet finalLabelSet = new LabelSet(subset);
-            subsets.add(finalLabelSet);
+        // the number of members of a power set is 2^n; the empty set and the
+        // labelset itself are left out
+        long numSubsets = (size >= 63) ? Long.MAX_VALUE : (1L << size) - 2;
+        ArrayList<LabelSet> subsets = new ArrayList<LabelSet>((int) Math.max(0, Math.min(numSubsets, Math.min(maxSubsets, 1024))));
+        for (long i = 1; i <= numSubsets && subsets.size() < maxSubsets; i++) {
+            // the highest bit of i stands for the first member
+            long[] subset = new long[bits.length];
+            for (long rest = i; rest != 0; rest &= rest - 1) {
+                int label = members[size - 1 - Long.numberOfTrailingZeros(rest)];
+                subset[label / WORD_BITS] |= 1L << label;
+            }
+            subsets.add(new LabelSet(numLabels, subset));
         }
         return subsets;
     }
@@ -216,23 +282,16 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
      * @return their interesection
      */
     public static LabelSet intersection(LabelSet l1, LabelSet l2) {
-        double[] arrayL1 = l1.toDoubleArray();
-        double[] arrayL2 = l2.toDoubleArray();
-
-        if (arrayL1.length != arrayL2.length) {
+        if (l1.numLabels != l2.numLabels) {
             return null;
         }
 
-        double[] intersection = new double[arrayL2.length];
-        for (int i = 0; i < arrayL2.length; i++) {
-            if (arrayL1[i] == 1 && arrayL2[i] == 1) {
-                intersection[i] = 1;
-            } else {
-                intersection[i] = 0;
-            }
+        long[] intersection = new long[l1.bits.length];
+        for (int w = 0; w < intersection.length; w++) {
+            intersection[w] = l1.bits[w] & l2.bits[w];
         }
 
-        return new LabelSet(intersection);
+        return new LabelSet(l1.numLabels, intersection);
     }
 
     /**
@@ -247,4 +306,4 @@ public class LabelSet implements Serializable, Comparable<LabelSet> {
             return 0;
         }
     }
-}
+}
\ No newline at end of file
@@ -23,12 +23,19 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import clus.Clus;
 import mulan.classifier.MultiLabelLearner;
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.classifier.clus.ClusWrapperClassification;
 import mulan.data.MultiLabelInstances;
 import mulan.evaluation.measure.AverageMAE;
@@ -36,6 +43,7 @@ import mulan.evaluation.measure.AveragePrecision;
 import mulan.evaluation.measure.AverageRMSE;
 import mulan.evaluation.measure.AverageRelativeMAE;
 import mulan.evaluation.measure.AverageRelativeRMSE;
+import mulan.evaluation.measure.BatchMeasure;
 import mulan.evaluation.measure.Coverage;
 import mulan.evaluation.measure.ErrorSetSize;
 import mulan.evaluation.measure.ExampleBasedAccuracy;
@@ -65,6 +73,7 @@ import mulan.evaluation.measure.MicroSpecificity;
 import mulan.evaluation.measure.OneError;
 import mulan.evaluation.measure.RankingLoss;
 import mulan.evaluation.measure.SubsetAccuracy;
+import mulan.resampling.Resampler;
 import weka.core.Instance;
 import weka.core.Instances;
 
@@ -78,8 +87,16 @@ import weka.core.Instances;
  */
 public class Evaluator {
 
+    /** number of test instances that are predicted and evaluated together **/
+    private static final int BATCH_SIZE = 1024;
     /** seed for reproduction of cross-validation results **/
     private int seed = 1;
+    /** executor running the folds of a cross-validation, or null **/
+    private ExecutorService executor;
+    /** maximum number of cross-validation folds in memory at the same time **/
+    private int maxConcurrentFolds = 1;
+    /** resampler applied to the training set of each cross-validation fold, or null **/
+    private Resampler resampler;
 
     /**
      * Sets the seed for reproduction of cross-validation results
@@ -90,6 +107,39 @@ public class Evaluator {
         seed = aSeed;
     }
 
+    /**
+     * Sets the executor on which the folds of a cross-validation are trained and evaluated. The
+     * executor is not shut down by the evaluator and runs at most the maximum number of
+     * concurrent folds at the same time. When no executor is set and that maximum is greater
+     * than one, a pool with that many threads is used.
+     *
+     * @param anExecutor the executor running the folds, or null
+     */
+    public void setExecutor(ExecutorService anExecutor) {
+        executor = anExecutor;
+    }
+
+    /**
+     * Sets the maximum number of cross-validation folds that are trained and evaluated at the
+     * same time. It bounds the memory taken by the training sets and learner copies of the folds.
+     *
+     * @param someFolds the maximum number of concurrent folds
+     */
+    public void setMaxConcurrentFolds(int someFolds) {
+        maxConcurrentFolds = someFolds;
+    }
+
+    /**
+     * Sets a resampler that is applied to the training set of each cross-validation fold before
+     * the learner is built. Test sets are never resampled. Each fold resamples with its own
+     * copy of the resampler, so folds can run concurrently.
+     *
+     * @param aResampler the resampler, or null to train on the folds as they are
+     */
+    public void setResampler(Resampler aResampler) {
+        resampler = aResampler;
+    }
+
     /**
      * Evaluates a {@link MultiLabelLearner} on given test data set using specified evaluation
      * measures
@@ -114,33 +164,35 @@ public class Evaluator {
 
         int numLabels = mlTestData.getNumLabels();
         int[] labelIndices = mlTestData.getLabelIndices();
-        GroundTruth truth;
         Set<Measure> failed = new HashSet<Measure>();
         Instances testData = mlTestData.getDataSet();
         int numInstances = testData.numInstances();
-        for (int instanceIndex = 0; instanceIndex < numInstances; instanceIndex++) {
-            Instance instance = testData.instance(instanceIndex);
-            boolean hasMissingLabels = mlTestData.hasMissingLabels(instance);
-            Instance labelsMissing = (Instance) instance.copy();
-            labelsMissing.setDataset(instance.dataset());
-            for (int i = 0; i < mlTestData.getNumLabels(); i++) {
-                labelsMissing.setMissing(labelIndices[i]);
+        for (int from = 0; from < numInstances; from += BATCH_SIZE) {
+            int batchSize = Math.min(BATCH_SIZE, numInstances - from);
+            // copies of the instances of the batch with their labels missing
+            Instances batch = new Instances(testData, from, batchSize);
+            for (int instanceIndex = 0; instanceIndex < batchSize; instanceIndex++) {
+                Instance labelsMissing = batch.instance(instanceIndex);
+                for (int i = 0; i < numLabels; i++) {
+                    labelsMissing.setMissing(labelIndices[i]);
+                }
             }
-            MultiLabelOutput output = learner.makePrediction(labelsMissing);
-            if (output.hasPvalues()) {// check if we have regression outputs
-                truth = new GroundTruth(getTrueScores(instance, numLabels, labelIndices));
-            } else {
-                truth = new GroundTruth(getTrueLabels(instance, numLabels, labelIndices));
+            MultiLabelOutputMatrix output = learner.makePredictions(batch);
+            // check if we have regression outputs
+            GroundTruthMatrix truth = new GroundTruthMatrix(batchSize, numLabels, output.hasPvalues());
+            for (int instanceIndex = 0; instanceIndex < batchSize; instanceIndex++) {
+                Instance instance = testData.instance(from + instanceIndex);
+                truth.setMissingLabels(instanceIndex, mlTestData.hasMissingLabels(instance));
+                if (truth.isRegression()) {
+                    setTrueScores(truth, instanceIndex, instance, numLabels, labelIndices);
+                } else {
+                    setTrueLabels(truth, instanceIndex, instance, numLabels, labelIndices);
+                }
             }
-            Iterator<Measure> it = measures.iterator();
-            while (it.hasNext()) {
-                Measure m = it.next();
+            for (Measure m : measures) {
                 if (!failed.contains(m)) {
                     try {
-                        if (hasMissingLabels && !m.handlesMissingValues()) {
-                            continue;
-                        }
-                        m.update(output, truth);
+                        update(m, output, truth);
                     } catch (Exception ex) {
                         failed.add(m);
                     }
@@ -151,6 +203,23 @@ public class Evaluator {
         return new Evaluation(measures, mlTestData);
     }
 
+    /**
+     * Updates a measure with the predictions for a batch of examples. Measures that are
+     * not a {@link BatchMeasure} are updated one example at a time.
+     */
+    private static void update(Measure m, MultiLabelOutputMatrix output, GroundTruthMatrix truth) {
+        if (m instanceof BatchMeasure) {
+            ((BatchMeasure) m).update(output, truth);
+            return;
+        }
+        for (int row = 0; row < output.getNumInstances(); row++) {
+            if (truth.hasMissingLabels(row) && !m.handlesMissingValues()) {
+                continue;
+            }
+            m.update(output.getOutput(row), truth.getGroundTruth(row));
+        }
+    }
+
     private void checkLearner(MultiLabelLearner learner) {
         if (learner == null) {
             throw new IllegalArgumentException("Learner to be evaluated is null.");
@@ -267,21 +336,19 @@ public class Evaluator {
         return measures;
     }
 
-    private boolean[] getTrueLabels(Instance instance, int numLabels, int[] labelIndices) {
+    private void setTrueLabels(GroundTruthMatrix truth, int row, Instance instance, int numLabels,
+            int[] labelIndices) {
 
-        boolean[] trueLabels = new boolean[numLabels];
         for (int counter = 0; counter < numLabels; counter++) {
             int classIdx = labelIndices[counter];
             String classValue = instance.attribute(classIdx).value((int) instance.value(classIdx));
-            trueLabels[counter] = classValue.equals("1");
+            truth.setTrueLabel(row, counter, classValue.equals("1"));
         }
-
-        return trueLabels;
     }
 
-    private double[] getTrueScores(Instance instance, int numLabels, int[] labelIndices) {
+    private void setTrueScores(GroundTruthMatrix truth, int row, Instance instance, int numLabels,
+            int[] labelIndices) {
 
-        double[] trueScores = new double[numLabels];
         for (int counter = 0; counter < numLabels; counter++) {
             int classIdx = labelIndices[counter];
             double score;
@@ -290,10 +357,8 @@ public class Evaluator {
             } else {
                 score = instance.value(classIdx);
             }
-            trueScores[counter] = score;
+            truth.setTrueValue(row, counter, score);
         }
-
-        return trueScores;
     }
 
     /**
@@ -338,37 +403,23 @@ public class Evaluator {
         Evaluation[] evaluation = new Evaluation[someFolds];
 
         Instances workingSet = new Instances(data.getDataSet());
-//      String relation_name = data.getDataSet().relationName();
         workingSet.randomize(new Random(seed));
-        for (int i = 0; i < someFolds; i++) {
-            System.out.println("Fold " + (i + 1) + "/" + someFolds);
+        if (executor == null && maxConcurrentFolds <= 1) {
+            for (int i = 0; i < someFolds; i++) {
+                evaluation[i] = evaluateFold(learner, data, workingSet, hasMeasures, measures,
+                        someFolds, i);
+            }
+        } else {
+            ExecutorService pool = executor;
+            if (pool == null) {
+                pool = Executors.newFixedThreadPool(Math.min(maxConcurrentFolds, someFolds));
+            }
             try {
-                Instances train = workingSet.trainCV(someFolds, i);
-                Instances test = workingSet.testCV(someFolds, i);
-//              String method_name = learner.getClass().getName();
-//              PrintWriter writer = new PrintWriter("/home/claudiatrevizanss/Folds/" 
-//                						+ method_name + " Fold " + (i + 1) + " " + relation_name, "UTF-8");
-//              writer.print(test.toString());
-//              writer.close();
-                
-                MultiLabelInstances mlTrain = new MultiLabelInstances(train,
-                        data.getLabelsMetaData());
-                MultiLabelInstances mlTest = new MultiLabelInstances(test, data.getLabelsMetaData());
-                MultiLabelLearner clone = learner.makeCopy();
-                clone.build(mlTrain);
-                if (hasMeasures) {
-                    evaluation[i] = evaluate(clone, mlTest, measures);
-                } else {
-                    evaluation[i] = evaluate(clone, mlTest, mlTrain);
+                evaluateFolds(pool, evaluation, learner, data, workingSet, hasMeasures, measures);
+            } finally {
+                if (pool != executor) {
+                    pool.shutdown();
                 }
-                measures = null;
-                clone = null;
-                mlTest = null;
-                train = null;
-                test = null;
-                System.gc();
-            } catch (Exception ex) {
-                Logger.getLogger(Evaluator.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
         MultipleEvaluation me = new MultipleEvaluation(evaluation, data);
@@ -376,6 +427,78 @@ public class Evaluator {
         return me;
     }
 
+    /**
+     * Runs the folds on an executor, with at most {@link #maxConcurrentFolds} of them submitted
+     * and not yet finished at any time. Each fold writes its own slot of the result array, so
+     * the result is the same as running the folds in sequence.
+     */
+    private void evaluateFolds(ExecutorService pool, final Evaluation[] evaluation,
+            final MultiLabelLearner learner, final MultiLabelInstances data,
+            final Instances workingSet, final boolean hasMeasures, final List<Measure> measures) {
+        final int someFolds = evaluation.length;
+        final Semaphore slots = new Semaphore(Math.max(1, maxConcurrentFolds));
+        List<Future<?>> folds = new ArrayList<Future<?>>();
+        try {
+            for (int i = 0; i < someFolds; i++) {
+                final int fold = i;
+                slots.acquire();
+                try {
+                    folds.add(pool.submit(new Runnable() {
+                        public void run() {
+                            try {
+                                evaluation[fold] = evaluateFold(learner, data, workingSet,
+                                        hasMeasures, measures, someFolds, fold);
+                            } finally {
+                                slots.release();
+                            }
+                        }
+                    }));
+                } catch (RejectedExecutionException ex) {
+                    slots.release();
+                    throw ex;
+                }
+            }
+            for (Future<?> fold : folds) {
+                fold.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.getLogger(Evaluator.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (ExecutionException ex) {
+            Logger.getLogger(Evaluator.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private Evaluation evaluateFold(MultiLabelLearner learner, MultiLabelInstances data,
+            Instances workingSet, boolean hasMeasures, List<Measure> measures, int someFolds,
+            int fold) {
+        System.out.println("Fold " + (fold + 1) + "/" + someFolds);
+        try {
+            Instances train = workingSet.trainCV(someFolds, fold);
+            Instances test = workingSet.testCV(someFolds, fold);
+            MultiLabelInstances mlTrain = new MultiLabelInstances(train, data.getLabelsMetaData());
+            if (resampler != null) {
+                mlTrain = resampler.makeCopy(mlTrain).resample();
+            }
+            MultiLabelInstances mlTest = new MultiLabelInstances(test, data.getLabelsMetaData());
+            MultiLabelLearner clone = learner.makeCopy();
+            clone.build(mlTrain);
+            if (hasMeasures) {
+                // every fold keeps its own measures, which are held by its evaluation
+                List<Measure> foldMeasures = new ArrayList<Measure>(measures.size());
+                for (Measure m : measures) {
+                    foldMeasures.add(m.makeCopy());
+                }
+                return evaluate(clone, mlTest, foldMeasures);
+            } else {
+                return evaluate(clone, mlTest, mlTrain);
+            }
+        } catch (Exception ex) {
+            Logger.getLogger(Evaluator.class.getName()).log(Level.SEVERE, null, ex);
+            return null;
+        }
+    }
+
 	/**
      * Evaluates a {@link ClusWrapperClassification} on given test data set using specified
      * evaluation measures
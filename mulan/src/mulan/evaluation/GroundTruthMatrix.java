@@ -0,0 +1,133 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.evaluation;
+
+/**
+ * Class representing the ground truth of a batch of instances, the counterpart of
+ * {@link GroundTruth} for a {@link mulan.classifier.MultiLabelOutputMatrix}. The true
+ * labels (classification) or true values (regression) are kept in a single array with
+ * one row per instance, together with whether each instance has missing labels.
+ */
+public class GroundTruthMatrix {
+
+    private final int numInstances;
+
+    private final int numLabels;
+
+    private boolean[] trueLabels;
+
+    private double[] trueValues;
+
+    private final boolean[] missingLabels;
+
+    /**
+     * Creates a ground truth matrix with all labels false (classification) or zero
+     * (regression)
+     *
+     * @param numInstances the number of instances
+     * @param numLabels the number of labels
+     * @param isRegression whether the targets are continuous
+     */
+    public GroundTruthMatrix(int numInstances, int numLabels, boolean isRegression) {
+        this.numInstances = numInstances;
+        this.numLabels = numLabels;
+        if (isRegression) {
+            trueValues = new double[numInstances * numLabels];
+        } else {
+            trueLabels = new boolean[numInstances * numLabels];
+        }
+        missingLabels = new boolean[numInstances];
+    }
+
+    /**
+     * Determines whether the {@link GroundTruthMatrix} is for a classification problem.
+     *
+     * @return <code>true</code> if is classification; otherwise <code>false</code>
+     */
+    public boolean isClassification() {
+        return (trueLabels != null);
+    }
+
+    /**
+     * Determines whether the {@link GroundTruthMatrix} is for a regression problem.
+     *
+     * @return <code>true</code> if is regression; otherwise <code>false</code>
+     */
+    public boolean isRegression() {
+        return (trueValues != null);
+    }
+
+    public int getNumInstances() {
+        return numInstances;
+    }
+
+    public int getNumLabels() {
+        return numLabels;
+    }
+
+    public void setTrueLabel(int row, int label, boolean value) {
+        trueLabels[row * numLabels + label] = value;
+    }
+
+    public void setTrueValue(int row, int label, double value) {
+        trueValues[row * numLabels + label] = value;
+    }
+
+    public void setMissingLabels(int row, boolean value) {
+        missingLabels[row] = value;
+    }
+
+    public boolean hasMissingLabels(int row) {
+        return missingLabels[row];
+    }
+
+    /**
+     * Copies the true labels of an instance into an array of the caller
+     *
+     * @param row the position of the instance in the batch
+     * @param someLabels an array with one element per label
+     */
+    public void copyTrueLabels(int row, boolean[] someLabels) {
+        System.arraycopy(trueLabels, row * numLabels, someLabels, 0, numLabels);
+    }
+
+    /**
+     * Copies the true values of an instance into an array of the caller
+     *
+     * @param row the position of the instance in the batch
+     * @param someValues an array with one element per label
+     */
+    public void copyTrueValues(int row, double[] someValues) {
+        System.arraycopy(trueValues, row * numLabels, someValues, 0, numLabels);
+    }
+
+    /**
+     * Returns the ground truth of an instance
+     *
+     * @param row the position of the instance in the batch
+     * @return a new ground truth with the true labels or values of the instance
+     */
+    public GroundTruth getGroundTruth(int row) {
+        if (isRegression()) {
+            double[] someValues = new double[numLabels];
+            copyTrueValues(row, someValues);
+            return new GroundTruth(someValues);
+        }
+        boolean[] someLabels = new boolean[numLabels];
+        copyTrueLabels(row, someLabels);
+        return new GroundTruth(someLabels);
+    }
+}
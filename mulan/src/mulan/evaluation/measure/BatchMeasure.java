@@ -0,0 +1,40 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.evaluation.measure;
+
+import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
+import mulan.evaluation.GroundTruth;
+import mulan.evaluation.GroundTruthMatrix;
+
+/**
+ * Interface for a measure that can be updated with the predictions of a whole batch
+ * of examples at once. Measures that do not implement it are updated one example at a
+ * time by the {@link mulan.evaluation.Evaluator}.
+ */
+public interface BatchMeasure extends Measure {
+
+    /**
+     * Updates the measure with the predictions for a batch of examples, with the same result
+     * as calling {@link Measure#update(MultiLabelOutput, GroundTruth)} for each row in turn.
+     * Examples with missing labels are skipped, unless the measure handles missing values.
+     *
+     * @param predictions the predictions of the batch, one row per example
+     * @param truth ground truth of the batch, one row per example
+     * @see Measure#handlesMissingValues()
+     */
+    void update(MultiLabelOutputMatrix predictions, GroundTruthMatrix truth);
+}
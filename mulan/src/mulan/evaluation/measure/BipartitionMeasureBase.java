@@ -16,6 +16,7 @@
 package mulan.evaluation.measure;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.core.ArgumentNullException;
 
 /**
@@ -25,6 +26,9 @@ import mulan.core.ArgumentNullException;
  */
 public abstract class BipartitionMeasureBase extends ClassificationMeasureBase {
 
+    /** bipartition of the current example of a batch **/
+    private transient boolean[] rowBipartition;
+
     protected void updateInternal(MultiLabelOutput prediction, boolean[] truth) {
         boolean[] bipartition = prediction.getBipartition();
         if (bipartition == null) {
@@ -37,6 +41,22 @@ public abstract class BipartitionMeasureBase extends ClassificationMeasureBase {
         updateBipartition(bipartition, truth);
     }
 
+    @Override
+    protected void updateInternal(MultiLabelOutputMatrix predictions, int row, boolean[] truth) {
+        if (!predictions.hasBipartitions()) {
+            throw new ArgumentNullException("Bipartition is null");
+        }
+        if (predictions.getNumLabels() != truth.length) {
+            throw new IllegalArgumentException("The dimensions of the " +
+                    "bipartition and the ground truth array do not match");
+        }
+        if (rowBipartition == null || rowBipartition.length != truth.length) {
+            rowBipartition = new boolean[truth.length];
+        }
+        predictions.copyBipartition(row, rowBipartition);
+        updateBipartition(rowBipartition, truth);
+    }
+
     /**
      * Updates the measure based on an example
      *
@@ -18,14 +18,16 @@ package mulan.evaluation.measure;
 import java.io.Serializable;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.core.ArgumentNullException;
 import mulan.evaluation.GroundTruth;
+import mulan.evaluation.GroundTruthMatrix;
 import weka.core.SerializedObject;
 
 /**
  * @author Grigorios Tsoumakas
  */
-public abstract class ClassificationMeasureBase implements Measure, Serializable {
+public abstract class ClassificationMeasureBase implements BatchMeasure, Serializable {
 
     public final void update(MultiLabelOutput prediction, GroundTruth truth) {
         if (prediction == null) {
@@ -42,6 +44,31 @@ public abstract class ClassificationMeasureBase implements Measure, Serializable
          
     }
 
+    public final void update(MultiLabelOutputMatrix predictions, GroundTruthMatrix truth) {
+        if (predictions == null) {
+            throw new ArgumentNullException("Predictions are null");
+        }
+        if (truth == null) {
+            throw new ArgumentNullException("Ground truth is null");
+        }
+        if (!truth.isClassification()) {
+            throw new ArgumentNullException("Classification ground truth is null");
+        }
+        if (predictions.getNumInstances() != truth.getNumInstances()) {
+            throw new IllegalArgumentException("The number of predictions and " +
+                    "ground truth rows do not match");
+        }
+
+        boolean[] trueLabels = new boolean[truth.getNumLabels()];
+        for (int row = 0; row < predictions.getNumInstances(); row++) {
+            if (truth.hasMissingLabels(row) && !handlesMissingValues()) {
+                continue;
+            }
+            truth.copyTrueLabels(row, trueLabels);
+            updateInternal(predictions, row, trueLabels);
+        }
+    }
+
     /**
      * Returns a string with the value of a measure
      *
@@ -65,6 +92,20 @@ public abstract class ClassificationMeasureBase implements Measure, Serializable
      */
     protected abstract void updateInternal(MultiLabelOutput prediction, boolean[] truth);
 
+    /**
+     * Updates the classification measure based on an example of a batch. By default the
+     * output of the example is taken out of the batch and passed to
+     * {@link #updateInternal(MultiLabelOutput, boolean[])}; the bases of measures that only
+     * look at one kind of output read it from the batch directly.
+     *
+     * @param predictions the outputs of the algorithm for the batch
+     * @param row the position of the example in the batch
+     * @param truth the ground truth of the example
+     */
+    protected void updateInternal(MultiLabelOutputMatrix predictions, int row, boolean[] truth) {
+        updateInternal(predictions.getOutput(row), truth);
+    }
+
     public Measure makeCopy() throws Exception {
         return (Measure) new SerializedObject(this).getObject();
     }
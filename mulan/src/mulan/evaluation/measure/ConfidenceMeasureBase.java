@@ -16,6 +16,7 @@
 package mulan.evaluation.measure;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.core.ArgumentNullException;
 
 /**
@@ -25,11 +26,14 @@ import mulan.core.ArgumentNullException;
  */
 public abstract class ConfidenceMeasureBase extends ClassificationMeasureBase {
 
+    /** confidences of the current example of a batch **/
+    private transient double[] rowConfidences;
+
     @Override
     protected void updateInternal(MultiLabelOutput prediction, boolean[] truth) {
         double[] confidences = prediction.getConfidences();
         if (confidences == null) {
-            throw new ArgumentNullException("Bipartition is null");
+            throw new ArgumentNullException("Confidences are null");
         }
         if (confidences.length != truth.length) {
             throw new IllegalArgumentException("The dimensions of the " +
@@ -38,6 +42,22 @@ public abstract class ConfidenceMeasureBase extends ClassificationMeasureBase {
         updateConfidence(confidences, truth);
     }
 
+    @Override
+    protected void updateInternal(MultiLabelOutputMatrix predictions, int row, boolean[] truth) {
+        if (!predictions.hasConfidences()) {
+            throw new ArgumentNullException("Confidences are null");
+        }
+        if (predictions.getNumLabels() != truth.length) {
+            throw new IllegalArgumentException("The dimensions of the " +
+                    "confidence array and the ground truth array do not match");
+        }
+        if (rowConfidences == null || rowConfidences.length != truth.length) {
+            rowConfidences = new double[truth.length];
+        }
+        predictions.copyConfidences(row, rowConfidences);
+        updateConfidence(rowConfidences, truth);
+    }
+
     /**
      * Updates the measure for a new example
      *
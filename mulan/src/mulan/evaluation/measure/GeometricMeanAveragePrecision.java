@@ -32,6 +32,17 @@ public class GeometricMeanAveragePrecision extends MeanAveragePrecision {
         super(numOfLabels);
     }
 
+    /**
+     * Creates a new instance of this class, which counts the confidences in a
+     * number of bins
+     * 
+     * @param numOfLabels the number of labels
+     * @param numBins the number of bins of equal width in [0,1]
+     */
+    public GeometricMeanAveragePrecision(int numOfLabels, int numBins) {
+        super(numOfLabels, numBins);
+    }
+
     @Override
     public String getName() {
         return "Geometric Mean Average Precision";
@@ -46,6 +57,27 @@ public class GeometricMeanAveragePrecision extends MeanAveragePrecision {
         return Math.pow(product, 1.0 / numOfLabels);
     }
 
+    /**
+     * Returns the bound of the absolute error of the value of the measure, which
+     * is 0 in the exact mode. It is the largest distance of the value from the
+     * geometric means of the lowest and of the highest average precisions of
+     * the labels.
+     *
+     * @return the error bound
+     */
+    @Override
+    public double getErrorBound() {
+        double lowest = 1, highest = 1;
+        for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            double[] ap = labelAveragePrecision(labelIndex);
+            lowest = lowest * (ap[0] - ap[1]);
+            highest = highest * (ap[0] + ap[1]);
+        }
+        double value = getValue();
+        return Math.max(value - Math.pow(lowest, 1.0 / numOfLabels),
+                Math.pow(highest, 1.0 / numOfLabels) - value);
+    }
+
     @Override
     public double getIdealValue() {
         return 1;
@@ -19,7 +19,10 @@ import weka.classifiers.evaluation.NominalPrediction;
 import weka.core.FastVector;
 
 /**
- * Implementation of the label-based macro precision measure.
+ * Base class for the label-based AUC measures. The confidences are either kept
+ * and sorted once when the measure is calculated (exact mode), or counted in a
+ * number of bins of [0,1], which takes constant memory but gives an approximate
+ * value with a known bound of its error (binned mode).
  * 
  * @author Grigorios Tsoumakas
  * @version 2012.07.17
@@ -28,56 +31,170 @@ public abstract class LabelBasedAUC extends ConfidenceMeasureBase {
 
     /** The number of labels */
     protected int numOfLabels;
-    /** The predictions for each label */
+    /** The confidences and the ground truth for each label */
+    private LabelConfidences[] labelConfidences;
+    /**
+     * The predictions for each label, filled by {@link #getPredictions()}
+     *
+     * @deprecated the predictions are kept by the measure itself
+     */
+    @Deprecated
     protected FastVector[] m_Predictions;
-    /** The predictions for all labels */
+    /**
+     * The predictions for all labels, filled by {@link #getAllPredictions()}
+     *
+     * @deprecated the predictions are kept by the measure itself
+     */
+    @Deprecated
     protected FastVector all_Predictions;
+    /** Whether the deprecated predictions are filled since the last change */
+    private transient boolean predictionsFilled;
+    /** The area under the ROC curve of all labels and its error bound */
+    private transient double[] allAUC;
 
     /**
-     * Creates a new instance of this class
+     * Creates a new instance of this class in the exact mode
      * 
      * @param numOfLabels the number of labels
      */
     public LabelBasedAUC(int numOfLabels) {
         this.numOfLabels = numOfLabels;
-        m_Predictions = new FastVector[numOfLabels];
+        labelConfidences = new LabelConfidences[numOfLabels];
+        for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            labelConfidences[labelIndex] = new LabelConfidences();
+        }
+    }
+
+    /**
+     * Creates a new instance of this class in the binned mode. The error of the
+     * value is at most half the fraction of pairs of a relevant and an
+     * irrelevant example that fall in the same bin, see {@link #getErrorBound()}.
+     * 
+     * @param numOfLabels the number of labels
+     * @param numBins the number of bins of equal width in [0,1]
+     */
+    public LabelBasedAUC(int numOfLabels, int numBins) {
+        this.numOfLabels = numOfLabels;
+        labelConfidences = new LabelConfidences[numOfLabels];
         for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
-            m_Predictions[labelIndex] = new FastVector();
+            labelConfidences[labelIndex] = new LabelConfidences(numBins);
         }
-        all_Predictions = new FastVector();
     }
 
     @Override
     public void reset() {
         for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
-            m_Predictions[labelIndex] = new FastVector();
+            labelConfidences[labelIndex].clear();
         }
-        all_Predictions = new FastVector();
+        allAUC = null;
+        predictionsFilled = false;
     }
 
     @Override
     public double getIdealValue() {
         return 1;
     }
-   
+
+    /**
+     * Returns the bound of the absolute error of the value of the measure, which
+     * is 0 in the exact mode. In the binned mode it is by default the largest
+     * bound of the area of a label or of all labels together, which also bounds
+     * the error of any average of these areas.
+     *
+     * @return the error bound
+     */
+    public double getErrorBound() {
+        if (numOfLabels == 0 || labelConfidences[0].isExact()) {
+            return 0;
+        }
+        double bound = allAUC()[1];
+        for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            bound = Math.max(bound, labelAUC(labelIndex)[1]);
+        }
+        return bound;
+    }
+
     @Override
     protected void updateConfidence(double[] confidences, boolean[] truth) {
         for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            labelConfidences[labelIndex].add(confidences[labelIndex], truth[labelIndex]);
+        }
+        allAUC = null;
+        predictionsFilled = false;
+    }
+
+    /**
+     * Fills {@link #m_Predictions} with the predictions of the examples for each
+     * label and returns it, for the subclasses that still use them
+     *
+     * @return the predictions for each label
+     * @throws IllegalStateException in the binned mode
+     * @deprecated use {@link #labelAUC(int)}
+     */
+    @Deprecated
+    protected FastVector[] getPredictions() {
+        fillPredictions();
+        return m_Predictions;
+    }
 
-            int classValue;
-            boolean actual = truth[labelIndex];
-            if (actual) {
-                classValue = 1;
-            } else {
-                classValue = 0;
+    /**
+     * Fills {@link #all_Predictions} with the predictions of the examples for
+     * all labels and returns it, for the subclasses that still use them
+     *
+     * @return the predictions for all labels
+     * @throws IllegalStateException in the binned mode
+     * @deprecated use {@link #allAUC()}
+     */
+    @Deprecated
+    protected FastVector getAllPredictions() {
+        fillPredictions();
+        return all_Predictions;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void fillPredictions() {
+        if (predictionsFilled) {
+            return;
+        }
+        int numExamples = (numOfLabels == 0) ? 0 : labelConfidences[0].size();
+        m_Predictions = new FastVector[numOfLabels];
+        for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            m_Predictions[labelIndex] = new FastVector(numExamples);
+        }
+        all_Predictions = new FastVector(numExamples * numOfLabels);
+        for (int example = 0; example < numExamples; example++) {
+            for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+                double[] dist = new double[2];
+                dist[1] = labelConfidences[labelIndex].confidence(example);
+                dist[0] = 1 - dist[1];
+                int classValue = labelConfidences[labelIndex].actual(example) ? 1 : 0;
+                m_Predictions[labelIndex].addElement(new NominalPrediction(classValue, dist, 1));
+                all_Predictions.addElement(new NominalPrediction(classValue, dist, 1));
             }
+        }
+        predictionsFilled = true;
+    }
 
-            double[] dist = new double[2];
-            dist[1] = confidences[labelIndex];
-            dist[0] = 1 - dist[1];
+    /**
+     * Returns the area under the ROC curve of a label and the bound of its error
+     *
+     * @param labelIndex the index of the label
+     * @return the area and its error bound
+     */
+    protected double[] labelAUC(int labelIndex) {
+        return labelConfidences[labelIndex].auc();
+    }
 
-            m_Predictions[labelIndex].addElement(new NominalPrediction(classValue, dist, 1));
-            all_Predictions.addElement(new NominalPrediction(classValue, dist, 1));
+    /**
+     * Returns the area under the ROC curve of the predictions for all labels
+     * together and the bound of its error
+     *
+     * @return the area and its error bound
+     */
+    protected double[] allAUC() {
+        if (allAUC == null) {
+            allAUC = LabelConfidences.auc(labelConfidences);
         }
+        return allAUC;
     }
 }
\ No newline at end of file
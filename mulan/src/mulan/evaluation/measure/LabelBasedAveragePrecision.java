@@ -20,6 +20,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * Base class for the measures of the average precision of the ranking of the
+ * examples for each label. The confidences are either kept and sorted once when
+ * the measure is calculated (exact mode), or counted in a number of bins of [0,1],
+ * which takes constant memory but gives an approximate value with a known bound
+ * of its error (binned mode).
  * 
  * @author Eleftherios Spyromitros-Xioufis
  * @version 2010.12.04
@@ -28,45 +33,123 @@ public abstract class LabelBasedAveragePrecision extends ConfidenceMeasureBase {
 
     /** the number of labels */
     protected int numOfLabels;
-    /** collection that stores all predictions and ground truths */
+    /** the confidences and the ground truth for each label */
+    private LabelConfidences[] labelConfidences;
+    /**
+     * collection that stores all predictions and ground truths, filled by
+     * {@link #getConfact()}
+     *
+     * @deprecated the predictions are kept by the measure itself
+     */
+    @Deprecated
     protected List<ConfidenceActual>[] confact;
+    /** whether confact is filled since the last change */
+    private transient boolean confactFilled;
 
     /**
-     * Creates a new instance of this class
+     * Creates a new instance of this class in the exact mode
      *
      * @param numOfLabels the number of labels
      */
     public LabelBasedAveragePrecision(int numOfLabels) {
         this.numOfLabels = numOfLabels;
-        confact = new ArrayList[numOfLabels];
+        labelConfidences = new LabelConfidences[numOfLabels];
         for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
-            confact[labelIndex] = new ArrayList<>();
+            labelConfidences[labelIndex] = new LabelConfidences();
+        }
+    }
+
+    /**
+     * Creates a new instance of this class in the binned mode. The average
+     * precision of a label is the middle of its lowest and highest value for
+     * any order of the examples within the bins.
+     *
+     * @param numOfLabels the number of labels
+     * @param numBins the number of bins of equal width in [0,1]
+     */
+    public LabelBasedAveragePrecision(int numOfLabels, int numBins) {
+        this.numOfLabels = numOfLabels;
+        labelConfidences = new LabelConfidences[numOfLabels];
+        for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            labelConfidences[labelIndex] = new LabelConfidences(numBins);
         }
     }
 
     @Override
     protected void updateConfidence(double[] confidences, boolean[] truth) {
         for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
-            boolean actual = truth[labelIndex];
-            // boolean predicted = bipartition[labelIndex];
-            double confidence = confidences[labelIndex];
-            // another metric...
-            // if (predicted) {
-            confact[labelIndex].add(new ConfidenceActual(confidence, actual));
-            // }
+            labelConfidences[labelIndex].add(confidences[labelIndex], truth[labelIndex]);
         }
+        confactFilled = false;
     }
 
     @Override
     public void reset() {
         for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
-            confact[labelIndex].clear();
+            labelConfidences[labelIndex].clear();
+        }
+        confactFilled = false;
+    }
+
+    /**
+     * Fills {@link #confact} with the confidences and the ground truth of the
+     * examples for each label and returns it, for the subclasses that still use
+     * them
+     *
+     * @return the confidences and the ground truth for each label
+     * @throws IllegalStateException in the binned mode
+     * @deprecated use {@link #labelAveragePrecision(int)} or
+     * {@link #rankedActuals(int)}
+     */
+    @Deprecated
+    @SuppressWarnings({"deprecation", "unchecked"})
+    protected List<ConfidenceActual>[] getConfact() {
+        if (!confactFilled) {
+            confact = new ArrayList[numOfLabels];
+            for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+                LabelConfidences label = labelConfidences[labelIndex];
+                int numExamples = label.size();
+                confact[labelIndex] = new ArrayList<ConfidenceActual>(numExamples);
+                for (int example = 0; example < numExamples; example++) {
+                    confact[labelIndex].add(new ConfidenceActual(label.confidence(example), label.actual(example)));
+                }
+            }
+            confactFilled = true;
         }
+        return confact;
+    }
+
+    /**
+     * Returns the average precision of a label and the bound of its error. If
+     * there are no relevant examples for the label, the average precision is
+     * {@link Double#NaN}.
+     *
+     * @param labelIndex the index of the label
+     * @return the average precision and its error bound
+     */
+    protected double[] labelAveragePrecision(int labelIndex) {
+        return labelConfidences[labelIndex].averagePrecision();
+    }
+
+    /**
+     * Returns the ground truth of the examples for a label, in decreasing order
+     * of their confidence. Examples with equal confidences are in the order they
+     * were added.
+     *
+     * @param labelIndex the index of the label
+     * @return the ground truth of the ranked examples
+     * @throws IllegalStateException in the binned mode
+     */
+    protected boolean[] rankedActuals(int labelIndex) {
+        return labelConfidences[labelIndex].rankedActuals();
     }
 
     /**
      * Class that stores a confidence and a ground truth for one label/example
+     *
+     * @deprecated only used by {@link #confact}
      */
+    @Deprecated
     protected class ConfidenceActual implements Comparable, Serializable {
 
         private boolean actual;
@@ -0,0 +1,348 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.evaluation.measure;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The confidences of the examples for a label, together with their ground truth,
+ * as needed by the ranking measures of a label. In the exact mode the confidences
+ * are kept in primitive arrays and sorted once when a measure is calculated. In
+ * the binned mode the range [0,1] is split into a number of bins of equal width
+ * and only the number of relevant and irrelevant examples of each bin is kept, so
+ * the memory does not depend on the number of examples. Confidences outside [0,1]
+ * are counted in the first or the last bin. As the order of the examples within
+ * a bin is not known, the measures of the binned mode come with a bound of their
+ * absolute error.
+ */
+final class LabelConfidences implements Serializable {
+
+    private static final long serialVersionUID = 5017453386734823316L;
+    /** the number of bins, 0 in the exact mode */
+    private final int numBins;
+    /** the confidences of the examples in the order they were added (exact mode) */
+    private double[] confidences;
+    /** the ground truth of the examples in the order they were added (exact mode) */
+    private boolean[] actuals;
+    /** the number of examples (exact mode) */
+    private int size;
+    /** the number of relevant examples of each bin (binned mode) */
+    private long[] binRelevant;
+    /** the number of irrelevant examples of each bin (binned mode) */
+    private long[] binIrrelevant;
+    /** the area under the ROC curve and its error bound, null if not calculated since the last change */
+    private transient double[] auc;
+    /** the average precision and its error bound, null if not calculated since the last change */
+    private transient double[] averagePrecision;
+
+    /**
+     * Creates an empty collection in the exact mode
+     */
+    LabelConfidences() {
+        numBins = 0;
+        confidences = new double[16];
+        actuals = new boolean[16];
+    }
+
+    /**
+     * Creates an empty collection in the binned mode
+     *
+     * @param numBins the number of bins of [0,1]
+     */
+    LabelConfidences(int numBins) {
+        if (numBins < 1) {
+            throw new IllegalArgumentException("The number of bins must be positive.");
+        }
+        this.numBins = numBins;
+        binRelevant = new long[numBins];
+        binIrrelevant = new long[numBins];
+    }
+
+    /**
+     * Returns whether the collection keeps the confidences of the examples
+     *
+     * @return true in the exact mode, false in the binned mode
+     */
+    boolean isExact() {
+        return numBins == 0;
+    }
+
+    /**
+     * Returns the number of examples added since the last clearing
+     *
+     * @return the number of examples
+     * @throws IllegalStateException in the binned mode
+     */
+    int size() {
+        checkExact();
+        return size;
+    }
+
+    /**
+     * Returns the confidence of an example
+     *
+     * @param index the index of the example, in the order they were added
+     * @return the confidence of the example
+     * @throws IllegalStateException in the binned mode
+     */
+    double confidence(int index) {
+        checkExact();
+        return confidences[index];
+    }
+
+    /**
+     * Returns the ground truth of an example
+     *
+     * @param index the index of the example, in the order they were added
+     * @return whether the label is relevant to the example
+     * @throws IllegalStateException in the binned mode
+     */
+    boolean actual(int index) {
+        checkExact();
+        return actuals[index];
+    }
+
+    private void checkExact() {
+        if (!isExact()) {
+            throw new IllegalStateException("The examples are not kept in the binned mode.");
+        }
+    }
+
+    /**
+     * Adds the confidence and the ground truth of an example
+     *
+     * @param confidence the confidence of the example
+     * @param actual whether the label is relevant to the example
+     */
+    void add(double confidence, boolean actual) {
+        auc = null;
+        averagePrecision = null;
+        if (isExact()) {
+            if (size == confidences.length) {
+                confidences = Arrays.copyOf(confidences, 2 * size);
+                actuals = Arrays.copyOf(actuals, 2 * size);
+            }
+            // -0.0 and 0.0 are equal confidences
+            confidences[size] = confidence + 0.0;
+            actuals[size] = actual;
+            size++;
+        } else {
+            int bin = (confidence >= 1) ? numBins - 1 : (confidence > 0) ? (int) (confidence * numBins) : 0;
+            if (actual) {
+                binRelevant[bin]++;
+            } else {
+                binIrrelevant[bin]++;
+            }
+        }
+    }
+
+    /**
+     * Removes all the examples
+     */
+    void clear() {
+        auc = null;
+        averagePrecision = null;
+        if (isExact()) {
+            size = 0;
+        } else {
+            Arrays.fill(binRelevant, 0);
+            Arrays.fill(binIrrelevant, 0);
+        }
+    }
+
+    /**
+     * Returns the ground truth of the examples, in decreasing order of their
+     * confidence. Examples with equal confidences are in the order they were
+     * added.
+     *
+     * @return the ground truth of the ranked examples
+     * @throws IllegalStateException in the binned mode
+     */
+    boolean[] rankedActuals() {
+        checkExact();
+        int[] ranking = ranking();
+        boolean[] ranked = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            ranked[i] = actuals[ranking[i]];
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns the examples in decreasing order of their confidence, examples with
+     * equal confidences in the order they were added.
+     */
+    private int[] ranking() {
+        double[] sorted = Arrays.copyOf(confidences, size);
+        Arrays.sort(sorted);
+        int numGroups = distinct(sorted);
+        // groups in decreasing order of confidence
+        int[] groupStart = new int[numGroups + 1];
+        int[] group = new int[size];
+        for (int i = 0; i < size; i++) {
+            group[i] = numGroups - 1 - Arrays.binarySearch(sorted, 0, numGroups, confidences[i]);
+            groupStart[group[i] + 1]++;
+        }
+        for (int g = 0; g < numGroups; g++) {
+            groupStart[g + 1] += groupStart[g];
+        }
+        int[] ranking = new int[size];
+        for (int i = 0; i < size; i++) {
+            ranking[groupStart[group[i]]++] = i;
+        }
+        return ranking;
+    }
+
+    /**
+     * Moves the distinct values of a sorted array to its beginning
+     *
+     * @return the number of distinct values
+     */
+    private static int distinct(double[] sorted) {
+        int numDistinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (numDistinct == 0 || Double.compare(sorted[i], sorted[numDistinct - 1]) != 0) {
+                sorted[numDistinct++] = sorted[i];
+            }
+        }
+        return numDistinct;
+    }
+
+    /**
+     * Counts the relevant and irrelevant examples of a number of labels for each
+     * distinct confidence (exact mode) or each bin (binned mode), in increasing
+     * order of confidence.
+     *
+     * @return the relevant counts in the first and the irrelevant counts in the
+     * second row
+     */
+    private static long[][] countsByConfidence(LabelConfidences... labels) {
+        if (!labels[0].isExact()) {
+            int numBins = labels[0].numBins;
+            long[][] counts = new long[2][numBins];
+            for (LabelConfidences label : labels) {
+                for (int b = 0; b < numBins; b++) {
+                    counts[0][b] += label.binRelevant[b];
+                    counts[1][b] += label.binIrrelevant[b];
+                }
+            }
+            return counts;
+        }
+        int total = 0;
+        for (LabelConfidences label : labels) {
+            total += label.size;
+        }
+        double[] sorted = new double[total];
+        int offset = 0;
+        for (LabelConfidences label : labels) {
+            System.arraycopy(label.confidences, 0, sorted, offset, label.size);
+            offset += label.size;
+        }
+        Arrays.sort(sorted);
+        int numGroups = distinct(sorted);
+        long[][] counts = new long[2][numGroups];
+        for (LabelConfidences label : labels) {
+            for (int i = 0; i < label.size; i++) {
+                int g = Arrays.binarySearch(sorted, 0, numGroups, label.confidences[i]);
+                counts[label.actuals[i] ? 0 : 1][g]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Calculates the area under the ROC curve of the label, see
+     * {@link #auc(LabelConfidences...)}.
+     *
+     * @return the area under the ROC curve and the bound of its absolute error
+     */
+    double[] auc() {
+        if (auc == null) {
+            auc = auc(this);
+        }
+        return auc;
+    }
+
+    /**
+     * Calculates the area under the ROC curve of a number of labels together.
+     * Pairs of a relevant and an irrelevant example with equal confidences (or in
+     * the same bin) count as half correctly ordered. When there are no relevant or
+     * no irrelevant examples, the area is {@link Double#NaN}.
+     *
+     * @param labels the labels, all in the same mode
+     * @return the area under the ROC curve and the bound of its absolute error
+     */
+    static double[] auc(LabelConfidences... labels) {
+        long[][] counts = countsByConfidence(labels);
+        double area = 0, ties = 0, cumIrrelevant = 0, totalRelevant = 0;
+        for (int g = 0; g < counts[0].length; g++) {
+            area += counts[0][g] * (cumIrrelevant + 0.5 * counts[1][g]);
+            ties += (double) counts[0][g] * counts[1][g];
+            cumIrrelevant += counts[1][g];
+            totalRelevant += counts[0][g];
+        }
+        double pairs = totalRelevant * cumIrrelevant;
+        double errorBound = labels[0].isExact() ? 0 : 0.5 * ties / pairs;
+        return new double[]{area / pairs, errorBound};
+    }
+
+    /**
+     * Calculates the average precision of the ranking of the examples. In the
+     * exact mode, examples with equal confidences are ranked in the order they
+     * were added. In the binned mode, the value is the middle of the lowest and
+     * the highest average precision for any order of the examples within the
+     * bins. When there are no relevant examples, the average precision is
+     * {@link Double#NaN}.
+     *
+     * @return the average precision and the bound of its absolute error
+     */
+    double[] averagePrecision() {
+        if (averagePrecision == null) {
+            averagePrecision = calculateAveragePrecision();
+        }
+        return averagePrecision;
+    }
+
+    private double[] calculateAveragePrecision() {
+        if (isExact()) {
+            double ap = 0;
+            double retrievedCounter = 0, relevantCounter = 0;
+            for (int i : ranking()) {
+                retrievedCounter++;
+                if (actuals[i]) {
+                    relevantCounter++;
+                    ap += relevantCounter / retrievedCounter;
+                }
+            }
+            return new double[]{ap / relevantCounter, 0};
+        }
+        double best = 0, worst = 0;
+        long above = 0, relevantAbove = 0;
+        for (int b = numBins - 1; b >= 0; b--) {
+            long relevant = binRelevant[b];
+            long irrelevant = binIrrelevant[b];
+            // the relevant examples of the bin ranked first or last within the bin
+            for (long k = 1; k <= relevant; k++) {
+                best += (double) (relevantAbove + k) / (above + k);
+                worst += (double) (relevantAbove + k) / (above + irrelevant + k);
+            }
+            above += relevant + irrelevant;
+            relevantAbove += relevant;
+        }
+        return new double[]{(best + worst) / 2 / relevantAbove, (best - worst) / 2 / relevantAbove};
+    }
+}
@@ -15,10 +15,6 @@
  */
 package mulan.evaluation.measure;
 
-import weka.classifiers.evaluation.ThresholdCurve;
-import weka.core.Instances;
-import weka.core.Utils;
-
 /**
  * Implementation of the macro-averaged AUC measure.
  *
@@ -36,6 +32,17 @@ public class MacroAUC extends LabelBasedAUC implements MacroAverageMeasure {
         super(numOfLabels);
     }
 
+    /**
+     * Creates a new instance of this class, which counts the confidences in a
+     * number of bins
+     *
+     * @param numOfLabels the number of labels
+     * @param numBins the number of bins of equal width in [0,1]
+     */
+    public MacroAUC(int numOfLabels, int numBins) {
+        super(numOfLabels, numBins);
+    }
+
     @Override
     public String getName() {
         return "Macro-averaged AUC";
@@ -43,13 +50,11 @@ public class MacroAUC extends LabelBasedAUC implements MacroAverageMeasure {
 
     @Override
     public double getValue() {
-        double[] labelAUC = new double[numOfLabels];
+        double sum = 0;
         for (int i = 0; i < numOfLabels; i++) {
-            ThresholdCurve tc = new ThresholdCurve();
-            Instances result = tc.getCurve(m_Predictions[i], 1);
-            labelAUC[i] = ThresholdCurve.getROCArea(result);
+            sum += getValue(i);
         }
-        return Utils.mean(labelAUC);
+        return sum / numOfLabels;
     }
 
     /**
@@ -60,9 +65,25 @@ public class MacroAUC extends LabelBasedAUC implements MacroAverageMeasure {
      */
     @Override
     public double getValue(int labelIndex) {
-        ThresholdCurve tc = new ThresholdCurve();
-        Instances result = tc.getCurve(m_Predictions[labelIndex], 1);
-        return ThresholdCurve.getROCArea(result);  
+        return labelAUC(labelIndex)[0];
+    }
+
+    @Override
+    public double getErrorBound() {
+        double sum = 0;
+        for (int i = 0; i < numOfLabels; i++) {
+            sum += getErrorBound(i);
+        }
+        return sum / numOfLabels;
     }
 
+    /**
+     * Returns the bound of the absolute error of the AUC for a particular label
+     *
+     * @param labelIndex the index of the label
+     * @return the error bound
+     */
+    public double getErrorBound(int labelIndex) {
+        return labelAUC(labelIndex)[1];
+    }
 }
\ No newline at end of file
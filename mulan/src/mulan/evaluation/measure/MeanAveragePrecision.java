@@ -15,8 +15,6 @@
  */
 package mulan.evaluation.measure;
 
-import java.util.Collections;
-
 /**
  * Implementation of MAP (Mean Average Precision)
  *
@@ -34,6 +32,17 @@ public class MeanAveragePrecision extends LabelBasedAveragePrecision implements
         super(numOfLabels);
     }
 
+    /**
+     * Creates a new instance of this class, which counts the confidences in a
+     * number of bins
+     *
+     * @param numOfLabels the number of labels
+     * @param numBins the number of bins of equal width in [0,1]
+     */
+    public MeanAveragePrecision(int numOfLabels, int numBins) {
+        super(numOfLabels, numBins);
+    }
+
     /**
      * Calculates map using multiple calls to {@link #getValue(int)}. If a label
      * has 0 relevant examples, then it is omitted from the average.
@@ -65,19 +74,38 @@ public class MeanAveragePrecision extends LabelBasedAveragePrecision implements
      */
     @Override
     public double getValue(int labelIndex) {
-        double ap = 0;
-        Collections.sort(confact[labelIndex], Collections.reverseOrder());
-        double retrievedCounter = 0, relevantCounter = 0;
-        for (int i = 0; i < confact[labelIndex].size(); i++) {
-            retrievedCounter++;
-            Boolean actual = confact[labelIndex].get(i).getActual();
-            if (actual) {
-                relevantCounter++;
-                ap += relevantCounter / retrievedCounter;
+        return labelAveragePrecision(labelIndex)[0];
+    }
+
+    /**
+     * Returns the bound of the absolute error of the value of the measure, which
+     * is 0 in the exact mode. Labels with no relevant examples are omitted, as
+     * in {@link #getValue()}.
+     *
+     * @return the error bound
+     */
+    public double getErrorBound() {
+        int zeroRelevantCounter = 0;
+        double bound = 0;
+        for (int labelIndex = 0; labelIndex < numOfLabels; labelIndex++) {
+            if (getValue(labelIndex) >= 0) {
+                bound += getErrorBound(labelIndex);
+            } else {
+                zeroRelevantCounter++;
             }
         }
-        ap /= relevantCounter;
-        return ap;
+        return bound / (numOfLabels - zeroRelevantCounter);
+    }
+
+    /**
+     * Returns the bound of the absolute error of the average precision for a
+     * label, which is 0 in the exact mode.
+     *
+     * @param labelIndex the index of a label (starting from 0)
+     * @return the error bound
+     */
+    public double getErrorBound(int labelIndex) {
+        return labelAveragePrecision(labelIndex)[1];
     }
 
     @Override
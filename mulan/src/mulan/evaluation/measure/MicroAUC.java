@@ -15,9 +15,6 @@
  */
 package mulan.evaluation.measure;
 
-import weka.classifiers.evaluation.ThresholdCurve;
-import weka.core.Instances;
-
 /**
  * Implementation of the micro-averaged AUC measure.
  *
@@ -34,6 +31,17 @@ public class MicroAUC extends LabelBasedAUC {
         super(numOfLabels);
     }
 
+    /**
+     * Creates a new instance of this class, which counts the confidences in a
+     * number of bins
+     *
+     * @param numOfLabels the number of labels
+     * @param numBins the number of bins of equal width in [0,1]
+     */
+    public MicroAUC(int numOfLabels, int numBins) {
+        super(numOfLabels, numBins);
+    }
+
     @Override
     public String getName() {
         return "Micro-averaged AUC";
@@ -41,8 +49,11 @@ public class MicroAUC extends LabelBasedAUC {
 
     @Override
     public double getValue() {
-        ThresholdCurve tc = new ThresholdCurve();
-        Instances result = tc.getCurve(all_Predictions, 1);
-        return ThresholdCurve.getROCArea(result);
+        return allAUC()[0];
+    }
+
+    @Override
+    public double getErrorBound() {
+        return allAUC()[1];
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
 package mulan.evaluation.measure;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.core.ArgumentNullException;
 
 /**
@@ -32,6 +33,10 @@ public abstract class RankingMeasureBase extends ClassificationMeasureBase {
      * The number of validation examples processed
      */
     protected int count;
+    /**
+     * The ranking of the current example of a batch
+     */
+    private transient int[] rowRanking;
 
     @Override
     public void reset() {
@@ -48,15 +53,31 @@ public abstract class RankingMeasureBase extends ClassificationMeasureBase {
     protected void updateInternal(MultiLabelOutput prediction, boolean[] truth) {
         int[] ranking = prediction.getRanking();
         if (ranking == null) {
-            throw new ArgumentNullException("Bipartition is null");
+            throw new ArgumentNullException("Ranking is null");
         }
         if (ranking.length != truth.length) {
             throw new IllegalArgumentException("The dimensions of the " +
-                    "bipartition and the ground truth array do not match");
+                    "ranking and the ground truth array do not match");
         }
         updateRanking(ranking, truth);
     }
 
+    @Override
+    protected void updateInternal(MultiLabelOutputMatrix predictions, int row, boolean[] truth) {
+        if (!predictions.hasRankings()) {
+            throw new ArgumentNullException("Ranking is null");
+        }
+        if (predictions.getNumLabels() != truth.length) {
+            throw new IllegalArgumentException("The dimensions of the " +
+                    "ranking and the ground truth array do not match");
+        }
+        if (rowRanking == null || rowRanking.length != truth.length) {
+            rowRanking = new int[truth.length];
+        }
+        predictions.copyRanking(row, rowRanking);
+        updateRanking(rowRanking, truth);
+    }
+
     /**
      * Updates the measure based on an example
      *
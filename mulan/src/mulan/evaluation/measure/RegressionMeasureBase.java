@@ -18,15 +18,17 @@ package mulan.evaluation.measure;
 import java.io.Serializable;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
 import mulan.core.ArgumentNullException;
 import mulan.evaluation.GroundTruth;
+import mulan.evaluation.GroundTruthMatrix;
 import weka.core.SerializedObject;
 
 /**
  * @author Eleftherios Spyromitros-Xioufis
  * @version 2013.07.27
  */
-public abstract class RegressionMeasureBase implements Measure, Serializable {
+public abstract class RegressionMeasureBase implements BatchMeasure, Serializable {
 
     public final void update(MultiLabelOutput prediction, GroundTruth truth) {
         if (prediction == null) {
@@ -42,6 +44,31 @@ public abstract class RegressionMeasureBase implements Measure, Serializable {
         updateInternal(prediction, truth.getTrueValues());
     }
 
+    public final void update(MultiLabelOutputMatrix predictions, GroundTruthMatrix truth) {
+        if (predictions == null) {
+            throw new ArgumentNullException("Predictions are null");
+        }
+        if (truth == null) {
+            throw new ArgumentNullException("Ground truth is null");
+        }
+        if (!truth.isRegression()) {
+            throw new ArgumentNullException("Classification ground truth is null");
+        }
+        if (predictions.getNumInstances() != truth.getNumInstances()) {
+            throw new IllegalArgumentException("The number of predictions and " +
+                    "ground truth rows do not match");
+        }
+
+        double[] trueValues = new double[truth.getNumLabels()];
+        for (int row = 0; row < predictions.getNumInstances(); row++) {
+            if (truth.hasMissingLabels(row) && !handlesMissingValues()) {
+                continue;
+            }
+            truth.copyTrueValues(row, trueValues);
+            updateInternal(predictions.getOutput(row), trueValues);
+        }
+    }
+
     /**
      * Returns a string with the value of a measure
      * 
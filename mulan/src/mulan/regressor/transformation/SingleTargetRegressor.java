@@ -16,6 +16,7 @@
 package mulan.regressor.transformation;
 
 import mulan.classifier.MultiLabelOutput;
+import mulan.core.ModelBuilder;
 import mulan.data.MultiLabelInstances;
 import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
@@ -26,7 +27,8 @@ import weka.filters.unsupervised.attribute.Remove;
 
 /**
  * This class implements the baseline Single-Target (ST) method for multi-target regression that
- * learns a separate regression model for each target.<br>
+ * learns a separate regression model for each target. The models of the targets are independent and
+ * can be built concurrently, see {@link #setMaxConcurrentModels(int)}.<br>
  * <br>
  * For more information, see:<br>
  * <em>E. Spyromitros-Xioufis, G. Tsoumakas, W. Groves, I. Vlahavas. 2014. Multi-label Classification Methods for
@@ -57,31 +59,39 @@ public class SingleTargetRegressor extends TransformationBasedMultiTargetRegress
     protected void buildInternal(MultiLabelInstances mlTrainSet) throws Exception {
         stRegressors = new FilteredClassifier[numLabels];
         // any changes are applied to a copy of the original dataset
-        Instances trainSet = new Instances(mlTrainSet.getDataSet());
-        for (int i = 0; i < numLabels; i++) {
-            stRegressors[i] = new FilteredClassifier();
-            stRegressors[i].setClassifier(AbstractClassifier.makeCopy(baseRegressor));
-
-            // Indices of attributes to remove. All labelIndices except for the current index
-            int[] indicesToRemove = new int[numLabels - 1];
-            int counter2 = 0;
-            for (int counter1 = 0; counter1 < numLabels; counter1++) {
-                if (labelIndices[counter1] != labelIndices[i]) {
-                    indicesToRemove[counter2] = labelIndices[counter1];
-                    counter2++;
+        final Instances trainSet = new Instances(mlTrainSet.getDataSet());
+        buildModels(numLabels, new ModelBuilder() {
+
+            public void buildModel(int i) throws Exception {
+                FilteredClassifier stRegressor = new FilteredClassifier();
+                stRegressor.setClassifier(AbstractClassifier.makeCopy(baseRegressor));
+
+                // Indices of attributes to remove. All labelIndices except for the current index
+                int[] indicesToRemove = new int[numLabels - 1];
+                int counter2 = 0;
+                for (int counter1 = 0; counter1 < numLabels; counter1++) {
+                    if (labelIndices[counter1] != labelIndices[i]) {
+                        indicesToRemove[counter2] = labelIndices[counter1];
+                        counter2++;
+                    }
                 }
-            }
 
-            Remove remove = new Remove();
-            remove.setAttributeIndicesArray(indicesToRemove);
-            remove.setInvertSelection(false);
-            remove.setInputFormat(trainSet);
-            stRegressors[i].setFilter(remove);
+                // each model sets its own class index, on a copy that shares the values of
+                // the instances with the training set
+                Instances targetTrainSet = new Instances(trainSet);
+                targetTrainSet.setClassIndex(labelIndices[i]);
 
-            trainSet.setClassIndex(labelIndices[i]);
-            debug("Bulding model " + (i + 1) + "/" + numLabels);
-            stRegressors[i].buildClassifier(trainSet);
-        }
+                Remove remove = new Remove();
+                remove.setAttributeIndicesArray(indicesToRemove);
+                remove.setInvertSelection(false);
+                remove.setInputFormat(targetTrainSet);
+                stRegressor.setFilter(remove);
+
+                debug("Bulding model " + (i + 1) + "/" + numLabels);
+                stRegressor.buildClassifier(targetTrainSet);
+                stRegressors[i] = stRegressor;
+            }
+        });
     }
 
     protected MultiLabelOutput makePredictionInternal(Instance instance) throws Exception {
@@ -1,35 +1,57 @@
 package mulan.resampling;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Bag implements Comparable<Bag>{
-	private ArrayList<Integer> instances;
+	private int[] instances;
+	private int size;
 	private BagType type; 
 	
-	public Bag(ArrayList<Integer> instances, BagType type) {
+	public Bag(int[] instances, BagType type) {
 		this.instances = instances;
+		this.size = instances.length;
 		this.type = type;
 	}
 	
 	public int compareTo(Bag compareBag) {
-		int compareSize = ((Bag) compareBag).getInstances().size();
+		int compareSize = compareBag.size();
 		if (getType().equals(BagType.Minority)) {
-			return compareSize - this.getInstances().size();	
+			return compareSize - this.size();	
 		} else {
-			return this.getInstances().size() - compareSize;
+			return this.size() - compareSize;
 		}
 	}
 	
-	public boolean addInstance(Integer instance) {
-		return instances.add(instance);
+	public void addInstance(int instance) {
+		if (size == instances.length) {
+			instances = Arrays.copyOf(instances, Math.max(4, 2 * size));
+		}
+		instances[size++] = instance;
+	}
+	
+	/**
+	 * Removes the instance at a position, moving the last instance of the bag
+	 * into its place.
+	 * 
+	 * @param position the position of the instance in the bag
+	 * @return the removed instance
+	 */
+	public int removeInstanceAt(int position) {
+		int instance = instances[position];
+		instances[position] = instances[--size];
+		return instance;
+	}
+	
+	public int getInstance(int position) {
+		return instances[position];
 	}
 	
-	public void removeInstance(Integer instance) {
-		instances.remove(instance);
+	public int size() {
+		return size;
 	}
 	
-	public ArrayList<Integer> getInstances() {
-		return instances;
+	public int[] getInstances() {
+		return Arrays.copyOf(instances, size);
 	}
 
 	public BagType getType() {
@@ -0,0 +1,131 @@
+package mulan.resampling;
+
+import weka.core.Instances;
+
+/**
+ * Ball tree neighbor index. Each node keeps the centroid and radius of its
+ * points and is split around its two farthest apart points; a node is only
+ * visited when its ball may contain a point nearer than the current k-th
+ * neighbor. It copes better than the KD-tree with medium dimensional data.
+ */
+public class BallTreeNeighborIndex extends NeighborIndex {
+
+	private static final int LEAF_SIZE = 16;
+
+	private final int[] order;
+	private final BallNode root;
+
+	private static class BallNode {
+		int start;
+		int end;
+		double[] centroid;
+		double radius;
+		BallNode left;
+		BallNode right;
+	}
+
+	public BallTreeNeighborIndex(Instances dataset, int[] attributes) {
+		super(dataset, attributes);
+		order = new int[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			order[i] = i;
+		}
+		root = build(0, numPoints);
+	}
+
+	private BallNode build(int start, int end) {
+		BallNode node = new BallNode();
+		node.start = start;
+		node.end = end;
+		node.centroid = new double[dimension];
+		for (int i = start; i < end; i++) {
+			int p = order[i] * dimension;
+			for (int d = 0; d < dimension; d++) {
+				node.centroid[d] += points[p + d];
+			}
+		}
+		for (int d = 0; d < dimension; d++) {
+			node.centroid[d] /= Math.max(1, end - start);
+		}
+		int farthest = farthestFrom(node.centroid, 0, start, end);
+		node.radius = Math.sqrt(distance(order[farthest], node.centroid, 0));
+		if (end - start <= LEAF_SIZE || node.radius == 0.0) {
+			return node;
+		}
+		int a = order[farthest];
+		int b = order[farthestFrom(points, a * dimension, start, end)];
+		int i = start, j = end - 1;
+		while (i <= j) {
+			int row = order[i];
+			if (distance(row, points, a * dimension) <= distance(row, points, b * dimension)) {
+				i++;
+			} else {
+				order[i] = order[j];
+				order[j] = row;
+				j--;
+			}
+		}
+		if (i == start || i == end) {
+			i = (start + end) >>> 1;
+		}
+		node.left = build(start, i);
+		node.right = build(i, end);
+		return node;
+	}
+
+	private int farthestFrom(double[] target, int offset, int start, int end) {
+		int farthest = start;
+		double maxDistance = -1.0;
+		for (int i = start; i < end; i++) {
+			double distance = distance(order[i], target, offset);
+			if (distance > maxDistance) {
+				maxDistance = distance;
+				farthest = i;
+			}
+		}
+		return farthest;
+	}
+
+	@Override
+	protected void search(double[] query, int offset, int skip, NeighborHeap heap) {
+		search(root, query, offset, skip, heap);
+	}
+
+	private void search(BallNode node, double[] query, int offset, int skip, NeighborHeap heap) {
+		double bound = Math.sqrt(centroidDistance(node, query, offset)) - node.radius;
+		if (bound > 0 && bound * bound > heap.worst() * (1 + 1e-9)) {
+			return;
+		}
+		if (node.left == null) {
+			for (int i = node.start; i < node.end; i++) {
+				int row = order[i];
+				if (row == skip) {
+					continue;
+				}
+				double distance = distance(row, query, offset);
+				if (distance <= heap.worst()) {
+					heap.offer(distance, row);
+				}
+			}
+			return;
+		}
+		double toLeft = centroidDistance(node.left, query, offset);
+		double toRight = centroidDistance(node.right, query, offset);
+		if (toLeft <= toRight) {
+			search(node.left, query, offset, skip, heap);
+			search(node.right, query, offset, skip, heap);
+		} else {
+			search(node.right, query, offset, skip, heap);
+			search(node.left, query, offset, skip, heap);
+		}
+	}
+
+	private double centroidDistance(BallNode node, double[] query, int offset) {
+		double sum = 0.0;
+		for (int d = 0; d < dimension; d++) {
+			double diff = node.centroid[d] - query[offset + d];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+}
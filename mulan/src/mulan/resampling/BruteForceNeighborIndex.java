@@ -0,0 +1,27 @@
+package mulan.resampling;
+
+import weka.core.Instances;
+
+/**
+ * Exhaustive neighbor search over the contiguous point matrix. It has no
+ * build cost and is the fastest choice for high dimensional data.
+ */
+public class BruteForceNeighborIndex extends NeighborIndex {
+
+	public BruteForceNeighborIndex(Instances dataset, int[] attributes) {
+		super(dataset, attributes);
+	}
+
+	@Override
+	protected void search(double[] query, int offset, int skip, NeighborHeap heap) {
+		for (int i = 0; i < numPoints; i++) {
+			if (i == skip) {
+				continue;
+			}
+			double distance = distance(i, query, offset);
+			if (distance <= heap.worst()) {
+				heap.offer(distance, i);
+			}
+		}
+	}
+}
@@ -1,36 +1,71 @@
 package mulan.resampling;
 
-import java.util.HashMap;
-import java.util.Set;
+import java.util.Arrays;
 
-import weka.core.Attribute;
+import mulan.data.MultiLabelInstances;
 import weka.core.Instance;
 import weka.core.Instances;
 
+/**
+ * Imbalance measures (IRLbl, MeanIR and SCUMBLE) of a multi-label dataset.
+ * <br>
+ * The labels of every instance are packed once into a bit matrix, one
+ * <code>long[]</code> per instance, so each measure is computed in a single
+ * pass over the set bits instead of walking the attributes of every instance.
+ * Per-label values are indexed by the position of the label in
+ * {@link MultiLabelInstances#getLabelIndices()}. Labels that do not appear in
+ * the dataset have an IRLbl of {@link Double#NaN} and are ignored by MeanIR.
+ * <br>
+ * Once IRLbl has been calculated, samples can be added or removed
+ * incrementally. The sum of the inverse label counts and the number of labels
+ * sharing each count are kept up to date, so MeanIR and the maximum label
+ * count are maintained in O(|Y_i|) per sample, and IRLbl values are derived
+ * on demand.
+ * <br>
+ * After samples are added or removed, IRLbl and MeanIR are those of the
+ * current dataset: every label is measured against the current maximum label
+ * count, which also decreases when the most frequent label loses samples.
+ * Earlier versions only refreshed the IRLbl of the labels of the changed
+ * sample and never lowered the maximum, so their values could be stale.
+ */
 public class ImbalanceMetrics {
 
 	private Instances dataset;
-	private Set<Attribute> labels;
-	
-	private HashMap<Attribute, Double> hSumPerLbl;
-	private Double maxHSum;
-	
-	private Double meanIR;
-	private HashMap<Attribute, Double> IRLbl;
-	
-	private HashMap<Instance, Double> instScumble;
-	private Double scumble;
-	
-	public ImbalanceMetrics(Instances dataset, Set<Attribute> labels) {
+	private int[] labelIndices;
+
+	private long[][] labelMatrix;
+
+	private double[] hSumPerLbl;
+	private double maxHSum;
+	private int[] labelsPerHSum;
+	private double sumInvHSum;
+	private int numActiveLabels;
+
+	private double meanIR;
+	private double[] IRLbl;
+
+	private double[] instScumble;
+	private double scumble;
+
+	public ImbalanceMetrics(Instances dataset, int[] labelIndices) {
 		this.dataset = dataset;
-		this.labels = labels;
+		this.labelIndices = labelIndices;
 	}
-	
+
+	public ImbalanceMetrics(MultiLabelInstances data) {
+		this(data.getDataSet(), data.getLabelIndices());
+	}
+
 	public ImbalanceMetrics(ImbalanceMetrics metrics) {
-		this.IRLbl = metrics.getIRLbl();
-		this.meanIR = metrics.getMeanIR();
-		this.hSumPerLbl = metrics.gethSumPerLbl();
-		this.maxHSum = metrics.getMaxHSum();
+		this.dataset = metrics.getDataset();
+		this.labelIndices = metrics.getLabelIndices();
+		this.labelMatrix = metrics.labelMatrix;
+		this.hSumPerLbl = metrics.hSumPerLbl != null ? metrics.hSumPerLbl.clone() : null;
+		this.maxHSum = metrics.maxHSum;
+		this.labelsPerHSum = metrics.labelsPerHSum != null ? metrics.labelsPerHSum.clone() : null;
+		this.sumInvHSum = metrics.sumInvHSum;
+		this.numActiveLabels = metrics.numActiveLabels;
+		this.meanIR = metrics.meanIR;
 	}
 
 	public Instances getDataset() {
@@ -39,188 +74,286 @@ public class ImbalanceMetrics {
 
 	public void setDataset(Instances dataset) {
 		this.dataset = dataset;
+		this.labelMatrix = null;
 	}
 
-	public Set<Attribute> getLabels() {
-		return labels;
+	public int[] getLabelIndices() {
+		return labelIndices;
 	}
 
-	public void setLabels(Set<Attribute> labels) {
-		this.labels = labels;
+	public void setLabelIndices(int[] labelIndices) {
+		this.labelIndices = labelIndices;
+		this.labelMatrix = null;
 	}
-	
-	public Double getMeanIR() {
-		return meanIR;
+
+	public int getNumLabels() {
+		return labelIndices.length;
 	}
-	
-	public void setMeanIR(Double meanIR) {
-		this.meanIR = meanIR;
+
+	public double getMeanIR() {
+		return meanIR;
 	}
-	
-	public HashMap<Attribute, Double> getIRLbl() {
+
+	public double[] getIRLbl() {
+		if (IRLbl == null) {
+			IRLbl = new double[hSumPerLbl.length];
+			for (int j = 0; j < IRLbl.length; j++) {
+				IRLbl[j] = getIRLbl(j);
+			}
+		}
 		return IRLbl;
 	}
-	
-	public void setIRLbl(HashMap<Attribute, Double> iRLbl) {
-		IRLbl = iRLbl;
+
+	/**
+	 * @param label the position of the label
+	 * @return the IRLbl of the label, or NaN if it does not appear in the dataset
+	 */
+	public double getIRLbl(int label) {
+		double hSum = hSumPerLbl[label];
+		return hSum != 0.0 ? maxHSum / hSum : Double.NaN;
 	}
 
-	public HashMap<Attribute, Double> gethSumPerLbl() {
+	public double[] gethSumPerLbl() {
 		return hSumPerLbl;
 	}
 
-	public void sethSumPerLbl(HashMap<Attribute, Double> hSumPerLbl) {
+	public void sethSumPerLbl(double[] hSumPerLbl) {
 		this.hSumPerLbl = hSumPerLbl;
+		initCounts();
 	}
 
-	public Double getMaxHSum() {
+	public double getMaxHSum() {
 		return maxHSum;
 	}
 
-	public void setMaxHSum(Double maxHSum) {
-		this.maxHSum = maxHSum;
-	}
-	
-	public HashMap<Instance, Double> getInstScumble() {
+	public double[] getInstScumble() {
 		return instScumble;
 	}
 
-	public void setInstScumble(HashMap<Instance, Double> instScumble) {
+	public void setInstScumble(double[] instScumble) {
 		this.instScumble = instScumble;
 	}
 
-	public Double getScumble() {
+	public double getScumble() {
 		return scumble;
 	}
 
-	public void setScumble(Double scumble) {
+	public void setScumble(double scumble) {
 		this.scumble = scumble;
 	}
-	
-	private boolean hasAttribute(Instance instance, Attribute attr) {
-		for (int i = 0; i < instance.numAttributes(); i++) {
-			Attribute attribute = instance.attribute(i);
-			if (attribute.equals(attr) && instance.value(attribute) == 1.0) {
-				return true;
+
+	/**
+	 * Returns the packed label matrix, building it from the dataset if it was
+	 * not built yet. Bit <code>j</code> of row <code>i</code> is set when
+	 * instance <code>i</code> is annotated with the <code>j</code>-th label.
+	 *
+	 * @return one packed label row per instance
+	 */
+	public long[][] getLabelMatrix() {
+		if (labelMatrix == null) {
+			labelMatrix = buildLabelMatrix();
+		}
+		return labelMatrix;
+	}
+
+	/**
+	 * Packs the labels of a single instance into a bit set.
+	 *
+	 * @param instance the instance to pack
+	 * @param labelIndices the attribute indices of the labels
+	 * @return a bit set with one bit per label
+	 */
+	public static long[] packLabels(Instance instance, int[] labelIndices) {
+		long[] row = new long[numWords(labelIndices.length)];
+		for (int j = 0; j < labelIndices.length; j++) {
+			if (instance.value(labelIndices[j]) == 1.0) {
+				row[j >>> 6] |= 1L << j;
 			}
 		}
-		return false;
-	}
-	
-	public Double calculateScumble() {
-		Double sumScumble = 0.0, scumble_i = 0.0;
-		instScumble = new HashMap<Instance, Double>();
-		for (Instance instance : dataset) {
-			Double sumIRLbl = 0.0, numLabInst = 0.0, prod = 1.0;
-			for (Attribute attribute : labels) {
-				Double iRLbl = 1.0;
-				if (instance.value(attribute) == 1.0) {
-					iRLbl = IRLbl.get(attribute);
+		return row;
+	}
+
+	/**
+	 * @param numLabels the number of labels
+	 * @return the number of words needed to pack the given number of labels
+	 */
+	public static int numWords(int numLabels) {
+		return (numLabels + 63) >>> 6;
+	}
+
+	private long[][] buildLabelMatrix() {
+		int numInstances = dataset.numInstances();
+		long[][] matrix = new long[numInstances][];
+		for (int i = 0; i < numInstances; i++) {
+			matrix[i] = packLabels(dataset.instance(i), labelIndices);
+		}
+		return matrix;
+	}
+
+	public double calculateScumble() {
+		long[][] matrix = getLabelMatrix();
+		double sumScumble = 0.0;
+		instScumble = new double[matrix.length];
+		for (int i = 0; i < matrix.length; i++) {
+			long[] row = matrix[i];
+			double sumIRLbl = 0.0, sumLogIRLbl = 0.0;
+			int numLabInst = 0;
+			for (int w = 0; w < row.length; w++) {
+				long word = row[w];
+				while (word != 0) {
+					int j = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1;
+					double iRLbl = getIRLbl(j);
 					sumIRLbl += iRLbl;
+					sumLogIRLbl += Math.log(iRLbl);
 					numLabInst++;
 				}
-				prod *= iRLbl;
 			}
-			Double iRLbl_i = sumIRLbl/numLabInst;
-			scumble_i = 1.0 - ((1.0/iRLbl_i) * Math.pow(prod, 1.0/numLabInst));
-			instScumble.put(instance, scumble_i);
+			double scumble_i = 0.0;
+			if (numLabInst > 0) {
+				double iRLbl_i = sumIRLbl / numLabInst;
+				scumble_i = 1.0 - (Math.exp(sumLogIRLbl / numLabInst) / iRLbl_i);
+			}
+			instScumble[i] = scumble_i;
 			sumScumble += scumble_i;
 		}
-		Double value = sumScumble/dataset.size();
-		this.scumble = value;
-		return value;
-	}
-	
-	public Double calculateMeanIR() {
-        Double sum = 0.0;
-        Double countZeros = 0.0;
-        for (Attribute label : labels) {
-        	Double ir = IRLbl.get(label);
-        	if (ir != null) {
-        		sum += IRLbl.get(label);
-        	} else {
-        		countZeros++;
-        	}
-        }
-        Double numberOfLabels = new Double(labels.size() - countZeros);
-        meanIR = sum / numberOfLabels;
-        return meanIR;
-    }
-	
-    public void calculateIRLbl() {
-        maxHSum = -1.0;
-        hSumPerLbl = new HashMap<Attribute, Double>();
-        for (Attribute label : labels) {
-            Double hSum = 0.0;
-            for (Instance instance : dataset) {
-                if (hasAttribute(instance, label)) {
-                    hSum++;
-                }
-            }
-            if (hSum != 0.0) {
-            	hSumPerLbl.put(label, hSum);
-            	if (hSum > maxHSum) {
-                    maxHSum = hSum;
-                }
-            }
-        }
-        IRLbl = new HashMap<Attribute, Double>();
-        for (Attribute label : labels) {
-            Double hSum = hSumPerLbl.get(label);
-            if (hSum != null) {
-            	IRLbl.put(label, maxHSum / hSum);
-            }
-        }
-    }
-	
-    public void recalcNewSample(Instance newSample) {
-    	for (Attribute label : labels) {
-    		if (newSample.value(label) == 1.0) {
-    			Double newHSum = hSumPerLbl.get(label) + 1;
-    			hSumPerLbl.replace(label, newHSum);
-    			if (newHSum > maxHSum) {
-    				maxHSum = newHSum;
-    			}
-    			Double newIRLbl = maxHSum / newHSum;
-    			IRLbl.replace(label, newIRLbl);
-    		}
-    	}
-    	calculateMeanIR();
-    }
-    
+		scumble = sumScumble / matrix.length;
+		return scumble;
+	}
+
+	public double calculateMeanIR() {
+		sumInvHSum = 0.0;
+		for (int j = 0; j < hSumPerLbl.length; j++) {
+			if (hSumPerLbl[j] != 0.0) {
+				sumInvHSum += 1.0 / hSumPerLbl[j];
+			}
+		}
+		updateMeanIR();
+		return meanIR;
+	}
+
+	public void calculateIRLbl() {
+		labelMatrix = buildLabelMatrix();
+		hSumPerLbl = new double[labelIndices.length];
+		for (long[] row : labelMatrix) {
+			for (int w = 0; w < row.length; w++) {
+				long word = row[w];
+				while (word != 0) {
+					hSumPerLbl[(w << 6) + Long.numberOfTrailingZeros(word)]++;
+					word &= word - 1;
+				}
+			}
+		}
+		initCounts();
+	}
+
+	private void initCounts() {
+		maxHSum = 0.0;
+		numActiveLabels = 0;
+		for (int j = 0; j < hSumPerLbl.length; j++) {
+			if (hSumPerLbl[j] != 0.0) {
+				numActiveLabels++;
+			}
+			if (hSumPerLbl[j] > maxHSum) {
+				maxHSum = hSumPerLbl[j];
+			}
+		}
+		labelsPerHSum = new int[(int) maxHSum + 1];
+		for (int j = 0; j < hSumPerLbl.length; j++) {
+			labelsPerHSum[(int) hSumPerLbl[j]]++;
+		}
+		IRLbl = null;
+		calculateMeanIR();
+	}
+
+	private void updateMeanIR() {
+		meanIR = maxHSum * sumInvHSum / numActiveLabels;
+	}
+
+	public void recalcNewSample(Instance newSample) {
+		recalcNewSample(packLabels(newSample, labelIndices));
+	}
+
+	/**
+	 * Updates the metrics after a sample with the given packed labels was
+	 * added to the dataset.
+	 *
+	 * @param labels the packed labels of the new sample
+	 */
+	public void recalcNewSample(long[] labels) {
+		for (int w = 0; w < labels.length; w++) {
+			long word = labels[w];
+			while (word != 0) {
+				int j = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				int hSum = (int) hSumPerLbl[j];
+				if (hSum == 0) {
+					numActiveLabels++;
+				} else {
+					sumInvHSum -= 1.0 / hSum;
+				}
+				sumInvHSum += 1.0 / (hSum + 1);
+				moveHSum(j, hSum, hSum + 1);
+				if (hSum + 1 > maxHSum) {
+					maxHSum = hSum + 1;
+				}
+			}
+		}
+		IRLbl = null;
+		labelMatrix = null;
+		updateMeanIR();
+	}
+
 	public void recalcDelSample(Instance delSample) {
-		for (Attribute label : labels) {
-    		if (delSample.value(label) == 1.0) {
-    			Double newHSum = hSumPerLbl.get(label) - 1;
-    			hSumPerLbl.replace(label, newHSum);
-    			if (maxHSum == newHSum + 1) {
-    				lookForNewMax();
-    			}
-    			Double newIRLbl = maxHSum / newHSum;
-    			IRLbl.replace(label, newIRLbl);
-    		}
-    	}
-    	calculateMeanIR();
-	}
-
-    
-    private void lookForNewMax() {
-    	for (Attribute label : hSumPerLbl.keySet()) {
-    		Double hSum = hSumPerLbl.get(label);
-    		if (hSum > maxHSum) {
-    			maxHSum = hSum;
-    		}
-    	}
-	}
-
-	public Double getMaxIR() {
-    	Double maxIR = 0.0;
-    	for (Attribute label : IRLbl.keySet()) {
-    		Double currentIR = IRLbl.get(label);
-    		if (currentIR > maxIR) {
-    			maxIR = currentIR;
-    		}
-    	}
-    	return maxIR;
-    }
+		recalcDelSample(packLabels(delSample, labelIndices));
+	}
+
+	/**
+	 * Updates the metrics after a sample with the given packed labels was
+	 * removed from the dataset.
+	 *
+	 * @param labels the packed labels of the removed sample
+	 */
+	public void recalcDelSample(long[] labels) {
+		for (int w = 0; w < labels.length; w++) {
+			long word = labels[w];
+			while (word != 0) {
+				int j = (w << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+				int hSum = (int) hSumPerLbl[j];
+				sumInvHSum -= 1.0 / hSum;
+				if (hSum == 1) {
+					numActiveLabels--;
+				} else {
+					sumInvHSum += 1.0 / (hSum - 1);
+				}
+				moveHSum(j, hSum, hSum - 1);
+				if (hSum == maxHSum && labelsPerHSum[hSum] == 0) {
+					maxHSum = hSum - 1;
+				}
+			}
+		}
+		IRLbl = null;
+		labelMatrix = null;
+		updateMeanIR();
+	}
+
+	private void moveHSum(int label, int from, int to) {
+		if (to >= labelsPerHSum.length) {
+			labelsPerHSum = Arrays.copyOf(labelsPerHSum, Math.max(to + 1, 2 * labelsPerHSum.length));
+		}
+		labelsPerHSum[from]--;
+		labelsPerHSum[to]++;
+		hSumPerLbl[label] = to;
+	}
+
+	public double getMaxIR() {
+		double minHSum = 0.0;
+		for (int j = 0; j < hSumPerLbl.length; j++) {
+			if (hSumPerLbl[j] != 0.0 && (minHSum == 0.0 || hSumPerLbl[j] < minHSum)) {
+				minHSum = hSumPerLbl[j];
+			}
+		}
+		return minHSum != 0.0 ? maxHSum / minHSum : 0.0;
+	}
 }
@@ -0,0 +1,132 @@
+package mulan.resampling;
+
+import weka.core.Instances;
+
+/**
+ * KD-tree neighbor index. Nodes split their points at the median of the
+ * coordinate with the widest spread, and a subtree is only visited when the
+ * splitting plane is not farther than the current k-th neighbor.
+ */
+public class KDTreeNeighborIndex extends NeighborIndex {
+
+	private static final int LEAF_SIZE = 16;
+
+	private final int[] order;
+	private final KDNode root;
+
+	private static class KDNode {
+		int start;
+		int end;
+		int splitDim = -1;
+		double splitValue;
+		KDNode left;
+		KDNode right;
+	}
+
+	public KDTreeNeighborIndex(Instances dataset, int[] attributes) {
+		super(dataset, attributes);
+		order = new int[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			order[i] = i;
+		}
+		root = build(0, numPoints);
+	}
+
+	private KDNode build(int start, int end) {
+		KDNode node = new KDNode();
+		node.start = start;
+		node.end = end;
+		if (end - start <= LEAF_SIZE) {
+			return node;
+		}
+		int splitDim = -1;
+		double widest = 0.0;
+		for (int d = 0; d < dimension; d++) {
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for (int i = start; i < end; i++) {
+				double value = points[order[i] * dimension + d];
+				if (value < min) {
+					min = value;
+				}
+				if (value > max) {
+					max = value;
+				}
+			}
+			if (max - min > widest) {
+				widest = max - min;
+				splitDim = d;
+			}
+		}
+		if (splitDim == -1) {
+			return node;
+		}
+		int middle = (start + end) >>> 1;
+		select(start, end - 1, middle, splitDim);
+		node.splitDim = splitDim;
+		node.splitValue = points[order[middle] * dimension + splitDim];
+		node.left = build(start, middle);
+		node.right = build(middle, end);
+		return node;
+	}
+
+	/**
+	 * Partially sorts <code>order[left..right]</code> so the element at
+	 * <code>k</code> is the one a full sort on the given coordinate would put there.
+	 */
+	private void select(int left, int right, int k, int dim) {
+		while (left < right) {
+			double pivot = points[order[(left + right) >>> 1] * dimension + dim];
+			int i = left, j = right;
+			while (i <= j) {
+				while (points[order[i] * dimension + dim] < pivot) {
+					i++;
+				}
+				while (points[order[j] * dimension + dim] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	@Override
+	protected void search(double[] query, int offset, int skip, NeighborHeap heap) {
+		search(root, query, offset, skip, heap);
+	}
+
+	private void search(KDNode node, double[] query, int offset, int skip, NeighborHeap heap) {
+		if (node.splitDim == -1) {
+			for (int i = node.start; i < node.end; i++) {
+				int row = order[i];
+				if (row == skip) {
+					continue;
+				}
+				double distance = distance(row, query, offset);
+				if (distance <= heap.worst()) {
+					heap.offer(distance, row);
+				}
+			}
+			return;
+		}
+		double diff = query[offset + node.splitDim] - node.splitValue;
+		KDNode near = diff < 0 ? node.left : node.right;
+		KDNode far = diff < 0 ? node.right : node.left;
+		search(near, query, offset, skip, heap);
+		if (diff * diff <= heap.worst()) {
+			search(far, query, offset, skip, heap);
+		}
+	}
+}
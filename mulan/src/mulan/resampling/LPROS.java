@@ -2,10 +2,10 @@ package mulan.resampling;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Random;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 import weka.core.Instance;
 
@@ -47,17 +47,25 @@ public class LPROS extends LPRandomSampling {
 		super(data, xmlLabels, 0.25);
 	}
 
+	public LPROS(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double percentage)
+			throws InvalidDataFormatException {
+		super(data, labelsMetaData, percentage);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		return new LPROS(data, data.getLabelsMetaData(), getPercentage());
+	}
+
 	@Override
 	public MultiLabelInstances resample() throws InvalidDataFormatException {
 		int[] labelIndexes = getData().getLabelIndices();
 		Double samplesToCreate = getData().getDataSet().numInstances() * getPercentage();
-		HashMap<ArrayList<Integer>, ArrayList<Integer>> labelSetBag = groupSamplesbyLabelSet(labelIndexes);
+		LabelSetGroups labelSetBag = groupSamplesbyLabelSet(labelIndexes);
 		Double meanSize = calculateMeanSize(labelSetBag);
 		ArrayList<Bag> minBags = new ArrayList<Bag>(); 
-		for (ArrayList<Integer> labelSet : labelSetBag.keySet()) {
-			ArrayList<Integer> instanceSet = labelSetBag.get(labelSet);
-			if (instanceSet.size() < meanSize) {
-				Bag newBag = new Bag(instanceSet, BagType.Minority);
+		for (int labelSet = 0; labelSet < labelSetBag.numGroups(); labelSet++) {
+			if (labelSetBag.size(labelSet) < meanSize) {
+				Bag newBag = new Bag(labelSetBag.getRows(labelSet), BagType.Minority);
 				minBags.add(newBag);
 			}
 		}
@@ -66,20 +74,20 @@ public class LPROS extends LPRandomSampling {
 		Random generator = new Random(System.currentTimeMillis());
 		for (int i = 0; i < minBags.size(); i++) {
 			Bag minBag = minBags.get(i);
-			Double incrementBag = Math.min(meanSize - minBag.getInstances().size(), meanIncrement);
+			Double incrementBag = Math.min(meanSize - minBag.size(), meanIncrement);
 			Double j = 0.0;
-			while (j < incrementBag && minBag.getInstances().size() < meanSize) {
-				int x = generator.nextInt(minBag.getInstances().size());
-				Integer index = minBag.getInstances().get(x);
+			while (j < incrementBag && minBag.size() < meanSize) {
+				int x = generator.nextInt(minBag.size());
+				int index = minBag.getInstance(x);
 				Instance instance = getData().getDataSet().get(index);
 				getData().getDataSet().add(instance);
-				Integer newIndex = getData().getDataSet().size() - 1;
+				int newIndex = getData().getDataSet().size() - 1;
 				minBag.addInstance(newIndex);
 				minBags.set(i, minBag);
 				j++;
 			}
 			if (j < incrementBag) {
-				Double remainder = meanSize - minBag.getInstances().size();
+				Double remainder = meanSize - minBag.size();
 				minBags = distributeAmongBags(minBags, i, remainder, generator);
 			}
 		}
@@ -97,11 +105,11 @@ public class LPROS extends LPRandomSampling {
 				continue;
 			}
 			Bag minBag = minBags.get(j);
-			int x = generator.nextInt(minBag.getInstances().size());
-			Integer index = minBag.getInstances().get(x);
+			int x = generator.nextInt(minBag.size());
+			int index = minBag.getInstance(x);
 			Instance instance = getData().getDataSet().get(index);
 			getData().getDataSet().add(instance);
-			Integer newIndex = getData().getDataSet().size() - 1;
+			int newIndex = getData().getDataSet().size() - 1;
 			minBag.addInstance(newIndex);
 			minBags.set(j, minBag);
 			j++;
@@ -2,10 +2,12 @@ package mulan.resampling;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Random;
+import java.util.Set;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 import weka.core.Instance;
 
@@ -57,17 +59,25 @@ public class LPRUS extends LPRandomSampling {
 		super(data, xmlLabels, 0.25);
 	}
 
+	public LPRUS(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double percentage)
+			throws InvalidDataFormatException {
+		super(data, labelsMetaData, percentage);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		return new LPRUS(data, data.getLabelsMetaData(), getPercentage());
+	}
+
 	@Override
 	public MultiLabelInstances resample() throws InvalidDataFormatException {
 		int[] labelIndexes = getData().getLabelIndices();
 		Double samplesToDelete = getData().getDataSet().numInstances() * getPercentage();
-		HashMap<ArrayList<Integer>, ArrayList<Integer>> labelSetBag = groupSamplesbyLabelSet(labelIndexes);
+		LabelSetGroups labelSetBag = groupSamplesbyLabelSet(labelIndexes);
 		Double meanSize = calculateMeanSize(labelSetBag);
 		ArrayList<Bag> majBags = new ArrayList<Bag>(); 
-		for (ArrayList<Integer> labelSet : labelSetBag.keySet()) {
-			ArrayList<Integer> instanceSet = labelSetBag.get(labelSet);
-			if (instanceSet.size() > meanSize) {
-				Bag newBag = new Bag(instanceSet, BagType.Majority);
+		for (int labelSet = 0; labelSet < labelSetBag.numGroups(); labelSet++) {
+			if (labelSetBag.size(labelSet) > meanSize) {
+				Bag newBag = new Bag(labelSetBag.getRows(labelSet), BagType.Majority);
 				majBags.add(newBag);
 			}
 		}
@@ -76,21 +86,29 @@ public class LPRUS extends LPRandomSampling {
 		Random generator = new Random(System.currentTimeMillis());
 		for (int i = 0; i < majBags.size(); i++) {
 			Bag majBag = majBags.get(i);
-			Double reductionBag = Math.min(majBag.getInstances().size() - meanSize, meanReduction);
+			Double reductionBag = Math.min(majBag.size() - meanSize, meanReduction);
 			for (Double j = 0.0; j < reductionBag; j++) {
-				int x = generator.nextInt(majBag.getInstances().size());
-				Integer index = majBag.getInstances().get(x);
+				int x = generator.nextInt(majBag.size());
+				int index = majBag.removeInstanceAt(x);
 				addInstancesToRemove(getData().getDataSet().get(index));
-				majBag.removeInstance(index);
 				majBags.set(i, majBag);
 			}
-			if (majBag.getInstances().size() >= meanSize) {
-				Double remainder = majBag.getInstances().size() - reductionBag;
+			if (majBag.size() >= meanSize) {
+				Double remainder = majBag.size() - reductionBag;
 				majBags = distributeAmongBags(majBags, i, remainder, generator);
 			}
 		}
-		for (Instance instance : getInstancesToRemove()) {
-			getData().getDataSet().remove(instance);
+		Set<Instance> removed = Collections.newSetFromMap(new IdentityHashMap<Instance, Boolean>());
+		removed.addAll(getInstancesToRemove());
+		ArrayList<Instance> kept = new ArrayList<Instance>();
+		for (Instance instance : getData().getDataSet()) {
+			if (!removed.contains(instance)) {
+				kept.add(instance);
+			}
+		}
+		getData().getDataSet().delete();
+		for (Instance instance : kept) {
+			getData().getDataSet().add(instance);
 		}
 		return getData();
 	}
@@ -102,10 +120,9 @@ public class LPRUS extends LPRandomSampling {
 		int j = i + 1;
 		while (remainder > 0 && j < majBags.size()) {
 			Bag majBag = majBags.get(j);
-			int x = generator.nextInt(majBag.getInstances().size());
-			Integer index = majBag.getInstances().get(x);
+			int x = generator.nextInt(majBag.size());
+			int index = majBag.removeInstanceAt(x);
 			getInstancesToRemove().add(getData().getDataSet().get(index));
-			majBag.removeInstance(index);
 			majBags.set(j, majBag);
 			j++;
 			remainder--;
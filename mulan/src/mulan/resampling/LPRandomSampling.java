@@ -1,15 +1,14 @@
 package mulan.resampling;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Random;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
-import weka.core.Instance;
+import weka.core.Instances;
 
-public abstract class LPRandomSampling {
+public abstract class LPRandomSampling implements Resampler {
 
 	private MultiLabelInstances data;
 	private Double percentage;
@@ -21,6 +20,12 @@ public abstract class LPRandomSampling {
 		this.xmlLabels = xmlLabels;
 		this.percentage = percentage;
 	}
+	
+	public LPRandomSampling(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double percentage)
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.percentage = percentage;
+	}
 
 	public MultiLabelInstances getData() {
 		return data;
@@ -52,41 +57,16 @@ public abstract class LPRandomSampling {
 			ArrayList<Bag> bags, int i, 
 			Double remainder, Random generator);
 
-	protected Double calculateMeanSize(HashMap<ArrayList<Integer>, ArrayList<Integer>> labelSetBag) {
-		Collection<ArrayList<Integer>> instanceSets = labelSetBag.values();
-		Double total = 0.0;
-		for (ArrayList<Integer> instanceSet : instanceSets) {
-			total += instanceSet.size();
-		}
-		return total / instanceSets.size();
+	protected Double calculateMeanSize(LabelSetGroups labelSetBag) {
+		return labelSetBag.meanSize();
 	}
 	
-	protected HashMap<ArrayList<Integer>, ArrayList<Integer>> groupSamplesbyLabelSet(int[] labelIndexes) {
-		HashMap<ArrayList<Integer>, ArrayList<Integer>> labelSetBag = 
-				new HashMap<ArrayList<Integer>, ArrayList<Integer>>();
-		for (int i = 0; i < data.getDataSet().numInstances(); i++) {
-			Instance instance = data.getDataSet().get(i);
-			ArrayList<Integer> labelBag = getLabels(instance, labelIndexes);
-			ArrayList<Integer> instances = labelSetBag.get(labelBag);
-			if (instances != null) {
-				instances.add(i);
-				labelSetBag.replace(labelBag, instances);
-			} else {
-				ArrayList<Integer> newList = new ArrayList<Integer>();
-				newList.add(i);
-				labelSetBag.put(labelBag, newList);	
-			}
-		}
-		return labelSetBag;
-	}
-
-	protected ArrayList<Integer> getLabels(Instance instance, int[] labelIndexes) {
-		ArrayList<Integer> labelBag = new ArrayList<Integer>();  
-		for (int index : labelIndexes) {
-			if (instance.value(index) == 1.0) {
-				labelBag.add(index);
-			}
+	protected LabelSetGroups groupSamplesbyLabelSet(int[] labelIndexes) {
+		Instances dataSet = data.getDataSet();
+		long[][] labelMatrix = new long[dataSet.numInstances()][];
+		for (int i = 0; i < dataSet.numInstances(); i++) {
+			labelMatrix[i] = ImbalanceMetrics.packLabels(dataSet.get(i), labelIndexes);
 		}
-		return labelBag;
+		return new LabelSetGroups(labelMatrix);
 	}
 }
@@ -0,0 +1,126 @@
+package mulan.resampling;
+
+import java.util.Arrays;
+
+/**
+ * Groups the instances of a dataset by their label set. Label sets are the
+ * packed rows of a label matrix, kept in an open addressing table keyed on a
+ * 64-bit hash of the row and checked for collisions against the first row of
+ * each group. The rows of every group are stored in a single primitive array.
+ * Groups are numbered in the order their first instance appears.
+ */
+public class LabelSetGroups {
+
+	private final long[][] labelMatrix;
+	private int numGroups;
+	private int[] firstRow;
+	private long[] groupHashes;
+	private int[] table;
+	private int[] start;
+	private int[] rows;
+
+	public LabelSetGroups(long[][] labelMatrix) {
+		this.labelMatrix = labelMatrix;
+		int numRows = labelMatrix.length;
+		firstRow = new int[16];
+		groupHashes = new long[16];
+		table = new int[32];
+		int[] groupOfRow = new int[numRows];
+		for (int i = 0; i < numRows; i++) {
+			groupOfRow[i] = findOrAdd(i);
+		}
+		start = new int[numGroups + 1];
+		for (int i = 0; i < numRows; i++) {
+			start[groupOfRow[i] + 1]++;
+		}
+		for (int g = 0; g < numGroups; g++) {
+			start[g + 1] += start[g];
+		}
+		rows = new int[numRows];
+		int[] next = Arrays.copyOf(start, numGroups);
+		for (int i = 0; i < numRows; i++) {
+			rows[next[groupOfRow[i]]++] = i;
+		}
+	}
+
+	public int numGroups() {
+		return numGroups;
+	}
+
+	/**
+	 * @param group a group number
+	 * @return the number of instances with the label set of the group
+	 */
+	public int size(int group) {
+		return start[group + 1] - start[group];
+	}
+
+	/**
+	 * @param group a group number
+	 * @return a copy of the rows of the instances in the group
+	 */
+	public int[] getRows(int group) {
+		return Arrays.copyOfRange(rows, start[group], start[group + 1]);
+	}
+
+	/**
+	 * @param group a group number
+	 * @return the packed label set shared by the instances of the group
+	 */
+	public long[] getLabelSet(int group) {
+		return labelMatrix[firstRow[group]];
+	}
+
+	/**
+	 * @return the mean number of instances per label set
+	 */
+	public double meanSize() {
+		return (double) labelMatrix.length / numGroups;
+	}
+
+	private int findOrAdd(int row) {
+		long[] labels = labelMatrix[row];
+		long hash = hash(labels);
+		int mask = table.length - 1;
+		int slot = (int) hash & mask;
+		while (table[slot] != 0) {
+			int group = table[slot] - 1;
+			if (groupHashes[group] == hash && Arrays.equals(labelMatrix[firstRow[group]], labels)) {
+				return group;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (numGroups == firstRow.length) {
+			firstRow = Arrays.copyOf(firstRow, 2 * numGroups);
+			groupHashes = Arrays.copyOf(groupHashes, 2 * numGroups);
+		}
+		firstRow[numGroups] = row;
+		groupHashes[numGroups] = hash;
+		table[slot] = ++numGroups;
+		if (2 * numGroups > table.length) {
+			rehash();
+		}
+		return numGroups - 1;
+	}
+
+	private void rehash() {
+		table = new int[2 * table.length];
+		int mask = table.length - 1;
+		for (int g = 0; g < numGroups; g++) {
+			int slot = (int) groupHashes[g] & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = g + 1;
+		}
+	}
+
+	private static long hash(long[] labels) {
+		long hash = 0x9E3779B97F4A7C15L;
+		for (long word : labels) {
+			hash = (hash ^ word) * 0xBF58476D1CE4E5B9L;
+			hash ^= hash >>> 31;
+		}
+		return hash ^ (hash >>> 29);
+	}
+}
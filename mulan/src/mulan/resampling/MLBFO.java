@@ -3,17 +3,19 @@ package mulan.resampling;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
-import weka.core.neighboursearch.LinearNNSearch;
 
 /**
 <!-- globalinfo-start -->
@@ -42,13 +44,14 @@ import weka.core.neighboursearch.LinearNNSearch;
 * @author Rodolfo Miranda Pereira
 * @version 2017.11.23
 */
-public class MLBFO {
+public class MLBFO implements Resampler {
 
 	private MultiLabelInstances data;
 	private String xmlLabels;
 	private Double percentage;
 	private Integer nn;
 	private ImbalanceMetrics metrics;
+	private NeighborIndexType neighborIndexType = NeighborIndexType.BruteForce;
 	
 	public MLBFO(MultiLabelInstances data, String xmlLabels, Integer nn, Double percentage) 
 			throws InvalidDataFormatException {
@@ -56,7 +59,7 @@ public class MLBFO {
 		this.xmlLabels = xmlLabels;
 		this.nn = nn;
 		this.percentage = percentage;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLBFO(MultiLabelInstances data, String xmlLabels, Double percentage) 
@@ -65,7 +68,7 @@ public class MLBFO {
 		this.xmlLabels = xmlLabels;
 		this.nn = 3;
 		this.percentage = percentage;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLBFO(MultiLabelInstances data, String xmlLabels) 
@@ -74,9 +77,23 @@ public class MLBFO {
 		this.xmlLabels = xmlLabels;
 		this.nn = 3;
 		this.percentage = 0.25;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 
+	public MLBFO(MultiLabelInstances data, LabelsMetaData labelsMetaData, Integer nn, Double percentage) 
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.nn = nn;
+		this.percentage = percentage;
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		MLBFO mlbfo = new MLBFO(data, data.getLabelsMetaData(), getNn(), getPercentage());
+		mlbfo.setNeighborIndexType(getNeighborIndexType());
+		return mlbfo;
+	}
+	
 	public ImbalanceMetrics getMetrics() {
 		return metrics;
 	}
@@ -117,17 +134,38 @@ public class MLBFO {
 		this.nn = nn;
 	}
 	
-	private Instances nearestNeighbors(Instance instance, Instances dataSet) throws Exception {
-		LinearNNSearch knn = new LinearNNSearch(dataSet);
-		Instances nearestInstances = knn.kNearestNeighbours(instance, getNn());		
+	public NeighborIndexType getNeighborIndexType() {
+		return neighborIndexType;
+	}
+
+	public void setNeighborIndexType(NeighborIndexType neighborIndexType) {
+		this.neighborIndexType = neighborIndexType;
+	}
+	
+	/**
+	 * Neighbors of a candidate as if it had been added once more to the
+	 * dataset: the candidate itself, its copy, and its nn - 2 nearest instances.
+	 */
+	private ArrayList<Instance> nearestNeighbors(Instance candidate, NeighborIndex index, 
+			Map<Instance, Integer> rows) {
+		ArrayList<Instance> nearestInstances = new ArrayList<Instance>();
+		nearestInstances.add(candidate);
+		for (int row : index.kNearestNeighbours(rows.get(candidate), getNn() - 1, false)) {
+			nearestInstances.add(index.getDataset().get(row));
+		}
 		return nearestInstances;
 	}
 	
 	public MultiLabelInstances resample() throws Exception {
-		ArrayList<Node> tree = contructSortedTree();
-		Instances newDataSet = getData().getDataSet();
 		getMetrics().calculateIRLbl();
 		getMetrics().calculateMeanIR();
+		ArrayList<Node> tree = contructSortedTree();
+		Instances newDataSet = getData().getDataSet();
+		NeighborIndex index = NeighborIndex.build(newDataSet, getNeighborIndexType());
+		Map<Instance, Integer> rows = new IdentityHashMap<Instance, Integer>();
+		for (int row = 0; row < newDataSet.numInstances(); row++) {
+			rows.put(newDataSet.get(row), row);
+		}
 		double samplesToDuplicate = getPercentage() * getData().getNumInstances();
 		int n = 0;
 		while (n < samplesToDuplicate) {
@@ -136,14 +174,12 @@ public class MLBFO {
 			while (i < candidates.size() && n < samplesToDuplicate) { 
 				Instance candidate = candidates.get(i);
 				i++;
-				Instances combinedDataset = new Instances(newDataSet);
-				combinedDataset.add(candidate);
 				ImbalanceMetrics newImbMetrics = new ImbalanceMetrics(getMetrics());
 				newImbMetrics.recalcNewSample(candidate);
 				if (newImbMetrics.getMeanIR() < metrics.getMeanIR()) {
 					continue;
 				}
-				Instances nearNeigh = nearestNeighbors(candidate, combinedDataset);
+				ArrayList<Instance> nearNeigh = nearestNeighbors(candidate, index, rows);
 				if (numberNNSharingLabel(nearNeigh) < nearNeigh.size() / 2) {
 					continue;
 				}
@@ -154,10 +190,10 @@ public class MLBFO {
 				}
 			}
 		}
-		return new MultiLabelInstances(newDataSet, getXmlLabels());
+		return new MultiLabelInstances(newDataSet, getData().getLabelsMetaData());
 	}
 
-	private Integer numberNNSharingLabel(Instances nearNeigh) throws Exception {
+	private Integer numberNNSharingLabel(List<Instance> nearNeigh) throws Exception {
 		ArrayList<ArrayList<Attribute>> neighbors = new ArrayList<ArrayList<Attribute>>(); 
 		for (Instance neighbor : nearNeigh) {
 			ArrayList<Attribute> labels = new ArrayList<Attribute>();
@@ -198,20 +234,28 @@ public class MLBFO {
 
 	private ArrayList<Node> contructSortedTree() {
     	ArrayList<Node> tree = new ArrayList<Node>();
-    	Map<Attribute, Double> sortedIRLbl = sortByValue(getMetrics().getIRLbl());
-    	for (Attribute label : sortedIRLbl.keySet()) {
+    	int[] labelIndices = getData().getLabelIndices();
+    	double[] iRLbl = getMetrics().getIRLbl();
+    	Map<Integer, Double> labelIRLbl = new HashMap<Integer, Double>();
+    	for (int label = 0; label < iRLbl.length; label++) {
+    		if (!Double.isNaN(iRLbl[label])) {
+    			labelIRLbl.put(label, iRLbl[label]);
+    		}
+    	}
+    	Map<Integer, Double> sortedIRLbl = sortByValue(labelIRLbl);
+    	for (Integer label : sortedIRLbl.keySet()) {
     		Node node = new Node();
     		node.setVisited(false);
-    		node.setInstances(getInstancesFromLabel(label));
+    		node.setInstances(getInstancesFromLabel(labelIndices[label]));
     		tree.add(node);
     	}
 		return tree;
 	}
     
-	private ArrayList<Instance> getInstancesFromLabel(Attribute label) {
+	private ArrayList<Instance> getInstancesFromLabel(int labelIndex) {
 		ArrayList<Instance> instances = new ArrayList<Instance>(); 
 		for (Instance instance : getData().getDataSet()) {
-			if (instance.value(label) == 1.0) {
+			if (instance.value(labelIndex) == 1.0) {
 				instances.add(instance);
 			}
 		}
@@ -3,11 +3,10 @@ package mulan.resampling;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Random;
-import java.util.Set;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
-import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 
@@ -50,33 +49,43 @@ public class MLROS extends MLRandomSampling {
 			throws InvalidDataFormatException {
 		super(data, xmlLabels, 0.25);
 	}
+
+	public MLROS(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double percentage)
+			throws InvalidDataFormatException {
+		super(data, labelsMetaData, percentage);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		return new MLROS(data, data.getLabelsMetaData(), getPercentage());
+	}
 	
 	@Override
 	public MultiLabelInstances resample() throws Exception {
 		Double samplesToClone = getData().getNumInstances() * getPercentage();
-		Set<Attribute> labelAttributes = getData().getLabelAttributes();
+		int[] labelIndices = getData().getLabelIndices();
 		getMetrics().calculateIRLbl();
 		getMetrics().calculateMeanIR();
-		HashMap<Attribute, ArrayList<Instance>> minBags = new HashMap<Attribute, ArrayList<Instance>>(); 
-		for (Attribute label : labelAttributes) {
-			Double iRLBl = getMetrics().getIRLbl().get(label);
-			Double meanIR = getMetrics().getMeanIR();
-			if (iRLBl != null && iRLBl > meanIR) { 
-				minBags.put(label, getInstancesFromLabel(label));
+		long[][] labelMatrix = getMetrics().getLabelMatrix();
+		HashMap<Integer, int[]> minBags = new HashMap<Integer, int[]>(); 
+		for (int label = 0; label < labelIndices.length; label++) {
+			double iRLBl = getMetrics().getIRLbl(label);
+			double meanIR = getMetrics().getMeanIR();
+			if (!Double.isNaN(iRLBl) && iRLBl > meanIR) { 
+				minBags.put(label, getIndicesFromLabel(label, labelMatrix));
 			}
 		}
 		Random generator = new Random(System.currentTimeMillis());
 		while (samplesToClone > 0) {
-			ArrayList<Attribute> markedToRemove = new ArrayList<Attribute>();
-			for (Attribute label : minBags.keySet()) {
-				ArrayList<Instance> minBag = minBags.get(label);
-				int sampleIndex = generator.nextInt(minBag.size());
-				Instance sampleToDuplicate = minBag.get(sampleIndex);
+			ArrayList<Integer> markedToRemove = new ArrayList<Integer>();
+			for (Integer label : minBags.keySet()) {
+				int[] minBag = minBags.get(label);
+				int sampleIndex = minBag[generator.nextInt(minBag.length)];
+				Instance sampleToDuplicate = getData().getDataSet().get(sampleIndex);
 				Instance newSample = new DenseInstance(sampleToDuplicate);
 				getData().getDataSet().add(newSample);
-				getMetrics().recalcNewSample(newSample);
-				Double newIRLBl = getMetrics().getIRLbl().get(label);
-				Double newMeanIR = getMetrics().getMeanIR();
+				getMetrics().recalcNewSample(labelMatrix[sampleIndex]);
+				double newIRLBl = getMetrics().getIRLbl(label);
+				double newMeanIR = getMetrics().getMeanIR();
 				if (newIRLBl <= newMeanIR) {
 					markedToRemove.add(label);
 				}
@@ -85,7 +94,7 @@ public class MLROS extends MLRandomSampling {
 					break;
 				}
 			}
-			for (Attribute label : markedToRemove) {
+			for (Integer label : markedToRemove) {
 				minBags.remove(label);
 			}
 			if (minBags.size() == 0) {
@@ -3,11 +3,10 @@ package mulan.resampling;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Random;
-import java.util.Set;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
-import weka.core.Attribute;
 import weka.core.Instance;
 
 /**
@@ -50,38 +49,58 @@ public class MLRUS extends MLRandomSampling {
 		super(data, xmlLabels, 0.25);
 	}
 
+	public MLRUS(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double percentage)
+			throws InvalidDataFormatException {
+		super(data, labelsMetaData, percentage);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		return new MLRUS(data, data.getLabelsMetaData(), getPercentage());
+	}
+
 	@Override
 	public MultiLabelInstances resample() throws Exception {
 		Double samplesToDelete = getData().getNumInstances() * getPercentage();
-		Set<Attribute> labelAttributes = getData().getLabelAttributes();
+		int[] labelIndices = getData().getLabelIndices();
 		getMetrics().calculateIRLbl();
 		getMetrics().calculateMeanIR();
-		HashMap<Attribute, ArrayList<Instance>> majBags = new HashMap<Attribute, ArrayList<Instance>>(); 
-		for (Attribute label : labelAttributes) {
-			Double iRLBl = getMetrics().getIRLbl().get(label);
-			Double meanIR = getMetrics().getMeanIR();
-			if (iRLBl != null && iRLBl < meanIR) { 
-				majBags.put(label, getInstancesFromLabel(label));
+		long[][] labelMatrix = getMetrics().getLabelMatrix();
+		HashMap<Integer, int[]> majBags = new HashMap<Integer, int[]>(); 
+		HashMap<Integer, Integer> majBagSizes = new HashMap<Integer, Integer>(); 
+		for (int label = 0; label < labelIndices.length; label++) {
+			double iRLBl = getMetrics().getIRLbl(label);
+			double meanIR = getMetrics().getMeanIR();
+			if (!Double.isNaN(iRLBl) && iRLBl < meanIR) { 
+				int[] majBag = getIndicesFromLabel(label, labelMatrix);
+				majBags.put(label, majBag);
+				majBagSizes.put(label, majBag.length);
 			}
 		}
+		boolean[] deleted = new boolean[labelMatrix.length];
 		Random generator = new Random(System.currentTimeMillis());
 		while (samplesToDelete > 0) {
-			ArrayList<Attribute> markedToRemove = new ArrayList<Attribute>(); 
-			for (Attribute label : majBags.keySet()) {
-				ArrayList<Instance> majBag = majBags.get(label);
-				int size = majBag.size();
-				if (size == 0) {
+			ArrayList<Integer> markedToRemove = new ArrayList<Integer>(); 
+			for (Integer label : majBags.keySet()) {
+				int[] majBag = majBags.get(label);
+				int size = majBagSizes.get(label);
+				int instanceToDelete = -1;
+				while (size > 0 && instanceToDelete == -1) {
+					int x = generator.nextInt(size);
+					int index = majBag[x];
+					majBag[x] = majBag[--size];
+					if (!deleted[index]) {
+						instanceToDelete = index;
+					}
+				}
+				majBagSizes.put(label, size);
+				if (instanceToDelete == -1) {
 					markedToRemove.add(label);
 					continue;
 				}
-				int sampleIndex = generator.nextInt(size);
-				Instance instanceToDelete = majBag.get(sampleIndex);
-				getData().getDataSet().remove(instanceToDelete);
-				majBag.remove(instanceToDelete);
-				majBags.replace(label, majBag);
-				getMetrics().recalcDelSample(instanceToDelete);
-				Double newIRLBl = getMetrics().getIRLbl().get(label);
-				Double newMeanIR = getMetrics().getMeanIR();
+				deleted[instanceToDelete] = true;
+				getMetrics().recalcDelSample(labelMatrix[instanceToDelete]);
+				double newIRLBl = getMetrics().getIRLbl(label);
+				double newMeanIR = getMetrics().getMeanIR();
 				if (newIRLBl >= newMeanIR) {
 					markedToRemove.add(label);
 				}
@@ -90,13 +109,14 @@ public class MLRUS extends MLRandomSampling {
 					break;
 				}
 			}
-			for (Attribute label : markedToRemove) {
+			for (Integer label : markedToRemove) {
 				majBags.remove(label);
 			}
 			if (majBags.size() == 0) {
 				samplesToDelete = 0.0;
 			}
 		}
+		removeInstances(deleted);
 		return getData(); 
 	}
 }
@@ -1,13 +1,15 @@
 package mulan.resampling;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
-import weka.core.Attribute;
 import weka.core.Instance;
+import weka.core.Instances;
 
-public abstract class MLRandomSampling {
+public abstract class MLRandomSampling implements Resampler {
 
 	private MultiLabelInstances data;
 	private String xmlLabels;
@@ -19,7 +21,14 @@ public abstract class MLRandomSampling {
 		this.data = new MultiLabelInstances(data.getDataSet(), xmlLabels);
 		this.xmlLabels = xmlLabels;
 		this.percentage = percentage;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+	
+	public MLRandomSampling(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double percentage)
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.percentage = percentage;
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public String getXmlLabels() {
@@ -54,16 +63,53 @@ public abstract class MLRandomSampling {
 		this.metrics = metrics;
 	}
 	
-	public ArrayList<Instance> getInstancesFromLabel(Attribute label) {
+	public ArrayList<Instance> getInstancesFromLabel(int labelIndex) {
 		ArrayList<Instance> instances = new ArrayList<Instance>(); 
 		for (int i = 0; i < getData().getNumInstances(); i++) {
 			Instance instance = getData().getDataSet().get(i);
-			if (instance.value(label) == 1.0) {
+			if (instance.value(labelIndex) == 1.0) {
 				instances.add(instance);
 			}
 		}
 		return instances;
 	}
 	
+	/**
+	 * Returns the positions of the instances annotated with a label.
+	 *
+	 * @param label the position of the label
+	 * @param labelMatrix the packed label matrix of the dataset
+	 * @return the indices of the instances annotated with the label
+	 */
+	protected int[] getIndicesFromLabel(int label, long[][] labelMatrix) {
+		int[] indices = new int[labelMatrix.length];
+		int size = 0;
+		for (int i = 0; i < labelMatrix.length; i++) {
+			if ((labelMatrix[i][label >>> 6] & (1L << label)) != 0) {
+				indices[size++] = i;
+			}
+		}
+		return Arrays.copyOf(indices, size);
+	}
+
+	/**
+	 * Removes the flagged instances from the dataset in a single pass.
+	 *
+	 * @param deleted flags, by instance position, of the instances to remove
+	 */
+	protected void removeInstances(boolean[] deleted) {
+		Instances dataSet = getData().getDataSet();
+		ArrayList<Instance> kept = new ArrayList<Instance>(dataSet.numInstances());
+		for (int i = 0; i < deleted.length; i++) {
+			if (!deleted[i]) {
+				kept.add(dataSet.get(i));
+			}
+		}
+		dataSet.delete();
+		for (Instance instance : kept) {
+			dataSet.add(instance);
+		}
+	}
+
 	public abstract MultiLabelInstances resample() throws Exception;
 }
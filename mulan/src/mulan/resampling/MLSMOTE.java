@@ -1,17 +1,22 @@
 package mulan.resampling;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
-import weka.core.Instances;
-import weka.core.neighboursearch.LinearNNSearch;
 
 /**
 <!-- globalinfo-start -->
@@ -41,7 +46,7 @@ import weka.core.neighboursearch.LinearNNSearch;
 * @author Rodolfo Miranda Pereira
 * @version 2017.11.24
 */
-public class MLSMOTE {
+public class MLSMOTE implements Resampler {
 
 	private MultiLabelInstances data;
 	private Integer nn;
@@ -49,6 +54,10 @@ public class MLSMOTE {
 	private Double percentage;
 	private LabelCombination labelCombination;
 	private ImbalanceMetrics metrics;
+	private NeighborIndexType neighborIndexType = NeighborIndexType.BruteForce;
+	private long seed = System.currentTimeMillis();
+	private int numThreads = 1;
+	private ExecutorService executor;
 	
 	public MLSMOTE(MultiLabelInstances data, String xmlLabels, Integer nn, 
 			LabelCombination labelCombination, Double percentage) 
@@ -58,7 +67,7 @@ public class MLSMOTE {
 		this.nn = nn;
 		this.percentage = percentage;
 		this.labelCombination = labelCombination;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLSMOTE(MultiLabelInstances data, String xmlLabels, 
@@ -69,7 +78,7 @@ public class MLSMOTE {
 		this.labelCombination = labelCombination;
 		this.percentage = percentage;
 		this.nn = 5;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLSMOTE(MultiLabelInstances data, String xmlLabels, Integer nn, Double percentage)
@@ -79,7 +88,7 @@ public class MLSMOTE {
 		this.nn = nn;
 		this.percentage = percentage;
 		this.labelCombination = LabelCombination.Ranking;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLSMOTE(MultiLabelInstances data, String xmlLabels, Double percentage)
@@ -89,7 +98,7 @@ public class MLSMOTE {
 		this.percentage = percentage;
 		this.nn = 5;
 		this.labelCombination = LabelCombination.Ranking;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLSMOTE(MultiLabelInstances data, String xmlLabels)
@@ -99,7 +108,27 @@ public class MLSMOTE {
 		this.percentage = 0.25;
 		this.nn = 5;
 		this.labelCombination = LabelCombination.Ranking;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+
+	public MLSMOTE(MultiLabelInstances data, LabelsMetaData labelsMetaData, Integer nn, 
+			LabelCombination labelCombination, Double percentage) 
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.nn = nn;
+		this.percentage = percentage;
+		this.labelCombination = labelCombination;
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		MLSMOTE mlsmote = new MLSMOTE(data, data.getLabelsMetaData(), getNn(), 
+				getLabelCombination(), getPercentage());
+		mlsmote.setNeighborIndexType(getNeighborIndexType());
+		mlsmote.setSeed(getSeed());
+		mlsmote.setNumThreads(getNumThreads());
+		mlsmote.setExecutor(getExecutor());
+		return mlsmote;
 	}
 
 	public Double getPercentage() {
@@ -150,46 +179,205 @@ public class MLSMOTE {
 		this.nn = nn;
 	}
 	
-	private Instances nearestNeighbors(Instance instance, Instances dataSet) throws Exception {
-		LinearNNSearch knn = new LinearNNSearch(dataSet);
-		Instances nearestInstances = knn.kNearestNeighbours(instance, getNn());		
-		return nearestInstances;
+	public NeighborIndexType getNeighborIndexType() {
+		return neighborIndexType;
+	}
+
+	public void setNeighborIndexType(NeighborIndexType neighborIndexType) {
+		this.neighborIndexType = neighborIndexType;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Sets the seed of the random generator. Each seed instance draws its
+	 * synthetic sample from its own generator, derived in a fixed order from
+	 * this seed, so the result does not depend on the number of threads.
+	 * 
+	 * @param seed the seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Sets the number of threads used to generate the synthetic samples when
+	 * no executor is set. A value of 1 generates them in the calling thread.
+	 * 
+	 * @param numThreads the number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets an executor, such as a {@link java.util.concurrent.ForkJoinPool}, 
+	 * to generate the synthetic samples on. It is not shut down by MLSMOTE.
+	 * 
+	 * @param executor the executor
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	
+	private ArrayList<Instance> toInstances(int[] rows) {
+		ArrayList<Instance> instances = new ArrayList<Instance>(rows.length);
+		for (int row : rows) {
+			instances.add(getData().getDataSet().get(row));
+		}
+		return instances;
 	}
 	
 	public MultiLabelInstances resample() throws Exception {
-		Set<Attribute> labelSet = getData().getLabelAttributes();
+		int[] labelIndices = getData().getLabelIndices();
 		getMetrics().calculateIRLbl();
 		getMetrics().calculateMeanIR();
-		Random generator = new Random(System.currentTimeMillis());
-		ArrayList<Instance> newInstances = new ArrayList<Instance>(); 
-		for (Attribute label : labelSet) {
-			Double iRLbl = getMetrics().getIRLbl().get(label);
-			Double meanIR = getMetrics().getMeanIR();
-			if (iRLbl != null && iRLbl > meanIR) {
-				ArrayList<Integer> minBag = getAllInstancesOfLabel(label);
-				for (Integer index : minBag) {
-					Instance sample = getData().getDataSet().get(index);
-					Instances neighbors = nearestNeighbors(sample, getData().getDataSet());
+		ArrayList<Integer> seeds = new ArrayList<Integer>();
+		for (int label = 0; label < labelIndices.length; label++) {
+			double iRLbl = getMetrics().getIRLbl()[label];
+			double meanIR = getMetrics().getMeanIR();
+			if (!Double.isNaN(iRLbl) && iRLbl > meanIR) {
+				seeds.addAll(getAllInstancesOfLabel(labelIndices[label]));
+			}
+		}
+		// samples beyond the requested amount would be discarded, so they are not generated
+		Double samplesToCreate = getPercentage() * getData().getDataSet().numInstances();
+		int numSamples = (int) Math.min(Math.ceil(samplesToCreate), seeds.size());
+		final int[] sampleSeeds = new int[numSamples];
+		final long[] generatorSeeds = new long[numSamples];
+		Random seedGenerator = new Random(getSeed());
+		for (int i = 0; i < numSamples; i++) {
+			sampleSeeds[i] = seeds.get(i);
+			generatorSeeds[i] = seedGenerator.nextLong();
+		}
+		final int[][] neighborRows = seedNeighbors(sampleSeeds);
+		final ArrayList<Attribute> features = new ArrayList<Attribute>();
+		for (int featureIndex : getData().getFeatureIndices()) {
+			features.add(getData().getDataSet().attribute(featureIndex));
+		}
+		final long[][] labelMatrix = getMetrics().getLabelMatrix();
+		final Instance[] newInstances = new Instance[numSamples];
+		forEachChunk(numSamples, new ChunkTask() {
+			public void run(int from, int to) {
+				long[] labelSet = new long[ImbalanceMetrics.numWords(getData().getNumLabels())];
+				int[] votes = new int[getData().getNumLabels()];
+				for (int i = from; i < to; i++) {
+					Random generator = new Random(generatorSeeds[i]);
+					Instance sample = getData().getDataSet().get(sampleSeeds[i]);
+					ArrayList<Instance> neighbors = toInstances(neighborRows[sampleSeeds[i]]);
 					int randIndex = generator.nextInt(neighbors.size());
 					Instance refNeigh = neighbors.get(randIndex);
-					Instance synthSample = newSample(sample, refNeigh, neighbors, generator);
-					newInstances.add(synthSample);
+					combineLabels(labelMatrix, sampleSeeds[i], neighborRows[sampleSeeds[i]], labelSet, votes);
+					newInstances[i] = newSample(sample, refNeigh, neighbors, features, labelSet, generator);
 				}
 			}
-		}
-		Double samplesToCreate = getPercentage() * getData().getDataSet().numInstances();
-		int i = 0, n = 0;
-		while (n < samplesToCreate && i < newInstances.size()) {
-			getData().getDataSet().add(newInstances.get(i));
-			i++;
-			n++;
+		});
+		for (Instance newInstance : newInstances) {
+			getData().getDataSet().add(newInstance);
 		}
 		return getData();
 	}
 
-	private Instance newSample(Instance sample, Instance refNeigh, Instances neighbors, Random generator) {
+	/**
+	 * Finds, in batches over a shared index, the neighbors of every distinct
+	 * seed instance.
+	 */
+	private int[][] seedNeighbors(int[] sampleSeeds) throws Exception {
+		int numInstances = getData().getNumInstances();
+		boolean[] isSeed = new boolean[numInstances];
+		int numSeeds = 0;
+		for (int index : sampleSeeds) {
+			if (!isSeed[index]) {
+				isSeed[index] = true;
+				numSeeds++;
+			}
+		}
+		final int[] seeds = new int[numSeeds];
+		for (int i = 0, s = 0; i < numInstances; i++) {
+			if (isSeed[i]) {
+				seeds[s++] = i;
+			}
+		}
+		final NeighborIndex index = NeighborIndex.build(getData().getDataSet(), getNeighborIndexType());
+		final int[][] neighbors = new int[numInstances][];
+		forEachChunk(numSeeds, new ChunkTask() {
+			public void run(int from, int to) {
+				int[][] chunkNeighbors = index.kNearestNeighbours(
+						Arrays.copyOfRange(seeds, from, to), getNn(), true);
+				for (int s = from; s < to; s++) {
+					neighbors[seeds[s]] = chunkNeighbors[s - from];
+				}
+			}
+		});
+		return neighbors;
+	}
+
+	private interface ChunkTask {
+		void run(int from, int to) throws Exception;
+	}
+
+	/**
+	 * Splits the range [0, size) in chunks and runs them on the executor, or
+	 * on a pool of {@link #getNumThreads()} threads, or in the calling thread.
+	 * Chunks write to disjoint positions, so the result does not depend on the
+	 * order in which they complete.
+	 */
+	private void forEachChunk(int size, final ChunkTask task) throws Exception {
+		ExecutorService pool = getExecutor();
+		boolean ownPool = false;
+		if (pool == null && getNumThreads() > 1 && size > 1) {
+			pool = Executors.newFixedThreadPool(getNumThreads());
+			ownPool = true;
+		}
+		if (pool == null) {
+			task.run(0, size);
+			return;
+		}
+		try {
+			int numChunks = Math.min(size, 4 * Math.max(1, getNumThreads()));
+			int chunkSize = (size + numChunks - 1) / Math.max(1, numChunks);
+			List<Callable<Void>> chunks = new ArrayList<Callable<Void>>();
+			for (int start = 0; start < size; start += chunkSize) {
+				final int from = start;
+				final int to = Math.min(size, start + chunkSize);
+				chunks.add(new Callable<Void>() {
+					public Void call() throws Exception {
+						task.run(from, to);
+						return null;
+					}
+				});
+			}
+			for (Future<Void> chunk : pool.invokeAll(chunks)) {
+				try {
+					chunk.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			if (ownPool) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private Instance newSample(Instance sample, Instance refNeigh, List<Instance> neighbors, 
+			List<Attribute> features, long[] labelSet, Random generator) {
 		Instance synthSample = new DenseInstance(sample);
-		for (Attribute feature : getData().getFeatureAttributes()) {
+		for (Attribute feature : features) {
 			if (feature.isNumeric()) {
 				Double diff = refNeigh.value(feature) - sample.value(feature);
 				Double offset = diff * generator.nextInt(1);
@@ -200,117 +388,72 @@ public class MLSMOTE {
 				synthSample.setValue(feature, value);
 			}
 		}
-		ArrayList<Attribute> newLabelSet = createLabelSet(sample, neighbors);
-		for (Attribute label : getData().getLabelAttributes()) {
-			if (newLabelSet.contains(label)) {
-				synthSample.setValue(label, 1);
+		int[] labelIndices = getData().getLabelIndices();
+		for (int j = 0; j < labelIndices.length; j++) {
+			if ((labelSet[j >>> 6] & (1L << j)) != 0) {
+				synthSample.setValue(labelIndices[j], 1);
 			} else {
-				synthSample.setValue(label, 0);
+				synthSample.setValue(labelIndices[j], 0);
 			}
 		}
 		return synthSample;
 	}
 
-	private ArrayList<Attribute> createLabelSet(Instance sample, Instances neighbors) {
-		ArrayList<Instance> instances = new ArrayList<Instance>();
-		instances.addAll(neighbors);
-		instances.add(sample);
-		if (getLabelCombination() == LabelCombination.Ranking) {
-			return createLabelRanking(instances);
-		} else if (getLabelCombination() == LabelCombination.Intersection) {
-			return createLabelIntersection(instances);
-		} else {
-			return createLabelUnion(instances);
-		}
-	}
-	
-	private ArrayList<Attribute> createLabelIntersection(ArrayList<Instance> neighbors) {
-		int numInstances = neighbors.size();
-		int numLabels = getData().getNumLabels();
-		int[] labelIndices = getData().getLabelIndices();
-		int[] intersection = null;
-		for (int i = 0; i < numInstances; i++) {
-			int[] labels = new int[numLabels];
-			for (int j = 0; j < numLabels; j++) {
-				if (neighbors.get(i).stringValue(labelIndices[j]).equals("1")) {
-					labels[j] = 1;
-				} else {
-					labels[j] = 0;
+	/**
+	 * Combines the packed labels of a sample and its neighbors into 
+	 * <code>labelSet</code>, following the label combination strategy. Union
+	 * and intersection are word-wise OR and AND, and ranking keeps the labels
+	 * present in at least half of the instances.
+	 * 
+	 * @param labelMatrix the packed labels of the dataset
+	 * @param sample the row of the sample
+	 * @param neighbors the rows of its neighbors
+	 * @param labelSet the bit set receiving the new labels
+	 * @param votes a buffer with one counter per label, used by the ranking
+	 */
+	private void combineLabels(long[][] labelMatrix, int sample, int[] neighbors, long[] labelSet, int[] votes) {
+		long[] sampleLabels = labelMatrix[sample];
+		if (getLabelCombination() == LabelCombination.Union) {
+			for (int w = 0; w < labelSet.length; w++) {
+				long union = sampleLabels[w];
+				for (int neighbor : neighbors) {
+					union |= labelMatrix[neighbor][w];
 				}
+				labelSet[w] = union;
 			}
-			if (intersection == null) {
-				intersection = labels;
-			} else {
-				for (int k = 0; k < numLabels; k++) {
-					intersection[k] = intersection[k] & labels[k];
+		} else if (getLabelCombination() == LabelCombination.Intersection) {
+			for (int w = 0; w < labelSet.length; w++) {
+				long intersection = sampleLabels[w];
+				for (int neighbor : neighbors) {
+					intersection &= labelMatrix[neighbor][w];
 				}
+				labelSet[w] = intersection;
 			}
-		}
-		ArrayList<Attribute> labels = new ArrayList<Attribute>();
-		ArrayList<Attribute> labelAttributes = new ArrayList<Attribute>();
-		labelAttributes.addAll(getData().getFeatureAttributes());
-		for (int k = 0; k < numLabels; k++) {
-			if (intersection[k] == 1) {
-				labels.add(labelAttributes.get(k));
+		} else {
+			Arrays.fill(votes, 0);
+			addVotes(sampleLabels, votes);
+			for (int neighbor : neighbors) {
+				addVotes(labelMatrix[neighbor], votes);
 			}
-		}
-		return labels;
-	}
-
-	private ArrayList<Attribute> createLabelUnion(ArrayList<Instance> neighbors) {
-		int numInstances = neighbors.size();
-		int numLabels = getData().getNumLabels();
-		int[] labelIndices = getData().getLabelIndices();
-		int[] union = new int[numLabels];
-		int[] dblLabels = new int[numLabels];
-		for (int i = 0; i < numInstances; i++) {
-			for (int j = 0; j < numLabels; j++) {
-				if (neighbors.get(i).stringValue(labelIndices[j]).equals("1")) {
-					dblLabels[j] = 1;
-				} else {
-					dblLabels[j] = 0;
+			int threshold = (int) ((neighbors.length + 1) * 0.5);
+			Arrays.fill(labelSet, 0L);
+			for (int j = 0; j < votes.length; j++) {
+				if (votes[j] >= threshold) {
+					labelSet[j >>> 6] |= 1L << j;
 				}
 			}
-			for (int index = 0; index < union.length; index++) {
-				union[index] = ((union[index] == 1) || (dblLabels[index] == 1) ? 1 : 0);
-			}
-		}
-		ArrayList<Attribute> labels = new ArrayList<Attribute>();
-		ArrayList<Attribute> labelAttributes = new ArrayList<Attribute>();
-		labelAttributes.addAll(getData().getFeatureAttributes());
-		for (int k = 0; k < numLabels; k++) {
-			if (union[k] == 1) {
-				labels.add(labelAttributes.get(k));
-			}
 		}
-		return labels;
 	}
-	
-	private ArrayList<Attribute> createLabelRanking(ArrayList<Instance> neighbors) {
-		int numInstances = neighbors.size();
-		int numLabels = getData().getNumLabels();
-		int[] labelIndices = getData().getLabelIndices();
-		int[] labelCount = new int[numLabels];
-		for (int i = 0; i < numInstances; i++) {
-			for (int j = 0; j < numLabels; j++) {
-				if (neighbors.get(i).stringValue(labelIndices[j]).equals("1")) {
-					labelCount[j] += 1;
-				}
-			}
-		}
-		ArrayList<Attribute> labels = new ArrayList<Attribute>();
-		ArrayList<Attribute> labelAttributes = new ArrayList<Attribute>();
-		labelAttributes.addAll(getData().getLabelAttributes());
-		int threshold = (int)(neighbors.size() * 0.5);
-		for (int j = 0; j < numLabels; j++) {
-			if (labelCount[j] >= threshold) {
-				labels.add(labelAttributes.get(j));
+
+	private static void addVotes(long[] labels, int[] votes) {
+		for (int w = 0; w < labels.length; w++) {
+			for (long word = labels[w]; word != 0; word &= word - 1) {
+				votes[(w << 6) + Long.numberOfTrailingZeros(word)]++;
 			}
 		}
-		return labels;
 	}
 
-	private String mostFreqVal(Instances neighbors, Attribute feature) {
+	private String mostFreqVal(List<Instance> neighbors, Attribute feature) {
 		HashMap<String, Integer> countMap = new HashMap<String, Integer>(); 
 		for (Instance sample : neighbors) {
 			String value = sample.stringValue(feature);
@@ -334,11 +477,11 @@ public class MLSMOTE {
 		return mostFreq;
 	}
 
-	private ArrayList<Integer> getAllInstancesOfLabel(Attribute label) {
+	private ArrayList<Integer> getAllInstancesOfLabel(int labelIndex) {
 		ArrayList<Integer> instanceIndices = new ArrayList<Integer>(); 
 		for (int i = 0; i < getData().getDataSet().size(); i++) {
 			Instance sample = getData().getDataSet().get(i);
-			if (sample.value(label) == 1.0) {
+			if (sample.value(labelIndex) == 1.0) {
 				instanceIndices.add(i);
 			}
 		}
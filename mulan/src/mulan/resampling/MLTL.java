@@ -6,9 +6,9 @@ import java.util.HashMap;
 import java.util.Set;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 import weka.core.Attribute;
-import weka.core.EuclideanDistance;
 import weka.core.Instance;
 
 /**
@@ -37,20 +37,21 @@ import weka.core.Instance;
 * @author Rodolfo Miranda Pereira
 * @version 2017.11.15
 */
-public class MLTL {
+public class MLTL implements Resampler {
 
 	private MultiLabelInstances data;
 	private String xmlLabels;
 	private Double threshold;
 	private Boolean isCleaningMethod;
 	private ImbalanceMetrics metrics;
+	private NeighborIndexType neighborIndexType = NeighborIndexType.BruteForce;
 	
 	public MLTL(MultiLabelInstances data, String xmlLabels)
 			throws InvalidDataFormatException {
 		this.data = new MultiLabelInstances(data.getDataSet(), xmlLabels);
 		this.isCleaningMethod = Boolean.FALSE;
 		this.xmlLabels = xmlLabels;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLTL(MultiLabelInstances data, String xmlLabels, Double threshold)
@@ -59,7 +60,7 @@ public class MLTL {
 		this.threshold = threshold;
 		this.isCleaningMethod = Boolean.FALSE;
 		this.xmlLabels = xmlLabels;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLTL(MultiLabelInstances data, String xmlLabels, Boolean isCleaningMethod)
@@ -67,7 +68,7 @@ public class MLTL {
 		this.data = new MultiLabelInstances(data.getDataSet(), xmlLabels);
 		this.isCleaningMethod = isCleaningMethod;
 		this.xmlLabels = xmlLabels;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLTL(
@@ -77,7 +78,21 @@ public class MLTL {
 		this.threshold = threshold;
 		this.isCleaningMethod = isCleaningMethod;
 		this.xmlLabels = xmlLabels;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+	
+	public MLTL(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double threshold, 
+			Boolean isCleaningMethod) throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.threshold = threshold;
+		this.isCleaningMethod = isCleaningMethod;
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		MLTL mltl = new MLTL(data, data.getLabelsMetaData(), getThreashold(), isCleaningMethod());
+		mltl.setNeighborIndexType(getNeighborIndexType());
+		return mltl;
 	}
 	
 	public MultiLabelInstances getData() {
@@ -112,6 +127,14 @@ public class MLTL {
 		this.threshold = threshold;
 	}
 	
+	public NeighborIndexType getNeighborIndexType() {
+		return neighborIndexType;
+	}
+
+	public void setNeighborIndexType(NeighborIndexType neighborIndexType) {
+		this.neighborIndexType = neighborIndexType;
+	}
+	
 	public String getXmlLabels() {
 		return xmlLabels;
 	}
@@ -151,28 +174,12 @@ public class MLTL {
 		return distance / num_labels;
 	}
 	
-	private Instance nearestNeighbor(Instance instance, EuclideanDistance ed) throws Exception {
-		Instance nearestInstance = null;
-		Double closest = null;
-		for (Instance sample : getData().getDataSet()) {
-			if (sample.equals(instance)) {
-				continue;
-			}
-			double distance = ed.distance(instance, sample);
-			if (closest == null || distance < closest) {
-				closest = distance;
-				nearestInstance = sample;
-			}
-		}
-		return nearestInstance;
-	}
-    
-	private ArrayList<Instance> getInstancesFromLabel(Attribute label) {
-		ArrayList<Instance> instances = new ArrayList<Instance>(); 
+	private ArrayList<Integer> getInstancesFromLabel(int labelIndex) {
+		ArrayList<Integer> instances = new ArrayList<Integer>(); 
 		for (int i = 0; i < getData().getNumInstances(); i++) {
 			Instance instance = getData().getDataSet().get(i);
-			if (instance.value(label) == 1.0) {
-				instances.add(instance);
+			if (instance.value(labelIndex) == 1.0) {
+				instances.add(i);
 			}
 		}
 		return instances;
@@ -194,12 +201,12 @@ public class MLTL {
 
 	private ArrayList<Instance> retrieveTomekLinks() throws Exception {
 		Set<Attribute> labelAttributes = getData().getLabelAttributes();
-		EuclideanDistance ed = new EuclideanDistance(getData().getDataSet());
+		NeighborIndex index = NeighborIndex.build(getData().getDataSet(), getNeighborIndexType());
 		ArrayList<Instance> tomekLinks = null;
 		if (isCleaningMethod()) {
-			tomekLinks = retriveAllTomekLinks(labelAttributes, ed);
+			tomekLinks = retriveAllTomekLinks(labelAttributes, index);
 		} else {
-			tomekLinks = retriveMajorityTomekLinks(labelAttributes, ed);
+			tomekLinks = retriveMajorityTomekLinks(labelAttributes, index);
 		}
 		if (tomekLinks.size() == getData().getNumInstances()) {
 			System.out.println("Your dataset has a high SCUMBLE value.");
@@ -209,52 +216,54 @@ public class MLTL {
 	}
 
 	private ArrayList<Instance> retriveAllTomekLinks(
-			Set<Attribute> labelAttributes, EuclideanDistance ed) throws Exception {
+			Set<Attribute> labelAttributes, NeighborIndex index) throws Exception {
 		ArrayList<Instance> tomekLinks = new ArrayList<Instance>();
-		ArrayList<Instance> checkedSamples = new ArrayList<Instance>();
-		for (Instance sample : getData().getDataSet()) {
-			if (checkedSamples.contains(sample)) {
-				continue;
-			}
-			Instance nearestNeighbor = nearestNeighbor(sample, ed);
-			checkedSamples.add(sample);
-			Double distance = adjustedHammingDist(sample, nearestNeighbor, labelAttributes);
-			if (distance > getThreashold()) {
-				tomekLinks.add(sample);
+		for (int row = 0; row < getData().getNumInstances(); row++) {
+			if (isTomekLink(row, labelAttributes, index)) {
+				tomekLinks.add(getData().getDataSet().get(row));
 			}
 		}
 		return tomekLinks;
 	}
 
 	private ArrayList<Instance> retriveMajorityTomekLinks(
-			Set<Attribute> labelAttributes, EuclideanDistance ed) throws Exception {
+			Set<Attribute> labelAttributes, NeighborIndex index) throws Exception {
 		ArrayList<Instance> tomekLinks = new ArrayList<Instance>();
-		HashMap<Attribute, ArrayList<Instance>> majBags = getMajorityBag(labelAttributes);
-		Collection<ArrayList<Instance>> values = majBags.values();
-		ArrayList<Instance> checkedSamples = new ArrayList<Instance>();
-		for (ArrayList<Instance> majBag : values) {
-			for (Instance sample : majBag) {
-				if (checkedSamples.contains(sample)) {
+		HashMap<Integer, ArrayList<Integer>> majBags = getMajorityBag();
+		Collection<ArrayList<Integer>> values = majBags.values();
+		boolean[] checkedSamples = new boolean[getData().getNumInstances()];
+		for (ArrayList<Integer> majBag : values) {
+			for (Integer row : majBag) {
+				if (checkedSamples[row]) {
 					continue;
 				}
-				Instance nearestNeighbor = nearestNeighbor(sample, ed);
-				checkedSamples.add(sample);
-				Double distance = adjustedHammingDist(sample, nearestNeighbor, labelAttributes);
-				if (distance > getThreashold()) {
-					tomekLinks.add(sample);
+				checkedSamples[row] = true;
+				if (isTomekLink(row, labelAttributes, index)) {
+					tomekLinks.add(getData().getDataSet().get(row));
 				}
 			}
 		}
 		return tomekLinks;
 	}
 
-	private HashMap<Attribute, ArrayList<Instance>> getMajorityBag(Set<Attribute> labelAttributes) {
-		HashMap<Attribute, ArrayList<Instance>> majBags = new HashMap<Attribute, ArrayList<Instance>>(); 
-		for (Attribute label : labelAttributes) {
-			Double iRLBl = getMetrics().getIRLbl().get(label);
-			Double meanIR = getMetrics().getMeanIR();
-			if (iRLBl != null && iRLBl < meanIR) { 
-				majBags.put(label, getInstancesFromLabel(label));
+	private boolean isTomekLink(int row, Set<Attribute> labelAttributes, NeighborIndex index) {
+		int nearestNeighbor = index.nearestNeighbour(row);
+		if (nearestNeighbor == -1) {
+			return false;
+		}
+		Double distance = adjustedHammingDist(getData().getDataSet().get(row), 
+				getData().getDataSet().get(nearestNeighbor), labelAttributes);
+		return distance > getThreashold();
+	}
+
+	private HashMap<Integer, ArrayList<Integer>> getMajorityBag() {
+		int[] labelIndices = getData().getLabelIndices();
+		HashMap<Integer, ArrayList<Integer>> majBags = new HashMap<Integer, ArrayList<Integer>>(); 
+		for (int label = 0; label < labelIndices.length; label++) {
+			double iRLBl = getMetrics().getIRLbl()[label];
+			double meanIR = getMetrics().getMeanIR();
+			if (!Double.isNaN(iRLBl) && iRLBl < meanIR) { 
+				majBags.put(label, getInstancesFromLabel(labelIndices[label]));
 			}
 		}
 		return majBags;
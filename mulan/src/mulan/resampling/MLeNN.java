@@ -4,11 +4,10 @@ import java.util.ArrayList;
 import java.util.Set;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 import weka.core.Attribute;
 import weka.core.Instance;
-import weka.core.Instances;
-import weka.core.neighboursearch.LinearNNSearch;
 
 /**
 <!-- globalinfo-start -->
@@ -37,13 +36,14 @@ import weka.core.neighboursearch.LinearNNSearch;
 * @author Rodolfo Miranda Pereira
 * @version 2017.11.15
 */
-public class MLeNN {
+public class MLeNN implements Resampler {
 
 	private MultiLabelInstances data;
 	private String xmlLabels;
 	private Double ht;
 	private Integer nn;
 	private ImbalanceMetrics metrics;
+	private NeighborIndexType neighborIndexType = NeighborIndexType.BruteForce;
 	
 	public MLeNN(MultiLabelInstances data, String xmlLabels, Double ht, Integer nn) 
 			throws InvalidDataFormatException {
@@ -51,7 +51,7 @@ public class MLeNN {
 		this.xmlLabels = xmlLabels;
 		this.ht = ht;
 		this.nn = nn;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLeNN(MultiLabelInstances data, String xmlLabels, Double ht) 
@@ -60,7 +60,7 @@ public class MLeNN {
 		this.xmlLabels = xmlLabels;
 		this.ht = ht;
 		this.nn = 3;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLeNN(MultiLabelInstances data, String xmlLabels, Integer nn) 
@@ -69,7 +69,7 @@ public class MLeNN {
 		this.xmlLabels = xmlLabels;
 		this.nn = nn;
 		this.ht = 0.5;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 	
 	public MLeNN(MultiLabelInstances data, String xmlLabels) 
@@ -78,9 +78,23 @@ public class MLeNN {
 		this.xmlLabels = xmlLabels;
 		this.nn = 3;
 		this.ht = 0.5;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 	}
 
+	public MLeNN(MultiLabelInstances data, LabelsMetaData labelsMetaData, Double ht, Integer nn) 
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.ht = ht;
+		this.nn = nn;
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		MLeNN mlenn = new MLeNN(data, data.getLabelsMetaData(), getHt(), getNn());
+		mlenn.setNeighborIndexType(getNeighborIndexType());
+		return mlenn;
+	}
+	
 	public MultiLabelInstances getData() {
 		return data;
 	}
@@ -121,10 +135,12 @@ public class MLeNN {
 		this.xmlLabels = xmlLabels;
 	}
 	
-	private Instances nearestNeighbors(Instance instance, Instances dataSet) throws Exception {
-		LinearNNSearch knn = new LinearNNSearch(dataSet);
-		Instances nearestInstances = knn.kNearestNeighbours(instance, getNn());		
-		return nearestInstances;
+	public NeighborIndexType getNeighborIndexType() {
+		return neighborIndexType;
+	}
+
+	public void setNeighborIndexType(NeighborIndexType neighborIndexType) {
+		this.neighborIndexType = neighborIndexType;
 	}
     
 	private Double adjustedHammingDist(Instance instance, Instance neighbor, Set<Attribute> labels) {
@@ -142,28 +158,39 @@ public class MLeNN {
 	}
 	
 	public MultiLabelInstances resample() throws Exception {
-		Set<Attribute> labelAttributes = getData().getLabelAttributes();
+		int[] labelIndices = getData().getLabelIndices();
 		getMetrics().calculateIRLbl();
 		getMetrics().calculateMeanIR();
-		ArrayList<Instance> instancesToRemove = new ArrayList<Instance>(); 
+		ArrayList<Integer> candidates = new ArrayList<Integer>(); 
 		for (int index = 0; index < getData().getDataSet().numInstances(); index++) {
 			Instance instance = getData().getDataSet().get(index);
 			boolean nextSample = false;
-			for (Attribute label : labelAttributes) {
-				double value = instance.value(label);
+			for (int label = 0; label < labelIndices.length; label++) {
+				double value = instance.value(labelIndices[label]);
 				if (value == 1.0) {
-					Double iRLbl = getMetrics().getIRLbl().get(label);
-					if (iRLbl != null && iRLbl > getMetrics().getMeanIR()) {
+					double iRLbl = getMetrics().getIRLbl()[label];
+					if (!Double.isNaN(iRLbl) && iRLbl > getMetrics().getMeanIR()) {
 						nextSample = true;
 					}
 				}
 			}
-			if (nextSample) {
-				continue;
+			if (!nextSample) {
+				candidates.add(index);
 			}
+		}
+		int[] rows = new int[candidates.size()];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = candidates.get(i);
+		}
+		NeighborIndex index = NeighborIndex.build(getData().getDataSet(), getNeighborIndexType());
+		int[][] neighbors = index.kNearestNeighbours(rows, getNn(), true);
+		Set<Attribute> labelAttributes = getData().getLabelAttributes();
+		ArrayList<Instance> instancesToRemove = new ArrayList<Instance>(); 
+		for (int i = 0; i < rows.length; i++) {
+			Instance instance = getData().getDataSet().get(rows[i]);
 			Integer numDifferences = 0;
-			for (Instance neighbor : nearestNeighbors(instance, getData().getDataSet())) {
-				if (adjustedHammingDist(instance, neighbor, getData().getLabelAttributes()) > getHt()) {
+			for (int neighbor : neighbors[i]) {
+				if (adjustedHammingDist(instance, getData().getDataSet().get(neighbor), labelAttributes) > getHt()) {
 					numDifferences++;
 				}
 			}
@@ -0,0 +1,155 @@
+package mulan.resampling;
+
+import java.util.Arrays;
+
+/**
+ * Bounded max-heap of (squared distance, row) pairs used to collect the k
+ * nearest neighbors of a query. Like Weka's
+ * {@link weka.core.neighboursearch.LinearNNSearch}, the rows at the same
+ * distance as the k-th nearest one are collected as well, so a query may
+ * return more than k neighbors. The collected rows are exactly those not
+ * farther than the k-th nearest one, so every index backend returns the same
+ * neighbors for the same query.
+ */
+class NeighborHeap {
+
+	private final double[] distances;
+	private final int[] rows;
+	private int size;
+	/** rows outside the heap at the same distance as its farthest row */
+	private int[] ties = new int[4];
+	private int numTies;
+
+	NeighborHeap(int k) {
+		distances = new double[k];
+		rows = new int[k];
+	}
+
+	void clear() {
+		size = 0;
+		numTies = 0;
+	}
+
+	int size() {
+		return size + numTies;
+	}
+
+	/**
+	 * @return the largest squared distance a candidate can have to be collected
+	 */
+	double worst() {
+		return size < distances.length ? Double.POSITIVE_INFINITY : distances[0];
+	}
+
+	void offer(double distance, int row) {
+		if (size < distances.length) {
+			int i = size++;
+			distances[i] = distance;
+			rows[i] = row;
+			siftUp(i);
+		} else if (distances.length > 0 && distance <= distances[0]) {
+			if (distance == distances[0]) {
+				addTie(row);
+				return;
+			}
+			double evicted = distances[0];
+			int evictedRow = rows[0];
+			distances[0] = distance;
+			rows[0] = row;
+			siftDown(0);
+			if (distances[0] == evicted) {
+				addTie(evictedRow);
+			} else {
+				numTies = 0;
+			}
+		}
+	}
+
+	private void addTie(int row) {
+		if (numTies == ties.length) {
+			ties = Arrays.copyOf(ties, 2 * numTies);
+		}
+		ties[numTies++] = row;
+	}
+
+	/**
+	 * Empties the heap into an array.
+	 *
+	 * @return the collected rows sorted by distance and, on ties, by row
+	 */
+	int[] toSortedRows() {
+		int heapSize = size;
+		int[] sorted = new int[heapSize + numTies];
+		double[] sortedDistances = new double[heapSize];
+		for (int i = heapSize - 1; i >= 0; i--) {
+			sorted[i] = rows[0];
+			sortedDistances[i] = distances[0];
+			size--;
+			distances[0] = distances[size];
+			rows[0] = rows[size];
+			siftDown(0);
+		}
+		if (numTies > 0) {
+			// merge the ties with the heap rows at the same, largest, distance
+			int start = heapSize - 1;
+			while (start > 0 && sortedDistances[start - 1] == sortedDistances[heapSize - 1]) {
+				start--;
+			}
+			int[] farthest = Arrays.copyOfRange(sorted, start, heapSize);
+			Arrays.sort(ties, 0, numTies);
+			int a = 0, b = 0;
+			for (int i = start; i < sorted.length; i++) {
+				if (b == numTies || (a < farthest.length && farthest[a] < ties[b])) {
+					sorted[i] = farthest[a++];
+				} else {
+					sorted[i] = ties[b++];
+				}
+			}
+			numTies = 0;
+		}
+		return sorted;
+	}
+
+	private static boolean isBefore(double d1, int r1, double d2, int r2) {
+		return d1 < d2 || (d1 == d2 && r1 < r2);
+	}
+
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!isBefore(distances[parent], rows[parent], distances[i], rows[i])) {
+				break;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i) {
+		while (true) {
+			int left = 2 * i + 1;
+			if (left >= size) {
+				break;
+			}
+			int largest = left;
+			int right = left + 1;
+			if (right < size && isBefore(distances[left], rows[left], distances[right], rows[right])) {
+				largest = right;
+			}
+			if (!isBefore(distances[i], rows[i], distances[largest], rows[largest])) {
+				break;
+			}
+			swap(i, largest);
+			i = largest;
+		}
+	}
+
+	private void swap(int i, int j) {
+		double d = distances[i];
+		distances[i] = distances[j];
+		distances[j] = d;
+		int r = rows[i];
+		rows[i] = rows[j];
+		rows[j] = r;
+	}
+}
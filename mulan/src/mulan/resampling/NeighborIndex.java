@@ -0,0 +1,256 @@
+package mulan.resampling;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Nearest neighbor index over the instances of a dataset, built once and
+ * shared by all the queries of a resampling run.
+ * <br>
+ * Instances are embedded into a flat row-major <code>double[]</code> matrix
+ * where the squared euclidean distance equals the one of Weka's
+ * {@link weka.core.EuclideanDistance} initialized on the same dataset: numeric
+ * attributes are normalized by their range and nominal attributes are one-hot
+ * encoded with a weight of <code>sqrt(0.5)</code>, so two different values are
+ * at distance 1. Missing values are embedded at the origin of their
+ * coordinates, which only approximates Weka's handling of missing values.
+ * <br>
+ * Neighbors are returned as row positions in the indexed dataset, sorted by
+ * distance and, on ties, by position. As with Weka's
+ * {@link weka.core.neighboursearch.LinearNNSearch}, a query for k neighbors
+ * also returns every instance at the same distance as the k-th nearest one,
+ * so it may return more than k neighbors on data with duplicate rows.
+ */
+public abstract class NeighborIndex {
+
+	private static final double NOMINAL_WEIGHT = Math.sqrt(0.5);
+
+	protected final int numPoints;
+	protected final int dimension;
+	protected final double[] points;
+
+	private final Instances dataset;
+	private final int[] attributes;
+	private final int[] offsets;
+	private final double[] minimums;
+	private final double[] widths;
+
+	protected NeighborIndex(Instances dataset, int[] attributes) {
+		this.dataset = dataset;
+		this.attributes = attributes;
+		this.offsets = new int[attributes.length];
+		this.minimums = new double[attributes.length];
+		this.widths = new double[attributes.length];
+		int dim = 0;
+		for (int a = 0; a < attributes.length; a++) {
+			Attribute attribute = dataset.attribute(attributes[a]);
+			offsets[a] = dim;
+			if (attribute.isNumeric()) {
+				dim++;
+			} else if (attribute.isNominal()) {
+				dim += attribute.numValues();
+			}
+		}
+		this.dimension = dim;
+		this.numPoints = dataset.numInstances();
+		computeRanges();
+		this.points = new double[numPoints * dimension];
+		for (int i = 0; i < numPoints; i++) {
+			embed(dataset.instance(i), points, i * dimension);
+		}
+	}
+
+	/**
+	 * Builds an index over all the attributes of a dataset.
+	 *
+	 * @param dataset the instances to index
+	 * @param type the index backend
+	 * @return the index
+	 */
+	public static NeighborIndex build(Instances dataset, NeighborIndexType type) {
+		int[] attributes = new int[dataset.numAttributes()];
+		for (int a = 0; a < attributes.length; a++) {
+			attributes[a] = a;
+		}
+		return build(dataset, attributes, type);
+	}
+
+	/**
+	 * Builds an index over a subset of the attributes of a dataset.
+	 *
+	 * @param dataset the instances to index
+	 * @param attributes the indices of the attributes the distance is computed on
+	 * @param type the index backend
+	 * @return the index
+	 */
+	public static NeighborIndex build(Instances dataset, int[] attributes, NeighborIndexType type) {
+		switch (type) {
+		case KDTree:
+			return new KDTreeNeighborIndex(dataset, attributes);
+		case BallTree:
+			return new BallTreeNeighborIndex(dataset, attributes);
+		default:
+			return new BruteForceNeighborIndex(dataset, attributes);
+		}
+	}
+
+	public Instances getDataset() {
+		return dataset;
+	}
+
+	public int numPoints() {
+		return numPoints;
+	}
+
+	/**
+	 * Returns the k nearest neighbors of an indexed instance, and those tied
+	 * with the k-th nearest one. Skipping the instance itself matches Weka's
+	 * {@link weka.core.neighboursearch.LinearNNSearch}, which ignores the
+	 * indexed object the query refers to.
+	 *
+	 * @param row the position of the instance in the indexed dataset
+	 * @param k the number of neighbors
+	 * @param skipSelf whether the instance itself is excluded from the result
+	 * @return the positions of the neighbors, from the nearest
+	 */
+	public int[] kNearestNeighbours(int row, int k, boolean skipSelf) {
+		NeighborHeap heap = new NeighborHeap(k);
+		search(points, row * dimension, skipSelf ? row : -1, heap);
+		return heap.toSortedRows();
+	}
+
+	/**
+	 * Returns the k nearest neighbors of an arbitrary instance.
+	 *
+	 * @param instance an instance with the same structure as the indexed dataset
+	 * @param k the number of neighbors
+	 * @return the positions of the neighbors, from the nearest
+	 */
+	public int[] kNearestNeighbours(Instance instance, int k) {
+		double[] query = new double[dimension];
+		embed(instance, query, 0);
+		NeighborHeap heap = new NeighborHeap(k);
+		search(query, 0, -1, heap);
+		return heap.toSortedRows();
+	}
+
+	/**
+	 * Returns the k nearest neighbors of a batch of indexed instances.
+	 *
+	 * @param rows the positions of the instances in the indexed dataset
+	 * @param k the number of neighbors
+	 * @param skipSelf whether each instance is excluded from its own result
+	 * @return the positions of the neighbors of each row, from the nearest
+	 */
+	public int[][] kNearestNeighbours(int[] rows, int k, boolean skipSelf) {
+		int[][] neighbors = new int[rows.length][];
+		NeighborHeap heap = new NeighborHeap(k);
+		for (int q = 0; q < rows.length; q++) {
+			heap.clear();
+			search(points, rows[q] * dimension, skipSelf ? rows[q] : -1, heap);
+			neighbors[q] = heap.toSortedRows();
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Returns the k nearest neighbors of every indexed instance.
+	 *
+	 * @param k the number of neighbors
+	 * @param skipSelf whether each instance is excluded from its own result
+	 * @return the positions of the neighbors of each row, from the nearest
+	 */
+	public int[][] kNearestNeighbours(int k, boolean skipSelf) {
+		int[] rows = new int[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			rows[i] = i;
+		}
+		return kNearestNeighbours(rows, k, skipSelf);
+	}
+
+	/**
+	 * @param row the position of an instance in the indexed dataset
+	 * @return the position of its nearest neighbor other than itself, or -1
+	 */
+	public int nearestNeighbour(int row) {
+		int[] nearest = kNearestNeighbours(row, 1, true);
+		return nearest.length > 0 ? nearest[0] : -1;
+	}
+
+	/**
+	 * Collects into the heap the nearest indexed points of a query.
+	 *
+	 * @param query the array holding the embedded query
+	 * @param offset the offset of the query in the array
+	 * @param skip a row to exclude from the search, or -1
+	 * @param heap the heap collecting the neighbors
+	 */
+	protected abstract void search(double[] query, int offset, int skip, NeighborHeap heap);
+
+	/**
+	 * Squared distance between the point stored at <code>row</code> and a query.
+	 * The loop is unrolled over independent accumulators so the JIT can keep
+	 * several lanes in flight on the contiguous rows.
+	 */
+	protected final double distance(int row, double[] query, int offset) {
+		int p = row * dimension;
+		double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int d = 0;
+		for (; d + 3 < dimension; d += 4) {
+			double d0 = points[p + d] - query[offset + d];
+			double d1 = points[p + d + 1] - query[offset + d + 1];
+			double d2 = points[p + d + 2] - query[offset + d + 2];
+			double d3 = points[p + d + 3] - query[offset + d + 3];
+			s0 += d0 * d0;
+			s1 += d1 * d1;
+			s2 += d2 * d2;
+			s3 += d3 * d3;
+		}
+		for (; d < dimension; d++) {
+			double d0 = points[p + d] - query[offset + d];
+			s0 += d0 * d0;
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	private void computeRanges() {
+		for (int a = 0; a < attributes.length; a++) {
+			double min = Double.NaN, max = Double.NaN;
+			if (dataset.attribute(attributes[a]).isNumeric()) {
+				for (int i = 0; i < numPoints; i++) {
+					double value = dataset.instance(i).value(attributes[a]);
+					if (Utils.isMissingValue(value)) {
+						continue;
+					}
+					if (Double.isNaN(min) || value < min) {
+						min = value;
+					}
+					if (Double.isNaN(max) || value > max) {
+						max = value;
+					}
+				}
+			}
+			minimums[a] = min;
+			widths[a] = max - min;
+		}
+	}
+
+	private void embed(Instance instance, double[] target, int offset) {
+		for (int a = 0; a < attributes.length; a++) {
+			Attribute attribute = dataset.attribute(attributes[a]);
+			double value = instance.value(attributes[a]);
+			if (Utils.isMissingValue(value)) {
+				continue;
+			}
+			if (attribute.isNumeric()) {
+				if (!Double.isNaN(minimums[a]) && widths[a] != 0.0) {
+					target[offset + offsets[a]] = (value - minimums[a]) / widths[a];
+				}
+			} else if (attribute.isNominal()) {
+				target[offset + offsets[a] + (int) value] = NOMINAL_WEIGHT;
+			}
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package mulan.resampling;
+
+public enum NeighborIndexType {
+    BruteForce(0),
+    KDTree(1),
+    BallTree(2);
+
+    public int type;
+
+    NeighborIndexType(int type) {
+    	this.type = type;
+    }
+}
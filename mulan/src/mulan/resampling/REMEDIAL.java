@@ -1,11 +1,10 @@
 package mulan.resampling;
 
 import java.util.ArrayList;
-import java.util.Set;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
-import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 
@@ -36,7 +35,7 @@ import weka.core.Instance;
 * @author Rodolfo Miranda Pereira
 * @version 2017.11.29
 */
-public class REMEDIAL {
+public class REMEDIAL implements Resampler {
 	
 	private MultiLabelInstances data;
 	private String xmlLabels;
@@ -46,7 +45,17 @@ public class REMEDIAL {
 			throws InvalidDataFormatException {
 		this.data = new MultiLabelInstances(data.getDataSet(), xmlLabels);
 		this.xmlLabels = xmlLabels;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+	
+	public REMEDIAL(MultiLabelInstances data, LabelsMetaData labelsMetaData)
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.metrics = new ImbalanceMetrics(this.data);
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		return new REMEDIAL(data, data.getLabelsMetaData());
 	}
 	
 	public MultiLabelInstances getData() {
@@ -74,25 +83,25 @@ public class REMEDIAL {
 	}
 	
 	public MultiLabelInstances resample() throws InvalidDataFormatException {
-		Set<Attribute> labels = getData().getLabelAttributes();
+		int[] labelIndices = getData().getLabelIndices();
 		getMetrics().calculateIRLbl();
 		getMetrics().calculateMeanIR();
 		getMetrics().calculateScumble();
 		ArrayList<Instance> newInstances = new ArrayList<Instance>();
 		for (int i = 0; i < getData().getDataSet().size(); i++) {
 			Instance instance = getData().getDataSet().get(i);
-			Double scumble_i = getMetrics().getInstScumble().get(instance);
+			double scumble_i = getMetrics().getInstScumble()[i];
 			if (scumble_i > getMetrics().getScumble()) {
 				Instance newInstance = new DenseInstance(instance);
-				for (Attribute label : labels) {
-					if (instance.value(label) == 1.0) {
-						Double irlbl = getMetrics().getIRLbl().get(label);
-						if (irlbl != null) { 
+				for (int label = 0; label < labelIndices.length; label++) {
+					if (instance.value(labelIndices[label]) == 1.0) {
+						double irlbl = getMetrics().getIRLbl()[label];
+						if (!Double.isNaN(irlbl)) { 
 							if (irlbl <= getMetrics().getMeanIR()) {
-								instance.setValue(label, 0.0);
+								instance.setValue(labelIndices[label], 0.0);
 								getData().getDataSet().set(i, instance);
 							} else {
-								newInstance.setValue(label, 0.0);
+								newInstance.setValue(labelIndices[label], 0.0);
 							}
 						}
 					}
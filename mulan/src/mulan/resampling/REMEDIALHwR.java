@@ -1,6 +1,7 @@
 package mulan.resampling;
 
 import mulan.data.InvalidDataFormatException;
+import mulan.data.LabelsMetaData;
 import mulan.data.MultiLabelInstances;
 
 /**
@@ -30,7 +31,7 @@ import mulan.data.MultiLabelInstances;
 * @author Rodolfo Miranda Pereira
 * @version 2019.02.13
 */
-public class REMEDIALHwR {
+public class REMEDIALHwR implements Resampler {
 	
 	private MultiLabelInstances data;
 	private String xmlLabels;
@@ -41,10 +42,21 @@ public class REMEDIALHwR {
 			throws InvalidDataFormatException {
 		this.data = new MultiLabelInstances(data.getDataSet(), xmlLabels);
 		this.xmlLabels = xmlLabels;
-		this.metrics = new ImbalanceMetrics(data.getDataSet(), data.getLabelAttributes());
+		this.metrics = new ImbalanceMetrics(this.data);
 		this.method = method;
 	}
 	
+	public REMEDIALHwR(MultiLabelInstances data, LabelsMetaData labelsMetaData, HybridMethod method)
+			throws InvalidDataFormatException {
+		this.data = new MultiLabelInstances(data.getDataSet(), labelsMetaData);
+		this.metrics = new ImbalanceMetrics(this.data);
+		this.method = method;
+	}
+
+	public Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException {
+		return new REMEDIALHwR(data, data.getLabelsMetaData(), method);
+	}
+	
 	public MultiLabelInstances getData() {
 		return data;
 	}
@@ -70,17 +82,18 @@ public class REMEDIALHwR {
 	}
 	
 	public MultiLabelInstances resample() throws Exception {
-		REMEDIAL remedial = new REMEDIAL(data, xmlLabels);
+		REMEDIAL remedial = new REMEDIAL(data, data.getLabelsMetaData());
 		MultiLabelInstances remedial_dataset = remedial.resample();
 		MultiLabelInstances resampled_dataset = null;
 		if (method.equals(HybridMethod.MLeNN)) {
-			MLeNN mlenn = new MLeNN(remedial_dataset, xmlLabels);
+			MLeNN mlenn = new MLeNN(remedial_dataset, remedial_dataset.getLabelsMetaData(), 0.5, 3);
 			resampled_dataset = mlenn.resample();
 		} else if (method.equals(HybridMethod.MLSMOTE)) {
-			MLSMOTE mlsmote = new MLSMOTE(remedial_dataset, xmlLabels);
+			MLSMOTE mlsmote = new MLSMOTE(remedial_dataset, remedial_dataset.getLabelsMetaData(), 
+					5, LabelCombination.Ranking, 0.25);
 			resampled_dataset = mlsmote.resample();
 		} else if (method.equals(HybridMethod.MLROS)) {
-			MLROS mlros = new MLROS(remedial_dataset, xmlLabels);
+			MLROS mlros = new MLROS(remedial_dataset, remedial_dataset.getLabelsMetaData(), 0.25);
 			resampled_dataset = mlros.resample();
 		}
 		return resampled_dataset;
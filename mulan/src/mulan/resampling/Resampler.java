@@ -0,0 +1,29 @@
+package mulan.resampling;
+
+import mulan.data.InvalidDataFormatException;
+import mulan.data.MultiLabelInstances;
+
+/**
+ * Common interface of the multi-label resampling methods.
+ */
+public interface Resampler {
+
+	/**
+	 * Resamples the dataset the resampler was created with.
+	 *
+	 * @return the resampled dataset
+	 * @throws Exception if the resampling fails
+	 */
+	MultiLabelInstances resample() throws Exception;
+
+	/**
+	 * Creates a resampler with the same settings over another dataset, such as
+	 * the training set of a cross-validation fold. The labels meta-data of the
+	 * dataset are used as they are, without reading a labels XML file.
+	 *
+	 * @param data the dataset to resample
+	 * @return the new resampler
+	 * @throws InvalidDataFormatException if the dataset is not valid
+	 */
+	Resampler makeCopy(MultiLabelInstances data) throws InvalidDataFormatException;
+}
@@ -0,0 +1,15 @@
+package mulan.resampling;
+
+public enum StreamingMethod {
+    MLROS(0),
+    MLRUS(1),
+    LPROS(2),
+    LPRUS(3),
+    REMEDIAL(4);
+
+    public int type;
+
+    StreamingMethod(int type) {
+    	this.type = type;
+    }
+}
@@ -0,0 +1,171 @@
+package mulan.resampling;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import mulan.data.MultiLabelInstances;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.converters.ArffSaver;
+
+/**
+ * Resamples an ARFF file that does not fit in memory with one of the methods
+ * that only look at the labels of the instances.
+ * <br>
+ * A first pass reads the file incrementally and keeps only the labels of each
+ * instance, together with its position in the file. The resampling method runs
+ * on these label rows, so its clones, removals and decoupled copies carry the
+ * position of the instance they come from. A second pass reads the file again
+ * and writes every surviving instance to the output ARFF once per resampled row,
+ * with the labels of that row.
+ * <br>
+ * The output holds the same instances as an in-memory resampling, but each
+ * instance is followed by its clones instead of having them appended at the
+ * end of the dataset.
+ */
+public class StreamingResampler {
+
+	private static final String ROW_ATTRIBUTE = "streaming.row";
+
+	private String arffFile;
+	private String xmlLabels;
+	private StreamingMethod method;
+	private Double percentage;
+
+	public StreamingResampler(String arffFile, String xmlLabels, StreamingMethod method, Double percentage) {
+		this.arffFile = arffFile;
+		this.xmlLabels = xmlLabels;
+		this.method = method;
+		this.percentage = percentage;
+	}
+
+	public StreamingResampler(String arffFile, String xmlLabels, StreamingMethod method) {
+		this(arffFile, xmlLabels, method, 0.25);
+	}
+
+	public String getArffFile() {
+		return arffFile;
+	}
+
+	public void setArffFile(String arffFile) {
+		this.arffFile = arffFile;
+	}
+
+	public String getXmlLabels() {
+		return xmlLabels;
+	}
+
+	public void setXmlLabels(String xmlLabels) {
+		this.xmlLabels = xmlLabels;
+	}
+
+	public StreamingMethod getMethod() {
+		return method;
+	}
+
+	public void setMethod(StreamingMethod method) {
+		this.method = method;
+	}
+
+	public Double getPercentage() {
+		return percentage;
+	}
+
+	public void setPercentage(Double percentage) {
+		this.percentage = percentage;
+	}
+
+	/**
+	 * Resamples the input file and writes the result to an ARFF file.
+	 *
+	 * @param outputFile the path of the resampled ARFF file
+	 * @return the number of instances written
+	 * @throws Exception if the files can not be read or written
+	 */
+	public int resample(String outputFile) throws Exception {
+		MultiLabelInstances resampledLabels = resampleLabels(loadLabels());
+		Instances labelRows = resampledLabels.getDataSet();
+		int rowIndex = labelRows.numAttributes() - 1;
+		// the resampled rows are bucketed by the position of their source instance
+		int numSources = 0;
+		for (int r = 0; r < labelRows.numInstances(); r++) {
+			numSources = Math.max(numSources, (int) labelRows.instance(r).value(rowIndex) + 1);
+		}
+		int[] start = new int[numSources + 1];
+		for (int r = 0; r < labelRows.numInstances(); r++) {
+			start[(int) labelRows.instance(r).value(rowIndex) + 1]++;
+		}
+		for (int i = 0; i < numSources; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] bucket = new int[labelRows.numInstances()];
+		int[] next = start.clone();
+		for (int r = 0; r < labelRows.numInstances(); r++) {
+			bucket[next[(int) labelRows.instance(r).value(rowIndex)]++] = r;
+		}
+
+		MultiLabelInstances stream = new MultiLabelInstances(getArffFile(), getXmlLabels(), true);
+		int[] labelIndices = stream.getLabelIndices();
+		ArffSaver saver = new ArffSaver();
+		saver.setRetrieval(ArffSaver.INCREMENTAL);
+		saver.setInstances(stream.getDataSet());
+		saver.setFile(new File(outputFile));
+		int written = 0;
+		Instance instance;
+		for (int i = 0; i < numSources && (instance = stream.getNextInstance()) != null; i++) {
+			for (int b = start[i]; b < start[i + 1]; b++) {
+				Instance labelRow = labelRows.instance(bucket[b]);
+				Instance newInstance = (Instance) instance.copy();
+				for (int j = 0; j < labelIndices.length; j++) {
+					newInstance.setValue(labelIndices[j], labelRow.value(j));
+				}
+				saver.writeIncremental(newInstance);
+				written++;
+			}
+		}
+		saver.writeIncremental(null);
+		return written;
+	}
+
+	/**
+	 * First pass: reads the labels of every instance into a dataset whose
+	 * last attribute holds the position of the instance in the file.
+	 */
+	private MultiLabelInstances loadLabels() throws Exception {
+		MultiLabelInstances stream = new MultiLabelInstances(getArffFile(), getXmlLabels(), true);
+		int[] labelIndices = stream.getLabelIndices();
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		for (int labelIndex : labelIndices) {
+			attributes.add((Attribute) stream.getDataSet().attribute(labelIndex).copy());
+		}
+		attributes.add(new Attribute(ROW_ATTRIBUTE));
+		Instances labels = new Instances(stream.getDataSet().relationName(), attributes, 0);
+		double[] values = new double[labelIndices.length + 1];
+		Instance instance;
+		for (int row = 0; (instance = stream.getNextInstance()) != null; row++) {
+			for (int j = 0; j < labelIndices.length; j++) {
+				values[j] = instance.value(labelIndices[j]);
+			}
+			values[labelIndices.length] = row;
+			labels.add(new SparseInstance(instance.weight(), values));
+		}
+		return new MultiLabelInstances(labels, stream.getLabelsMetaData());
+	}
+
+	private MultiLabelInstances resampleLabels(MultiLabelInstances labels) throws Exception {
+		switch (getMethod()) {
+		case MLRUS:
+			return new MLRUS(labels, labels.getLabelsMetaData(), getPercentage()).resample();
+		case LPROS:
+			return new LPROS(labels, labels.getLabelsMetaData(), getPercentage()).resample();
+		case LPRUS:
+			return new LPRUS(labels, labels.getLabelsMetaData(), getPercentage()).resample();
+		case REMEDIAL:
+			return new REMEDIAL(labels, labels.getLabelsMetaData()).resample();
+		default:
+			return new MLROS(labels, labels.getLabelsMetaData(), getPercentage()).resample();
+		}
+	}
+}
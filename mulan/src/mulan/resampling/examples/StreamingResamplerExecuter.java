@@ -0,0 +1,33 @@
+package mulan.resampling.examples;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import mulan.resampling.StreamingMethod;
+import mulan.resampling.StreamingResampler;
+import weka.core.Utils;
+
+public class StreamingResamplerExecuter {
+
+    public static void main(String[] args) {
+        try {
+        	// e.g. -dir C:/Users/rodolfo/Desktop/workspace/mulan/data/
+            String directory = Utils.getOption("dir", args);
+        	// e.g. -arff emotions.arff
+            String arffFilename = Utils.getOption("arff", args);
+            // e.g. -xml emotions.xml
+            String xmlFilename = Utils.getOption("xml", args);
+            // e.g. -method MLROS
+            String methodName = Utils.getOption("method", args);
+
+            StreamingMethod method = StreamingMethod.valueOf(methodName);
+            System.out.println("Resampling the dataset...");
+            StreamingResampler resampler = new StreamingResampler(directory + arffFilename,
+            		directory + xmlFilename, method);
+            int numInstances = resampler.resample(directory + method + "-" + arffFilename);
+            System.out.println("New number of instances: " + numInstances);
+        } catch (Exception ex) {
+            Logger.getLogger(StreamingResamplerExecuter.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.transformations;
+
+import weka.core.AbstractInstance;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.RevisionUtils;
+
+/**
+ * A dense instance of a binary relevance dataset that shares the values of its
+ * features with the instances of the datasets of the other labels. The values of
+ * the features are read from another instance, which is copied only when one of
+ * them is changed, while the value of the binary class attribute is kept by the
+ * instance itself.
+ */
+final class BinaryRelevanceInstance extends AbstractInstance {
+
+    private static final long serialVersionUID = -2418315307163735208L;
+    /**
+     * The instance holding the values of the features
+     */
+    private Instance features;
+    /**
+     * Whether the values of the features are the instance's own copy, which it
+     * may change
+     */
+    private boolean ownsFeatures;
+    /**
+     * The position of the class attribute, -1 if it has been deleted
+     */
+    private int classPosition;
+    /**
+     * The value of the class attribute
+     */
+    private double classValue;
+
+    /**
+     * Creates an instance with the features of a dense instance followed by the
+     * class attribute
+     *
+     * @param features a dense instance with the values of the features
+     * @param classValue the value of the class attribute
+     */
+    BinaryRelevanceInstance(Instance features, double classValue) {
+        this(features, features.numAttributes(), classValue, features.weight());
+    }
+
+    private BinaryRelevanceInstance(Instance features, int classPosition, double classValue, double weight) {
+        this.features = features;
+        this.classPosition = classPosition;
+        this.classValue = classValue;
+        m_Weight = weight;
+    }
+
+    /**
+     * Returns the position of an attribute among the features
+     */
+    private int featurePosition(int attIndex) {
+        return (classPosition >= 0 && attIndex > classPosition) ? attIndex - 1 : attIndex;
+    }
+
+    /**
+     * Gives the instance its own copy of the values of the features, unless it
+     * already has one, before they are changed
+     */
+    private void freshFeatures() {
+        if (!ownsFeatures) {
+            features = new DenseInstance(features.weight(), features.toDoubleArray());
+            ownsFeatures = true;
+        }
+    }
+
+    public Object copy() {
+        BinaryRelevanceInstance copy = new BinaryRelevanceInstance(features, classPosition, classValue, m_Weight);
+        copy.m_Dataset = m_Dataset;
+        // the values of the features are now shared with the copy
+        ownsFeatures = false;
+        return copy;
+    }
+
+    public int index(int position) {
+        return position;
+    }
+
+    public Instance mergeInstance(Instance inst) {
+        return new DenseInstance(m_Weight, toDoubleArray()).mergeInstance(inst);
+    }
+
+    public int numAttributes() {
+        return features.numAttributes() + (classPosition >= 0 ? 1 : 0);
+    }
+
+    public int numValues() {
+        return numAttributes();
+    }
+
+    public void replaceMissingValues(double[] array) {
+        if (array == null || array.length != numAttributes()) {
+            throw new IllegalArgumentException("Unequal number of attributes!");
+        }
+        for (int i = 0; i < array.length; i++) {
+            if (isMissing(i)) {
+                setValue(i, array[i]);
+            }
+        }
+    }
+
+    public void setValue(int attIndex, double value) {
+        if (attIndex == classPosition) {
+            classValue = value;
+        } else {
+            freshFeatures();
+            features.setValue(featurePosition(attIndex), value);
+        }
+    }
+
+    public void setValueSparse(int indexOfIndex, double value) {
+        setValue(indexOfIndex, value);
+    }
+
+    public double[] toDoubleArray() {
+        double[] values = new double[numAttributes()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value(i);
+        }
+        return values;
+    }
+
+    public String toStringNoWeight() {
+        return toStringNoWeight(AbstractInstance.s_numericAfterDecimalPoint);
+    }
+
+    public String toStringNoWeight(int afterDecimalPoint) {
+        DenseInstance instance = new DenseInstance(m_Weight, toDoubleArray());
+        instance.setDataset(m_Dataset);
+        return instance.toStringNoWeight(afterDecimalPoint);
+    }
+
+    public double value(int attIndex) {
+        if (attIndex == classPosition) {
+            return classValue;
+        }
+        return features.value(featurePosition(attIndex));
+    }
+
+    @Override
+    public double valueSparse(int indexOfIndex) {
+        return value(indexOfIndex);
+    }
+
+    protected void forceDeleteAttributeAt(int position) {
+        if (position == classPosition) {
+            classPosition = -1;
+            return;
+        }
+        freshFeatures();
+        features.deleteAttributeAt(featurePosition(position));
+        if (classPosition >= 0 && position < classPosition) {
+            classPosition--;
+        }
+    }
+
+    protected void forceInsertAttributeAt(int position) {
+        int featurePosition = (classPosition >= 0 && position > classPosition) ? position - 1 : position;
+        freshFeatures();
+        features.insertAttributeAt(featurePosition);
+        if (classPosition >= 0 && position <= classPosition) {
+            classPosition++;
+        }
+    }
+
+    @Override
+    public String getRevision() {
+        return RevisionUtils.extract("$Revision: 1.0 $");
+    }
+}
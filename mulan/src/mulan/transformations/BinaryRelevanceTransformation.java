@@ -16,18 +16,25 @@
 package mulan.transformations;
 
 import java.io.Serializable;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import mulan.data.DataUtils;
 import mulan.data.MultiLabelInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
 import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Add;
 import weka.filters.unsupervised.attribute.Remove;
 
 /**
- * Class that implements the binary relevance transformation
+ * Class that implements the binary relevance transformation. The features of
+ * the instances are extracted once and their values are shared by the datasets
+ * of all labels: a dense instance of a binary dataset only adds the value of its
+ * label to the values of the features, while a sparse instance copies the
+ * non-zero values of the features.
  *
  * @author Grigorios Tsoumakas
  * @version 2012.05.30
@@ -36,8 +43,23 @@ public class BinaryRelevanceTransformation implements Serializable {
 
     private MultiLabelInstances data;
     private Instances shell;
-    private Remove remove;
-    private Add add;
+    /**
+     * The indices of the labels in the multi-label dataset
+     */
+    private int[] labelIndices;
+    /**
+     * The position of each attribute of the multi-label dataset among the
+     * features, -1 for the labels
+     */
+    private int[] featurePositions;
+    /**
+     * The features of each instance of the multi-label dataset
+     */
+    private Instance[] features;
+    /**
+     * Whether the first value of each label is "1"
+     */
+    private boolean[] order10;
 
     /**
      * Constructor
@@ -45,25 +67,137 @@ public class BinaryRelevanceTransformation implements Serializable {
      * @param data a multi-label dataset
      */
     public BinaryRelevanceTransformation(MultiLabelInstances data) {
-        try {
-            this.data = data;
-            remove = new Remove();
-            int[] labelIndices = data.getLabelIndices();
-            int[] indices = new int[labelIndices.length];
-            System.arraycopy(labelIndices, 0, indices, 0, labelIndices.length);
-            remove.setAttributeIndicesArray(indices);
-            remove.setInvertSelection(false);
-            remove.setInputFormat(data.getDataSet());
-            shell = Filter.useFilter(data.getDataSet(), remove);
-            add = new Add();
-            add.setAttributeIndex("last");
-            add.setNominalLabels("0,1");
-            add.setAttributeName("BinaryRelevanceLabel");
-            add.setInputFormat(shell);
-            shell = Filter.useFilter(shell, add);
-            shell.setClassIndex(shell.numAttributes() - 1);
-        } catch (Exception ex) {
-            Logger.getLogger(BinaryRelevanceTransformation.class.getName()).log(Level.SEVERE, null, ex);
+        this.data = data;
+        Instances dataSet = data.getDataSet();
+        labelIndices = data.getLabelIndices();
+        int[] featureIndices = data.getFeatureIndices();
+
+        featurePositions = new int[dataSet.numAttributes()];
+        Arrays.fill(featurePositions, -1);
+        ArrayList<Attribute> attributes = new ArrayList<Attribute>(featureIndices.length + 1);
+        for (int i = 0; i < featureIndices.length; i++) {
+            featurePositions[featureIndices[i]] = i;
+            attributes.add((Attribute) dataSet.attribute(featureIndices[i]).copy());
+        }
+        ArrayList<String> classValues = new ArrayList<String>(2);
+        classValues.add("0");
+        classValues.add("1");
+        attributes.add(new Attribute("BinaryRelevanceLabel", classValues));
+        shell = new Instances(dataSet.relationName(), attributes, 0);
+        shell.setClassIndex(shell.numAttributes() - 1);
+
+        order10 = new boolean[labelIndices.length];
+        for (int i = 0; i < labelIndices.length; i++) {
+            order10[i] = dataSet.attribute(labelIndices[i]).value(0).equals("1");
+        }
+
+        features = new Instance[dataSet.numInstances()];
+        for (int j = 0; j < features.length; j++) {
+            features[j] = removeLabels(dataSet.instance(j));
+        }
+    }
+
+    /**
+     * Returns an instance with the features of a multi-label instance
+     */
+    private Instance removeLabels(Instance instance) {
+        int numFeatures = shell.numAttributes() - 1;
+        if (instance instanceof SparseInstance) {
+            int numValues = instance.numValues();
+            double[] values = new double[numValues];
+            int[] indices = new int[numValues];
+            int counter = 0;
+            for (int i = 0; i < numValues; i++) {
+                int position = featurePositions[instance.index(i)];
+                if (position >= 0) {
+                    values[counter] = instance.valueSparse(i);
+                    indices[counter] = position;
+                    counter++;
+                }
+            }
+            return new SparseInstance(instance.weight(), Arrays.copyOf(values, counter),
+                    Arrays.copyOf(indices, counter), numFeatures);
+        }
+        double[] values = new double[numFeatures];
+        for (int i = 0; i < featurePositions.length; i++) {
+            if (featurePositions[i] >= 0) {
+                values[featurePositions[i]] = instance.value(i);
+            }
+        }
+        return new DenseInstance(instance.weight(), values);
+    }
+
+    /**
+     * Returns an instance of a binary dataset, with some features and the
+     * value of its label
+     */
+    private Instance binaryInstance(Instance features, double classValue) {
+        if (features instanceof SparseInstance) {
+            int numValues = features.numValues();
+            double[] values = new double[numValues + 1];
+            int[] indices = new int[numValues + 1];
+            for (int i = 0; i < numValues; i++) {
+                values[i] = features.valueSparse(i);
+                indices[i] = features.index(i);
+            }
+            values[numValues] = classValue;
+            indices[numValues] = features.numAttributes();
+            return new SparseInstance(features.weight(), values, indices, features.numAttributes() + 1);
+        }
+        return new BinaryRelevanceInstance(features, classValue);
+    }
+
+    /**
+     * Returns the value of the binary label of a multi-label instance
+     */
+    private double labelValue(Instance instance, int label) {
+        double value = instance.value(labelIndices[label]);
+        return order10[label] ? 1 - value : value;
+    }
+
+    /**
+     * Removes all label attributes from an instance. The result is in the format
+     * of the binary datasets, with a missing class value, and can be given to the
+     * models of all labels.
+     *
+     * @param instance the instance from which labels are to be removed
+     * @return transformed Instance
+     */
+    public Instance transformInstance(Instance instance) {
+        Instance transformedInstance = binaryInstance(removeLabels(instance), Utils.missingValue());
+        transformedInstance.setDataset(shell);
+        return transformedInstance;
+    }
+
+    /**
+     * Removes all label attributes from a batch of instances. The result is in the
+     * format of the binary datasets and can be shared by the models of all labels,
+     * after setting the value of each label with
+     * {@link #setLabelValues(Instances, Instances, int)}.
+     *
+     * @param instances the instances from which labels are to be removed
+     * @return the transformed instances
+     */
+    public Instances transformInstances(Instances instances) {
+        Instances transformed = new Instances(shell, instances.numInstances());
+        for (int i = 0; i < instances.numInstances(); i++) {
+            transformed.add(binaryInstance(removeLabels(instances.instance(i)), Utils.missingValue()));
+        }
+        return transformed;
+    }
+
+    /**
+     * Sets the binary label of a batch of transformed instances to the value of a
+     * label in the original instances
+     *
+     * @param transformed the instances returned by {@link #transformInstances(Instances)}
+     * @param instances the original instances
+     * @param labelToKeep the label whose values are copied
+     */
+    public void setLabelValues(Instances transformed, Instances instances, int labelToKeep) {
+        int binaryIndex = shell.numAttributes() - 1;
+        for (int i = 0; i < transformed.numInstances(); i++) {
+            transformed.instance(i).setValue(binaryIndex, labelValue(instances.instance(i), labelToKeep));
         }
     }
 
@@ -75,49 +209,33 @@ public class BinaryRelevanceTransformation implements Serializable {
      * @return transformed Instance
      */
     public Instance transformInstance(Instance instance, int labelToKeep) {
-        Instance transformedInstance;
-        remove.input(instance);
-        transformedInstance = remove.output();
-        add.input(transformedInstance);
-        transformedInstance = add.output();
+        Instance transformedInstance = binaryInstance(removeLabels(instance), labelValue(instance, labelToKeep));
         transformedInstance.setDataset(shell);
-
-        int[] labelIndices = data.getLabelIndices();
-        if (data.getDataSet().attribute(labelIndices[labelToKeep]).value(0).equals("1")) {
-            transformedInstance.setValue(shell.numAttributes() - 1, 1 - instance.value(labelIndices[labelToKeep]));
-        } else {
-            transformedInstance.setValue(shell.numAttributes() - 1, instance.value(labelIndices[labelToKeep]));
-        }
         return transformedInstance;
     }
 
     /**
-     * Remove all label attributes except labelToKeep
+     * Remove all label attributes except labelToKeep. The instances of the
+     * result share the values of their features with the results for the other
+     * labels.
      *
      * @param labelToKeep the label to keep
      * @return transformed Instances object
      * @throws Exception when removal fails
      */
     public Instances transformInstances(int labelToKeep) throws Exception {
-        Instances shellCopy = new Instances(this.shell);
-        boolean order10 = false;
-        int[] labelIndices = data.getLabelIndices();
-        if (data.getDataSet().attribute(labelIndices[labelToKeep]).value(0).equals("1")) {
-            order10 = true;
-        }
-        for (int j = 0; j < shellCopy.numInstances(); j++) {
-            if (order10) {
-                shellCopy.instance(j).setValue(shellCopy.numAttributes() - 1, 1 - data.getDataSet().instance(j).value(labelIndices[labelToKeep]));
-            } else {
-                shellCopy.instance(j).setValue(shellCopy.numAttributes() - 1, data.getDataSet().instance(j).value(labelIndices[labelToKeep]));
-            }
+        Instances dataSet = data.getDataSet();
+        Instances transformed = new Instances(shell, features.length);
+        for (int j = 0; j < features.length; j++) {
+            transformed.add(binaryInstance(features[j], labelValue(dataSet.instance(j), labelToKeep)));
         }
-
-        return shellCopy;
+        return transformed;
     }
 
     /**
-     * Remove all label attributes except that at indexOfLabelToKeep
+     * Remove all label attributes except that at indexOfLabelToKeep. The
+     * kept label becomes the class of the result. The training instances are
+     * not modified, so several labels can be transformed at the same time.
      *
      * @param train -
      * @param labelIndices - 
@@ -128,16 +246,17 @@ public class BinaryRelevanceTransformation implements Serializable {
     public static Instances transformInstances(Instances train, int[] labelIndices, int indexToKeep) throws Exception {
         int numLabels = labelIndices.length;
 
-        train.setClassIndex(indexToKeep);
-
-
         // Indices of attributes to remove
         int[] indicesToRemove = new int[numLabels - 1];
         int counter2 = 0;
+        int classIndex = indexToKeep;
         for (int counter1 = 0; counter1 < numLabels; counter1++) {
             if (labelIndices[counter1] != indexToKeep) {
                 indicesToRemove[counter2] = labelIndices[counter1];
                 counter2++;
+                if (labelIndices[counter1] < indexToKeep) {
+                    classIndex--;
+                }
             }
         }
 
@@ -146,6 +265,7 @@ public class BinaryRelevanceTransformation implements Serializable {
         remove.setInputFormat(train);
         remove.setInvertSelection(true);
         Instances result = Filter.useFilter(train, remove);
+        result.setClassIndex(classIndex);
         return result;
     }
 
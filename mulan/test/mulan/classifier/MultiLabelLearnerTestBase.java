@@ -105,6 +105,65 @@ public abstract class MultiLabelLearnerTestBase {
         }
     }
 
+    /**
+     * Tests if the predictions of the learner for a batch of instances are the
+     * same as its predictions for each instance in turn
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMakePredictions() throws Exception {
+        MultiLabelLearnerBase learner = getLearner();
+
+        String trainDatasetPath = path + "emotions-train.arff";
+        String testDatasetPath = path + "emotions-test.arff";
+        String xmlLabelsDefFilePath = path + "emotions.xml";
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(trainDatasetPath,
+                xmlLabelsDefFilePath);
+        MultiLabelInstances testDataSet = new MultiLabelInstances(testDatasetPath,
+                xmlLabelsDefFilePath);
+
+        learner.build(trainDataSet);
+
+        MultiLabelLearnerBase copy = (MultiLabelLearnerBase) learner.makeCopy();
+
+        Instances instances = testDataSet.getDataSet();
+        MultiLabelOutputMatrix predictions = learner.makePredictions(instances);
+        Assert.assertEquals(instances.numInstances(), predictions.getNumInstances());
+        for (int i = 0; i < instances.numInstances(); i++) {
+            MultiLabelOutput mlo = copy.makePrediction(instances.instance(i));
+            Assert.assertEquals(mlo, predictions.getOutput(i));
+        }
+    }
+
+    /**
+     * Tests if the learner produces the same output when up to three of its
+     * models are built at the same time. Learners that build their models one
+     * after the other are built in the same way by both copies.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentBuild() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+        MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+                path + "emotions.xml");
+
+        MultiLabelLearnerBase learner = getLearner();
+        MultiLabelLearnerBase concurrentLearner = (MultiLabelLearnerBase) learner.makeCopy();
+        concurrentLearner.setMaxConcurrentModels(3);
+        learner.build(trainDataSet);
+        concurrentLearner.build(trainDataSet);
+
+        Instances instances = testDataSet.getDataSet();
+        for (int i = 0; i < instances.numInstances(); i++) {
+            MultiLabelOutput mlo1 = learner.makePrediction(instances.instance(i));
+            MultiLabelOutput mlo2 = concurrentLearner.makePrediction(instances.instance(i));
+            Assert.assertEquals(mlo1, mlo2);
+        }
+    }
+
     /**
      * Tests if the learner throws ArgumentNullException when build is called
      * with a null argument
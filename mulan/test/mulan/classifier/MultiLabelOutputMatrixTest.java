@@ -0,0 +1,84 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit test routines for {@link MultiLabelOutputMatrix}.
+ */
+public class MultiLabelOutputMatrixTest {
+
+	/**
+	 * Tests if the rows written label by label give the same outputs as the
+	 * rows set from a {@link MultiLabelOutput}, with ties and missing
+	 * confidences
+	 */
+	@Test
+	public void testRowsWrittenByLabel() {
+		Random random = new Random(1);
+		int numInstances = 50;
+		int[] labelCounts = {1, 2, 7, 33};
+		for (int numLabels : labelCounts) {
+			MultiLabelOutputMatrix expected = new MultiLabelOutputMatrix(numInstances, numLabels);
+			MultiLabelOutputMatrix actual = new MultiLabelOutputMatrix(numInstances, numLabels);
+			for (int i = 0; i < numInstances; i++) {
+				double[] confidences = new double[numLabels];
+				for (int j = 0; j < numLabels; j++) {
+					int kind = random.nextInt(10);
+					if (kind == 0) {
+						confidences[j] = Double.NaN;
+					} else if (kind < 5) {
+						confidences[j] = random.nextInt(3) / 2.0;
+					} else {
+						confidences[j] = random.nextDouble();
+					}
+				}
+				expected.set(i, new MultiLabelOutput(confidences, 0.5));
+				for (int j = 0; j < numLabels; j++) {
+					actual.setConfidence(i, j, confidences[j]);
+					actual.setBipartition(i, j, confidences[j] >= 0.5);
+				}
+				actual.setRankingFromConfidences(i);
+			}
+			Assert.assertTrue(actual.hasRankings());
+			Assert.assertFalse(actual.hasPvalues());
+			for (int i = 0; i < numInstances; i++) {
+				MultiLabelOutput expectedOutput = expected.getOutput(i);
+				MultiLabelOutput actualOutput = actual.getOutput(i);
+				Assert.assertTrue(Arrays.equals(expectedOutput.getRanking(), actualOutput.getRanking()));
+				Assert.assertTrue(Arrays.equals(expectedOutput.getBipartition(), actualOutput.getBipartition()));
+				Assert.assertTrue(Arrays.equals(expectedOutput.getConfidences(), actualOutput.getConfidences()));
+			}
+		}
+	}
+
+	/**
+	 * Tests if a row set from a {@link MultiLabelOutput} must have the kinds of
+	 * output of the rows written label by label
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetWithOtherKinds() {
+		MultiLabelOutputMatrix matrix = new MultiLabelOutputMatrix(2, 2);
+		matrix.setConfidence(0, 0, 0.5);
+		matrix.set(1, new MultiLabelOutput(new boolean[]{true, false}));
+	}
+}
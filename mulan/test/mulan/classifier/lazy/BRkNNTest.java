@@ -16,6 +16,7 @@
 package mulan.classifier.lazy;
 
 import junit.framework.Assert;
+import mulan.data.MultiLabelInstances;
 
 import org.junit.Test;
 
@@ -40,4 +41,29 @@ public class BRkNNTest extends MultiLabelKNNTest {
         // common tests
         Assert.assertTrue(learner.isUpdatable());
     }
+
+    /**
+     * Tests if selecting k again from the cached neighbors gives the same k as
+     * a cross-validation over the same range when building
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReselectKViaCV() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+
+        BRkNN wideLearner = new BRkNN(DEFAULT_numOfNeighbors);
+        wideLearner.setkSelectionViaCV(true);
+        wideLearner.setCvMaxK(20);
+        wideLearner.build(trainDataSet);
+
+        BRkNN narrowLearner = new BRkNN(DEFAULT_numOfNeighbors);
+        narrowLearner.setkSelectionViaCV(true);
+        narrowLearner.setCvMaxK(5);
+        narrowLearner.build(trainDataSet);
+
+        wideLearner.reselectKViaCV(5);
+        Assert.assertEquals(narrowLearner.numOfNeighbors, wideLearner.numOfNeighbors);
+    }
 }
@@ -15,11 +15,21 @@
  */
 package mulan.classifier.lazy;
 
+import junit.framework.Assert;
+
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Test;
 
 import mulan.classifier.MultiLabelLearnerBase;
 import mulan.classifier.MultiLabelLearnerTestBase;
+import mulan.classifier.MultiLabelOutput;
+import mulan.data.MultiLabelInstances;
+import weka.core.EuclideanDistance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.neighboursearch.BallTree;
+import weka.core.neighboursearch.LinearNNSearch;
 
 @Ignore
 public abstract class MultiLabelKNNTest extends MultiLabelLearnerTestBase {
@@ -33,4 +43,111 @@ public abstract class MultiLabelKNNTest extends MultiLabelLearnerTestBase {
 
 	@Before
 	abstract public void setUp();
+
+	/**
+	 * Tests if the learner produces the same output with an exact ball tree
+	 * search as with the default linear search
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testBallTreeSearch() throws Exception {
+		MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+				path + "emotions.xml");
+		MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+				path + "emotions.xml");
+
+		MultiLabelKNN ballTreeLearner = (MultiLabelKNN) learner.makeCopy();
+		ballTreeLearner.setNearestNeighbourSearch(new BallTree());
+		learner.build(trainDataSet);
+		ballTreeLearner.build(trainDataSet);
+
+		Instances instances = testDataSet.getDataSet();
+		for (int i = 0; i < instances.numInstances(); i++) {
+			MultiLabelOutput mlo1 = learner.makePrediction(instances.instance(i));
+			MultiLabelOutput mlo2 = ballTreeLearner.makePrediction(instances.instance(i));
+			Assert.assertEquals(mlo1, mlo2);
+		}
+	}
+
+	/**
+	 * Tests if the learner can be built and make predictions with an
+	 * approximate search, and if the search finds at least 80% of the true
+	 * nearest neighbors of the test instances. A neighbor found by the approximate search counts as a true
+	 * one when it is not farther than the k-th neighbor of the exact search.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testRandomProjectionLSHSearch() throws Exception {
+		MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+				path + "emotions.xml");
+		MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+				path + "emotions.xml");
+
+		RandomProjectionLSH lsh = new RandomProjectionLSH(8, 4);
+		lsh.setSeed(1);
+		learner.setNearestNeighbourSearch(lsh);
+		learner.build(trainDataSet);
+
+		EuclideanDistance distance = new EuclideanDistance();
+		distance.setAttributeIndices(learner.dfunc.getAttributeIndices());
+		distance.setInvertSelection(true);
+		LinearNNSearch exact = new LinearNNSearch();
+		exact.setDistanceFunction(distance);
+		exact.setInstances(learner.train);
+
+		int k = learner.numOfNeighbors;
+		int found = 0;
+		Instances instances = testDataSet.getDataSet();
+		for (int i = 0; i < instances.numInstances(); i++) {
+			MultiLabelOutput mlo = learner.makePrediction(instances.instance(i));
+			Assert.assertEquals(trainDataSet.getNumLabels(), mlo.getRanking().length);
+
+			Instance target = instances.instance(i);
+			exact.kNearestNeighbours(target, k);
+			double kthDistance = exact.getDistances()[k - 1];
+			Instances neighbors = lsh.kNearestNeighbours(target, k);
+			for (int j = 0; j < neighbors.numInstances(); j++) {
+				if (distance.distance(target, neighbors.instance(j)) <= kthDistance) {
+					found++;
+				}
+			}
+		}
+		double recall = (double) found / (k * instances.numInstances());
+		Assert.assertTrue("recall " + recall, recall >= 0.8);
+	}
+
+	/**
+	 * Tests if the learner produces the same output when the neighbors of the
+	 * training instances are searched concurrently, on a shared linear search
+	 * or ball tree
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testMultiThreadedBuild() throws Exception {
+		MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+				path + "emotions.xml");
+		MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+				path + "emotions.xml");
+
+		MultiLabelKNN threadedLearner = (MultiLabelKNN) learner.makeCopy();
+		threadedLearner.setMaxConcurrentModels(3);
+		MultiLabelKNN threadedBallTreeLearner = (MultiLabelKNN) learner.makeCopy();
+		threadedBallTreeLearner.setNearestNeighbourSearch(new BallTree());
+		threadedBallTreeLearner.setMaxConcurrentModels(3);
+		learner.build(trainDataSet);
+		threadedLearner.build(trainDataSet);
+		threadedBallTreeLearner.build(trainDataSet);
+
+		Instances instances = testDataSet.getDataSet();
+		for (int i = 0; i < instances.numInstances(); i++) {
+			MultiLabelOutput mlo1 = learner.makePrediction(instances.instance(i));
+			MultiLabelOutput mlo2 = threadedLearner.makePrediction(instances.instance(i));
+			MultiLabelOutput mlo3 = threadedBallTreeLearner.makePrediction(instances.instance(i));
+			Assert.assertEquals(mlo1, mlo2);
+			Assert.assertEquals(mlo1, mlo3);
+		}
+	}
 }
@@ -15,8 +15,18 @@
  */
 package mulan.classifier.meta;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import mulan.classifier.MultiLabelOutput;
 import mulan.classifier.transformation.LabelPowerset;
+import mulan.data.MultiLabelInstances;
+
+import org.junit.Assert;
+import org.junit.Test;
+
 import weka.classifiers.trees.J48;
+import weka.core.Instances;
 
 public class RAkELTest extends MultiLabelMetaLearnerTest {
 
@@ -25,4 +35,34 @@ public class RAkELTest extends MultiLabelMetaLearnerTest {
         learner = new RAkEL(new LabelPowerset(new J48()));
     }
 
+    @Test
+    public void testConcurrentPrediction() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+        MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+                path + "emotions.xml");
+
+        learner.build(trainDataSet);
+        RAkEL concurrentLearner = (RAkEL) learner.makeCopy();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            concurrentLearner.setExecutor(executor);
+            Instances instances = testDataSet.getDataSet();
+            for (int i = 0; i < instances.numInstances(); i++) {
+                // the early stopping learner starts from the same state for each instance
+                RAkEL stoppingLearner = (RAkEL) concurrentLearner.makeCopy();
+                stoppingLearner.setExecutor(executor);
+                stoppingLearner.setStopVotingWhenDecided(true);
+
+                MultiLabelOutput mlo1 = learner.makePrediction(instances.instance(i));
+                MultiLabelOutput mlo2 = concurrentLearner.makePrediction(instances.instance(i));
+                MultiLabelOutput mlo3 = stoppingLearner.makePrediction(instances.instance(i));
+                Assert.assertEquals(mlo1, mlo2);
+                Assert.assertTrue(Arrays.equals(mlo1.getBipartition(), mlo3.getBipartition()));
+                Assert.assertFalse(mlo3.hasConfidences());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -15,13 +15,35 @@
  */
 package mulan.classifier.meta.thresholding;
 
+import java.io.FileReader;
+
 import mulan.classifier.meta.MultiLabelMetaLearnerTest;
 import mulan.classifier.transformation.CalibratedLabelRanking;
+
+import org.junit.BeforeClass;
+
 import weka.classifiers.trees.M5P;
 import weka.classifiers.trees.J48;
+import weka.core.Instances;
 
 public class ThresholdPredictionTest extends MultiLabelMetaLearnerTest {
 
+    /**
+     * The first M5P built in a JVM lowers weka.core.Utils.SMALL, the tolerance
+     * J48 compares values with, from 1e-6 to 1e-10 for good. The J48 models
+     * built before it differ from the ones built after it, so a test comparing
+     * two learners fails when it is the first one to build an M5P, depending on
+     * the order of the tests. An M5P is built once before any test instead.
+     *
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        Instances data = new Instances(new FileReader("./data/testData/emotions-test.arff"));
+        data.setClassIndex(0);
+        new M5P().buildClassifier(data);
+    }
+
     @Override
     public void setUp() throws Exception {
         learner = new ThresholdPrediction(new CalibratedLabelRanking(new J48()), new M5P(), Meta.MetaData.CONTENT, 3);
@@ -15,10 +15,14 @@
  */
 package mulan.classifier.neural;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
 import mulan.classifier.neural.model.ActivationTANH;
 import mulan.classifier.neural.model.BasicNeuralNet;
 import mulan.classifier.neural.model.NeuralNet;
@@ -113,4 +117,67 @@ public class BPMLLAlgorithmTest {
 		assertTrue("The error of the model should be decreasing with iterations.",
 				error > algorithm.learn(INPUT_PATTERN, EXPECTED_LABELS, LEARNING_RATE));
 	}
+	
+	@Test
+	public void testLearnSparseInput(){
+		int[] topology = new int[] { 6, 4, 3 };
+		NeuralNet denseNet = new BasicNeuralNet(topology, 1, ActivationTANH.class, new Random(1));
+		NeuralNet sparseNet = new BasicNeuralNet(topology, 1, ActivationTANH.class, new Random(1));
+		BPMLLAlgorithm denseAlgorithm = new BPMLLAlgorithm(denseNet, 0.01);
+		BPMLLAlgorithm sparseAlgorithm = new BPMLLAlgorithm(sparseNet, 0.01);
+		int[][] inputIndices = new int[][] { { 0, 3 }, { 5 }, { 1, 3, 4 }, { 0 } };
+		double[][] inputValues = new double[][] { { 1, -0.5 }, { 0.3 }, { -1, 0.2, 0.7 }, { 0.9 } };
+		for (int iteration = 0; iteration < 5; iteration++) {
+			for (int p = 0; p < inputIndices.length; p++) {
+				double[] inputPattern = new double[topology[0]];
+				for (int i = 0; i < inputIndices[p].length; i++) {
+					inputPattern[inputIndices[p][i]] = inputValues[p][i];
+				}
+				assertEquals("Learning error for a sparse input is not as expected.",
+						denseAlgorithm.learn(inputPattern, EXPECTED_LABELS, LEARNING_RATE),
+						sparseAlgorithm.learn(inputIndices[p], inputValues[p], EXPECTED_LABELS, LEARNING_RATE), 1e-12);
+			}
+		}
+		sparseAlgorithm.applyDeferredWeightsDecay();
+		for (int layerIndex = 1; layerIndex < topology.length; layerIndex++) {
+			for (int n = 0; n < topology[layerIndex]; n++) {
+				assertArrayEquals("Weights learned from sparse input are not as expected.",
+						denseNet.getLayerUnits(layerIndex).get(n).getWeights(),
+						sparseNet.getLayerUnits(layerIndex).get(n).getWeights(), 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void testLearnMixedSparseAndDenseInput(){
+		int[] topology = new int[] { 6, 4, 3 };
+		NeuralNet denseNet = new BasicNeuralNet(topology, 1, ActivationTANH.class, new Random(1));
+		NeuralNet mixedNet = new BasicNeuralNet(topology, 1, ActivationTANH.class, new Random(1));
+		BPMLLAlgorithm denseAlgorithm = new BPMLLAlgorithm(denseNet, 0.01);
+		BPMLLAlgorithm mixedAlgorithm = new BPMLLAlgorithm(mixedNet, 0.01);
+		int[][] inputIndices = new int[][] { { 0, 3 }, { 5 }, { 1, 3, 4 }, { 0 }, { 2 } };
+		double[][] inputValues = new double[][] { { 1, -0.5 }, { 0.3 }, { -1, 0.2, 0.7 }, { 0.9 }, { -0.4 } };
+		for (int iteration = 0; iteration < 5; iteration++) {
+			for (int p = 0; p < inputIndices.length; p++) {
+				double[] inputPattern = new double[topology[0]];
+				for (int i = 0; i < inputIndices[p].length; i++) {
+					inputPattern[inputIndices[p][i]] = inputValues[p][i];
+				}
+				double expected = denseAlgorithm.learn(inputPattern, EXPECTED_LABELS, LEARNING_RATE);
+				double actual = (p % 2 == 0)
+						? mixedAlgorithm.learn(inputIndices[p], inputValues[p], EXPECTED_LABELS, LEARNING_RATE)
+						: mixedAlgorithm.learn(inputPattern, EXPECTED_LABELS, LEARNING_RATE);
+				assertEquals("Learning error for a mix of sparse and dense inputs is not as expected.",
+						expected, actual, 1e-12);
+			}
+		}
+		mixedAlgorithm.applyDeferredWeightsDecay();
+		for (int layerIndex = 1; layerIndex < topology.length; layerIndex++) {
+			for (int n = 0; n < topology[layerIndex]; n++) {
+				assertArrayEquals("Weights learned from a mix of sparse and dense inputs are not as expected.",
+						denseNet.getLayerUnits(layerIndex).get(n).getWeights(),
+						mixedNet.getLayerUnits(layerIndex).get(n).getWeights(), 1e-12);
+			}
+		}
+	}
 }
@@ -0,0 +1,158 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier.neural;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import mulan.classifier.neural.model.ActivationTANH;
+import mulan.classifier.neural.model.BasicNeuralNet;
+import mulan.classifier.neural.model.MatrixNeuralNet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BPMLLBatchAlgorithmTest {
+
+	private static final double LEARNING_RATE = 0.05;
+	private static final double WEIGHTS_DECAY_COST = 0.00001;
+	private static final double[] INPUT_PATTERN = new double[] { -1, 1 };
+	private static final double[] EXPECTED_LABELS = new double[] { -1, 1, -1 };
+	private MatrixNeuralNet neuralNet;
+	private BPMLLBatchAlgorithm algorithm;
+	
+	@Before
+	public void setUp(){
+		neuralNet = createNeuralNet();
+		algorithm = new BPMLLBatchAlgorithm(neuralNet, WEIGHTS_DECAY_COST);
+	}
+	
+	@After
+	public void tearDown(){
+		algorithm = null;
+		neuralNet = null;
+	}
+	
+	private static MatrixNeuralNet createNeuralNet(){
+		return new MatrixNeuralNet(new BasicNeuralNet(new int[] { 2, 10, 3 }, 1, ActivationTANH.class, new Random(1)));
+	}
+	
+	private static List<DataPair> createBatch(int size){
+		Random random = new Random(1);
+		List<DataPair> batch = new ArrayList<DataPair>();
+		for (int i = 0; i < size; i++) {
+			double[] input = new double[] { random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1 };
+			double[] labels = new double[] { input[0] > 0 ? 1 : -1, input[1] > 0 ? 1 : -1, input[0] > input[1] ? 1 : -1 };
+			batch.add(new DataPair(input, labels));
+		}
+		return batch;
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testConstructorWithNullNeuralNet(){
+		new BPMLLBatchAlgorithm(null, WEIGHTS_DECAY_COST);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testConstructorWithWrongWeightsDecay(){
+		new BPMLLBatchAlgorithm(neuralNet, 0);
+	}
+	
+	@Test
+	public void testGetNetwork(){
+		assertSame("Network model returend by the algorithm is not as expected.", 
+				neuralNet, algorithm.getNetwork());
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testLearnWithWrongInput() throws Exception {
+		algorithm.learn(Arrays.asList(new DataPair(new double[1], EXPECTED_LABELS)), LEARNING_RATE);
+	}
+	
+	@Test
+	public void testLearnWithIgnoredPatterns() throws Exception {
+		double[] weights = neuralNet.getLayerWeights(1).clone();
+		double error = algorithm.learn(Arrays.asList(new DataPair(INPUT_PATTERN, new double[] { 1, 1, 1 })), LEARNING_RATE);
+		assertTrue("Learning error should be NaN if no pattern can be processed.", Double.isNaN(error));
+		assertArrayEquals("The network should not be updated if no pattern can be processed.", 
+				weights, neuralNet.getLayerWeights(1), 0);
+	}
+	
+	@Test
+	public void testAlgorithmLearnCore() throws Exception {
+		List<DataPair> batch = createBatch(100);
+		double error = algorithm.learn(batch, LEARNING_RATE);
+		for (int iteration = 0; iteration < 20; iteration++) {
+			algorithm.learn(batch, LEARNING_RATE);
+		}
+		assertTrue("The error of the model should be decreasing with iterations.",
+				error > algorithm.learn(batch, LEARNING_RATE));
+	}
+	
+	@Test
+	public void testLearnWithExecutor() throws Exception {
+		List<DataPair> batch = createBatch(100);
+		MatrixNeuralNet parallelNet = createNeuralNet();
+		BPMLLBatchAlgorithm parallelAlgorithm = new BPMLLBatchAlgorithm(parallelNet, WEIGHTS_DECAY_COST);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			parallelAlgorithm.setExecutor(executor);
+			for (int iteration = 0; iteration < 5; iteration++) {
+				assertEquals("The error should not depend on the executor.", 
+						algorithm.learn(batch, LEARNING_RATE), parallelAlgorithm.learn(batch, LEARNING_RATE), 0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		for (int layerIndex = 1; layerIndex < neuralNet.getLayersCount(); layerIndex++) {
+			assertArrayEquals("The weights should not depend on the executor.", 
+					neuralNet.getLayerWeights(layerIndex), parallelNet.getLayerWeights(layerIndex), 0);
+		}
+	}
+	
+	@Test
+	public void testLearnSparseInput() throws Exception {
+		List<DataPair> batch = new ArrayList<DataPair>();
+		List<DataPair> sparseBatch = new ArrayList<DataPair>();
+		for (DataPair pair : createBatch(50)) {
+			double value = pair.getInput()[1];
+			batch.add(new DataPair(new double[] { 0, value }, pair.getOutput()));
+			sparseBatch.add(new DataPair(2, new int[] { 1 }, new double[] { value }, pair.getOutput()));
+		}
+		MatrixNeuralNet sparseNet = createNeuralNet();
+		BPMLLBatchAlgorithm sparseAlgorithm = new BPMLLBatchAlgorithm(sparseNet, WEIGHTS_DECAY_COST);
+		for (int iteration = 0; iteration < 5; iteration++) {
+			assertEquals("Learning error for sparse input is not as expected.", 
+					algorithm.learn(batch, LEARNING_RATE), sparseAlgorithm.learn(sparseBatch, LEARNING_RATE), 0);
+		}
+		for (int layerIndex = 1; layerIndex < neuralNet.getLayersCount(); layerIndex++) {
+			assertArrayEquals("Weights learned from sparse input are not as expected.", 
+					neuralNet.getLayerWeights(layerIndex), sparseNet.getLayerWeights(layerIndex), 0);
+		}
+		assertArrayEquals("Output of the network for sparse input is not as expected.", 
+				neuralNet.feedForward(new double[] { 0, 0.5 }), sparseNet.feedForward(new int[] { 1 }, new double[] { 0.5 }), 0);
+	}
+}
@@ -149,6 +149,26 @@ public class BPMLLTest extends MultiLabelLearnerTestBase {
         Assert.assertNotNull(prediction.getRanking());
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetBatchSize_WithInvalid() {
+        learner.setBatchSize(0);
+    }
+
+    @Test
+    public void testMakePrediction_WithBatches() throws Exception {
+        MultiLabelInstances mlDataSet = DataSetBuilder.CreateDataSet(DATA_SET);
+        learner.setBatchSize(4);
+        learner.setNumThreads(2);
+        learner.build(mlDataSet);
+
+        MultiLabelOutput prediction = learner.makePrediction(mlDataSet.getDataSet().instance(0));
+
+        Assert.assertNotNull(prediction);
+        Assert.assertNotNull(prediction.getBipartition());
+        Assert.assertNotNull(prediction.getConfidences());
+        Assert.assertNotNull(prediction.getRanking());
+    }
+
     @Test(expected = InvalidDataException.class)
     public void testMakePrediction_WithInvalidData() throws Exception {
         MultiLabelInstances mlDataSet = DataSetBuilder.CreateDataSet(DATA_SET);
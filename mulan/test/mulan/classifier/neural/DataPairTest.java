@@ -80,4 +80,19 @@ public class DataPairTest {
 		double[] result = dataPair.getOutput();
 		assertTrue("Returned array is not as expectated.", Arrays.equals(TEST_OUTPUT, result));
 	}
+	
+	@Test
+	public void testSparseGetInput(){
+		DataPair sparsePair = new DataPair(TEST_INPUT.length, new int[]{ 2, 0 }, new double[]{ 3.3, 0.1 }, TEST_OUTPUT);
+		assertTrue("The data pair should be sparse.", sparsePair.isSparse());
+		assertFalse("The data pair should not be sparse.", dataPair.isSparse());
+		assertEquals("Input dimension is not as expected.", TEST_INPUT.length, sparsePair.getInputDim());
+		double[] result = sparsePair.getInput();
+		assertTrue("Returned array is not as expectated.", Arrays.equals(new double[]{0.1, 0, 3.3, 0}, result));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testSparseConstructorWithWrongIndex(){
+		new DataPair(TEST_INPUT.length, new int[]{ TEST_INPUT.length }, new double[]{ 1 }, TEST_OUTPUT);
+	}
 }
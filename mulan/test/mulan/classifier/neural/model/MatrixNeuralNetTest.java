@@ -0,0 +1,102 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.classifier.neural.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
+
+import mulan.core.ArgumentNullException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MatrixNeuralNetTest {
+
+	private static final double BIAS = 1;
+	private static final int[] NET_TOPOLOGY = new int[] { 2, 10, 4, 3 };
+	private static final double[] INPUT_PATTERN = new double[] { 1.0, -1.0 };
+	private BasicNeuralNet basicNet;
+	private MatrixNeuralNet neuralNet;
+	
+	@Before
+	public void setUp(){
+		basicNet = new BasicNeuralNet(NET_TOPOLOGY, BIAS, ActivationTANH.class, new Random(1));
+		neuralNet = new MatrixNeuralNet(basicNet);
+	}
+	
+	@After
+	public void tearDown(){
+		basicNet = null;
+		neuralNet = null;
+	}
+	
+	@Test(expected=ArgumentNullException.class)
+	public void testConstructorWithNullNeuralNet(){
+		new MatrixNeuralNet(null);
+	}
+	
+	@Test
+	public void testTopology(){
+		assertEquals("Count of neural network layers is not as expected.", NET_TOPOLOGY.length, neuralNet.getLayersCount());
+		assertEquals("Input size of the network is not as expected.", NET_TOPOLOGY[0], neuralNet.getNetInputSize());
+		assertEquals("Output size of the network is not as expected.", NET_TOPOLOGY[NET_TOPOLOGY.length - 1], neuralNet.getNetOutputSize());
+		for (int layerIndex = 1; layerIndex < NET_TOPOLOGY.length; layerIndex++) {
+			assertEquals("Size of a layer is not as expected.", NET_TOPOLOGY[layerIndex], neuralNet.getLayerSize(layerIndex));
+			assertEquals("Size of the weights matrix of a layer is not as expected.", 
+					NET_TOPOLOGY[layerIndex] * (NET_TOPOLOGY[layerIndex - 1] + 1), neuralNet.getLayerWeights(layerIndex).length);
+		}
+		assertSame(ActivationTANH.class, neuralNet.getActivationFunction().getClass());
+		assertEquals(BIAS, neuralNet.getBiasInput(), 0);
+	}
+	
+	@Test
+	public void testWeightsLayout(){
+		for (int layerIndex = 1; layerIndex < NET_TOPOLOGY.length; layerIndex++) {
+			double[] matrix = neuralNet.getLayerWeights(layerIndex);
+			int columns = NET_TOPOLOGY[layerIndex - 1] + 1;
+			for (int n = 0; n < NET_TOPOLOGY[layerIndex]; n++) {
+				double[] weights = basicNet.getLayerUnits(layerIndex).get(n).getWeights();
+				for (int i = 0; i < columns; i++) {
+					assertEquals("Weights of the network are not as expected.", weights[i], matrix[n * columns + i], 0);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testFeedForward(){
+		assertArrayEquals("Output of the network is not as expected.", 
+				basicNet.feedForward(INPUT_PATTERN), neuralNet.feedForward(INPUT_PATTERN), 0);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testFeedForwardWithWrongInput(){
+		neuralNet.feedForward(new double[] { 1.0 });
+	}
+	
+	@Test
+	public void testToBasicNeuralNet(){
+		neuralNet.getLayerWeights(1)[0] += 0.1;
+		BasicNeuralNet convertedNet = neuralNet.toBasicNeuralNet();
+		assertEquals("Count of neural network layers is not as expected.", NET_TOPOLOGY.length, convertedNet.getLayersCount());
+		assertArrayEquals("Output of the converted network is not as expected.", 
+				neuralNet.feedForward(INPUT_PATTERN), convertedNet.feedForward(INPUT_PATTERN), 0);
+	}
+}
@@ -223,4 +223,19 @@ public class NeuronTest {
 		}
 	}
 	
+	
+	@Test
+	public void testProcessSparseInput(){
+		double[] weights = neuron.getWeights();
+		Arrays.fill(weights, WEIGHTS_VALUE_FOR_PROCESS);
+		double expected = neuron.processInput(new double[]{ 0, 0.2, 0, 0, -0.1 });
+		double result = neuron.processInput(new int[]{ 4, 1 }, new double[]{ -0.1, 0.2 });
+		assertEquals("Output of the neuron for a sparse input is not as expected.", expected, result, 0);
+		assertEquals("Output of the neuron is not as expected.", result, neuron.getOutput(), 0);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testProcessSparseInputWithWrongIndex(){
+		neuron.processInput(new int[]{ INPUT_DIM }, new double[]{ 1 });
+	}
 }
@@ -15,8 +15,16 @@
  */
 package mulan.classifier.transformation;
 
+import java.util.Arrays;
+
+import mulan.data.MultiLabelInstances;
+
+import org.junit.Assert;
+import org.junit.Test;
+
 import weka.classifiers.Classifier;
 import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Instances;
 
 public class CalibratedLabelRankingTest extends TransformationBasedMultiLabelLearnerTest {
 
@@ -25,4 +33,35 @@ public class CalibratedLabelRankingTest extends TransformationBasedMultiLabelLea
         Classifier baseClassifier = new NaiveBayes();
         learner = new CalibratedLabelRanking(baseClassifier);
     }
+
+    @Test
+    public void testQWeightedVoting() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+        MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+                path + "emotions.xml");
+
+        CalibratedLabelRanking clr = (CalibratedLabelRanking) learner;
+        for (boolean soft : new boolean[]{false, true}) {
+            clr.setSoft(soft);
+            clr.setStandardVoting(true);
+            clr.build(trainDataSet);
+            Instances instances = testDataSet.getDataSet();
+            boolean[][] bipartitions = new boolean[instances.numInstances()][];
+            for (int i = 0; i < instances.numInstances(); i++) {
+                bipartitions[i] = clr.makePrediction(instances.instance(i)).getBipartition();
+            }
+            long standardEvaluations = clr.getNumPairwiseEvaluations();
+            Assert.assertEquals(instances.numInstances(), clr.getNumPredictions());
+
+            clr.resetEvaluationCounts();
+            clr.setStandardVoting(false);
+            for (int i = 0; i < instances.numInstances(); i++) {
+                Assert.assertTrue(Arrays.equals(bipartitions[i],
+                        clr.makePrediction(instances.instance(i)).getBipartition()));
+            }
+            Assert.assertEquals(instances.numInstances(), clr.getNumPredictions());
+            Assert.assertTrue(clr.getNumPairwiseEvaluations() < standardEvaluations);
+        }
+    }
 }
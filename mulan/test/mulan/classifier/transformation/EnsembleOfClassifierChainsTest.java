@@ -15,8 +15,19 @@
  */
 package mulan.classifier.transformation;
 
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
+import mulan.data.MultiLabelInstances;
+
+import org.junit.Assert;
+import org.junit.Test;
+
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
+import weka.core.Instances;
 
 public class EnsembleOfClassifierChainsTest extends TransformationBasedMultiLabelLearnerTest {
 
@@ -25,4 +36,68 @@ public class EnsembleOfClassifierChainsTest extends TransformationBasedMultiLabe
         Classifier baseClassifier = new J48();
         learner = new EnsembleOfClassifierChains(baseClassifier, 10, false, false);
     }
+
+    @Test
+    public void testConcurrentPrediction() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+        MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+                path + "emotions.xml");
+
+        learner.build(trainDataSet);
+        EnsembleOfClassifierChains concurrentLearner = (EnsembleOfClassifierChains) learner.makeCopy();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            concurrentLearner.setExecutor(executor);
+            Instances instances = testDataSet.getDataSet();
+            for (int i = 0; i < instances.numInstances(); i++) {
+                // the early stopping learner starts from the same state for each instance
+                EnsembleOfClassifierChains stoppingLearner = (EnsembleOfClassifierChains) concurrentLearner.makeCopy();
+                stoppingLearner.setExecutor(executor);
+                stoppingLearner.setStopVotingWhenDecided(true);
+
+                MultiLabelOutput mlo1 = learner.makePrediction(instances.instance(i));
+                MultiLabelOutput mlo2 = concurrentLearner.makePrediction(instances.instance(i));
+                MultiLabelOutput mlo3 = stoppingLearner.makePrediction(instances.instance(i));
+                Assert.assertEquals(mlo1, mlo2);
+                Assert.assertTrue(Arrays.equals(mlo1.getBipartition(), mlo3.getBipartition()));
+                Assert.assertFalse(mlo3.hasConfidences());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tests if the predictions for a batch of instances are the same as the
+     * predictions for each instance in turn, when the votes are gathered
+     * concurrently and stop as soon as the bipartition is decided
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMakePredictionsStoppingEarly() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+        MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+                path + "emotions.xml");
+
+        EnsembleOfClassifierChains stoppingLearner = (EnsembleOfClassifierChains) learner;
+        stoppingLearner.setStopVotingWhenDecided(true);
+        stoppingLearner.build(trainDataSet);
+        EnsembleOfClassifierChains copy = (EnsembleOfClassifierChains) stoppingLearner.makeCopy();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            stoppingLearner.setExecutor(executor);
+            Instances instances = testDataSet.getDataSet();
+            MultiLabelOutputMatrix predictions = stoppingLearner.makePredictions(instances);
+            for (int i = 0; i < instances.numInstances(); i++) {
+                MultiLabelOutput mlo = copy.makePrediction(instances.instance(i));
+                Assert.assertFalse(mlo.hasConfidences());
+                Assert.assertEquals(mlo, predictions.getOutput(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
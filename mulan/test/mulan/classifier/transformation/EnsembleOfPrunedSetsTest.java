@@ -15,8 +15,16 @@
  */
 package mulan.classifier.transformation;
 
+import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.MultiLabelOutputMatrix;
+import mulan.data.MultiLabelInstances;
+
+import org.junit.Assert;
+import org.junit.Test;
+
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
+import weka.core.Instances;
 
 public class EnsembleOfPrunedSetsTest extends TransformationBasedMultiLabelLearnerTest {
 
@@ -25,4 +33,32 @@ public class EnsembleOfPrunedSetsTest extends TransformationBasedMultiLabelLearn
         Classifier baseClassifier = new J48();
         learner = new EnsembleOfPrunedSets(63, 10, 0.5, 2, PrunedSets.Strategy.A, 3, baseClassifier);
     }
+
+    /**
+     * Tests if the predictions for a batch of instances are the same as the
+     * predictions for each instance in turn, when the votes stop as soon as the
+     * bipartition is decided
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testMakePredictionsStoppingEarly() throws Exception {
+        MultiLabelInstances trainDataSet = new MultiLabelInstances(path + "emotions-train.arff",
+                path + "emotions.xml");
+        MultiLabelInstances testDataSet = new MultiLabelInstances(path + "emotions-test.arff",
+                path + "emotions.xml");
+
+        EnsembleOfPrunedSets stoppingLearner = (EnsembleOfPrunedSets) learner;
+        stoppingLearner.setStopVotingWhenDecided(true);
+        stoppingLearner.build(trainDataSet);
+        EnsembleOfPrunedSets copy = (EnsembleOfPrunedSets) stoppingLearner.makeCopy();
+
+        Instances instances = testDataSet.getDataSet();
+        MultiLabelOutputMatrix predictions = stoppingLearner.makePredictions(instances);
+        for (int i = 0; i < instances.numInstances(); i++) {
+            MultiLabelOutput mlo = copy.makePrediction(instances.instance(i));
+            Assert.assertFalse(mlo.hasConfidences());
+            Assert.assertEquals(mlo, predictions.getOutput(i));
+        }
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.data;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import weka.core.Instances;
+
+/**
+ * Unit test routines for {@link InstancesSample}.
+ */
+public class InstancesSampleTest {
+
+	private static final String path = "./data/testData/";
+	private MultiLabelInstances dataSet;
+
+	@Before
+	public void setUp() throws Exception {
+		dataSet = new MultiLabelInstances(path + "emotions-train.arff", path + "emotions.xml");
+		Random random = new Random(5);
+		Instances data = dataSet.getDataSet();
+		for (int i = 0; i < data.numInstances(); i++) {
+			data.instance(i).setWeight(random.nextInt(4) * random.nextDouble());
+		}
+	}
+
+	private static void assertSameInstances(Instances expected, Instances actual) {
+		Assert.assertEquals(expected.numInstances(), actual.numInstances());
+		for (int i = 0; i < expected.numInstances(); i++) {
+			Assert.assertTrue(Arrays.equals(expected.instance(i).toDoubleArray(),
+					actual.instance(i).toDoubleArray()));
+			Assert.assertEquals(expected.instance(i).weight(), actual.instance(i).weight());
+		}
+	}
+
+	@Test
+	public void testSameSamplesAsInstances() throws Exception {
+		Instances data = new Instances(dataSet.getDataSet());
+		InstancesSample sample = new InstancesSample(dataSet);
+		Random random1 = new Random(3);
+		Random random2 = new Random(3);
+		for (int k = 0; k < 5; k++) {
+			data.randomize(random1);
+			sample.randomize(random2);
+			assertSameInstances(data, sample.materialize().getDataSet());
+
+			Instances bag = data.resampleWithWeights(new Random(k));
+			bag = new Instances(bag, 0, bag.numInstances() / 2);
+			InstancesSample bagSample = sample.resampleWithWeights(new Random(k));
+			bagSample = new InstancesSample(bagSample, 0, bagSample.numInstances() / 2);
+			assertSameInstances(bag, bagSample.materialize().getDataSet());
+		}
+	}
+
+	@Test
+	public void testDataSetNotModified() throws Exception {
+		Instances data = new Instances(dataSet.getDataSet());
+		InstancesSample sample = new InstancesSample(dataSet);
+		sample.randomize(new Random(1));
+		Instances materialized = sample.resampleWithWeights(new Random(1)).materialize().getDataSet();
+		for (int i = 0; i < materialized.numInstances(); i++) {
+			materialized.instance(i).setValue(0, -1);
+		}
+		assertSameInstances(data, dataSet.getDataSet());
+		Assert.assertEquals(data.numInstances(), sample.numInstances());
+		Assert.assertSame(dataSet, sample.getDataSet());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRangeOutOfBounds() {
+		InstancesSample sample = new InstancesSample(dataSet);
+		new InstancesSample(sample, 1, sample.numInstances());
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit test routines for {@link LabelSet}.
+ */
+public class LabelSetTest {
+
+	private static double[] labels(int numLabels, int... members) {
+		double[] labels = new double[numLabels];
+		for (int member : members) {
+			labels[member] = 1;
+		}
+		return labels;
+	}
+
+	@Test
+	public void testBitString() throws Exception {
+		LabelSet labelSet = new LabelSet(labels(70, 0, 3, 63, 64, 69));
+		String bits = labelSet.toBitString();
+		Assert.assertEquals(70, bits.length());
+		Assert.assertEquals(bits.hashCode(), labelSet.hashCode());
+		Assert.assertEquals(5, labelSet.size());
+		Assert.assertEquals(labelSet, LabelSet.fromBitString(bits));
+		Assert.assertEquals(bits, LabelSet.fromBitString(bits).toString());
+	}
+
+	@Test(expected = Exception.class)
+	public void testFromBadBitString() throws Exception {
+		LabelSet.fromBitString("0120");
+	}
+
+	@Test
+	public void testEquals() {
+		LabelSet labelSet = new LabelSet(labels(70, 1, 65));
+		Assert.assertEquals(labelSet, new LabelSet(labels(70, 1, 65)));
+		Assert.assertFalse(labelSet.equals(new LabelSet(labels(70, 1, 66))));
+		Assert.assertFalse(labelSet.equals(new LabelSet(labels(71, 1, 65))));
+		Assert.assertEquals(2, labelSet.hammingDifference(new LabelSet(labels(70, 1, 66))));
+	}
+
+	@Test
+	public void testIntersection() {
+		LabelSet intersection = LabelSet.intersection(new LabelSet(labels(70, 1, 2, 65)),
+				new LabelSet(labels(70, 2, 65, 66)));
+		Assert.assertEquals(new LabelSet(labels(70, 2, 65)), intersection);
+		Assert.assertNull(LabelSet.intersection(new LabelSet(labels(3, 1)), new LabelSet(labels(4, 1))));
+	}
+
+	@Test
+	public void testGetSubsets() throws Exception {
+		ArrayList<LabelSet> subsets = new LabelSet(labels(5, 0, 2, 4)).getSubsets();
+		String[] expected = { "00001", "00100", "00101", "10000", "10001", "10100" };
+		Assert.assertEquals(expected.length, subsets.size());
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(expected[i], subsets.get(i).toBitString());
+		}
+		Assert.assertEquals(0, new LabelSet(labels(5, 3)).getSubsets().size());
+		Assert.assertEquals(0, new LabelSet(labels(5)).getSubsets().size());
+	}
+
+	@Test
+	public void testGetSubsetsWithCap() throws Exception {
+		LabelSet labelSet = new LabelSet(labels(100, 0, 10, 20, 30, 40, 50, 60, 70, 80, 90));
+		ArrayList<LabelSet> all = labelSet.getSubsets();
+		Assert.assertEquals(1022, all.size());
+		ArrayList<LabelSet> first = labelSet.getSubsets(100);
+		Assert.assertEquals(100, first.size());
+		Assert.assertEquals(all.subList(0, 100), first);
+	}
+
+	@Test(expected = Exception.class)
+	public void testGetSubsetsOfLargeLabelSet() throws Exception {
+		double[] labels = new double[LabelSet.MAX_SUBSET_MEMBERS + 1];
+		Arrays.fill(labels, 1);
+		new LabelSet(labels).getSubsets();
+	}
+}
@@ -0,0 +1,228 @@
+/*
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 2 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package mulan.evaluation.measure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import mulan.classifier.MultiLabelOutput;
+import mulan.classifier.transformation.BinaryRelevance;
+import mulan.data.MultiLabelInstances;
+import mulan.evaluation.GroundTruth;
+import weka.classifiers.Evaluation;
+import weka.classifiers.evaluation.NominalPrediction;
+import weka.classifiers.trees.J48;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Unit test routines for the AUC and average precision measures, which keep
+ * their confidences in {@link LabelConfidences}.
+ */
+public class LabelConfidencesTest {
+
+	private static final String path = "./data/testData/";
+	private static final int numLabels = 5;
+	private static final int numExamples = 300;
+	private double[][] confidences;
+	private boolean[][] truth;
+
+	@Before
+	public void setUp() {
+		// confidences on a coarse grid, so that many of them are tied
+		Random random = new Random(1);
+		confidences = new double[numExamples][numLabels];
+		truth = new boolean[numExamples][numLabels];
+		for (int i = 0; i < numExamples; i++) {
+			for (int j = 0; j < numLabels; j++) {
+				truth[i][j] = random.nextDouble() < 0.3;
+				double confidence = random.nextDouble() + (truth[i][j] ? 0.3 : 0);
+				confidences[i][j] = Math.min(1, Math.round(confidence * 20) / 20.0);
+			}
+		}
+	}
+
+	private void update(Measure[] measures) {
+		for (Measure measure : measures) {
+			measure.reset();
+			for (int i = 0; i < numExamples; i++) {
+				measure.update(new MultiLabelOutput(confidences[i], 0.5), new GroundTruth(truth[i]));
+			}
+		}
+	}
+
+	private static Evaluation newEvaluation() throws Exception {
+		ArrayList<String> classValues = new ArrayList<String>();
+		classValues.add("0");
+		classValues.add("1");
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("class", classValues));
+		Instances header = new Instances("predictions", attributes, 0);
+		header.setClassIndex(0);
+		return new Evaluation(header);
+	}
+
+	private static void record(Evaluation evaluation, double confidence, boolean actual) throws Exception {
+		Instance instance = new DenseInstance(1, new double[]{actual ? 1 : 0});
+		instance.setDataset(evaluation.getHeader());
+		evaluation.evaluateModelOnceAndRecordPrediction(new double[]{1 - confidence, confidence}, instance);
+	}
+
+	/**
+	 * Tests if the exact AUC is the one of Weka's ThresholdCurve, as calculated
+	 * by Weka's Evaluation
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExactAUCSameAsThresholdCurve() throws Exception {
+		MacroAUC macroAUC = new MacroAUC(numLabels);
+		MicroAUC microAUC = new MicroAUC(numLabels);
+		update(new Measure[]{macroAUC, microAUC});
+
+		Evaluation[] labelEvaluations = new Evaluation[numLabels];
+		Evaluation allEvaluation = newEvaluation();
+		for (int j = 0; j < numLabels; j++) {
+			labelEvaluations[j] = newEvaluation();
+		}
+		for (int i = 0; i < numExamples; i++) {
+			for (int j = 0; j < numLabels; j++) {
+				record(labelEvaluations[j], confidences[i][j], truth[i][j]);
+				record(allEvaluation, confidences[i][j], truth[i][j]);
+			}
+		}
+
+		double sum = 0;
+		for (int j = 0; j < numLabels; j++) {
+			double expected = labelEvaluations[j].areaUnderROC(1);
+			Assert.assertEquals(expected, macroAUC.getValue(j), 1e-12);
+			sum += expected;
+		}
+		Assert.assertEquals(sum / numLabels, macroAUC.getValue(), 1e-12);
+		Assert.assertEquals(allEvaluation.areaUnderROC(1), microAUC.getValue(), 1e-12);
+		Assert.assertEquals(0.0, macroAUC.getErrorBound());
+		Assert.assertEquals(0.0, microAUC.getErrorBound());
+	}
+
+	/**
+	 * Tests if the deprecated predictions of the AUC and average precision
+	 * measures are filled from the kept confidences, also after a reset
+	 */
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedPredictions() {
+		MacroAUC macroAUC = new MacroAUC(numLabels);
+		MeanAveragePrecision map = new MeanAveragePrecision(numLabels);
+		update(new Measure[]{macroAUC, map});
+		// the second update resets the measures first
+		update(new Measure[]{macroAUC, map});
+
+		Assert.assertEquals(numExamples * numLabels, macroAUC.getAllPredictions().size());
+		List<LabelBasedAveragePrecision.ConfidenceActual>[] confact = map.getConfact();
+		for (int j = 0; j < numLabels; j++) {
+			Assert.assertEquals(numExamples, macroAUC.getPredictions()[j].size());
+			Assert.assertEquals(numExamples, confact[j].size());
+			for (int i = 0; i < numExamples; i++) {
+				NominalPrediction prediction = (NominalPrediction) macroAUC.getPredictions()[j].get(i);
+				Assert.assertEquals(confidences[i][j], prediction.distribution()[1]);
+				Assert.assertEquals(truth[i][j] ? 1.0 : 0.0, prediction.actual());
+				Assert.assertEquals(confidences[i][j], confact[j].get(i).getConfidence());
+				Assert.assertEquals(truth[i][j], confact[j].get(i).getActual());
+			}
+		}
+		Assert.assertSame(macroAUC.m_Predictions, macroAUC.getPredictions());
+	}
+
+	/**
+	 * Tests if the exact measures reproduce the values of a binary relevance
+	 * evaluation on the emotions data set, as computed by the earlier
+	 * NominalPrediction and ConfidenceActual based implementation
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testExactValuesOnEmotions() throws Exception {
+		MultiLabelInstances train = new MultiLabelInstances(path + "emotions-train.arff", path + "emotions.xml");
+		MultiLabelInstances test = new MultiLabelInstances(path + "emotions-test.arff", path + "emotions.xml");
+		BinaryRelevance learner = new BinaryRelevance(new J48());
+		learner.build(train);
+
+		int[] labelIndices = test.getLabelIndices();
+		MacroAUC macroAUC = new MacroAUC(labelIndices.length);
+		MicroAUC microAUC = new MicroAUC(labelIndices.length);
+		MeanAveragePrecision map = new MeanAveragePrecision(labelIndices.length);
+		GeometricMeanAveragePrecision gmap = new GeometricMeanAveragePrecision(labelIndices.length);
+		Measure[] measures = {macroAUC, microAUC, map, gmap};
+		Instances instances = test.getDataSet();
+		for (int i = 0; i < instances.numInstances(); i++) {
+			Instance instance = instances.instance(i);
+			MultiLabelOutput output = learner.makePrediction(instance);
+			boolean[] actual = new boolean[labelIndices.length];
+			for (int j = 0; j < labelIndices.length; j++) {
+				actual[j] = instance.stringValue(labelIndices[j]).equals("1");
+			}
+			for (Measure measure : measures) {
+				measure.update(output, new GroundTruth(actual));
+			}
+		}
+
+		Assert.assertEquals(0.6932603606226401, macroAUC.getValue(), 1e-12);
+		Assert.assertEquals(0.7158408408408409, macroAUC.getValue(0), 1e-12);
+		Assert.assertEquals(0.6971056176727181, microAUC.getValue(), 1e-12);
+		Assert.assertEquals(0.566655591945252, map.getValue(), 1e-12);
+		Assert.assertEquals(0.5059749718864773, map.getValue(0), 1e-12);
+		Assert.assertEquals(0.5521400581189497, gmap.getValue(), 1e-12);
+	}
+
+	/**
+	 * Tests if the binned measures are within their error bound of the exact
+	 * ones
+	 */
+	@Test
+	public void testBinnedWithinErrorBound() {
+		int[] bins = {10, 100, 1000};
+		for (int numBins : bins) {
+			MacroAUC macroAUC = new MacroAUC(numLabels);
+			MicroAUC microAUC = new MicroAUC(numLabels);
+			MeanAveragePrecision map = new MeanAveragePrecision(numLabels);
+			GeometricMeanAveragePrecision gmap = new GeometricMeanAveragePrecision(numLabels);
+			MacroAUC binnedMacroAUC = new MacroAUC(numLabels, numBins);
+			MicroAUC binnedMicroAUC = new MicroAUC(numLabels, numBins);
+			MeanAveragePrecision binnedMap = new MeanAveragePrecision(numLabels, numBins);
+			GeometricMeanAveragePrecision binnedGmap = new GeometricMeanAveragePrecision(numLabels, numBins);
+			update(new Measure[]{macroAUC, microAUC, map, gmap, binnedMacroAUC, binnedMicroAUC,
+						binnedMap, binnedGmap});
+
+			Assert.assertEquals(macroAUC.getValue(), binnedMacroAUC.getValue(), binnedMacroAUC.getErrorBound());
+			Assert.assertEquals(microAUC.getValue(), binnedMicroAUC.getValue(), binnedMicroAUC.getErrorBound());
+			Assert.assertEquals(map.getValue(), binnedMap.getValue(), binnedMap.getErrorBound());
+			Assert.assertEquals(gmap.getValue(), binnedGmap.getValue(), binnedGmap.getErrorBound());
+			for (int j = 0; j < numLabels; j++) {
+				Assert.assertEquals(macroAUC.getValue(j), binnedMacroAUC.getValue(j),
+						binnedMacroAUC.getErrorBound(j));
+				Assert.assertEquals(map.getValue(j), binnedMap.getValue(j), binnedMap.getErrorBound(j));
+			}
+		}
+	}
+}